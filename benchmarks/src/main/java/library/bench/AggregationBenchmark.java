@@ -0,0 +1,87 @@
+package library.bench;
+
+import library.util.LongIntHashMap;
+import library.util.ObjectIntHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user fine totals as the reports aggregate them: {@link #UPDATES} fines
+ * spread over {@code users} users, summed into a fresh map.
+ * <p>
+ * Compares a boxed {@code HashMap<String, Integer>} (the old
+ * {@code getOrDefault(userId, 0) + fine} pattern) with {@link ObjectIntHashMap}
+ * and, keyed by user ordinal, {@link LongIntHashMap}. Results are per update,
+ * so {@code gc.alloc.rate.norm} shows the bytes each update allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    /** Fines summed per invocation. */
+    public static final int UPDATES = 1_000_000;
+    // fine sums quickly leave the Integer cache (-128..127), like real totals
+    private static final int FINE = 100;
+
+    @Param({"10000", "1000000"})
+    public int users;
+
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "U" + i;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public Map<String, Integer> boxedHashMap() {
+        Map<String, Integer> totals = new HashMap<>();
+        for (int i = 0; i < UPDATES; i++) {
+            String id = ids[(int) ((i * 31L) % users)];
+            totals.put(id, totals.getOrDefault(id, 0) + FINE);
+        }
+        return totals;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public ObjectIntHashMap<String> objectIntHashMap() {
+        ObjectIntHashMap<String> totals = new ObjectIntHashMap<>();
+        for (int i = 0; i < UPDATES; i++) {
+            totals.addTo(ids[(int) ((i * 31L) % users)], FINE);
+        }
+        return totals;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public LongIntHashMap longIntHashMapByOrdinal() {
+        LongIntHashMap totals = new LongIntHashMap();
+        for (int i = 0; i < UPDATES; i++) {
+            totals.addTo((i * 31L) % users, FINE);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,96 @@
+package library.bench;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.service.LibraryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One borrow followed by the return of the same item, by a user without
+ * loans or fines. The metered variant runs the same cycle with latency
+ * metrics enabled.
+ * <p>
+ * Each invocation runs a batch of {@link #BATCH} cycles and is reported per
+ * cycle. Cycle {@code i} of a batch uses the {@code i}-th of {@code BATCH}
+ * free users and books, so every cycle starts from the same state: its user
+ * has no loans and its book is available. The loans of a batch are deleted
+ * after it, outside the measured time, so every batch starts with the
+ * configured number of loans. A batch takes hundreds of microseconds, so the
+ * per-invocation teardown does not skew the timing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class BorrowReturnBenchmark {
+
+    /** Borrow/return cycles per invocation. */
+    public static final int BATCH = 1000;
+
+    /** Free users and books for one batch, and the loans it made. */
+    @State(Scope.Thread)
+    public static class Cycle {
+        String[] userIds;
+        String[] mediaIds;
+        final Loan[] loans = new Loan[BATCH];
+
+        @Setup(Level.Trial)
+        public void addFreeUsersAndBooks(LibraryState s) {
+            userIds = new String[BATCH];
+            mediaIds = new String[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                User user = new User("cycle" + i, "cycle" + i + "@example.com");
+                s.userRepo.save(user);
+                userIds[i] = user.getId();
+                Book book = new Book("Cycle Book " + i, "Nobody", "ISBN-CYCLE-" + i);
+                s.mediaRepo.save(book);
+                mediaIds[i] = book.getId();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void deleteLoans(LibraryState s) {
+            for (int i = 0; i < BATCH; i++) {
+                s.loanRepo.delete(loans[i]);
+                loans[i] = null;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Loan[] borrowAndReturn(LibraryState s, Cycle c) {
+        return cycles(s.library, c);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Loan[] borrowAndReturnMetered(LibraryState s, Cycle c) {
+        return cycles(s.meteredLibrary, c);
+    }
+
+    private static Loan[] cycles(LibraryService library, Cycle c) {
+        for (int i = 0; i < BATCH; i++) {
+            Loan loan = library.borrow(c.userIds[i], c.mediaIds[i]);
+            library.returnMedia(loan.getId());
+            c.loans[i] = loan;
+        }
+        return c.loans;
+    }
+}
@@ -0,0 +1,123 @@
+package library.bench;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.metrics.LibraryMetrics;
+import library.metrics.MetricsRegistry;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.TimeProvider;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.MediaPolicyTable;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * A library filled with a catalog and loans of the configured sizes.
+ * <p>
+ * Data is generated from a fixed seed, so every run measures the same library:
+ * <ul>
+ *     <li>{@code catalog} media items, three quarters books and one quarter CDs</li>
+ *     <li>one user per ten media items (at least 100)</li>
+ *     <li>{@code loans} loans with due dates spread around today, so about half
+ *     are overdue; every fifth loan is already returned</li>
+ * </ul>
+ * {@link #meteredLibrary} works on the same data and records every call in
+ * {@link LibraryMetrics}, to measure the metrics overhead.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    /** Date used as "today" by all services. */
+    public static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+    @Param({"1000", "10000", "100000"})
+    public int catalog;
+
+    @Param({"1000", "100000"})
+    public int loans;
+
+    public InMemoryUserRepository userRepo;
+    public InMemoryMediaRepository mediaRepo;
+    public InMemoryLoanRepository loanRepo;
+    public MediaPolicyTable policies;
+    public ReminderService reminderService;
+    public LibraryService library;
+    public LibraryService meteredLibrary;
+
+    public String[] userIds;
+    public String[] mediaIds;
+    public String[] loanIds;
+    public String[] titles;
+    public String[] authors;
+    public String[] isbns;
+
+    /** Number of reminder messages produced, so they are not optimized away. */
+    public long reminders;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        TimeProvider time = () -> TODAY;
+
+        userRepo = new InMemoryUserRepository();
+        mediaRepo = new InMemoryMediaRepository();
+        loanRepo = new InMemoryLoanRepository();
+        policies = MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy());
+        reminderService = new ReminderService(time);
+        reminderService.registerNotifier((user, message) -> reminders += message.length());
+        library = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, time,
+                policies, new AuthService(new InMemoryAdminRepository()));
+        meteredLibrary = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, time,
+                policies, new AuthService(new InMemoryAdminRepository()));
+        meteredLibrary.useMetrics(new LibraryMetrics(new MetricsRegistry()));
+
+        int users = Math.max(100, catalog / 10);
+        userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            User u = new User("user" + i, "user" + i + "@example.com");
+            userRepo.save(u);
+            userIds[i] = u.getId();
+        }
+
+        mediaIds = new String[catalog];
+        titles = new String[catalog];
+        authors = new String[catalog];
+        isbns = new String[catalog];
+        for (int i = 0; i < catalog; i++) {
+            titles[i] = "Title " + i;
+            authors[i] = "Author " + (i % 500);
+            isbns[i] = "ISBN-" + (100000 + i);
+            Media m = i % 4 == 3
+                    ? new CD(titles[i], authors[i])
+                    : new Book(titles[i], authors[i], isbns[i]);
+            mediaRepo.save(m);
+            mediaIds[i] = m.getId();
+        }
+
+        loanIds = new String[loans];
+        for (int i = 0; i < loans; i++) {
+            String userId = userIds[random.nextInt(users)];
+            String mediaId = mediaIds[random.nextInt(catalog)];
+            LocalDate due = TODAY.plusDays(random.nextInt(61) - 30);
+            Loan loan = new Loan(userId, mediaId, due.minusDays(28), due);
+            if (i % 5 == 0) loan.setReturnedDate(due);
+            loanRepo.save(loan);
+            loanIds[i] = loan.getId();
+        }
+    }
+}
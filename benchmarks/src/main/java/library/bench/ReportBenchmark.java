@@ -0,0 +1,70 @@
+package library.bench;
+
+import library.dto.OverdueReport;
+import library.report.ParallelReports;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-scan reports over all loans: reminders, the overdue report and the
+ * borrowed media report, sequential and on the fork-join pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    private ParallelReports parallel;
+
+    @Setup
+    public void setUp(LibraryState s) {
+        parallel = new ParallelReports(s.loanRepo, s.userRepo, s.mediaRepo,
+                () -> LibraryState.TODAY, s.policies);
+    }
+
+    @Benchmark
+    public long sendReminders(LibraryState s) {
+        s.reminderService.sendReminders(s.loanRepo, s.userRepo, s.mediaRepo);
+        return s.reminders;
+    }
+
+    @Benchmark
+    public OverdueReport buildReport(LibraryState s) {
+        return s.reminderService.buildReport(s.loanRepo, s.userRepo, s.mediaRepo, s.policies);
+    }
+
+    @Benchmark
+    public OverdueReport buildReportParallel() {
+        return parallel.buildOverdueReport();
+    }
+
+    @Benchmark
+    public List<String> getBorrowedMediaReport(LibraryState s) {
+        return s.library.getBorrowedMediaReport();
+    }
+
+    @Benchmark
+    public int streamBorrowedMediaReport(LibraryState s, Blackhole bh) {
+        return s.library.streamBorrowedMediaReport(bh::consume);
+    }
+
+    @Benchmark
+    public int streamBorrowedMediaReportParallel(Blackhole bh) {
+        return parallel.streamBorrowedMediaReport(bh::consume);
+    }
+}
@@ -0,0 +1,52 @@
+package library.bench;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by id in the in-memory repositories. Ids are taken round-robin from
+ * the generated data, so hits are spread over the whole store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private int next;
+
+    private int next(int length) {
+        next = next + 1 == Integer.MAX_VALUE ? 0 : next + 1;
+        return next % length;
+    }
+
+    @Benchmark
+    public Optional<User> findUserById(LibraryState s) {
+        return s.userRepo.findById(s.userIds[next(s.userIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<Media> findMediaById(LibraryState s) {
+        return s.mediaRepo.findById(s.mediaIds[next(s.mediaIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<Loan> findLoanById(LibraryState s) {
+        return s.loanRepo.findById(s.loanIds[next(s.loanIds.length)]);
+    }
+}
@@ -0,0 +1,55 @@
+package library.bench;
+
+import library.domain.media.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog searches through {@link library.service.LibraryService}. Queries are
+ * taken round-robin from the generated titles, authors and ISBNs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private int next;
+
+    private int next(int length) {
+        next = next + 1 == Integer.MAX_VALUE ? 0 : next + 1;
+        return next % length;
+    }
+
+    @Benchmark
+    public List<Media> search(LibraryState s) {
+        return s.library.search(s.titles[next(s.titles.length)]);
+    }
+
+    @Benchmark
+    public List<Media> searchByTitle(LibraryState s) {
+        return s.library.searchByTitle(s.titles[next(s.titles.length)]);
+    }
+
+    @Benchmark
+    public List<Media> searchByAuthor(LibraryState s) {
+        return s.library.searchByAuthor(s.authors[next(s.authors.length)]);
+    }
+
+    @Benchmark
+    public List<Media> searchByIsbn(LibraryState s) {
+        return s.library.searchByIsbn(s.isbns[next(s.isbns.length)]);
+    }
+}
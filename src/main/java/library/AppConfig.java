@@ -4,11 +4,31 @@ import library.domain.Admin;
 import library.domain.User;
 import library.domain.media.Book;
 import library.domain.media.CD;
+import library.jmx.EngineStats;
+import library.jmx.LibraryStats;
+import library.jmx.LoanCounter;
+import library.jmx.MBeans;
+import library.ledger.FineLedger;
+import library.metrics.LibraryMetrics;
+import library.metrics.MeteredLoanRepository;
+import library.metrics.MeteredMediaRepository;
+import library.metrics.MeteredUserRepository;
+import library.metrics.MetricsRegistry;
 import library.notifications.FakeEmailClient;
 import library.repository.*;
+import library.report.OverdueView;
+import library.report.ParallelReports;
+import library.report.ReportCache;
+import library.scheduling.DayRollover;
+import library.scheduling.LoanScheduler;
 import library.service.*;
 import library.strategy.BookFineStrategy;
 import library.strategy.CDFineStrategy;
+import library.strategy.FineStrategy;
+import library.strategy.MediaPolicyTable;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
 
 /**
  * AppConfig: sets up the main components of the library system.
@@ -16,22 +36,64 @@ import library.strategy.CDFineStrategy;
  */
 public class AppConfig {
 
+    private static final int REMINDER_SUPPRESS_DAYS = 1;
+    private static final int DUE_SOON_DAYS = 2;
+
     private final InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
     private final InMemoryUserRepository userRepo = new InMemoryUserRepository();
     private final InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
     private final InMemoryLoanRepository loanRepo = new InMemoryLoanRepository();
+    private final InMemoryReminderStateRepository reminderStateRepo = new InMemoryReminderStateRepository();
     private final TimeProvider timeProvider = new SystemTimeProvider();
 
-    // Reminder service uses the time provider
-    private final ReminderService reminderService = new ReminderService(timeProvider);
+    // Latency of every service operation and repository call; services use the metered repositories
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private final LibraryMetrics libraryMetrics = new LibraryMetrics(metricsRegistry);
+    private final UserRepository users = new MeteredUserRepository(userRepo, metricsRegistry, "userRepo");
+    private final MediaRepository media = new MeteredMediaRepository(mediaRepo, metricsRegistry, "mediaRepo");
+    private final LoanRepository loans = new MeteredLoanRepository(loanRepo, metricsRegistry, "loanRepo");
+
+    // Reminder service uses the time provider; the same reminder is sent at most once a day
+    private final ReminderService reminderService =
+            new ReminderService(timeProvider, reminderStateRepo, REMINDER_SUPPRESS_DAYS);
 
     // Fake email client (mainly for testing and checking sent messages)
     private final FakeEmailClient fakeEmailClient = new FakeEmailClient();
 
+    private final FineStrategy bookFine = new BookFineStrategy();
+    private final FineStrategy cdFine = new CDFineStrategy();
+
+    // Loan period, fine strategy and reminder category per media type
+    private final MediaPolicyTable mediaPolicies = MediaPolicyTable.standard(bookFine, cdFine);
+
     private final AuthService authService = new AuthService(adminRepo);
     private final LibraryService libraryService =
-            new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, timeProvider,
-                    new BookFineStrategy(), new CDFineStrategy(), authService);
+            new LibraryService(users, media, loans, reminderService, timeProvider,
+                    mediaPolicies, authService);
+
+    // Fires due-soon and overdue reminders per loan when their day comes
+    private final LoanScheduler loanScheduler = new LoanScheduler(timeProvider, DUE_SOON_DAYS);
+
+    // Tracks which loans are overdue, updated once per day from the scheduler
+    private final DayRollover dayRollover = new DayRollover(timeProvider, loanScheduler);
+
+    // Overdue report kept up to date from the rollover instead of rebuilt on each request
+    private final OverdueView overdueView =
+            new OverdueView(timeProvider, dayRollover, media, mediaPolicies);
+
+    // Full-scan reports split across the common fork-join pool; the workers look
+    // users and media up concurrently, so they use the unmetered repositories
+    private final ParallelReports parallelReports =
+            new ParallelReports(loanRepo, userRepo, mediaRepo, timeProvider, mediaPolicies);
+
+    // Serves repeated report views of the same day until a borrow, return or payment
+    private final ReportCache reportCache = new ReportCache(timeProvider);
+
+    // Audit trail of every fine and payment
+    private final FineLedger fineLedger = new FineLedger(timeProvider);
+
+    // Number of active loans, kept up to date from borrows and returns for the MBeans
+    private final LoanCounter loanCounter = new LoanCounter(loanRepo);
 
     /**
      * Constructor: loads the seed data and registers the notifiers.
@@ -41,6 +103,8 @@ public class AppConfig {
         seedUsers();
         seedMedia();
         registerNotifiers();
+        registerScheduler();
+        registerMBeans();
     }
 
     /**
@@ -98,17 +162,58 @@ public class AppConfig {
         });
     }
 
+    /**
+     * Connects the loan scheduler and the day rollover to the library service
+     * (to track borrows and returns) and routes fired events to the reminder
+     * service and the overdue tracking. Report views are served from the
+     * report cache and formatted on the parallel reports' pool, fines and
+     * payments are recorded in the fine ledger, and service calls are timed
+     * in the metrics registry.
+     */
+    private void registerScheduler() {
+        libraryService.registerListener(loanScheduler);
+        libraryService.registerListener(dayRollover);
+        loanScheduler.registerHandler(event ->
+                reminderService.sendLoanReminder(event, users, media));
+        loanScheduler.registerHandler(dayRollover);
+        dayRollover.registerListener(overdueView);
+        reminderService.usePolicies(mediaPolicies);
+        reminderService.useOverdueView(overdueView);
+        libraryService.useReportCache(reportCache);
+        libraryService.useParallelReports(parallelReports);
+        reminderService.useParallelReports(parallelReports, loans, users, media);
+        libraryService.registerListener(fineLedger);
+        libraryService.useMetrics(libraryMetrics);
+        reminderService.useMetrics(libraryMetrics);
+        libraryService.registerListener(loanCounter);
+    }
+
+    /**
+     * Publishes live library and engine statistics on the platform MBean
+     * server, replacing the beans of an earlier configuration in this JVM.
+     */
+    private void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        MBeans.register(server, MBeans.LIBRARY_STATS,
+                new LibraryStats(users, media, loans, loanCounter, dayRollover, fineLedger));
+        MBeans.register(server, MBeans.ENGINE_STATS,
+                new EngineStats(loanScheduler, reportCache, loanRepo, fineLedger));
+    }
+
     /** @return admin repository */
     public AdminRepository adminRepository() { return adminRepo; }
 
-    /** @return user repository */
-    public UserRepository userRepository() { return userRepo; }
+    /** @return user repository (metered) */
+    public UserRepository userRepository() { return users; }
+
+    /** @return media repository (metered) */
+    public MediaRepository mediaRepository() { return media; }
 
-    /** @return media repository */
-    public MediaRepository mediaRepository() { return mediaRepo; }
+    /** @return loan repository (metered) */
+    public LoanRepository loanRepository() { return loans; }
 
-    /** @return loan repository */
-    public LoanRepository loanRepository() { return loanRepo; }
+    /** @return reminder state repository */
+    public ReminderStateRepository reminderStateRepository() { return reminderStateRepo; }
 
     /** @return time provider used in the system */
     public TimeProvider timeProvider() { return timeProvider; }
@@ -122,6 +227,33 @@ public class AppConfig {
     /** @return library service */
     public LibraryService libraryService() { return libraryService; }
 
+    /** @return scheduler for per-loan reminder events */
+    public LoanScheduler loanScheduler() { return loanScheduler; }
+
+    /** @return day rollover engine tracking overdue loans */
+    public DayRollover dayRollover() { return dayRollover; }
+
+    /** @return incrementally maintained overdue report */
+    public OverdueView overdueView() { return overdueView; }
+
+    /** @return reports that scan all loans in parallel */
+    public ParallelReports parallelReports() { return parallelReports; }
+
+    /** @return cache of built reports */
+    public ReportCache reportCache() { return reportCache; }
+
+    /** @return ledger of all fines and payments */
+    public FineLedger fineLedger() { return fineLedger; }
+
+    /** @return policy table of all media types */
+    public MediaPolicyTable mediaPolicies() { return mediaPolicies; }
+
+    /** @return registry of all operation timers */
+    public MetricsRegistry metricsRegistry() { return metricsRegistry; }
+
+    /** @return timers of the library and reminder services */
+    public LibraryMetrics libraryMetrics() { return libraryMetrics; }
+
     /** @return fake email client (used for tests) */
     public FakeEmailClient fakeEmailClient() { return fakeEmailClient; }
 }
@@ -1,12 +1,19 @@
 package library;
 
+import library.batch.BatchRunner;
+import library.batch.CatalogImporter;
 import library.domain.User;
 import library.domain.media.Media;
 import library.exception.BusinessRuleException;
 import library.exception.ResourceNotFoundException;
+import library.http.LibraryHttpServer;
+import library.kiosk.KioskServer;
 import library.service.AuthService;
 import library.service.LibraryService;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
@@ -19,13 +26,41 @@ public class Main {
     // constants to avoid repeating literals
     private static final String DEMO_USER_PROMPT_PREFIX = "Your user id (demo user id: ";
     private static final String ERROR_PREFIX = "Error: ";
+    private static final int DEFAULT_HTTP_THREADS = 64;
+    private static final int DEFAULT_BATCH_PARALLELISM = 1;
 
     /**
      * Starts the library program.
+     * <p>
+     * With {@code --http [port] [--threads N] [--export-dir dir]} the library
+     * is served as a JSON API (see {@link LibraryHttpServer}), with {@code --kiosk [port]} over the
+     * binary kiosk protocol (see {@link KioskServer}), instead of the console menus.
+     * With {@code --batch file [--parallelism N]} the commands of a file are
+     * replayed (see {@link BatchRunner}) and a summary is printed; with
+     * {@code --import file [--parallelism N]} a CSV or JSON-lines catalog is
+     * loaded in bulk (see {@link CatalogImporter}).
      *
-     * @param args command-line arguments (not used in this app)
+     * @param args command-line arguments
+     * @throws IOException if a server cannot be started or the batch file cannot be read
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "--http".equals(args[0])) {
+            serveHttp(args);
+            return;
+        }
+        if (args.length > 0 && "--kiosk".equals(args[0])) {
+            serveKiosks(args);
+            return;
+        }
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && "--import".equals(args[0])) {
+            importCatalog(args);
+            return;
+        }
+
         AppConfig cfg = new AppConfig();
         AuthService auth = cfg.authService();
         LibraryService lib = cfg.libraryService();
@@ -38,6 +73,9 @@ public class Main {
         boolean running = true;
         System.out.println("Welcome to Library Console");
         while (running) {
+            // on a new day: mark loans that just became overdue and send their reminders
+            cfg.dayRollover().rollover();
+
             System.out.println();
             System.out.println("Select role:");
             System.out.println("1) Admin");
@@ -64,6 +102,75 @@ public class Main {
         sc.close();
     }
 
+    private static void serveHttp(String[] args) throws IOException {
+        int port = LibraryHttpServer.DEFAULT_PORT;
+        int threads = DEFAULT_HTTP_THREADS;
+        String exportDir = null;
+        for (int i = 1; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--export-dir".equals(args[i]) && i + 1 < args.length) {
+                exportDir = args[++i];
+            } else {
+                port = Integer.parseInt(args[i]);
+            }
+        }
+
+        LibraryHttpServer server = new LibraryHttpServer(new AppConfig(),
+                new InetSocketAddress(port), LibraryHttpServer.newExecutor(threads));
+        if (exportDir != null) server.useExportDirectory(Paths.get(exportDir));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.println("Library API listening on http://localhost:" + server.getPort() + "/api/");
+    }
+
+    private static void serveKiosks(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : KioskServer.DEFAULT_PORT;
+        KioskServer server = new KioskServer(new AppConfig(), new InetSocketAddress(port));
+        server.start();
+        System.out.println("Kiosk server listening on port " + server.getPort());
+    }
+
+    private static void runBatch(String[] args) throws IOException {
+        String file = fileArgument(args);
+        if (file == null) throw new IllegalArgumentException("usage: --batch file [--parallelism N]");
+
+        AppConfig cfg = new AppConfig();
+        cfg.dayRollover().rollover();
+        BatchRunner.Summary summary = new BatchRunner(cfg.libraryService(), parallelism(args, DEFAULT_BATCH_PARALLELISM))
+                .run(Paths.get(file));
+        System.out.print(summary.format());
+    }
+
+    private static void importCatalog(String[] args) throws IOException {
+        String file = fileArgument(args);
+        if (file == null) throw new IllegalArgumentException("usage: --import file [--parallelism N]");
+
+        AppConfig cfg = new AppConfig();
+        int parallelism = parallelism(args, Runtime.getRuntime().availableProcessors());
+        CatalogImporter.Result result = new CatalogImporter(cfg.libraryService(), parallelism).importFile(Paths.get(file));
+        System.out.print(result.format());
+    }
+
+    private static String fileArgument(String[] args) {
+        String file = null;
+        for (int i = 1; i < args.length; i++) {
+            if ("--parallelism".equals(args[i])) {
+                i++;
+            } else {
+                file = args[i];
+            }
+        }
+        return file;
+    }
+
+    private static int parallelism(String[] args, int defaultValue) {
+        for (int i = 1; i + 1 < args.length; i++) {
+            if ("--parallelism".equals(args[i])) return Integer.parseInt(args[i + 1]);
+        }
+        return defaultValue;
+    }
+
     // ======================= ADMIN MENU (نفسه) =======================
 
     private static void adminMenu(Scanner sc, AuthService auth, LibraryService lib, AppConfig cfg) {
@@ -81,6 +188,7 @@ public class Main {
             System.out.println("8) Show All Users");
             System.out.println("9) Show All Media");
             System.out.println("10) Show Borrowed Media (with overdue info)");
+            System.out.println("11) Show Operation Metrics");
             System.out.println("0) Back to Role Selection");
             System.out.print("Select: ");
             String opt = sc.nextLine().trim();
@@ -195,17 +303,16 @@ public class Main {
                     case "10":
                         try {
                             auth.requireAdmin();
-                            java.util.List<String> report = lib.getBorrowedMediaReport();
-                            if (report.isEmpty()) {
-                                System.out.println("No borrowed media currently.");
-                            } else {
-                                System.out.println("Borrowed Media Report:");
-                                report.forEach(line -> System.out.println(" - " + line));
-                            }
+                            // stream the report so the first lines show up before the last are computed
+                            System.out.println("Borrowed Media Report:");
+                            lib.streamBorrowedMediaReport(line -> System.out.append(" - ").append(line).println());
                         } catch (Exception e) {
                             System.out.println("Error retrieving borrowed media: " + e.getMessage());
                         }
                         break;
+                    case "11":
+                        System.out.print(cfg.metricsRegistry().snapshot().toText());
+                        break;
                     case "0":
                         return;
                     default:
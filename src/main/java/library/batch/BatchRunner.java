@@ -0,0 +1,457 @@
+package library.batch;
+
+import library.domain.Loan;
+import library.dto.BatchResult;
+import library.service.LibraryService;
+import library.util.CsvLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a command file through the {@link LibraryService}, for migrations
+ * and nightly jobs that cannot use the console menus.
+ * <p>
+ * One command per line, fields separated by commas (a field containing a
+ * comma is written in double quotes):
+ * <pre>
+ * user,key,name,email
+ * book,key,title,author,isbn
+ * cd,key,title,artist
+ * borrow,user,media
+ * return,user,media
+ * pay,user,amount
+ * </pre>
+ * Keys are chosen by the file; later lines refer to users and media by key, or
+ * by their library id when no line defined that key. Blank lines and lines
+ * starting with {@code #} are skipped. A line that fails is counted and
+ * reported with its line number, and the rest of the file still runs.
+ * Consecutive borrows of one user are applied with
+ * {@link LibraryService#borrowAll} and consecutive returns with
+ * {@link LibraryService#returnAll}.
+ * <p>
+ * With a parallelism of 1 the file runs in order on the calling thread.
+ * Otherwise the calling thread reads the file in chunks and hands each chunk
+ * to a pool of that many threads to parse, and applies the parsed chunks
+ * itself, in file order. Parsing and splitting the lines runs in parallel,
+ * while the commands still take effect in the order of the file, as the
+ * service is not thread-safe and e.g. one user's return and another user's
+ * borrow of the same item must not swap.
+ */
+public class BatchRunner {
+
+    /** Command kinds, named as in the file. */
+    public enum Op {
+        USER(3), BOOK(4), CD(3), BORROW(2), RETURN(2), PAY(2);
+
+        private final int fields;
+
+        Op(int fields) {
+            this.fields = fields;
+        }
+
+        static Op of(String name) {
+            for (Op op : values()) {
+                if (op.name().equalsIgnoreCase(name)) return op;
+            }
+            return null;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // lines parsed as one task, and parsed chunks per thread waiting to be applied before the reader waits
+    private static final int CHUNK = 1024;
+    private static final int QUEUED_CHUNKS = 4;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final LibraryService library;
+    private final int parallelism;
+    // file key -> library id; only used by the thread that applies the commands
+    private final Map<String, String> userIds = new HashMap<>();
+    private final Map<String, String> mediaIds = new HashMap<>();
+
+    /**
+     * @param library     the library to apply the commands to
+     * @param parallelism number of threads that parse lines, 1 to parse on the calling thread
+     */
+    public BatchRunner(LibraryService library, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.library = library;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs a command file.
+     *
+     * @param file UTF-8 command file
+     * @return counts, errors and duration of the run
+     * @throws IOException if the file cannot be read
+     */
+    public Summary run(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return run(in);
+        }
+    }
+
+    /**
+     * Runs the commands read from a reader. The reader is not closed.
+     *
+     * @param in command lines
+     * @return counts, errors and duration of the run
+     * @throws IOException if reading fails
+     */
+    public Summary run(Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER_SIZE);
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        if (parallelism == 1) {
+            runInOrder(reader, summary);
+        } else {
+            runParallel(reader, summary);
+        }
+        summary.wallNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void runInOrder(BufferedReader reader, Summary summary) throws IOException {
+        List<Line> chunk = new ArrayList<>(CHUNK);
+        String text;
+        long number = 0;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (skip(text)) continue;
+            chunk.add(new Line(number, text));
+            if (chunk.size() == CHUNK) {
+                apply(parse(chunk), summary);
+                chunk.clear();
+            }
+        }
+        apply(parse(chunk), summary);
+    }
+
+    private void runParallel(BufferedReader reader, Summary summary) throws IOException {
+        // parse tasks in file order; the oldest is applied before the reader goes on once too many are pending
+        Deque<Future<List<Command>>> pending = new ArrayDeque<>();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "batch-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Line> chunk = new ArrayList<>(CHUNK);
+            String text;
+            long number = 0;
+            while ((text = reader.readLine()) != null) {
+                number++;
+                if (skip(text)) continue;
+                chunk.add(new Line(number, text));
+                if (chunk.size() == CHUNK) {
+                    List<Line> lines = chunk;
+                    pending.add(pool.submit(() -> parse(lines)));
+                    chunk = new ArrayList<>(CHUNK);
+                    if (pending.size() > parallelism * QUEUED_CHUNKS) {
+                        apply(pending.remove().get(), summary);
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                apply(pending.remove().get(), summary);
+            }
+            apply(parse(chunk), summary);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while replaying commands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("batch parser failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static boolean skip(String text) {
+        return text.isEmpty() || text.charAt(0) == '#' || text.trim().isEmpty();
+    }
+
+    /**
+     * Parses a chunk of lines. A line that cannot be parsed becomes a command
+     * without an op, reported when its turn comes, so errors stay in line order.
+     */
+    private static List<Command> parse(List<Line> chunk) {
+        List<Command> commands = new ArrayList<>(chunk.size());
+        List<String> fields = new ArrayList<>();
+        for (Line line : chunk) {
+            try {
+                CsvLine.split(line.text, fields);
+                Op op = Op.of(fields.get(0));
+                if (op == null) throw new IllegalArgumentException("unknown command: " + fields.get(0));
+                if (fields.size() != op.fields + 1)
+                    throw new IllegalArgumentException(op.name().toLowerCase(Locale.ROOT) + " takes " + op.fields + " fields");
+                String[] args = new String[op.fields];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = fields.get(i + 1).trim();
+                }
+                commands.add(new Command(line.number, op, args, null));
+            } catch (IllegalArgumentException e) {
+                commands.add(new Command(line.number, null, null, e.getMessage()));
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Applies parsed commands in order.
+     */
+    private void apply(List<Command> commands, Summary summary) {
+        int i = 0;
+        while (i < commands.size()) {
+            i = execute(commands, i, summary);
+        }
+    }
+
+    /**
+     * Executes the command at {@code i}, together with the borrows or returns that follow it.
+     *
+     * @return index of the next command to execute
+     */
+    private int execute(List<Command> commands, int i, Summary summary) {
+        Command c = commands.get(i);
+        if (c.op == null) {
+            summary.error(c.number, c.error);
+            return i + 1;
+        }
+        if (c.op == Op.BORROW) {
+            int end = i + 1;
+            while (end < commands.size() && commands.get(end).op == Op.BORROW
+                    && commands.get(end).args[0].equals(c.args[0])) end++;
+            borrow(commands.subList(i, end), summary);
+            return end;
+        }
+        if (c.op == Op.RETURN) {
+            int end = i + 1;
+            while (end < commands.size() && commands.get(end).op == Op.RETURN) end++;
+            returnLoans(commands.subList(i, end), summary);
+            return end;
+        }
+
+        try {
+            switch (c.op) {
+                case USER:
+                    requireNew(userIds, c.args[0]);
+                    userIds.put(c.args[0], library.registerUser(c.args[1], c.args[2]).getId());
+                    break;
+                case BOOK:
+                    requireNew(mediaIds, c.args[0]);
+                    mediaIds.put(c.args[0], library.addBook(c.args[1], c.args[2], c.args[3]).getId());
+                    break;
+                case CD:
+                    requireNew(mediaIds, c.args[0]);
+                    mediaIds.put(c.args[0], library.addCD(c.args[1], c.args[2]).getId());
+                    break;
+                case PAY:
+                    library.payFine(id(userIds, c.args[0]), Integer.parseInt(c.args[1]));
+                    break;
+                default:
+                    throw new IllegalStateException(c.op.name());
+            }
+            summary.record(c.op);
+        } catch (RuntimeException e) {
+            summary.error(c.number, e);
+        }
+        return i + 1;
+    }
+
+    private void borrow(List<Command> run, Summary summary) {
+        List<String> ids = new ArrayList<>(run.size());
+        for (Command c : run) {
+            ids.add(id(mediaIds, c.args[1]));
+        }
+        try {
+            BatchResult result = library.borrowAll(id(userIds, run.get(0).args[0]), ids);
+            for (int k = 0; k < run.size(); k++) {
+                report(run.get(k), result.get(k), summary);
+            }
+        } catch (RuntimeException e) {
+            for (Command c : run) {
+                summary.error(c.number, e);
+            }
+        }
+    }
+
+    private void returnLoans(List<Command> run, Summary summary) {
+        List<String> loanIds = new ArrayList<>(run.size());
+        boolean[] open = new boolean[run.size()];
+        for (int k = 0; k < run.size(); k++) {
+            Command c = run.get(k);
+            String loanId = openLoan(id(userIds, c.args[0]), id(mediaIds, c.args[1]));
+            if (loanId != null) {
+                loanIds.add(loanId);
+                open[k] = true;
+            }
+        }
+        BatchResult result;
+        try {
+            result = library.returnAll(loanIds);
+        } catch (RuntimeException e) {
+            for (Command c : run) {
+                summary.error(c.number, e);
+            }
+            return;
+        }
+        int item = 0;
+        for (int k = 0; k < run.size(); k++) {
+            if (open[k]) {
+                report(run.get(k), result.get(item++), summary);
+            } else {
+                summary.error(run.get(k).number, "no open loan");
+            }
+        }
+    }
+
+    private static void report(Command c, BatchResult.Item item, Summary summary) {
+        if (item.isOk()) {
+            summary.record(c.op);
+        } else {
+            summary.error(c.number, item.getError());
+        }
+    }
+
+    private String openLoan(String userId, String mediaId) {
+        for (Loan loan : library.findLoansByUser(userId)) {
+            if (!loan.isReturned() && loan.getMediaId().equals(mediaId)) return loan.getId();
+        }
+        return null;
+    }
+
+    private static void requireNew(Map<String, String> ids, String key) {
+        if (ids.containsKey(key))
+            throw new IllegalArgumentException("key already defined: " + key);
+    }
+
+    private static String id(Map<String, String> ids, String key) {
+        return ids.getOrDefault(key, key);
+    }
+
+    /** A line of the file. */
+    private static final class Line {
+        private final long number;
+        private final String text;
+
+        Line(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    /** A parsed line, or a line that could not be parsed (no op, an error). */
+    private static final class Command {
+        private final long number;
+        private final Op op;
+        private final String[] args;
+        private final String error;
+
+        Command(long number, Op op, String[] args, String error) {
+            this.number = number;
+            this.op = op;
+            this.args = args;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Outcome of a run: commands applied per kind, failed lines and duration.
+     */
+    public static final class Summary {
+
+        private final Map<Op, Long> counts = new EnumMap<>(Op.class);
+        private final List<String> errorLines = new ArrayList<>();
+        private long errors;
+        private long wallNanos;
+
+        private Summary() { }
+
+        private void record(Op op) {
+            counts.merge(op, 1L, Long::sum);
+        }
+
+        private void error(long line, RuntimeException e) {
+            error(line, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+
+        private void error(long line, String message) {
+            errors++;
+            if (errorLines.size() < MAX_REPORTED_ERRORS) errorLines.add("line " + line + ": " + message);
+        }
+
+        /**
+         * @param op command kind
+         * @return commands of that kind that were applied
+         */
+        public long count(Op op) {
+            return counts.getOrDefault(op, 0L);
+        }
+
+        /** @return commands of all kinds that were applied */
+        public long applied() {
+            long n = 0;
+            for (long c : counts.values()) {
+                n += c;
+            }
+            return n;
+        }
+
+        /** @return lines that failed */
+        public long getErrors() { return errors; }
+
+        /** @return the first failed lines as "line N: message" */
+        public List<String> getErrorLines() { return Collections.unmodifiableList(errorLines); }
+
+        /** @return wall-clock duration of the run in nanoseconds */
+        public long getWallNanos() { return wallNanos; }
+
+        /** @return applied and failed commands per second of wall-clock time */
+        public double throughput() {
+            return wallNanos == 0 ? 0 : (applied() + errors) * 1e9 / wallNanos;
+        }
+
+        /**
+         * @return human-readable summary, one line per kind and per reported error
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "applied %d, failed %d in %.2f s (%.0f commands/s)%n",
+                    applied(), errors, wallNanos / 1e9, throughput()));
+            for (Op op : Op.values()) {
+                sb.append(String.format(Locale.ROOT, "  %-7s %d%n", op.name().toLowerCase(Locale.ROOT), count(op)));
+            }
+            for (String e : errorLines) {
+                sb.append("  ").append(e).append(System.lineSeparator());
+            }
+            if (errors > errorLines.size()) {
+                sb.append("  ... ").append(errors - errorLines.size()).append(" more").append(System.lineSeparator());
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "Summary[applied=" + applied() + ", errors=" + errors + "]";
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package library.batch;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.service.LibraryService;
+import library.util.CsvLine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a large catalog file into the library in bulk.
+ * <p>
+ * Two text formats are read, one item per line:
+ * <pre>
+ * CSV:         book,title,author,isbn
+ *              cd,title,artist
+ * JSON lines:  {"type":"book","title":"...","author":"...","isbn":"..."}
+ *              {"type":"cd","title":"...","artist":"..."}
+ * </pre>
+ * A first CSV line starting with {@code type} is taken as a header. Blank
+ * lines and lines starting with {@code #} are skipped. MARC21 dumps are read
+ * as books with a {@link MarcReader} on the calling thread, since the reader
+ * already runs at disk speed; they take the same bulk path into the library.
+ * <p>
+ * The file is cut into chunks of about {@value #DEFAULT_CHUNK_BYTES} bytes at line
+ * ends; each chunk is memory-mapped and parsed by a worker thread, with a
+ * bounded number of chunks in flight. The media items are then created on the
+ * calling thread in file order, because ids come from a plain counter, and all
+ * of them are handed to {@link LibraryService#addMedia} at the end, so the
+ * repository builds its indexes in one pass. Malformed rows are skipped and
+ * reported with their line number.
+ */
+public class CatalogImporter {
+
+    /** Catalog file formats. */
+    public enum Format {
+        CSV, JSON_LINES, MARC21;
+
+        /**
+         * @param file catalog file
+         * @return {@link #JSON_LINES} for {@code .json}, {@code .jsonl} and {@code .ndjson} files,
+         *         {@link #MARC21} for {@code .mrc} and {@code .marc} files, else {@link #CSV}
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".mrc") || name.endsWith(".marc")) return MARC21;
+            return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    private static final int DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    // row fields
+    private static final int TYPE = 0;
+    private static final int TITLE = 1;
+    private static final int CREATOR = 2;
+    private static final int ISBN = 3;
+
+    private final LibraryService library;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * @param library     the library to add the items to
+     * @param parallelism number of parser threads
+     */
+    public CatalogImporter(LibraryService library, int parallelism) {
+        this(library, parallelism, DEFAULT_CHUNK_BYTES);
+    }
+
+    CatalogImporter(LibraryService library, int parallelism, int chunkBytes) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.library = library;
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports a catalog file, choosing the format from its name.
+     *
+     * @param file UTF-8 catalog file
+     * @return counts, errors and duration of the import
+     * @throws IOException if the file cannot be read
+     */
+    public Result importFile(Path file) throws IOException {
+        return importFile(file, Format.of(file));
+    }
+
+    /**
+     * Imports a catalog file.
+     *
+     * @param file   UTF-8 catalog file
+     * @param format its format
+     * @return counts, errors and duration of the import
+     * @throws IOException if the file cannot be read
+     */
+    public Result importFile(Path file, Format format) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        if (format == Format.MARC21) {
+            importMarc(file, result);
+            result.wallNanos = System.nanoTime() - start;
+            return result;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "catalog-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Media> media = new ArrayList<>();
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            long line = 0;
+            long pos = 0;
+            long size = channel.size();
+            while (pos < size || !inFlight.isEmpty()) {
+                // keep every parser busy, but do not parse far ahead of the items being created
+                while (pos < size && inFlight.size() < 2 * parallelism) {
+                    long end = lineEnd(channel, Math.min(pos + chunkBytes, size), size);
+                    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, pos, end - pos);
+                    boolean first = pos == 0;
+                    inFlight.add(pool.submit(() -> parse(bytes, format, first)));
+                    pos = end;
+                }
+                Chunk chunk = inFlight.poll().get();
+                for (int i = 0; i < chunk.rows.size(); i++) {
+                    media.add(create(chunk.rows.get(i)));
+                }
+                for (int i = 0; i < chunk.errorLines.size(); i++) {
+                    result.error("line " + (line + chunk.errorLines.get(i)), chunk.errors.get(i));
+                }
+                line += chunk.lines;
+            }
+            library.addMedia(media);
+            for (Media m : media) {
+                if (m instanceof Book) result.books++;
+                else result.cds++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while importing " + file, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("catalog parser failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        result.wallNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void importMarc(Path file, Result result) throws IOException {
+        List<Media> books = new ArrayList<>();
+        try (MarcReader reader = new MarcReader(FileChannel.open(file, StandardOpenOption.READ))) {
+            while (true) {
+                Book book;
+                try {
+                    book = reader.read();
+                } catch (IllegalArgumentException e) {
+                    result.error("record " + reader.getRecordNumber() + " at byte " + reader.getRecordOffset(), e.getMessage());
+                    continue;
+                }
+                if (book == null) break;
+                books.add(book);
+            }
+        }
+        library.addMedia(books);
+        result.books = books.size();
+    }
+
+    /**
+     * @return position just after the line end at or after {@code from}, or the file size
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = from;
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n < 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static Media create(String[] row) {
+        return "book".equals(row[TYPE])
+                ? new Book(row[TITLE], row[CREATOR], row[ISBN])
+                : new CD(row[TITLE], row[CREATOR]);
+    }
+
+    /**
+     * Parses the lines of one chunk; runs on a parser thread.
+     */
+    private static Chunk parse(ByteBuffer bytes, Format format, boolean first) {
+        Chunk chunk = new Chunk();
+        byte[] line = new byte[256];
+        List<String> fields = new ArrayList<>();
+        while (bytes.hasRemaining()) {
+            int len = 0;
+            byte b;
+            while (bytes.hasRemaining() && (b = bytes.get()) != '\n') {
+                if (len == line.length) line = Arrays.copyOf(line, len * 2);
+                line[len++] = b;
+            }
+            if (len > 0 && line[len - 1] == '\r') len--;
+            chunk.lines++;
+            String text = new String(line, 0, len, StandardCharsets.UTF_8);
+            if (text.trim().isEmpty() || text.charAt(0) == '#') continue;
+            try {
+                if (format == Format.CSV) {
+                    CsvLine.split(text, fields);
+                    if (first && chunk.lines == 1 && "type".equalsIgnoreCase(fields.get(0).trim())) continue;
+                    chunk.rows.add(csvRow(fields));
+                } else {
+                    chunk.rows.add(jsonRow(text));
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.errorLines.add(chunk.lines);
+                chunk.errors.add(e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private static String[] csvRow(List<String> fields) {
+        String type = fields.get(0).trim().toLowerCase(Locale.ROOT);
+        int expected = "book".equals(type) ? 4 : "cd".equals(type) ? 3 : -1;
+        if (expected < 0) throw new IllegalArgumentException("unknown type: " + fields.get(0));
+        if (fields.size() != expected)
+            throw new IllegalArgumentException(type + " takes " + (expected - 1) + " fields, found " + (fields.size() - 1));
+        String[] row = new String[4];
+        row[TYPE] = type;
+        for (int i = 1; i < expected; i++) {
+            row[i] = fields.get(i).trim();
+        }
+        return check(row);
+    }
+
+    private static String[] jsonRow(String text) {
+        String[] row = new String[4];
+        JsonObjectReader in = new JsonObjectReader(text);
+        String key;
+        while ((key = in.nextKey()) != null) {
+            String value = in.nextValue();
+            switch (key) {
+                case "type": row[TYPE] = value == null ? null : value.trim().toLowerCase(Locale.ROOT); break;
+                case "title": row[TITLE] = trim(value); break;
+                case "author":
+                case "artist": row[CREATOR] = trim(value); break;
+                case "isbn": row[ISBN] = trim(value); break;
+                default: // other fields are ignored
+            }
+        }
+        if (!"book".equals(row[TYPE]) && !"cd".equals(row[TYPE]))
+            throw new IllegalArgumentException("unknown type: " + row[TYPE]);
+        return check(row);
+    }
+
+    private static String trim(String s) {
+        return s == null ? null : s.trim();
+    }
+
+    private static String[] check(String[] row) {
+        boolean book = "book".equals(row[TYPE]);
+        require(row[TITLE], "title");
+        require(row[CREATOR], book ? "author" : "artist");
+        if (book) require(row[ISBN], "isbn");
+        return row;
+    }
+
+    private static void require(String value, String name) {
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("missing " + name);
+    }
+
+    /** Parsed rows and errors of one chunk, with line numbers counted from the chunk start. */
+    private static final class Chunk {
+        private final List<String[]> rows = new ArrayList<>();
+        private final List<Long> errorLines = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long lines;
+    }
+
+    /**
+     * Reads the members of one flat JSON object with string, number, boolean
+     * or null values.
+     */
+    private static final class JsonObjectReader {
+        private final String s;
+        private int pos;
+        private boolean first = true;
+
+        JsonObjectReader(String s) {
+            this.s = s;
+            skipSpace();
+            expect('{');
+        }
+
+        /** @return next member name, or null at the end of the object */
+        String nextKey() {
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                skipSpace();
+                if (pos != s.length()) throw error("text after the object");
+                return null;
+            }
+            if (!first) {
+                expect(',');
+                skipSpace();
+            }
+            first = false;
+            String key = string();
+            skipSpace();
+            expect(':');
+            return key;
+        }
+
+        /** @return the member value; strings decoded, other values as written, null for null */
+        String nextValue() {
+            skipSpace();
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw error("nested values are not supported");
+            int start = pos;
+            while (pos < s.length() && ",} \t".indexOf(s.charAt(pos)) < 0) pos++;
+            String raw = s.substring(start, pos);
+            if (raw.isEmpty()) throw error("missing value");
+            return "null".equals(raw) ? null : raw;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = null;
+            int start = pos;
+            while (true) {
+                if (pos >= s.length()) throw error("unclosed string");
+                char c = s.charAt(pos++);
+                if (c == '"') {
+                    return sb == null ? s.substring(start, pos - 1) : sb.toString();
+                }
+                if (c == '\\') {
+                    if (sb == null) sb = new StringBuilder(s.substring(start, pos - 1));
+                    if (pos >= s.length()) throw error("unclosed string");
+                    char e = s.charAt(pos++);
+                    switch (e) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            if (pos + 4 > s.length()) throw error("bad unicode escape");
+                            try {
+                                sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            } catch (NumberFormatException ex) {
+                                throw error("bad unicode escape");
+                            }
+                            pos += 4;
+                            break;
+                        default: sb.append(e);
+                    }
+                } else if (sb != null) {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private char peek() {
+            if (pos >= s.length()) throw error("unexpected end of line");
+            return s.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("expected '" + c + "'");
+            pos++;
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+
+    /**
+     * Outcome of an import: items added, malformed rows and duration.
+     */
+    public static final class Result {
+
+        private final List<String> errorLines = new ArrayList<>();
+        private long books;
+        private long cds;
+        private long errors;
+        private long wallNanos;
+
+        private Result() { }
+
+        private void error(String where, String message) {
+            errors++;
+            if (errorLines.size() < MAX_REPORTED_ERRORS) errorLines.add(where + ": " + message);
+        }
+
+        /** @return books added */
+        public long getBooks() { return books; }
+
+        /** @return CDs added */
+        public long getCds() { return cds; }
+
+        /** @return items added */
+        public long imported() { return books + cds; }
+
+        /** @return malformed rows that were skipped */
+        public long getErrors() { return errors; }
+
+        /**
+         * @return the first malformed rows as "line N: message" (or "record N at
+         *         byte B: message" for MARC21), in file order
+         */
+        public List<String> getErrorLines() { return Collections.unmodifiableList(errorLines); }
+
+        /** @return wall-clock duration of the import in nanoseconds */
+        public long getWallNanos() { return wallNanos; }
+
+        /** @return items added per second of wall-clock time */
+        public double throughput() {
+            return wallNanos == 0 ? 0 : imported() * 1e9 / wallNanos;
+        }
+
+        /**
+         * @return human-readable summary, followed by one line per reported error
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "imported %d (%d books, %d CDs), skipped %d in %.2f s (%.0f items/s)%n",
+                    imported(), books, cds, errors, wallNanos / 1e9, throughput()));
+            for (String e : errorLines) {
+                sb.append("  ").append(e).append(System.lineSeparator());
+            }
+            if (errors > errorLines.size()) {
+                sb.append("  ... ").append(errors - errorLines.size()).append(" more").append(System.lineSeparator());
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "Result[imported=" + imported() + ", errors=" + errors + "]";
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package library.batch;
+
+import library.domain.media.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader for MARC21 bibliographic records in ISO 2709 format.
+ * <p>
+ * Each record becomes a {@link Book} with the title from field 245 (subfields
+ * a and b), the author from field 100 (subfield a) and the ISBN from the first
+ * field 020 (subfield a, without qualifiers such as "(pbk.)"). Trailing ISBD
+ * punctuation is removed. A record without a title is rejected; a missing
+ * author or ISBN is read as an empty string.
+ * <p>
+ * Records are read through one reused buffer and decoded straight from it, so
+ * memory does not grow with the size of the dump; the only allocations per
+ * record are the book and its three strings. Records coded in UTF-8 (leader
+ * position 9 is {@code a}) are decoded as such; MARC-8 records are read as
+ * ASCII and their diacritics dropped. Not thread-safe.
+ */
+public class MarcReader implements Closeable {
+
+    private static final int LEADER = 24;
+    private static final int DIRECTORY_ENTRY = 12;
+    // record lengths are five digits
+    private static final int MAX_RECORD = 99_999;
+    private static final byte RECORD_END = 0x1D;
+    private static final byte FIELD_END = 0x1E;
+    private static final byte SUBFIELD = 0x1F;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocate(4 * MAX_RECORD);
+    private final byte[] bytes = buf.array();
+    private final StringBuilder text = new StringBuilder(256);
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer field = ByteBuffer.wrap(bytes);
+    private final CharBuffer chars = CharBuffer.allocate(MAX_RECORD);
+    private boolean eof;
+    private long records;
+    private long offset;
+    // offset of the first byte in buf
+    private long bufOffset;
+
+    /**
+     * @param channel source of the records; closed by {@link #close()}
+     */
+    public MarcReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buf.flip();
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the book, or null at the end of the input
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the record is malformed; the reader is
+     *                                  then positioned at the next record, so
+     *                                  reading can continue
+     */
+    public Book read() throws IOException {
+        // some dumps put a line break after each record
+        while (fill(1) && (bytes[buf.position()] == '\n' || bytes[buf.position()] == '\r')) {
+            buf.get();
+        }
+        if (!fill(LEADER)) {
+            int rest = buf.remaining();
+            if (rest > 0) {
+                start(rest);
+                throw new IllegalArgumentException("truncated record of " + rest + " bytes");
+            }
+            return null;
+        }
+        int length = digits(buf.position(), 5);
+        if (length < LEADER + 2) {
+            start(skipToRecordEnd());
+            throw new IllegalArgumentException("bad record length in leader");
+        }
+        if (!fill(length)) {
+            int rest = buf.remaining();
+            start(rest);
+            throw new IllegalArgumentException("truncated record: " + rest + " of " + length + " bytes");
+        }
+        // filling may have moved the record to the start of the buffer
+        int at = buf.position();
+        start(length);
+        try {
+            return parse(at, length);
+        } catch (IllegalArgumentException e) {
+            // a record whose length is wrong usually does not end where it says; resynchronize
+            if (bytes[at + length - 1] != RECORD_END) {
+                buf.position(at);
+                int skip = skipToRecordEnd();
+                buf.position(buf.position() + skip);
+            }
+            throw e;
+        }
+    }
+
+    /** @return number of the record last read, counting from 1 */
+    public long getRecordNumber() { return records; }
+
+    /** @return byte offset of the record last read */
+    public long getRecordOffset() { return offset; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Consumes {@code length} bytes as the current record.
+     */
+    private void start(int length) {
+        records++;
+        offset = bufOffset + buf.position();
+        buf.position(buf.position() + length);
+    }
+
+    /**
+     * Skips past the next record terminator, or to the end of what can be read.
+     *
+     * @return number of bytes skipped
+     */
+    private int skipToRecordEnd() throws IOException {
+        int skipped = 0;
+        while (true) {
+            while (buf.hasRemaining()) {
+                skipped++;
+                if (buf.get() == RECORD_END) {
+                    buf.position(buf.position() - skipped);
+                    return skipped;
+                }
+            }
+            int before = skipped;
+            buf.position(buf.position() - skipped);
+            if (!fill(skipped + 1)) {
+                return buf.remaining();
+            }
+            buf.position(buf.position() + before);
+        }
+    }
+
+    /**
+     * Makes at least {@code n} bytes available from the position.
+     *
+     * @return false if the input ends first
+     */
+    private boolean fill(int n) throws IOException {
+        if (buf.remaining() >= n) return true;
+        if (n > buf.capacity()) return false;
+        bufOffset += buf.position();
+        buf.compact();
+        while (buf.position() < n && !eof) {
+            if (channel.read(buf) < 0) eof = true;
+        }
+        buf.flip();
+        return buf.remaining() >= n;
+    }
+
+    private int digits(int at, int count) {
+        int n = 0;
+        for (int i = at; i < at + count; i++) {
+            int d = bytes[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            n = n * 10 + d;
+        }
+        return n;
+    }
+
+    private Book parse(int at, int length) {
+        int end = at + length;
+        if (bytes[end - 1] != RECORD_END) throw new IllegalArgumentException("record does not end with a record terminator");
+        boolean unicode = bytes[at + 9] == 'a';
+        int base = digits(at + 12, 5);
+        if (base < LEADER + 1 || base > length) throw new IllegalArgumentException("bad base address in leader");
+
+        String title = null;
+        String author = "";
+        String isbn = "";
+        for (int e = at + LEADER; bytes[e] != FIELD_END; e += DIRECTORY_ENTRY) {
+            // the entry and the directory terminator after it must fit before the data
+            if (e + DIRECTORY_ENTRY >= at + base) throw new IllegalArgumentException("directory runs into the data");
+            int fieldLength = digits(e + 3, 4);
+            int fieldStart = digits(e + 7, 5);
+            if (fieldLength < 0 || fieldStart < 0 || base + fieldStart + fieldLength > length)
+                throw new IllegalArgumentException("bad directory entry " + (e - at - LEADER) / DIRECTORY_ENTRY);
+            int from = at + base + fieldStart;
+            int to = from + fieldLength;
+            if (tag(e, '2', '4', '5') && title == null) {
+                title = subfields(from, to, 'a', 'b', unicode);
+            } else if (tag(e, '1', '0', '0') && author.isEmpty()) {
+                author = subfields(from, to, 'a', 'a', unicode);
+            } else if (tag(e, '0', '2', '0') && isbn.isEmpty()) {
+                isbn = isbn(from, to);
+            }
+        }
+        if (title == null || title.isEmpty()) throw new IllegalArgumentException("no title (245 $a)");
+        return new Book(title, author, isbn);
+    }
+
+    private boolean tag(int e, char a, char b, char c) {
+        return bytes[e] == a && bytes[e + 1] == b && bytes[e + 2] == c;
+    }
+
+    /**
+     * Joins the subfields {@code first} and {@code second} of a data field with
+     * a space and removes the punctuation at the end.
+     */
+    private String subfields(int from, int to, char first, char second, boolean unicode) {
+        text.setLength(0);
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != SUBFIELD || i + 1 >= to) continue;
+            byte code = bytes[i + 1];
+            int start = i + 2;
+            int stop = start;
+            while (stop < to && bytes[stop] != SUBFIELD && bytes[stop] != FIELD_END) stop++;
+            if (code == first || code == second) {
+                // keep the punctuation between subfields, e.g. "Title : subtitle"
+                while (text.length() > 0 && text.charAt(text.length() - 1) == ' ') text.setLength(text.length() - 1);
+                if (text.length() > 0) text.append(' ');
+                decode(start, stop, unicode);
+                if (first == second) break;
+            }
+            i = stop - 1;
+        }
+        trimPunctuation();
+        return text.toString();
+    }
+
+    /**
+     * @return subfield a of an 020 field up to the first space, or empty
+     */
+    private String isbn(int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (bytes[i] == SUBFIELD && bytes[i + 1] == 'a') {
+                int start = i + 2;
+                int stop = start;
+                while (stop < to && bytes[stop] > ' ' && bytes[stop] != SUBFIELD) stop++;
+                return new String(bytes, start, stop - start, StandardCharsets.US_ASCII);
+            }
+        }
+        return "";
+    }
+
+    private void decode(int from, int to, boolean unicode) {
+        boolean ascii = true;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii || !unicode) {
+            char[] out = chars.array();
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                // MARC-8 diacritics and special characters are outside ASCII
+                if (bytes[i] >= 0) out[n++] = (char) bytes[i];
+            }
+            text.append(out, 0, n);
+            return;
+        }
+        chars.clear();
+        utf8.reset();
+        field.clear();
+        field.position(from);
+        field.limit(to);
+        utf8.decode(field, chars, true);
+        utf8.flush(chars);
+        chars.flip();
+        text.append(chars);
+    }
+
+    /**
+     * Removes trailing spaces and ISBD punctuation ({@code / : ; , =}), and a
+     * final period unless it ends an initial such as "C.".
+     */
+    private void trimPunctuation() {
+        int n = text.length();
+        while (n > 0 && " /:;,=".indexOf(text.charAt(n - 1)) >= 0) n--;
+        if (n > 2 && text.charAt(n - 1) == '.' && Character.isLowerCase(text.charAt(n - 2))) n--;
+        while (n > 0 && text.charAt(n - 1) == ' ') n--;
+        text.setLength(n);
+    }
+}
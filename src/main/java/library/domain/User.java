@@ -1,16 +1,21 @@
 package library.domain;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a regular user in the library system.
  * A user has an auto-generated id, a name, an email, and an outstanding fine amount.
+ * The fine is updated atomically, so fines and payments may arrive from
+ * several threads at once.
  */
 public class User {
 
     private static long SEQ = 1;
+    private final long ordinal;
     private final String id;
     private final String name;
     private final String email;
-    private int outstandingFine;
+    private final AtomicInteger outstandingFine = new AtomicInteger();
 
     /**
      * Creates a new user.
@@ -19,15 +24,23 @@ public class User {
      * @param email the user's email address
      */
     public User(String name, String email) {
-        this.id = "U" + (SEQ++);
+        this.ordinal = SEQ++;
+        this.id = "U" + ordinal;
         this.name = name;
         this.email = email;
-        this.outstandingFine = 0;
     }
 
     /** @return user id */
     public String getId() { return id; }
 
+    /**
+     * Numeric part of the user id. Dense and stable for the lifetime of the
+     * process, so it can be used to index fixed-width per-user tables.
+     *
+     * @return user ordinal
+     */
+    public long getOrdinal() { return ordinal; }
+
     /** @return user name */
     public String getName() { return name; }
 
@@ -35,7 +48,7 @@ public class User {
     public String getEmail() { return email; }
 
     /** @return current outstanding fine amount */
-    public int getOutstandingFine() { return outstandingFine; }
+    public int getOutstandingFine() { return outstandingFine.get(); }
 
     /**
      * Adds a fine amount to the user.
@@ -43,16 +56,25 @@ public class User {
      * @param amount the fine to add
      */
     public void addFine(int amount) {
-        this.outstandingFine += amount;
+        outstandingFine.addAndGet(amount);
     }
 
     /**
-     * Pays part or all of the user's outstanding fine.
+     * Pays part or all of the user's outstanding fine. The fine never drops
+     * below 0; any amount above the outstanding fine is not applied.
      *
      * @param amount the amount paid
+     * @return the amount actually applied
      */
-    public void payFine(int amount) {
-        if (amount <= 0) return;
-        this.outstandingFine = Math.max(0, this.outstandingFine - amount);
+    public int payFine(int amount) {
+        if (amount <= 0) return 0;
+        while (true) {
+            int current = outstandingFine.get();
+            int applied = Math.min(current, amount);
+            if (applied <= 0) return 0;
+            if (outstandingFine.compareAndSet(current, current - applied)) {
+                return applied;
+            }
+        }
     }
 }
@@ -11,6 +11,7 @@ public abstract class Media {
     private final String title;
     private boolean available = true;
     private final String mediaType;
+    private final MediaType type;
 
     /**
      * Creates a new media item.
@@ -22,6 +23,7 @@ public abstract class Media {
         this.id = "M" + (SEQ++);
         this.title = title;
         this.mediaType = mediaType;
+        this.type = MediaType.of(mediaType);
     }
 
     /** @return media id */
@@ -38,4 +40,7 @@ public abstract class Media {
 
     /** @return the media type (BOOK, CD, etc.) */
     public String getMediaType() { return mediaType; }
+
+    /** @return the registered type, used to look up per-type policies */
+    public MediaType getType() { return type; }
 }
@@ -0,0 +1,68 @@
+package library.domain.media;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registered kind of media item (BOOK, CD, ...).
+ * <p>
+ * Types are interned by name: {@link #of(String)} returns the same instance
+ * for the same name and gives every new name the next {@link #ordinal()}.
+ * Ordinals are dense, so per-type tables such as
+ * {@link library.strategy.MediaPolicyTable} can be plain arrays indexed by
+ * ordinal. New types are added by calling {@link #of(String)}; unlike an enum
+ * the set of types is open.
+ */
+public final class MediaType {
+
+    private static final ConcurrentMap<String, MediaType> TYPES = new ConcurrentHashMap<>();
+    private static int count;
+
+    /** Type of {@link Book}s. */
+    public static final MediaType BOOK = of("BOOK");
+
+    /** Type of {@link CD}s. */
+    public static final MediaType CD = of("CD");
+
+    private final String name;
+    private final int ordinal;
+
+    private MediaType(String name, int ordinal) {
+        this.name = name;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Returns the type with the given name, registering it on first use.
+     *
+     * @param name type name, e.g. "BOOK"
+     * @return the interned type
+     */
+    public static MediaType of(String name) {
+        if (name == null) throw new NullPointerException("media type name must not be null");
+        MediaType type = TYPES.get(name);
+        if (type != null) return type;
+
+        synchronized (TYPES) {
+            return TYPES.computeIfAbsent(name, n -> new MediaType(n, count++));
+        }
+    }
+
+    /** @return number of registered types; all ordinals are below it */
+    public static int count() {
+        synchronized (TYPES) {
+            return count;
+        }
+    }
+
+    /** @return type name */
+    public String name() { return name; }
+
+    /** @return dense index of the type, starting at 0 */
+    public int ordinal() { return ordinal; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
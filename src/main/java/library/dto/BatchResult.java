@@ -0,0 +1,107 @@
+package library.dto;
+
+import library.domain.Loan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a batch borrow or return: one {@link Item} per requested id, in
+ * request order. Items fail independently; a failed item carries the
+ * exception that a single call would have thrown.
+ */
+public class BatchResult {
+
+    private final List<Item> items;
+
+    /**
+     * @param items results in request order
+     */
+    public BatchResult(List<Item> items) {
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /** @return results in request order */
+    public List<Item> getItems() { return items; }
+
+    /**
+     * @param index position in the request
+     * @return result of that item
+     */
+    public Item get(int index) { return items.get(index); }
+
+    /** @return number of items */
+    public int size() { return items.size(); }
+
+    /** @return number of items that succeeded */
+    public int succeeded() {
+        int n = 0;
+        for (Item item : items) {
+            if (item.isOk()) n++;
+        }
+        return n;
+    }
+
+    /** @return number of items that failed */
+    public int failed() {
+        return items.size() - succeeded();
+    }
+
+    /** @return sum of the fines of all returned items */
+    public int totalFine() {
+        int total = 0;
+        for (Item item : items) {
+            total += item.fine;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[items=" + items.size() + ", succeeded=" + succeeded() + "]";
+    }
+
+    /**
+     * Result of one item of a batch.
+     */
+    public static class Item {
+
+        private final String id;
+        private final Loan loan;
+        private final int fine;
+        private final RuntimeException error;
+
+        /**
+         * @param id    requested media id (borrow) or loan id (return)
+         * @param loan  the created or returned loan, null if the item failed
+         * @param fine  fine charged for a return (0 for borrows)
+         * @param error why the item failed, null if it succeeded
+         */
+        public Item(String id, Loan loan, int fine, RuntimeException error) {
+            this.id = id;
+            this.loan = loan;
+            this.fine = fine;
+            this.error = error;
+        }
+
+        /** @return the requested id */
+        public String getId() { return id; }
+
+        /** @return the created or returned loan, or null if the item failed */
+        public Loan getLoan() { return loan; }
+
+        /** @return fine charged for the return (0 if none) */
+        public int getFine() { return fine; }
+
+        /** @return why the item failed, or null */
+        public RuntimeException getError() { return error; }
+
+        /** @return true if the item succeeded */
+        public boolean isOk() { return error == null; }
+
+        @Override
+        public String toString() {
+            return isOk() ? id + ": ok" : id + ": " + error.getMessage();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package library.dto;
 
+import library.util.ObjectIntHashMap;
+
 import java.util.Map;
 
 /**
@@ -8,33 +10,79 @@ import java.util.Map;
  *
  * - overdueCounts : number of overdue items per user
  * - fineTotals    : total fine amount per user
+ *
+ * Values are kept in primitive {@link ObjectIntHashMap}s; the {@code Map}
+ * getters return read-only boxed views over them.
  */
 public class OverdueReport {
 
     // userId -> number of overdue items
-    private final Map<String, Integer> overdueCounts;
+    private final ObjectIntHashMap<String> overdueCounts;
 
     // userId -> total fine amount
-    private final Map<String, Integer> fineTotals;
+    private final ObjectIntHashMap<String> fineTotals;
 
     /**
-     * Creates a new OverdueReport.
+     * Creates a new OverdueReport from primitive maps. The maps are used as-is
+     * and must not be changed afterwards.
      *
      * @param overdueCounts map of userId to overdue item count
      * @param fineTotals    map of userId to total fines
      */
-    public OverdueReport(Map<String, Integer> overdueCounts, Map<String, Integer> fineTotals) {
+    public OverdueReport(ObjectIntHashMap<String> overdueCounts, ObjectIntHashMap<String> fineTotals) {
         this.overdueCounts = overdueCounts;
         this.fineTotals = fineTotals;
     }
 
+    /**
+     * Creates a new OverdueReport from boxed maps (values are copied).
+     *
+     * @param overdueCounts map of userId to overdue item count
+     * @param fineTotals    map of userId to total fines
+     */
+    public OverdueReport(Map<String, Integer> overdueCounts, Map<String, Integer> fineTotals) {
+        this(copy(overdueCounts), copy(fineTotals));
+    }
+
+    /**
+     * @param userId id of the user
+     * @return number of overdue items of the user (0 if none)
+     */
+    public int getOverdueCount(String userId) {
+        return overdueCounts.get(userId);
+    }
+
+    /**
+     * @param userId id of the user
+     * @return total fine of the user (0 if none)
+     */
+    public int getFineTotal(String userId) {
+        return fineTotals.get(userId);
+    }
+
+    /** @return primitive map of overdue item counts per user (must not be modified) */
+    public ObjectIntHashMap<String> getOverdueCountTable() {
+        return overdueCounts;
+    }
+
+    /** @return primitive map of total fines per user (must not be modified) */
+    public ObjectIntHashMap<String> getFineTotalTable() {
+        return fineTotals;
+    }
+
     /** @return map containing overdue item counts per user */
     public Map<String, Integer> getOverdueCounts() {
-        return overdueCounts;
+        return overdueCounts.asMap();
     }
 
     /** @return map containing total fines per user */
     public Map<String, Integer> getFineTotals() {
-        return fineTotals;
+        return fineTotals.asMap();
+    }
+
+    private static ObjectIntHashMap<String> copy(Map<String, Integer> map) {
+        ObjectIntHashMap<String> result = new ObjectIntHashMap<>(map.size());
+        map.forEach(result::put);
+        return result;
     }
 }
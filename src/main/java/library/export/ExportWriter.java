@@ -0,0 +1,193 @@
+package library.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Encodes records into a direct buffer and writes it to a channel whenever it
+ * fills up. Strings are encoded as UTF-8 straight into the buffer, so writing
+ * a record allocates nothing. Not thread-safe.
+ */
+class ExportWriter implements Closeable {
+
+    /** Written for a missing date in the binary format. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+    private long written;
+
+    /**
+     * @param channel    destination; closed by {@link #close()}
+     * @param bufferSize size of the direct buffer
+     */
+    ExportWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buf = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /** @return number of bytes written so far, including the buffered ones */
+    long written() {
+        return written + buf.position();
+    }
+
+    void putByte(int b) throws IOException {
+        ensure(1);
+        buf.put((byte) b);
+    }
+
+    void putInt(int i) throws IOException {
+        ensure(4);
+        buf.putInt(i);
+    }
+
+    /**
+     * Writes a date as its epoch day, or {@link #NO_DATE} for null.
+     */
+    void putDate(LocalDate d) throws IOException {
+        putInt(d == null ? NO_DATE : (int) d.toEpochDay());
+    }
+
+    /**
+     * Writes a date as {@code yyyy-MM-dd} without formatting it into a string,
+     * or nothing for null. Years outside 0..9999 fall back to {@link LocalDate#toString()}.
+     */
+    void putIsoDate(LocalDate d) throws IOException {
+        if (d == null) return;
+        int year = d.getYear();
+        if (year < 0 || year > 9999) {
+            putText(d.toString());
+            return;
+        }
+        ensure(10);
+        digits(year, 4);
+        buf.put((byte) '-');
+        digits(d.getMonthValue(), 2);
+        buf.put((byte) '-');
+        digits(d.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length in bytes (an int) and the bytes.
+     * Null is written as the empty string.
+     */
+    void putString(String s) throws IOException {
+        if (s == null) s = "";
+        int n = s.length();
+        if (3 * n + 4 > buf.capacity()) {
+            // longer than any buffer-sized string; not worth encoding in place
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (byte b : bytes) putByte(b);
+            return;
+        }
+        ensure(3 * n + 4);
+        int lengthAt = buf.position();
+        buf.position(lengthAt + 4);
+        utf8(s, 0, n);
+        buf.putInt(lengthAt, buf.position() - lengthAt - 4);
+    }
+
+    /**
+     * Writes a string without a length, e.g. a CSV field or separator.
+     */
+    void putText(String s) throws IOException {
+        for (int from = 0; from < s.length(); ) {
+            // at most three bytes per char; a surrogate pair takes four for two chars
+            int to = Math.min(s.length(), from + buf.capacity() / 3);
+            if (to < s.length() && Character.isHighSurrogate(s.charAt(to - 1))) to--;
+            ensure(3 * (to - from));
+            utf8(s, from, to);
+            from = to;
+        }
+    }
+
+    void putAscii(char c) throws IOException {
+        ensure(1);
+        buf.put((byte) c);
+    }
+
+    /**
+     * Writes a CSV field, quoted if it contains a comma, quote or line break.
+     */
+    void putCsvField(String s) throws IOException {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putText(s);
+            return;
+        }
+        putAscii('"');
+        int from = 0;
+        for (int q = s.indexOf('"'); q >= 0; q = s.indexOf('"', q + 1)) {
+            putText(s.substring(from, q + 1));
+            from = q;
+        }
+        putText(s.substring(from));
+        putAscii('"');
+    }
+
+    /** Writes whatever is buffered. */
+    void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            written += channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.remaining() < n) flush();
+    }
+
+    private void digits(int value, int width) {
+        for (int div = width == 4 ? 1000 : 10; div > 0; div /= 10) {
+            buf.put((byte) ('0' + value / div % 10));
+        }
+    }
+
+    /**
+     * Encodes chars {@code from} to {@code to}; the caller has made room for three bytes per char.
+     */
+    private void utf8(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >> 6));
+                buf.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | cp >> 18));
+                buf.put((byte) (0x80 | cp >> 12 & 0x3F));
+                buf.put((byte) (0x80 | cp >> 6 & 0x3F));
+                buf.put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, as String.getBytes does
+                buf.put((byte) '?');
+            } else {
+                buf.put((byte) (0xE0 | c >> 12));
+                buf.put((byte) (0x80 | c >> 6 & 0x3F));
+                buf.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package library.export;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Point-in-time copy of the catalog and the loans for an export.
+ * <p>
+ * Taking a snapshot copies the references of all media and loans together
+ * with their mutable state (availability and return date); everything else
+ * about them is final. It is the only part of an export that has to run while
+ * the repositories are not being changed, so a caller that guards the library
+ * with a lock holds it just for {@link #take}, and the slow part, writing the
+ * file, runs without it while checkouts go on.
+ */
+public final class LibrarySnapshot {
+
+    private final LocalDate date;
+    private final Media[] media;
+    private final boolean[] available;
+    private final Loan[] loans;
+    private final LocalDate[] returned;
+
+    private LibrarySnapshot(LocalDate date, Media[] media, boolean[] available, Loan[] loans, LocalDate[] returned) {
+        this.date = date;
+        this.media = media;
+        this.available = available;
+        this.loans = loans;
+        this.returned = returned;
+    }
+
+    /**
+     * Copies the repositories. The caller must make sure they are not changed
+     * meanwhile, e.g. by holding the read lock that writers take exclusively.
+     *
+     * @param mediaRepo the catalog
+     * @param loanRepo  the loans
+     * @param date      the day the snapshot is taken
+     * @return the snapshot
+     */
+    public static LibrarySnapshot take(MediaRepository mediaRepo, LoanRepository loanRepo, LocalDate date) {
+        List<Media> mediaList = mediaRepo.findAll();
+        Media[] media = mediaList.toArray(new Media[0]);
+        boolean[] available = new boolean[media.length];
+        for (int i = 0; i < media.length; i++) {
+            available[i] = media[i].isAvailable();
+        }
+        List<Loan> loanList = loanRepo.findAll();
+        Loan[] loans = loanList.toArray(new Loan[0]);
+        LocalDate[] returned = new LocalDate[loans.length];
+        for (int i = 0; i < loans.length; i++) {
+            returned[i] = loans[i].getReturnedDate();
+        }
+        return new LibrarySnapshot(date, media, available, loans, returned);
+    }
+
+    /** @return the day the snapshot was taken */
+    public LocalDate getDate() { return date; }
+
+    /** @return number of media items */
+    public int mediaCount() { return media.length; }
+
+    /** @return number of loans */
+    public int loanCount() { return loans.length; }
+
+    Media media(int i) { return media[i]; }
+
+    /** @return availability of media item {@code i} when the snapshot was taken */
+    boolean available(int i) { return available[i]; }
+
+    Loan loan(int i) { return loans[i]; }
+
+    /** @return return date of loan {@code i} when the snapshot was taken, or null */
+    LocalDate returned(int i) { return returned[i]; }
+}
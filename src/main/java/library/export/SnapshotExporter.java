@@ -0,0 +1,300 @@
+package library.export;
+
+import library.domain.Loan;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Writes {@link LibrarySnapshot}s to files for the data warehouse and serves
+ * them.
+ * <p>
+ * Each export writes one file per {@link Dataset}, named after the dataset and
+ * the day of the snapshot, e.g. {@code media-2024-05-01.csv}. Records are
+ * encoded into a direct buffer that is handed to a {@link FileChannel}, and a
+ * file is written under a temporary name and then moved into place, so a
+ * reader never sees half an export. {@link #exportIfAbsent} exports at most once
+ * per day and format; {@link #transfer} then sends the file with
+ * {@link FileChannel#transferTo}, which lets the operating system copy it to a
+ * file or socket channel without passing through the heap.
+ * <p>
+ * A day's export is frozen: it shows the library as it was when the day was
+ * first exported, and changes made later that day only appear in the next
+ * day's export. Only files written by this exporter count as exported. Files
+ * another exporter left in the directory, e.g. before the server restarted,
+ * may be older than the data, so the first {@link #exportIfAbsent} of a day
+ * replaces them.
+ * <p>
+ * CSV files start with a header line:
+ * <pre>
+ * media: id,type,title,creator,isbn,available
+ * loans: id,userId,mediaId,borrowDate,dueDate,returnedDate
+ * </pre>
+ * Dates are ISO dates, a missing return date is empty, and the creator is the
+ * author of a book or the artist of a CD.
+ * <p>
+ * Binary files are big-endian: the magic {@code LIBX}, a format version byte
+ * ({@value #BINARY_VERSION}), a dataset byte (0 media, 1 loans), the epoch day
+ * of the snapshot and the record count as ints, then the records with the
+ * same fields as the CSV columns. Strings are an int byte length and UTF-8,
+ * dates are epoch days as ints ({@link Integer#MIN_VALUE} for none) and
+ * {@code available} is one byte.
+ */
+public class SnapshotExporter {
+
+    /** Version byte of the binary format. */
+    public static final int BINARY_VERSION = 1;
+
+    /** Size of the direct buffer records are encoded into. */
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final byte[] MAGIC = {'L', 'I', 'B', 'X'};
+
+    /**
+     * Encoding of an export file.
+     */
+    public enum Format {
+        CSV("csv"), BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** @return file name extension, without the dot */
+        public String extension() { return extension; }
+
+        /**
+         * @param name "csv" or "binary" (any case)
+         * @return the format
+         * @throws IllegalArgumentException for other names
+         */
+        public static Format of(String name) {
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "csv": return CSV;
+                case "binary": case "bin": return BINARY;
+                default: throw new IllegalArgumentException("format must be csv or binary");
+            }
+        }
+    }
+
+    /**
+     * What an export file contains.
+     */
+    public enum Dataset {
+        MEDIA("media"), LOANS("loans");
+
+        private final String fileName;
+
+        Dataset(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * @param name "media" or "loans"
+         * @return the dataset
+         * @throws IllegalArgumentException for other names
+         */
+        public static Dataset of(String name) {
+            for (Dataset d : values()) {
+                if (d.fileName.equals(name)) return d;
+            }
+            throw new IllegalArgumentException("dataset must be media or loans");
+        }
+    }
+
+    private final Path directory;
+    // one export of a day and format at a time; other days and formats go on
+    private final ConcurrentMap<String, Object> exporting = new ConcurrentHashMap<>();
+    // day and format of the exports this exporter wrote
+    private final Set<String> exported = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param directory where export files are written; created if missing
+     */
+    public SnapshotExporter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param dataset the dataset
+     * @param format  the encoding
+     * @param day     day of the snapshot
+     * @return path of the export file of that day (which may not exist yet)
+     */
+    public Path file(Dataset dataset, Format format, LocalDate day) {
+        return directory.resolve(dataset.fileName + "-" + day + "." + format.extension);
+    }
+
+    /**
+     * Writes both datasets of a snapshot, replacing earlier exports of its day.
+     *
+     * @param snapshot the snapshot
+     * @param format   the encoding
+     * @throws IOException if a file cannot be written
+     */
+    public void export(LibrarySnapshot snapshot, Format format) throws IOException {
+        Files.createDirectories(directory);
+        synchronized (lock(snapshot.getDate(), format)) {
+            for (Dataset dataset : Dataset.values()) {
+                Path target = file(dataset, format, snapshot.getDate());
+                Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+                try {
+                    try (ExportWriter out = new ExportWriter(FileChannel.open(tmp, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), BUFFER_SIZE)) {
+                        write(snapshot, dataset, format, out);
+                    }
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            exported.add(key(snapshot.getDate(), format));
+        }
+    }
+
+    /**
+     * Exports the given day unless this exporter already did. The snapshot is
+     * only taken when an export is needed; concurrent calls for the same day
+     * and format wait for one export instead of writing their own.
+     *
+     * @param day      the day
+     * @param format   the encoding
+     * @param snapshot takes the snapshot of {@code day}, e.g. under a read lock
+     * @return true if the files were written, false if they were already exported
+     * @throws IOException if a file cannot be written
+     */
+    public boolean exportIfAbsent(LocalDate day, Format format, Supplier<LibrarySnapshot> snapshot)
+            throws IOException {
+        if (exported.contains(key(day, format))) return false;
+        synchronized (lock(day, format)) {
+            if (exported.contains(key(day, format))) return false;
+            export(snapshot.get(), format);
+            return true;
+        }
+    }
+
+    /**
+     * Sends a file to a channel with {@link FileChannel#transferTo}. To a file
+     * or socket channel the data is copied by the operating system; other
+     * channels get it through a JDK buffer.
+     *
+     * @param file   the file
+     * @param target where to send it; not closed
+     * @return number of bytes sent
+     * @throws IOException if reading or writing fails
+     */
+    public static long transfer(Path file, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    private Object lock(LocalDate day, Format format) {
+        return exporting.computeIfAbsent(key(day, format), k -> new Object());
+    }
+
+    private static String key(LocalDate day, Format format) {
+        return day + "." + format.extension;
+    }
+
+    private static void write(LibrarySnapshot s, Dataset dataset, Format format, ExportWriter out)
+            throws IOException {
+        boolean media = dataset == Dataset.MEDIA;
+        int count = media ? s.mediaCount() : s.loanCount();
+        if (format == Format.BINARY) {
+            for (byte b : MAGIC) out.putByte(b);
+            out.putByte(BINARY_VERSION);
+            out.putByte(dataset.ordinal());
+            out.putDate(s.getDate());
+            out.putInt(count);
+            for (int i = 0; i < count; i++) {
+                if (media) binaryMedia(s, i, out);
+                else binaryLoan(s, i, out);
+            }
+        } else {
+            out.putText(media ? "id,type,title,creator,isbn,available\n"
+                    : "id,userId,mediaId,borrowDate,dueDate,returnedDate\n");
+            for (int i = 0; i < count; i++) {
+                if (media) csvMedia(s, i, out);
+                else csvLoan(s, i, out);
+            }
+        }
+    }
+
+    private static void binaryMedia(LibrarySnapshot s, int i, ExportWriter out) throws IOException {
+        Media m = s.media(i);
+        out.putString(m.getId());
+        out.putString(m.getType().name());
+        out.putString(m.getTitle());
+        out.putString(creator(m));
+        out.putString(m instanceof Book ? ((Book) m).getIsbn() : "");
+        out.putByte(s.available(i) ? 1 : 0);
+    }
+
+    private static void binaryLoan(LibrarySnapshot s, int i, ExportWriter out) throws IOException {
+        Loan l = s.loan(i);
+        out.putString(l.getId());
+        out.putString(l.getUserId());
+        out.putString(l.getMediaId());
+        out.putDate(l.getBorrowDate());
+        out.putDate(l.getDueDate());
+        out.putDate(s.returned(i));
+    }
+
+    private static void csvMedia(LibrarySnapshot s, int i, ExportWriter out) throws IOException {
+        Media m = s.media(i);
+        out.putCsvField(m.getId());
+        out.putAscii(',');
+        out.putCsvField(m.getType().name());
+        out.putAscii(',');
+        out.putCsvField(m.getTitle());
+        out.putAscii(',');
+        out.putCsvField(creator(m));
+        out.putAscii(',');
+        if (m instanceof Book) out.putCsvField(((Book) m).getIsbn());
+        out.putText(s.available(i) ? ",true\n" : ",false\n");
+    }
+
+    private static void csvLoan(LibrarySnapshot s, int i, ExportWriter out) throws IOException {
+        Loan l = s.loan(i);
+        out.putCsvField(l.getId());
+        out.putAscii(',');
+        out.putCsvField(l.getUserId());
+        out.putAscii(',');
+        out.putCsvField(l.getMediaId());
+        out.putAscii(',');
+        out.putIsoDate(l.getBorrowDate());
+        out.putAscii(',');
+        out.putIsoDate(l.getDueDate());
+        out.putAscii(',');
+        out.putIsoDate(s.returned(i));
+        out.putAscii('\n');
+    }
+
+    private static String creator(Media m) {
+        if (m instanceof Book) return ((Book) m).getAuthor();
+        if (m instanceof CD) return ((CD) m).getArtist();
+        return "";
+    }
+}
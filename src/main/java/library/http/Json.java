@@ -0,0 +1,160 @@
+package library.http;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON writing for the HTTP API, plus reading of single top-level
+ * fields for the load client and tests. Only what the API needs; not a
+ * general JSON library.
+ */
+final class Json {
+
+    private Json() { }
+
+    /**
+     * Appends a JSON string literal.
+     *
+     * @param s  the string, or null for {@code null}
+     * @param sb the target
+     * @return the target
+     */
+    static StringBuilder quote(CharSequence s, StringBuilder sb) {
+        if (s == null) return sb.append("null");
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * @param message error message
+     * @return {@code {"error":"..."}}
+     */
+    static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        return quote(message == null ? "unknown error" : message, sb).append('}').toString();
+    }
+
+    static StringBuilder media(Media m, StringBuilder sb) {
+        sb.append("{\"id\":");
+        quote(m.getId(), sb).append(",\"type\":");
+        quote(m.getMediaType(), sb).append(",\"title\":");
+        quote(m.getTitle(), sb);
+        if (m instanceof Book) {
+            sb.append(",\"author\":");
+            quote(((Book) m).getAuthor(), sb).append(",\"isbn\":");
+            quote(((Book) m).getIsbn(), sb);
+        } else if (m instanceof CD) {
+            sb.append(",\"artist\":");
+            quote(((CD) m).getArtist(), sb);
+        }
+        return sb.append(",\"available\":").append(m.isAvailable()).append('}');
+    }
+
+    static StringBuilder mediaList(List<Media> items, StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) sb.append(',');
+            media(items.get(i), sb);
+        }
+        return sb.append(']');
+    }
+
+    static StringBuilder loan(Loan l, StringBuilder sb) {
+        sb.append("{\"id\":");
+        quote(l.getId(), sb).append(",\"userId\":");
+        quote(l.getUserId(), sb).append(",\"mediaId\":");
+        quote(l.getMediaId(), sb).append(",\"borrowDate\":");
+        quote(String.valueOf(l.getBorrowDate()), sb).append(",\"dueDate\":");
+        quote(String.valueOf(l.getDueDate()), sb).append(",\"returnedDate\":");
+        quote(l.getReturnedDate() == null ? null : l.getReturnedDate().toString(), sb);
+        return sb.append('}');
+    }
+
+    static StringBuilder loanList(List<Loan> loans, StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < loans.size(); i++) {
+            if (i > 0) sb.append(',');
+            loan(loans.get(i), sb);
+        }
+        return sb.append(']');
+    }
+
+    static StringBuilder user(User u, StringBuilder sb) {
+        sb.append("{\"id\":");
+        quote(u.getId(), sb).append(",\"name\":");
+        quote(u.getName(), sb).append(",\"email\":");
+        quote(u.getEmail(), sb);
+        return sb.append(",\"outstandingFine\":").append(u.getOutstandingFine()).append('}');
+    }
+
+    static StringBuilder intMap(Map<String, Integer> map, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Integer> e : map.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            quote(e.getKey(), sb).append(':').append(e.getValue());
+        }
+        return sb.append('}');
+    }
+
+    /**
+     * Reads the value of the first occurrence of a field, as raw text: strings
+     * without quotes (escapes are not decoded), numbers and literals as written.
+     *
+     * @param json  JSON text
+     * @param field field name
+     * @return the value, or null if the field is missing or {@code null}
+     */
+    static String field(String json, String field) {
+        return field(json, field, 0);
+    }
+
+    /**
+     * Like {@link #field(String, String)}, starting the search at an offset.
+     *
+     * @param json  JSON text
+     * @param field field name
+     * @param from  offset to search from
+     * @return the value, or null if the field is missing or {@code null}
+     */
+    static String field(String json, String field, int from) {
+        String key = "\"" + field + "\":";
+        int i = json.indexOf(key, from);
+        if (i < 0) return null;
+        i += key.length();
+        if (json.startsWith("null", i)) return null;
+        if (json.charAt(i) == '"') {
+            int end = i + 1;
+            while (json.charAt(end) != '"') {
+                end += json.charAt(end) == '\\' ? 2 : 1;
+            }
+            return json.substring(i + 1, end);
+        }
+        int end = i;
+        while (end < json.length() && ",}]".indexOf(json.charAt(end)) < 0) end++;
+        return json.substring(i, end);
+    }
+}
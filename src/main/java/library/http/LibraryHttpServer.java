@@ -0,0 +1,477 @@
+package library.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import library.AppConfig;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import library.dto.OverdueReport;
+import library.exception.BusinessRuleException;
+import library.exception.NotAuthorizedException;
+import library.exception.ResourceNotFoundException;
+import library.export.LibrarySnapshot;
+import library.export.SnapshotExporter;
+import library.service.LibraryService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * JSON API of the library on the JDK's built-in HTTP server.
+ * <p>
+ * Endpoints (parameters in the query string or as a form-encoded body):
+ * <ul>
+ *     <li>{@code GET  /api/search?q=..&by=any|title|author|isbn}</li>
+ *     <li>{@code POST /api/users} (name, email)</li>
+ *     <li>{@code GET  /api/users/{id}} and {@code GET /api/users/{id}/loans}</li>
+ *     <li>{@code POST /api/borrow} (userId, mediaId, optional requestId)</li>
+ *     <li>{@code POST /api/return} (loanId)</li>
+ *     <li>{@code POST /api/pay} (userId, amount, optional requestId)</li>
+ *     <li>{@code GET  /api/reports/borrowed} and {@code GET /api/reports/overdue}</li>
+ *     <li>{@code GET  /api/metrics}</li>
+ *     <li>{@code GET  /api/export/media} and {@code GET /api/export/loans}
+ *         (optional format=csv|binary), see {@link SnapshotExporter}</li>
+ * </ul>
+ * Missing resources answer 404, broken library rules 409, bad parameters 400
+ * and a wrong method 405, all with {@code {"error":"..."}}. A {@code requestId}
+ * makes borrows and payments safe to retry.
+ * <p>
+ * Requests are handled on the given executor; {@link #newExecutor(int)} uses a
+ * virtual thread per request when the JVM has them and a bounded pool
+ * otherwise. The services and in-memory repositories are not thread-safe, so
+ * every call takes a read-write lock: searches and lookups share the read
+ * lock, everything that changes state (including building a cached report and
+ * processing a new day) takes the write lock. An export holds the read lock
+ * only while it copies the repositories into a {@link LibrarySnapshot}; the
+ * file is written after the lock is released, once per day, and later
+ * requests of the day are served from it, so a day's export does not show
+ * changes made after its first request. By default the files go to a new
+ * temporary directory of this server, so a restarted server never serves the
+ * files of an earlier run.
+ */
+public class LibraryHttpServer {
+
+    /** Default port. */
+    public static final int DEFAULT_PORT = 8080;
+
+    // requests waiting for a pool thread per thread; beyond that the HTTP dispatcher runs them itself
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private final AppConfig config;
+    private final LibraryService library;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // created on the first export unless set with useExportDirectory
+    private SnapshotExporter exporter;
+
+    /**
+     * Creates the server; call {@link #start()} to accept requests.
+     *
+     * @param config   the wired library
+     * @param address  address to listen on (port 0 picks a free port)
+     * @param executor executor that runs the requests, shut down by {@link #stop(int)}
+     * @throws IOException if the address cannot be bound
+     */
+    public LibraryHttpServer(AppConfig config, InetSocketAddress address, ExecutorService executor)
+            throws IOException {
+        this.config = config;
+        this.library = config.libraryService();
+        this.executor = executor;
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/api/", this::handle);
+        server.createContext("/api/export/", this::export);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Creates the executor for request handling: a virtual thread per request
+     * on JVMs that support them, otherwise a pool of {@code maxThreads}
+     * threads with a bounded queue. When the queue is full the HTTP dispatcher
+     * thread runs the request itself, which stops it from accepting more
+     * connections until the load drops.
+     *
+     * @param maxThreads number of pool threads (ignored with virtual threads)
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(int maxThreads) {
+        if (maxThreads < 1) throw new IllegalArgumentException("maxThreads must be at least 1");
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return newPool(maxThreads);
+        }
+    }
+
+    /**
+     * @param threads number of threads
+     * @return a bounded pool of daemon threads, see {@link #newExecutor(int)}
+     */
+    static ExecutorService newPool(int threads) {
+        AtomicInteger n = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                r -> {
+                    Thread t = new Thread(r, "library-http-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Sets where exports are written (by default a new {@code library-exports}
+     * directory in the temporary directory, created on the first export).
+     * Files already in the directory are replaced by the first export of
+     * their day.
+     *
+     * @param directory the export directory
+     */
+    public synchronized void useExportDirectory(Path directory) {
+        this.exporter = new SnapshotExporter(directory);
+    }
+
+    /** Starts accepting requests. */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server and its executor.
+     *
+     * @param delaySeconds how long to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /** @return the port the server listens on */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try {
+            Map<String, String> params = params(exchange);
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Response r = route(method, path, params);
+            status = r.status;
+            body = r.body;
+        } catch (MethodNotAllowedException e) {
+            status = 405;
+            body = Json.error(e.getMessage());
+        } catch (ResourceNotFoundException e) {
+            status = 404;
+            body = Json.error(e.getMessage());
+        } catch (BusinessRuleException e) {
+            status = 409;
+            body = Json.error(e.getMessage());
+        } catch (NotAuthorizedException e) {
+            status = 403;
+            body = Json.error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = Json.error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = Json.error(e.toString());
+        }
+
+        send(exchange, status, body);
+    }
+
+    /**
+     * Serves today's export of a dataset, writing it first if needed.
+     */
+    private void export(HttpExchange exchange) throws IOException {
+        SnapshotExporter.Format format;
+        Path file;
+        try {
+            requireMethod(exchange.getRequestMethod(), "GET");
+            String name = exchange.getRequestURI().getPath().substring("/api/export/".length());
+            SnapshotExporter.Dataset dataset = SnapshotExporter.Dataset.of(name);
+            format = SnapshotExporter.Format.of(params(exchange).getOrDefault("format", "csv"));
+            LocalDate today = config.timeProvider().today();
+            SnapshotExporter exporter = exporter();
+            exporter.exportIfAbsent(today, format, () -> {
+                Lock l = lock.readLock();
+                l.lock();
+                try {
+                    return LibrarySnapshot.take(config.mediaRepository(), config.loanRepository(), today);
+                } finally {
+                    l.unlock();
+                }
+            });
+            file = exporter.file(dataset, format, today);
+        } catch (MethodNotAllowedException e) {
+            send(exchange, 405, Json.error(e.getMessage()));
+            return;
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Json.error(e.getMessage()));
+            return;
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, Json.error(e.toString()));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type",
+                format == SnapshotExporter.Format.CSV ? "text/csv; charset=utf-8" : "application/octet-stream");
+        exchange.sendResponseHeaders(200, Files.size(file));
+        try (OutputStream out = exchange.getResponseBody()) {
+            SnapshotExporter.transfer(file, Channels.newChannel(out));
+        }
+    }
+
+    private synchronized SnapshotExporter exporter() throws IOException {
+        if (exporter == null) {
+            exporter = new SnapshotExporter(Files.createTempDirectory("library-exports"));
+        }
+        return exporter;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Response route(String method, String path, Map<String, String> p) {
+        String[] parts = path.substring("/api/".length()).split("/");
+        switch (parts[0]) {
+            case "search":
+                requireMethod(method, "GET");
+                return read(() -> ok(Json.mediaList(search(p.get("by"), p.get("q")), new StringBuilder())));
+            case "users":
+                return users(method, parts, p);
+            case "borrow":
+                requireMethod(method, "POST");
+                return write(() -> {
+                    String requestId = p.get("requestId");
+                    String userId = required(p, "userId");
+                    String mediaId = required(p, "mediaId");
+                    Loan loan = requestId == null
+                            ? library.borrow(userId, mediaId)
+                            : library.borrow(requestId, userId, mediaId);
+                    return new Response(201, Json.loan(loan, new StringBuilder()).toString());
+                });
+            case "return":
+                requireMethod(method, "POST");
+                return write(() -> {
+                    String loanId = required(p, "loanId");
+                    library.returnMedia(loanId);
+                    Loan loan = config.loanRepository().findById(loanId)
+                            .orElseThrow(() -> new ResourceNotFoundException("loan not found"));
+                    return ok(Json.loan(loan, new StringBuilder()));
+                });
+            case "pay":
+                requireMethod(method, "POST");
+                return write(() -> {
+                    String requestId = p.get("requestId");
+                    String userId = required(p, "userId");
+                    int amount = Integer.parseInt(required(p, "amount"));
+                    int paid = requestId == null
+                            ? library.payFine(userId, amount)
+                            : library.payFine(requestId, userId, amount);
+                    User user = findUser(userId);
+                    StringBuilder sb = new StringBuilder("{\"userId\":");
+                    Json.quote(userId, sb).append(",\"paid\":").append(paid)
+                            .append(",\"outstandingFine\":").append(user.getOutstandingFine()).append('}');
+                    return ok(sb);
+                });
+            case "reports":
+                requireMethod(method, "GET");
+                return reports(parts);
+            case "metrics":
+                requireMethod(method, "GET");
+                return new Response(200, config.metricsRegistry().snapshot().toJson());
+            default:
+                throw new ResourceNotFoundException("no such endpoint: " + path);
+        }
+    }
+
+    private List<Media> search(String by, String q) {
+        if (by == null || by.equals("any")) return library.search(q);
+        switch (by) {
+            case "title": return library.searchByTitle(q);
+            case "author": return library.searchByAuthor(q);
+            case "isbn": return library.searchByIsbn(q);
+            default: throw new IllegalArgumentException("by must be any, title, author or isbn");
+        }
+    }
+
+    private Response users(String method, String[] parts, Map<String, String> p) {
+        if (parts.length == 1) {
+            requireMethod(method, "POST");
+            return write(() -> new Response(201, Json.user(
+                    library.registerUser(required(p, "name"), required(p, "email")), new StringBuilder()).toString()));
+        }
+        requireMethod(method, "GET");
+        String userId = parts[1];
+        if (parts.length == 2) {
+            return read(() -> ok(Json.user(findUser(userId), new StringBuilder())));
+        }
+        if (parts.length == 3 && parts[2].equals("loans")) {
+            return read(() -> ok(Json.loanList(library.findLoansByUser(userId), new StringBuilder())));
+        }
+        throw new ResourceNotFoundException("no such endpoint");
+    }
+
+    private Response reports(String[] parts) {
+        String name = parts.length == 2 ? parts[1] : "";
+        if (name.equals("borrowed")) {
+            return write(() -> {
+                StringBuilder sb = new StringBuilder("{\"lines\":[");
+                int[] first = {1};
+                int totalFine = library.streamBorrowedMediaReport(line -> {
+                    if (first[0] == 0) sb.append(',');
+                    first[0] = 0;
+                    Json.quote(line, sb);
+                });
+                return ok(sb.append("],\"totalFine\":").append(totalFine).append('}'));
+            });
+        }
+        if (name.equals("overdue")) {
+            return write(() -> {
+                OverdueReport report = library.getReminderService().overdueReport();
+                StringBuilder sb = new StringBuilder("{\"overdueCounts\":");
+                Json.intMap(report.getOverdueCounts(), sb).append(",\"fineTotals\":");
+                return ok(Json.intMap(report.getFineTotals(), sb).append('}'));
+            });
+        }
+        throw new ResourceNotFoundException("no such report: " + name);
+    }
+
+    private User findUser(String userId) {
+        return config.userRepository().findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("user not found"));
+    }
+
+    private Response read(Supplier<Response> call) {
+        return locked(lock.readLock(), call);
+    }
+
+    private Response write(Supplier<Response> call) {
+        return locked(lock.writeLock(), () -> {
+            // on a new day: mark loans that just became overdue, as the console does
+            config.dayRollover().rollover();
+            return call.get();
+        });
+    }
+
+    private static Response locked(Lock l, Supplier<Response> call) {
+        l.lock();
+        try {
+            return call.get();
+        } finally {
+            l.unlock();
+        }
+    }
+
+    private static Response ok(CharSequence body) {
+        return new Response(200, body.toString());
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new MethodNotAllowedException(method + " not allowed, use " + expected);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("missing parameter: " + name);
+        return value;
+    }
+
+    /**
+     * Parameters of the query string and, for form posts, of the body.
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            parseForm(readBody(exchange.getRequestBody()), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) throws UnsupportedEncodingException {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Thrown when an endpoint is called with the wrong HTTP method.
+     */
+    private static final class MethodNotAllowedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Status and JSON body of a handled request.
+     */
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package library.http;
+
+import library.util.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load client for {@link LibraryHttpServer}: a number of concurrent clients
+ * (kiosks), each with its own user, send a mix of searches and borrow/return
+ * pairs and the client reports throughput and latency percentiles per request
+ * type.
+ * <p>
+ * Each client first registers a user, then repeats: with probability
+ * {@code searchShare} a title search for a random catalog title, otherwise a
+ * borrow of a random item, followed by its return if the borrow succeeded.
+ * Borrows of items that are already out answer 409 and are counted as
+ * rejected, not as errors. Connections are kept alive between requests.
+ * <p>
+ * Usage: {@code java -cp target/classes library.http.LoadClient
+ * [--url http://localhost:8080] [--clients N] [--requests N] [--search-share X] [--seed N]}
+ */
+public class LoadClient {
+
+    /**
+     * Measured request types.
+     */
+    public enum Request { SEARCH, BORROW, RETURN }
+
+    private final String baseUrl;
+    private final int clients;
+    private final int requestsPerClient;
+    private final double searchShare;
+    private final long seed;
+
+    /**
+     * @param baseUrl           server address, e.g. {@code http://localhost:8080}
+     * @param clients           number of concurrent clients
+     * @param requestsPerClient number of searches and borrows each client sends
+     * @param searchShare       share of searches between 0 and 1
+     * @param seed              seed of the request mix
+     */
+    public LoadClient(String baseUrl, int clients, int requestsPerClient, double searchShare, long seed) {
+        if (clients < 1) throw new IllegalArgumentException("clients must be at least 1");
+        if (requestsPerClient < 0) throw new IllegalArgumentException("requestsPerClient must not be negative");
+        if (searchShare < 0 || searchShare > 1) throw new IllegalArgumentException("searchShare must be between 0 and 1");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.clients = clients;
+        this.requestsPerClient = requestsPerClient;
+        this.searchShare = searchShare;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs all clients to completion.
+     *
+     * @return latencies and counts of the run
+     * @throws IOException          if the catalog cannot be read
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public Result run() throws IOException, InterruptedException {
+        Reply catalog = send("GET", "/api/search?q=", null);
+        if (catalog.status != 200) throw new IOException("cannot read catalog: HTTP " + catalog.status);
+        List<String> mediaIds = values(catalog.body, "id");
+        List<String> titles = values(catalog.body, "title");
+        if (mediaIds.isEmpty()) throw new IOException("catalog is empty");
+
+        Result result = new Result(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(seed + c);
+            int client = c;
+            Thread t = new Thread(() -> {
+                try {
+                    runClient(client, random, mediaIds, titles, result);
+                } catch (IOException | RuntimeException e) {
+                    result.errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + c);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+        result.wallNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void runClient(int client, Random random, List<String> mediaIds, List<String> titles, Result result)
+            throws IOException {
+        Reply user = send("POST", "/api/users", "name=kiosk" + client + "&email=kiosk" + client + "%40example.com");
+        if (user.status != 201) throw new IOException("cannot register user: HTTP " + user.status);
+        String userId = Json.field(user.body, "id");
+
+        for (int i = 0; i < requestsPerClient; i++) {
+            if (random.nextDouble() < searchShare) {
+                String title = titles.get(random.nextInt(titles.size()));
+                timed(Request.SEARCH, "GET", "/api/search?by=title&q=" + encode(title), null, result);
+                continue;
+            }
+            String mediaId = mediaIds.get(random.nextInt(mediaIds.size()));
+            Reply borrow = timed(Request.BORROW, "POST", "/api/borrow",
+                    "userId=" + encode(userId) + "&mediaId=" + encode(mediaId), result);
+            if (borrow.status == 201) {
+                timed(Request.RETURN, "POST", "/api/return",
+                        "loanId=" + encode(Json.field(borrow.body, "id")), result);
+            }
+        }
+    }
+
+    private Reply timed(Request request, String method, String path, String form, Result result) throws IOException {
+        long t0 = System.nanoTime();
+        Reply reply = send(method, path, form);
+        result.latencies[request.ordinal()].record(System.nanoTime() - t0);
+        if (reply.status == 409) {
+            result.rejected[request.ordinal()].incrementAndGet();
+        } else if (reply.status >= 400) {
+            result.errors.incrementAndGet();
+        }
+        return reply;
+    }
+
+    private Reply send(String method, String path, String form) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        con.setRequestMethod(method);
+        if (form != null) {
+            con.setDoOutput(true);
+            con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = con.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = con.getResponseCode();
+        // read the body to the end so the connection can be reused
+        InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream is = in) {
+                byte[] buf = new byte[4096];
+                int n;
+                while ((n = is.read(buf)) > 0) {
+                    body.write(buf, 0, n);
+                }
+            }
+        }
+        return new Reply(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static String encode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * All values of a string field in a JSON array of objects.
+     */
+    private static List<String> values(String json, String field) {
+        List<String> values = new ArrayList<>();
+        String key = "\"" + field + "\":";
+        int i = json.indexOf(key);
+        while (i >= 0) {
+            String value = Json.field(json, field, i);
+            if (value != null) values.add(value);
+            i = json.indexOf(key, i + key.length());
+        }
+        return values;
+    }
+
+    /**
+     * Runs the load client with the options given on the command line and prints the result.
+     *
+     * @param args options, see the class description
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:" + LibraryHttpServer.DEFAULT_PORT;
+        int clients = 32;
+        int requests = 500;
+        double searchShare = 0.8;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + option);
+            String value = args[++i];
+            switch (option) {
+                case "--url": url = value; break;
+                case "--clients": clients = Integer.parseInt(value); break;
+                case "--requests": requests = Integer.parseInt(value); break;
+                case "--search-share": searchShare = Double.parseDouble(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        System.out.print(new LoadClient(url, clients, requests, searchShare, seed).run().format());
+    }
+
+    /**
+     * Status and body of a response.
+     */
+    private static final class Reply {
+        private final int status;
+        private final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Latencies and counts of a load run, latencies in nanoseconds.
+     */
+    public static final class Result {
+
+        private final int clients;
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Request.values().length];
+        private final AtomicLong[] rejected = new AtomicLong[Request.values().length];
+        private final AtomicLong errors = new AtomicLong();
+        private volatile long wallNanos;
+
+        private Result(int clients) {
+            this.clients = clients;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+                rejected[i] = new AtomicLong();
+            }
+        }
+
+        /**
+         * @param request request type
+         * @return latencies of the requests of that type
+         */
+        public LatencyHistogram.Snapshot latencies(Request request) {
+            return latencies[request.ordinal()].snapshot();
+        }
+
+        /**
+         * @param request request type
+         * @return number of requests answered with 409
+         */
+        public long rejected(Request request) {
+            return rejected[request.ordinal()].get();
+        }
+
+        /** @return requests answered with another error status, plus clients that stopped on an I/O error */
+        public long getErrors() { return errors.get(); }
+
+        /** @return wall-clock duration of the run in nanoseconds */
+        public long getWallNanos() { return wallNanos; }
+
+        /** @return requests of all types per second of wall-clock time */
+        public double throughput() {
+            long total = 0;
+            for (LatencyHistogram h : latencies) {
+                total += h.count();
+            }
+            return wallNanos == 0 ? 0 : total * 1e9 / wallNanos;
+        }
+
+        /**
+         * Formats the result as a table, latencies in microseconds.
+         *
+         * @return the result text
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "clients: %d, wall time: %.2f s, throughput: %.0f req/s, errors: %d%n",
+                    clients, wallNanos / 1e9, throughput(), errors.get()));
+            sb.append(String.format(Locale.ROOT, "%-8s %10s %10s %10s %10s %10s %10s %10s%n",
+                    "request", "count", "rejected", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+            for (Request r : Request.values()) {
+                LatencyHistogram.Snapshot s = latencies(r);
+                sb.append(String.format(Locale.ROOT, "%-8s %10d %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                        r, s.count(), rejected(r), s.mean() / 1e3, s.valueAtPercentile(50) / 1e3,
+                        s.valueAtPercentile(99) / 1e3, s.valueAtPercentile(99.9) / 1e3, s.max() / 1e3));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return format();
+        }
+    }
+}
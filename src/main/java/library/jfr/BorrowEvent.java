@@ -0,0 +1,52 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import library.service.ServiceEvents;
+
+/**
+ * Flight recorder event for {@link library.service.LibraryService#borrow(String, String)}.
+ */
+@Name("library.Borrow")
+@Label("Borrow")
+@Category({"Library", "Service"})
+@Description("A borrow handled by the library service")
+@StackTrace(false)
+public class BorrowEvent extends Event implements ServiceEvents.Borrow {
+
+    @Label("User Id")
+    private String userId;
+
+    @Label("Media Id")
+    private String mediaId;
+
+    @Label("Loan Id")
+    @Description("Id of the created loan, null if the borrow failed")
+    private String loanId;
+
+    @Label("Failure")
+    @Description("Message of the exception that rejected the borrow")
+    private String failure;
+
+    /**
+     * Ends the event and commits it if recording is on.
+     *
+     * @param userId  id of the user
+     * @param mediaId id of the media item
+     * @param loanId  id of the created loan, or null
+     * @param failure failure message, or null
+     */
+    @Override
+    public void complete(String userId, String mediaId, String loanId, String failure) {
+        if (!shouldCommit()) return;
+        this.userId = userId;
+        this.mediaId = mediaId;
+        this.loanId = loanId;
+        this.failure = failure;
+        commit();
+    }
+}
@@ -0,0 +1,45 @@
+package library.jfr;
+
+import library.service.ServiceEvents;
+
+/**
+ * {@link ServiceEvents} emitted as flight recorder events. Loaded by
+ * {@link ServiceEvents#detect()} only when {@code jdk.jfr} is available.
+ */
+public class JfrServiceEvents implements ServiceEvents {
+
+    @Override
+    public Borrow beginBorrow() {
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Return beginReturn() {
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Search beginSearch() {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public ReminderRun beginReminderRun() {
+        ReminderRunEvent event = new ReminderRunEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Notification beginNotification() {
+        NotificationEvent event = new NotificationEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,314 @@
+package library.jfr;
+
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import library.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the library events of a flight recording.
+ * <p>
+ * Events are grouped by type, searches also by kind (for example
+ * {@code library.Search[title]}). For each group the summary lists the number
+ * of events, how many failed, and duration percentiles. The slowest events are
+ * listed with their ids, together with the time the JVM spent in GC pauses
+ * ({@code jdk.GCPhasePause}) and the time their thread was blocked while they
+ * ran, so a slow call can be told apart from a call that was only stopped:
+ * <ul>
+ *     <li>entering a monitor ({@code jdk.JavaMonitorEnter})</li>
+ *     <li>parked, which includes waiting for a {@code java.util.concurrent}
+ *     lock such as the HTTP server's read/write lock ({@code jdk.ThreadPark})</li>
+ *     <li>in {@code Object.wait}, e.g. for a request id that is still in
+ *     progress ({@code jdk.JavaMonitorWait})</li>
+ * </ul>
+ * The flight recorder only records these waits above a threshold (20 ms in
+ * the default settings), so shorter ones are not counted.
+ * <p>
+ * Record with {@code java -XX:StartFlightRecording=filename=library.jfr ...}, then
+ * run {@code java -cp target/classes library.jfr.JfrSummary library.jfr [top]}.
+ */
+public class JfrSummary {
+
+    /** Number of slowest events listed by default. */
+    public static final int DEFAULT_TOP = 10;
+
+    private static final String PREFIX = "library.";
+
+    private final Map<String, LatencyHistogram> durations;
+    private final Map<String, Long> failures;
+    private final List<Slow> slowest;
+
+    private JfrSummary(Map<String, LatencyHistogram> durations, Map<String, Long> failures, List<Slow> slowest) {
+        this.durations = durations;
+        this.failures = failures;
+        this.slowest = slowest;
+    }
+
+    /**
+     * Reads a recording and summarizes its library events.
+     *
+     * @param recording path of the {@code .jfr} file
+     * @param top       number of slowest events to keep
+     * @return the summary
+     * @throws IOException if the file cannot be read
+     */
+    public static JfrSummary summarize(Path recording, int top) throws IOException {
+        if (top < 0) throw new IllegalArgumentException("top must not be negative");
+
+        Map<String, LatencyHistogram> durations = new TreeMap<>();
+        Map<String, Long> failures = new HashMap<>();
+        PriorityQueue<RecordedEvent> slow =
+                new PriorityQueue<>(Comparator.comparing(RecordedEvent::getDuration));
+        List<Instant[]> pauses = new ArrayList<>();
+        Map<Long, List<Instant[]>> monitorEnters = new HashMap<>();
+        Map<Long, List<Instant[]>> parks = new HashMap<>();
+        Map<Long, List<Instant[]>> monitorWaits = new HashMap<>();
+
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent e = file.readEvent();
+                String type = e.getEventType().getName();
+
+                if (type.equals("jdk.GCPhasePause")) {
+                    pauses.add(new Instant[] {e.getStartTime(), e.getEndTime()});
+                } else if (type.equals("jdk.JavaMonitorEnter")) {
+                    addPerThread(monitorEnters, e);
+                } else if (type.equals("jdk.ThreadPark")) {
+                    addPerThread(parks, e);
+                } else if (type.equals("jdk.JavaMonitorWait")) {
+                    addPerThread(monitorWaits, e);
+                } else if (type.startsWith(PREFIX)) {
+                    String key = groupOf(e);
+                    durations.computeIfAbsent(key, k -> new LatencyHistogram())
+                            .record(e.getDuration().toNanos());
+                    if (failed(e)) failures.merge(key, 1L, Long::sum);
+
+                    if (top > 0) {
+                        slow.add(e);
+                        if (slow.size() > top) slow.poll();
+                    }
+                }
+            }
+        }
+
+        List<Slow> slowest = new ArrayList<>();
+        for (RecordedEvent e : slow) {
+            slowest.add(new Slow(e, overlap(e, pauses), overlap(e, ofThread(monitorEnters, e)),
+                    overlap(e, ofThread(parks, e)), overlap(e, ofThread(monitorWaits, e))));
+        }
+        slowest.sort(Comparator.comparing((Slow s) -> s.duration).reversed());
+
+        return new JfrSummary(durations, failures, Collections.unmodifiableList(slowest));
+    }
+
+    /**
+     * Prints the summary of the recording given on the command line.
+     *
+     * @param args path of the recording, optionally followed by the number of slowest events to list
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: JfrSummary <recording.jfr> [top]");
+            System.exit(2);
+        }
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TOP;
+        System.out.print(summarize(Paths.get(args[0]), top).format());
+    }
+
+    /** @return the event groups found, in name order */
+    public List<String> getGroups() {
+        return new ArrayList<>(durations.keySet());
+    }
+
+    /**
+     * @param group event group, e.g. {@code library.Borrow} or {@code library.Search[isbn]}
+     * @return number of events in the group
+     */
+    public long count(String group) {
+        LatencyHistogram h = durations.get(group);
+        return h == null ? 0 : h.count();
+    }
+
+    /**
+     * @param group event group
+     * @return number of failed calls in the group
+     */
+    public long failures(String group) {
+        return failures.getOrDefault(group, 0L);
+    }
+
+    /**
+     * @param group event group
+     * @return duration snapshot of the group, or null if there were no events
+     */
+    public LatencyHistogram.Snapshot durations(String group) {
+        LatencyHistogram h = durations.get(group);
+        return h == null ? null : h.snapshot();
+    }
+
+    /** @return the slowest events, slowest first */
+    public List<Slow> getSlowest() {
+        return slowest;
+    }
+
+    /**
+     * Formats the summary as text, durations in microseconds.
+     *
+     * @return the summary text
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s %10s %12s%n",
+                "event", "count", "failed", "mean us", "p50 us", "p99 us", "max us", "total ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : durations.entrySet()) {
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            sb.append(String.format(Locale.ROOT, "%-28s %10d %10d %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    entry.getKey(), s.count(), failures(entry.getKey()), s.mean() / 1e3,
+                    s.valueAtPercentile(50) / 1e3, s.valueAtPercentile(99) / 1e3, s.max() / 1e3,
+                    s.sum() / 1e6));
+        }
+
+        if (!slowest.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "%nslowest events:%n"));
+            sb.append(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s  %s%n",
+                    "event", "us", "gc us", "monitor us", "park us", "wait us", "details"));
+            for (Slow s : slowest) {
+                sb.append(String.format(Locale.ROOT, "%-28s %10.1f %10.1f %10.1f %10.1f %10.1f  %s%n",
+                        s.group, s.duration.toNanos() / 1e3, s.gcPause.toNanos() / 1e3,
+                        s.monitorEnter.toNanos() / 1e3, s.threadPark.toNanos() / 1e3,
+                        s.monitorWait.toNanos() / 1e3, s.details));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private static String groupOf(RecordedEvent e) {
+        String type = e.getEventType().getName();
+        if (e.hasField("kind")) return type + "[" + e.getString("kind") + "]";
+        return type;
+    }
+
+    private static boolean failed(RecordedEvent e) {
+        if (e.hasField("failure")) return e.getString("failure") != null;
+        if (e.hasField("failed")) return e.getBoolean("failed");
+        if (e.hasField("results")) return e.getInt("results") < 0;
+        return false;
+    }
+
+    private static void addPerThread(Map<Long, List<Instant[]>> byThread, RecordedEvent e) {
+        if (e.getThread() == null) return;
+        byThread.computeIfAbsent(e.getThread().getJavaThreadId(), k -> new ArrayList<>())
+                .add(new Instant[] {e.getStartTime(), e.getEndTime()});
+    }
+
+    /**
+     * Intervals recorded for the thread of the given event.
+     */
+    private static List<Instant[]> ofThread(Map<Long, List<Instant[]>> byThread, RecordedEvent e) {
+        RecordedThread thread = e.getThread();
+        if (thread == null) return Collections.emptyList();
+        return byThread.getOrDefault(thread.getJavaThreadId(), Collections.<Instant[]>emptyList());
+    }
+
+    /**
+     * Total time the given intervals overlap the event.
+     */
+    private static Duration overlap(RecordedEvent e, List<Instant[]> intervals) {
+        Instant start = e.getStartTime();
+        Instant end = e.getEndTime();
+        Duration total = Duration.ZERO;
+        for (Instant[] i : intervals) {
+            Instant from = i[0].isAfter(start) ? i[0] : start;
+            Instant to = i[1].isBefore(end) ? i[1] : end;
+            if (to.isAfter(from)) total = total.plus(Duration.between(from, to));
+        }
+        return total;
+    }
+
+    private static String details(RecordedEvent e) {
+        StringBuilder sb = new StringBuilder();
+        for (ValueDescriptor field : e.getEventType().getFields()) {
+            String name = field.getName();
+            if (name.equals("startTime") || name.equals("duration") || name.equals("eventThread")) continue;
+            Object value = e.getValue(name);
+            if (value == null) continue;
+            if (value instanceof RecordedClass) {
+                value = ((RecordedClass) value).getName();
+            }
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(name).append('=').append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One of the slowest events of a recording.
+     */
+    public static final class Slow {
+
+        private final String group;
+        private final Duration duration;
+        private final Duration gcPause;
+        private final Duration monitorEnter;
+        private final Duration threadPark;
+        private final Duration monitorWait;
+        private final String details;
+
+        private Slow(RecordedEvent e, Duration gcPause, Duration monitorEnter,
+                     Duration threadPark, Duration monitorWait) {
+            this.group = groupOf(e);
+            this.duration = e.getDuration();
+            this.gcPause = gcPause;
+            this.monitorEnter = monitorEnter;
+            this.threadPark = threadPark;
+            this.monitorWait = monitorWait;
+            this.details = details(e);
+        }
+
+        /** @return event group */
+        public String getGroup() { return group; }
+
+        /** @return duration of the event */
+        public Duration getDuration() { return duration; }
+
+        /** @return time spent in GC pauses while the event ran */
+        public Duration getGcPause() { return gcPause; }
+
+        /** @return time the event's thread waited to enter monitors while the event ran */
+        public Duration getMonitorEnter() { return monitorEnter; }
+
+        /** @return time the event's thread was parked, e.g. on a lock, while the event ran */
+        public Duration getThreadPark() { return threadPark; }
+
+        /** @return time the event's thread spent in {@code Object.wait} while the event ran */
+        public Duration getMonitorWait() { return monitorWait; }
+
+        /** @return the event's fields, e.g. {@code userId=U1, mediaId=M3, loanId=L7} */
+        public String getDetails() { return details; }
+    }
+}
@@ -0,0 +1,52 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import library.service.ServiceEvents;
+
+/**
+ * Flight recorder event for one call of a
+ * {@link library.service.ReminderService.Notifier}.
+ */
+@Name("library.Notification")
+@Label("Notification")
+@Category({"Library", "Reminders"})
+@Description("A reminder passed to one notifier")
+@StackTrace(false)
+public class NotificationEvent extends Event implements ServiceEvents.Notification {
+
+    @Label("User Id")
+    private String userId;
+
+    @Label("Notifier")
+    @Description("Class of the notifier")
+    private Class<?> notifier;
+
+    @Label("Message Length")
+    private int messageLength;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * Ends the event and commits it if recording is on.
+     *
+     * @param userId        id of the user
+     * @param notifier      class of the notifier
+     * @param messageLength length of the message
+     * @param failed        true if the notifier threw
+     */
+    @Override
+    public void complete(String userId, Class<?> notifier, int messageLength, boolean failed) {
+        if (!shouldCommit()) return;
+        this.userId = userId;
+        this.notifier = notifier;
+        this.messageLength = messageLength;
+        this.failed = failed;
+        commit();
+    }
+}
@@ -0,0 +1,47 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import library.service.ServiceEvents;
+
+/**
+ * Flight recorder event for a full reminder run,
+ * {@link library.service.ReminderService#sendReminders}.
+ */
+@Name("library.ReminderRun")
+@Label("Reminder Run")
+@Category({"Library", "Reminders"})
+@Description("A run that reminds all users with overdue loans")
+@StackTrace(false)
+public class ReminderRunEvent extends Event implements ServiceEvents.ReminderRun {
+
+    @Label("Overdue Loans")
+    private int overdueLoans;
+
+    @Label("Users Reminded")
+    private int usersReminded;
+
+    /** @param overdueLoans number of overdue loans found */
+    @Override
+    public void setOverdueLoans(int overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
+    /** @param usersReminded number of users a reminder was sent to */
+    @Override
+    public void setUsersReminded(int usersReminded) {
+        this.usersReminded = usersReminded;
+    }
+
+    /**
+     * Ends the event and commits it if recording is on.
+     */
+    @Override
+    public void complete() {
+        if (shouldCommit()) commit();
+    }
+}
@@ -0,0 +1,41 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import library.service.ServiceEvents;
+
+/**
+ * Flight recorder event for {@link library.service.LibraryService#returnMedia(String)}.
+ */
+@Name("library.Return")
+@Label("Return")
+@Category({"Library", "Service"})
+@Description("A return handled by the library service")
+@StackTrace(false)
+public class ReturnEvent extends Event implements ServiceEvents.Return {
+
+    @Label("Loan Id")
+    private String loanId;
+
+    @Label("Failure")
+    @Description("Message of the exception that rejected the return")
+    private String failure;
+
+    /**
+     * Ends the event and commits it if recording is on.
+     *
+     * @param loanId  id of the loan
+     * @param failure failure message, or null
+     */
+    @Override
+    public void complete(String loanId, String failure) {
+        if (!shouldCommit()) return;
+        this.loanId = loanId;
+        this.failure = failure;
+        commit();
+    }
+}
@@ -0,0 +1,47 @@
+package library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import library.service.ServiceEvents;
+
+/**
+ * Flight recorder event for the search methods of
+ * {@link library.service.LibraryService}.
+ */
+@Name("library.Search")
+@Label("Search")
+@Category({"Library", "Service"})
+@Description("A catalog search handled by the library service")
+@StackTrace(false)
+public class SearchEvent extends Event implements ServiceEvents.Search {
+
+    @Label("Kind")
+    @Description("Searched field: any, title, author or isbn")
+    private String kind;
+
+    @Label("Query")
+    private String query;
+
+    @Label("Results")
+    private int results;
+
+    /**
+     * Ends the event and commits it if recording is on.
+     *
+     * @param kind    searched field, one of the constants of {@link ServiceEvents.Search}
+     * @param query   the query
+     * @param results number of matches, or -1 if the search failed
+     */
+    @Override
+    public void complete(String kind, String query, int results) {
+        if (!shouldCommit()) return;
+        this.kind = kind;
+        this.query = query;
+        this.results = results;
+        commit();
+    }
+}
@@ -0,0 +1,58 @@
+package library.jmx;
+
+import library.ledger.FineLedger;
+import library.report.ReportCache;
+import library.repository.InMemoryLoanRepository;
+import library.scheduling.LoanScheduler;
+
+/**
+ * {@link EngineStatsMBean} reading the counters and sizes the engines already
+ * keep. No getter scans the data, so the bean is cheap to poll. Values are
+ * read without locking and may lag behind an operation in progress.
+ */
+public class EngineStats implements EngineStatsMBean {
+
+    private final LoanScheduler loanScheduler;
+    private final ReportCache reportCache;
+    private final InMemoryLoanRepository loanRepo;
+    private final FineLedger fineLedger;
+
+    /**
+     * @param loanScheduler scheduler of loan reminder events
+     * @param reportCache   cache of built reports
+     * @param loanRepo      loan store with its indexes
+     * @param fineLedger    ledger of fines and payments
+     */
+    public EngineStats(LoanScheduler loanScheduler, ReportCache reportCache, InMemoryLoanRepository loanRepo,
+                       FineLedger fineLedger) {
+        this.loanScheduler = loanScheduler;
+        this.reportCache = reportCache;
+        this.loanRepo = loanRepo;
+        this.fineLedger = fineLedger;
+    }
+
+    @Override
+    public int getPendingReminderEvents() { return loanScheduler.pendingEvents(); }
+
+    @Override
+    public long getReportCacheHits() { return reportCache.hits(); }
+
+    @Override
+    public long getReportCacheMisses() { return reportCache.misses(); }
+
+    @Override
+    public double getReportCacheHitRate() {
+        long hits = reportCache.hits();
+        long total = hits + reportCache.misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getLoanIdIndexSize() { return loanRepo.indexedIds(); }
+
+    @Override
+    public int getLoanUserIndexSize() { return loanRepo.indexedUsers(); }
+
+    @Override
+    public long getLedgerEntries() { return fineLedger.size(); }
+}
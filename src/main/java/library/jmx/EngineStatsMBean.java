@@ -0,0 +1,29 @@
+package library.jmx;
+
+/**
+ * Live statistics of the library's internal engines (scheduler queue, caches,
+ * indexes), published over JMX as {@code library:type=EngineStats}.
+ */
+public interface EngineStatsMBean {
+
+    /** @return number of due-soon and overdue reminder events waiting in the scheduler */
+    int getPendingReminderEvents();
+
+    /** @return number of reports served from the report cache */
+    long getReportCacheHits();
+
+    /** @return number of reports built because the cache had none for the day */
+    long getReportCacheMisses();
+
+    /** @return share of report requests served from the cache (0 if there were none) */
+    double getReportCacheHitRate();
+
+    /** @return number of entries in the loan id index */
+    int getLoanIdIndexSize();
+
+    /** @return number of users in the loans-by-user index */
+    int getLoanUserIndexSize();
+
+    /** @return number of entries written to the fine ledger */
+    long getLedgerEntries();
+}
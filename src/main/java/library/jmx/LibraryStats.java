@@ -0,0 +1,75 @@
+package library.jmx;
+
+import library.ledger.FineLedger;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+import library.scheduling.DayRollover;
+
+/**
+ * {@link LibraryStatsMBean} reading counters that are maintained as the
+ * library changes: repository sizes, the {@link LoanCounter}, the overdue
+ * state of the {@link DayRollover} and the totals of the {@link FineLedger}.
+ * No getter scans the data, so the bean is cheap to poll. Values are read
+ * without locking and may lag behind an operation in progress.
+ */
+public class LibraryStats implements LibraryStatsMBean {
+
+    private final UserRepository userRepo;
+    private final MediaRepository mediaRepo;
+    private final LoanRepository loanRepo;
+    private final LoanCounter loanCounter;
+    private final DayRollover dayRollover;
+    private final FineLedger fineLedger;
+
+    /**
+     * @param userRepo    repository of users
+     * @param mediaRepo   repository of media items
+     * @param loanRepo    repository of loans
+     * @param loanCounter counter of active loans
+     * @param dayRollover overdue state
+     * @param fineLedger  ledger of fines and payments
+     */
+    public LibraryStats(UserRepository userRepo, MediaRepository mediaRepo, LoanRepository loanRepo,
+                        LoanCounter loanCounter, DayRollover dayRollover, FineLedger fineLedger) {
+        this.userRepo = userRepo;
+        this.mediaRepo = mediaRepo;
+        this.loanRepo = loanRepo;
+        this.loanCounter = loanCounter;
+        this.dayRollover = dayRollover;
+        this.fineLedger = fineLedger;
+    }
+
+    @Override
+    public long getUsers() { return userRepo.count(); }
+
+    @Override
+    public long getMediaItems() { return mediaRepo.count(); }
+
+    @Override
+    public long getLoans() { return loanRepo.count(); }
+
+    @Override
+    public long getActiveLoans() { return loanCounter.activeLoans(); }
+
+    @Override
+    public int getOverdueLoans() { return dayRollover.overdueCount(); }
+
+    @Override
+    public int getUsersWithOverdueLoans() { return dayRollover.overdueUserCount(); }
+
+    @Override
+    public long getOutstandingFines() { return fineLedger.totalOutstanding(); }
+
+    @Override
+    public long getTotalFined() { return fineLedger.totalFined(); }
+
+    @Override
+    public long getTotalPaid() { return fineLedger.totalPaid(); }
+
+    @Override
+    public long getBorrows() { return loanCounter.borrows(); }
+
+    @Override
+    public long getReturns() { return loanCounter.returns(); }
+}
@@ -0,0 +1,41 @@
+package library.jmx;
+
+/**
+ * Live counts of the library's data, published over JMX as
+ * {@code library:type=LibraryStats}.
+ */
+public interface LibraryStatsMBean {
+
+    /** @return number of registered users */
+    long getUsers();
+
+    /** @return number of media items */
+    long getMediaItems();
+
+    /** @return number of stored loans, returned or not */
+    long getLoans();
+
+    /** @return number of loans not returned yet */
+    long getActiveLoans();
+
+    /** @return number of loans overdue as of the last day rollover */
+    int getOverdueLoans();
+
+    /** @return number of users with overdue loans */
+    int getUsersWithOverdueLoans();
+
+    /** @return sum of all fines charged minus all payments */
+    long getOutstandingFines();
+
+    /** @return sum of all fines charged */
+    long getTotalFined();
+
+    /** @return sum of all payments */
+    long getTotalPaid();
+
+    /** @return number of borrows since startup */
+    long getBorrows();
+
+    /** @return number of returns since startup */
+    long getReturns();
+}
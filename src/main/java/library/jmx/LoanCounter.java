@@ -0,0 +1,51 @@
+package library.jmx;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.repository.LoanRepository;
+import library.service.LibraryEventListener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of active (not returned) loans up to date from the borrow
+ * and return events of {@link library.service.LibraryService}, so it can be
+ * read at any time without scanning the loans. The starting value is counted
+ * once when the counter is created.
+ */
+public class LoanCounter implements LibraryEventListener {
+
+    private final LongAdder active = new LongAdder();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+
+    /**
+     * @param loanRepo repository whose active loans are counted once at creation
+     */
+    public LoanCounter(LoanRepository loanRepo) {
+        loanRepo.forEach(l -> {
+            if (!l.isReturned()) active.increment();
+        });
+    }
+
+    /** @return number of loans not returned yet */
+    public long activeLoans() { return active.sum(); }
+
+    /** @return number of borrows since the counter was created */
+    public long borrows() { return borrows.sum(); }
+
+    /** @return number of returns since the counter was created */
+    public long returns() { return returns.sum(); }
+
+    @Override
+    public void onBorrow(Loan loan, Media media) {
+        active.increment();
+        borrows.increment();
+    }
+
+    @Override
+    public void onReturn(Loan loan, Media media, int fine) {
+        active.decrement();
+        returns.increment();
+    }
+}
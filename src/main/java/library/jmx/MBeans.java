@@ -0,0 +1,54 @@
+package library.jmx;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Registers the library's MBeans.
+ */
+public final class MBeans {
+
+    /** Name of the {@link LibraryStatsMBean}. */
+    public static final String LIBRARY_STATS = "library:type=LibraryStats";
+    /** Name of the {@link EngineStatsMBean}. */
+    public static final String ENGINE_STATS = "library:type=EngineStats";
+
+    private MBeans() { }
+
+    /**
+     * Registers an MBean under the given name. A bean already registered under
+     * that name (for example by an earlier configuration in the same JVM) is
+     * replaced, so the name always points to the latest bean.
+     *
+     * @param server the MBean server
+     * @param name   object name of the bean
+     * @param bean   the bean
+     * @throws IllegalArgumentException if the name is malformed
+     * @throws IllegalStateException    if the bean cannot be registered
+     */
+    public static void register(MBeanServer server, String name, Object bean) {
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("invalid MBean name: " + name, e);
+        }
+
+        // retry once: another thread may register the same name between unregister and register
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+                server.registerMBean(bean, objectName);
+                return;
+            } catch (InstanceAlreadyExistsException | InstanceNotFoundException e) {
+                if (attempt > 0) throw new IllegalStateException("could not register MBean " + name, e);
+            } catch (JMException e) {
+                throw new IllegalStateException("could not register MBean " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package library.kiosk;
+
+import library.util.LatencyHistogram;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Locale;
+
+/**
+ * Blocking client for the {@link KioskProtocol}.
+ * <p>
+ * Requests are encoded into a direct buffer and only sent on {@link #flush()},
+ * so several can be pipelined; {@link #read()} then returns the responses in
+ * order. Each response is decoded into the same {@link Response} object, so a
+ * kiosk loop does not allocate. Not thread-safe.
+ * <p>
+ * The {@code main} method measures round trips: usage {@code java -cp target/classes
+ * library.kiosk.KioskClient [--host localhost] [--port 9090] [--users U1,U2]
+ * [--media M1,M2] [--rounds N] [--warmup N]}. Each round borrows all listed media
+ * in one pipelined write and then returns them in another, for the next user of
+ * the list. Borrowing checks all earlier loans of the user, so spreading the
+ * rounds over several users keeps that check from dominating the round trip.
+ */
+public class KioskClient implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Response response = new Response();
+    private int nextCorrelationId;
+    // position of the frame being encoded
+    private int frameStart;
+
+    /**
+     * Connects to a kiosk server.
+     *
+     * @param address server address
+     * @throws IOException if the connection fails
+     */
+    public KioskClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    /**
+     * Queues a borrow request.
+     *
+     * @param userId  id of the user
+     * @param mediaId id of the media item
+     * @return correlation id of the request
+     * @throws IOException if the buffer had to be flushed and that failed
+     */
+    public int borrow(CharSequence userId, CharSequence mediaId) throws IOException {
+        int id = begin(KioskProtocol.BORROW);
+        KioskProtocol.putString(out, userId);
+        KioskProtocol.putString(out, mediaId);
+        KioskProtocol.endFrame(out, frameStart);
+        return id;
+    }
+
+    /**
+     * Queues a borrow request that the server carries out once per request id.
+     * Sending it again with the same id, e.g. after a timeout, answers with the
+     * loan of the first request.
+     *
+     * @param requestId id unique per borrow, chosen by the kiosk
+     * @param userId    id of the user
+     * @param mediaId   id of the media item
+     * @return correlation id of the request
+     * @throws IOException if the buffer had to be flushed and that failed
+     */
+    public int borrow(CharSequence requestId, CharSequence userId, CharSequence mediaId) throws IOException {
+        int id = begin(KioskProtocol.BORROW);
+        KioskProtocol.putString(out, userId);
+        KioskProtocol.putString(out, mediaId);
+        KioskProtocol.putString(out, requestId);
+        KioskProtocol.endFrame(out, frameStart);
+        return id;
+    }
+
+    /**
+     * Queues a return request.
+     *
+     * @param loanId id of the loan
+     * @return correlation id of the request
+     * @throws IOException if the buffer had to be flushed and that failed
+     */
+    public int returnLoan(CharSequence loanId) throws IOException {
+        int id = begin(KioskProtocol.RETURN);
+        KioskProtocol.putString(out, loanId);
+        KioskProtocol.endFrame(out, frameStart);
+        return id;
+    }
+
+    /**
+     * Queues a ping.
+     *
+     * @return correlation id of the request
+     * @throws IOException if the buffer had to be flushed and that failed
+     */
+    public int ping() throws IOException {
+        int id = begin(KioskProtocol.PING);
+        KioskProtocol.endFrame(out, frameStart);
+        return id;
+    }
+
+    private int begin(byte op) throws IOException {
+        if (out.remaining() < KioskProtocol.MAX_FRAME) flush();
+        int id = nextCorrelationId++;
+        frameStart = KioskProtocol.beginFrame(out, op, id);
+        return id;
+    }
+
+    /**
+     * Sends all queued requests.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Reads the next response, blocking until it arrives.
+     *
+     * @return the response; the same object is reused by the next call
+     * @throws IOException if the connection fails or closes
+     */
+    public Response read() throws IOException {
+        int len;
+        while ((len = KioskProtocol.frameLength(in)) < 0) {
+            in.compact();
+            int n = channel.read(in);
+            in.flip();
+            if (n < 0) throw new EOFException("server closed the connection");
+        }
+        int end = in.position() + len;
+        in.position(in.position() + 4);
+        response.status = in.get();
+        response.correlationId = in.getInt();
+        response.text.setLength(0);
+        if (in.position() < end) KioskProtocol.getString(in, response.text);
+        in.position(end);
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A decoded response.
+     */
+    public static final class Response {
+
+        private byte status;
+        private int correlationId;
+        private final StringBuilder text = new StringBuilder(KioskProtocol.MAX_STRING);
+
+        /** @return status code, see {@link KioskProtocol} */
+        public byte getStatus() { return status; }
+
+        /** @return true if the status is {@link KioskProtocol#OK} */
+        public boolean isOk() { return status == KioskProtocol.OK; }
+
+        /** @return correlation id of the request */
+        public int getCorrelationId() { return correlationId; }
+
+        /** @return loan id of a borrow, error message of a failure, or empty */
+        public CharSequence getText() { return text; }
+    }
+
+    // ---------------------------------------------------------------------
+
+    /**
+     * Measures borrow and return round trips against a running server.
+     *
+     * @param args options, see the class description
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = KioskServer.DEFAULT_PORT;
+        String[] users = {"U1", "U2", "U3"};
+        String[] media = {"M1"};
+        int rounds = 10_000;
+        int warmup = 5_000;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + option);
+            String value = args[++i];
+            switch (option) {
+                case "--host": host = value; break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--users": users = value.split(","); break;
+                case "--media": media = value.split(","); break;
+                case "--rounds": rounds = Integer.parseInt(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+
+        try (KioskClient client = new KioskClient(new InetSocketAddress(host, port))) {
+            LatencyHistogram borrows = new LatencyHistogram();
+            LatencyHistogram returns = new LatencyHistogram();
+            StringBuilder[] loans = new StringBuilder[media.length];
+            for (int i = 0; i < loans.length; i++) {
+                loans[i] = new StringBuilder();
+            }
+
+            long start = 0;
+            long rejected = 0;
+            for (int r = -warmup; r < rounds; r++) {
+                if (r == 0) {
+                    borrows.reset();
+                    returns.reset();
+                    rejected = 0;
+                    start = System.nanoTime();
+                }
+                String user = users[Math.floorMod(r, users.length)];
+                long t0 = System.nanoTime();
+                for (String m : media) {
+                    client.borrow(user, m);
+                }
+                client.flush();
+                for (int i = 0; i < media.length; i++) {
+                    Response res = client.read();
+                    borrows.record(System.nanoTime() - t0);
+                    loans[i].setLength(0);
+                    if (res.isOk()) loans[i].append(res.getText());
+                    else rejected++;
+                }
+
+                t0 = System.nanoTime();
+                int sent = 0;
+                for (StringBuilder loan : loans) {
+                    if (loan.length() == 0) continue;
+                    client.returnLoan(loan);
+                    sent++;
+                }
+                client.flush();
+                for (int i = 0; i < sent; i++) {
+                    if (!client.read().isOk()) rejected++;
+                    returns.record(System.nanoTime() - t0);
+                }
+            }
+            long wall = System.nanoTime() - start;
+
+            System.out.printf(Locale.ROOT, "rounds: %d, pipeline depth: %d, requests/s: %.0f, rejected: %d%n",
+                    rounds, media.length, (borrows.count() + returns.count()) * 1e9 / wall, rejected);
+            print("borrow", borrows.snapshot());
+            print("return", returns.snapshot());
+        }
+    }
+
+    private static void print(String name, LatencyHistogram.Snapshot s) {
+        System.out.printf(Locale.ROOT, "%-7s count %d, mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                name, s.count(), s.mean() / 1e3, s.valueAtPercentile(50) / 1e3, s.valueAtPercentile(99) / 1e3,
+                s.valueAtPercentile(99.9) / 1e3, s.max() / 1e3);
+    }
+}
@@ -0,0 +1,128 @@
+package library.kiosk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol between checkout kiosks and the {@link KioskServer}.
+ * <p>
+ * Every message is a frame: a 4-byte big-endian length of the rest of the
+ * frame, then a 1-byte code and a 4-byte correlation id chosen by the client
+ * and echoed in the response. Strings are a 2-byte length followed by that
+ * many ASCII bytes (other characters are sent as {@code '?'}), at most
+ * {@link #MAX_STRING} long.
+ * <pre>
+ * request:  length | op     | correlation id | payload
+ * response: length | status | correlation id | payload
+ *
+ * BORROW  userId, mediaId [, requestId]  -&gt;  OK loanId
+ * RETURN  loanId                         -&gt;  OK (no payload)
+ * PING                                   -&gt;  OK (no payload)
+ * errors                                 -&gt;  NOT_FOUND / REJECTED / BAD_REQUEST / ERROR message
+ * </pre>
+ * A client may send several requests before reading the responses; they are
+ * answered in order. A BORROW that carries a non-empty request id is carried
+ * out once per id: a kiosk that times out and sends the same frame again gets
+ * the loan id of the first answer instead of REJECTED.
+ */
+public final class KioskProtocol {
+
+    /** Request: check the connection. */
+    public static final byte PING = 0;
+    /** Request: borrow a media item for a user. */
+    public static final byte BORROW = 1;
+    /** Request: return a loan. */
+    public static final byte RETURN = 2;
+
+    /** Response: the request was carried out. */
+    public static final byte OK = 0;
+    /** Response: the user, media item or loan does not exist. */
+    public static final byte NOT_FOUND = 1;
+    /** Response: a library rule rejected the request. */
+    public static final byte REJECTED = 2;
+    /** Response: the request could not be decoded. */
+    public static final byte BAD_REQUEST = 3;
+    /** Response: an unexpected error. */
+    public static final byte ERROR = 4;
+
+    /** Longest string in a frame; longer strings are cut. */
+    public static final int MAX_STRING = 255;
+
+    /** Size of the length, code and correlation id fields. */
+    public static final int HEADER = 4 + 1 + 4;
+
+    /** Longest frame, including the length field. */
+    public static final int MAX_FRAME = HEADER + 3 * (2 + MAX_STRING);
+
+    private KioskProtocol() { }
+
+    /**
+     * Starts a frame; finish it with {@link #endFrame(ByteBuffer, int)}.
+     *
+     * @param buf           target buffer with at least {@link #MAX_FRAME} bytes left
+     * @param code          request op or response status
+     * @param correlationId id echoed in the response
+     * @return position of the frame, to pass to {@code endFrame}
+     */
+    public static int beginFrame(ByteBuffer buf, byte code, int correlationId) {
+        int start = buf.position();
+        buf.putInt(0).put(code).putInt(correlationId);
+        return start;
+    }
+
+    /**
+     * Writes the length of a frame started with {@link #beginFrame}.
+     *
+     * @param buf   the buffer
+     * @param start value returned by {@code beginFrame}
+     */
+    public static void endFrame(ByteBuffer buf, int start) {
+        buf.putInt(start, buf.position() - start - 4);
+    }
+
+    /**
+     * Writes a string without allocating.
+     *
+     * @param buf the buffer
+     * @param s   the string (null is written as empty)
+     */
+    public static void putString(ByteBuffer buf, CharSequence s) {
+        int len = s == null ? 0 : Math.min(s.length(), MAX_STRING);
+        buf.putShort((short) len);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            buf.put((byte) (c < 0x80 ? c : '?'));
+        }
+    }
+
+    /**
+     * Reads a string into a reused builder.
+     *
+     * @param buf the buffer
+     * @param sb  receives the string (cleared first)
+     * @return the builder
+     * @throws IllegalArgumentException if the string is longer than the rest of the buffer or {@link #MAX_STRING}
+     */
+    public static StringBuilder getString(ByteBuffer buf, StringBuilder sb) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len > MAX_STRING || len > buf.remaining()) throw new IllegalArgumentException("bad string length " + len);
+        sb.setLength(0);
+        for (int i = 0; i < len; i++) {
+            sb.append((char) (buf.get() & 0x7F));
+        }
+        return sb;
+    }
+
+    /**
+     * Length of the complete frame at the buffer's position.
+     *
+     * @param buf buffer in read mode
+     * @return frame length including the length field, or -1 if not all of it has arrived
+     * @throws IllegalArgumentException if the length field is out of range
+     */
+    public static int frameLength(ByteBuffer buf) {
+        if (buf.remaining() < 4) return -1;
+        int len = buf.getInt(buf.position());
+        if (len < HEADER - 4 || len > MAX_FRAME - 4) throw new IllegalArgumentException("bad frame length " + len);
+        return buf.remaining() < 4 + len ? -1 : 4 + len;
+    }
+}
@@ -0,0 +1,276 @@
+package library.kiosk;
+
+import library.AppConfig;
+import library.domain.Loan;
+import library.exception.BusinessRuleException;
+import library.exception.ResourceNotFoundException;
+import library.scheduling.DayRollover;
+import library.service.LibraryService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Non-blocking server for the {@link KioskProtocol}.
+ * <p>
+ * One selector thread accepts connections, reads frames and calls the
+ * {@link LibraryService} directly, so the service is only ever used from that
+ * thread and needs no locking; it must not be shared with other threads while
+ * the server runs. Before each borrow or return the same thread rolls the day
+ * over with the {@link DayRollover}, as the HTTP server does before a write,
+ * so loans that became overdue overnight are marked before the request is
+ * checked against them. Each connection has a direct input and output buffer. All
+ * complete frames in the input buffer are answered before the responses are
+ * written with one call, so pipelined requests share a write. When the
+ * output buffer fills up because the client does not read, the server stops
+ * reading from that connection until the responses are written.
+ * <p>
+ * Decoding reads ids into reused builders and encoding writes straight into
+ * the output buffer; the only per-request allocations are the id strings the
+ * service takes as arguments and whatever the service itself allocates.
+ */
+public class KioskServer {
+
+    /** Default port. */
+    public static final int DEFAULT_PORT = 9090;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LibraryService library;
+    private final DayRollover dayRollover;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Binds the server; call {@link #start()} to accept connections.
+     *
+     * @param config  the wired library to serve
+     * @param address address to listen on (port 0 picks a free port)
+     * @throws IOException if the address cannot be bound
+     */
+    public KioskServer(AppConfig config, InetSocketAddress address) throws IOException {
+        this.library = config.libraryService();
+        this.dayRollover = config.dayRollover();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /** Starts the selector thread. */
+    public synchronized void start() {
+        if (thread != null) throw new IllegalStateException("already started");
+        running = true;
+        thread = new Thread(this::loop, "kiosk-selector");
+        thread.start();
+    }
+
+    /**
+     * Stops the selector thread and closes all connections.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) thread.join();
+    }
+
+    /** @return the port the server listens on */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable() || key.isWritable()) {
+                            serve(key);
+                        }
+                    } catch (IOException e) {
+                        // broken connection: drop the client
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("KioskServer: selector failed: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = serverChannel.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ch.register(selector, SelectionKey.OP_READ, new Connection(ch));
+    }
+
+    /**
+     * Reads what arrived, answers all complete frames and writes the answers.
+     */
+    private void serve(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        if (key.isReadable() && c.channel.read(c.in) < 0) {
+            close(key);
+            return;
+        }
+
+        boolean pending;
+        boolean full;
+        do {
+            c.in.flip();
+            try {
+                full = answerFrames(c);
+            } finally {
+                c.in.compact();
+            }
+            c.out.flip();
+            c.channel.write(c.out);
+            pending = c.out.hasRemaining();
+            c.out.compact();
+            // frames left over because the output was full can be answered now that it drained
+        } while (full && !pending);
+
+        if (c.broken) {
+            // the frames before the broken one were answered; nothing after it can be trusted
+            close(key);
+            return;
+        }
+        key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * @return true if frames are left because the output buffer is full
+     */
+    private boolean answerFrames(Connection c) {
+        ByteBuffer in = c.in;
+        int len;
+        while ((len = frameLength(c)) > 0) {
+            if (c.out.remaining() < KioskProtocol.MAX_FRAME) return true;
+            int end = in.position() + len;
+            int limit = in.limit();
+            // a string length that runs past its frame fails instead of reading the next frame
+            in.limit(end).position(in.position() + 4);
+            answer(c, in.get(), in.getInt());
+            in.limit(limit).position(end);
+        }
+        return false;
+    }
+
+    private static int frameLength(Connection c) {
+        try {
+            return KioskProtocol.frameLength(c.in);
+        } catch (IllegalArgumentException e) {
+            c.broken = true;
+            return -1;
+        }
+    }
+
+    private void answer(Connection c, byte op, int correlationId) {
+        ByteBuffer out = c.out;
+        try {
+            switch (op) {
+                case KioskProtocol.PING:
+                    KioskProtocol.endFrame(out, KioskProtocol.beginFrame(out, KioskProtocol.OK, correlationId));
+                    break;
+                case KioskProtocol.BORROW: {
+                    dayRollover.rollover();
+                    String userId = KioskProtocol.getString(c.in, c.first).toString();
+                    String mediaId = KioskProtocol.getString(c.in, c.second).toString();
+                    // optional request id: a re-sent borrow returns the first loan
+                    StringBuilder requestId = c.in.hasRemaining()
+                            ? KioskProtocol.getString(c.in, c.third)
+                            : null;
+                    Loan loan = requestId == null || requestId.length() == 0
+                            ? library.borrow(userId, mediaId)
+                            : library.borrow(requestId.toString(), userId, mediaId);
+                    int start = KioskProtocol.beginFrame(out, KioskProtocol.OK, correlationId);
+                    KioskProtocol.putString(out, loan.getId());
+                    KioskProtocol.endFrame(out, start);
+                    break;
+                }
+                case KioskProtocol.RETURN:
+                    dayRollover.rollover();
+                    library.returnMedia(KioskProtocol.getString(c.in, c.first).toString());
+                    KioskProtocol.endFrame(out, KioskProtocol.beginFrame(out, KioskProtocol.OK, correlationId));
+                    break;
+                default:
+                    error(out, KioskProtocol.BAD_REQUEST, correlationId, "unknown op");
+            }
+        } catch (ResourceNotFoundException e) {
+            error(out, KioskProtocol.NOT_FOUND, correlationId, e.getMessage());
+        } catch (BusinessRuleException e) {
+            error(out, KioskProtocol.REJECTED, correlationId, e.getMessage());
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            error(out, KioskProtocol.BAD_REQUEST, correlationId, "malformed request");
+        } catch (RuntimeException e) {
+            error(out, KioskProtocol.ERROR, correlationId, e.getClass().getSimpleName());
+        }
+    }
+
+    private static void error(ByteBuffer out, byte status, int correlationId, String message) {
+        int start = KioskProtocol.beginFrame(out, status, correlationId);
+        KioskProtocol.putString(out, message);
+        KioskProtocol.endFrame(out, start);
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // already broken
+        }
+    }
+
+    /**
+     * Buffers of one client connection.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final StringBuilder first = new StringBuilder(KioskProtocol.MAX_STRING);
+        private final StringBuilder second = new StringBuilder(KioskProtocol.MAX_STRING);
+        private final StringBuilder third = new StringBuilder(KioskProtocol.MAX_STRING);
+        // set when a frame length is out of range
+        private boolean broken;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
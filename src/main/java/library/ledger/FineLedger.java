@@ -0,0 +1,164 @@
+package library.ledger;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.service.LibraryEventListener;
+import library.service.TimeProvider;
+import library.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audit trail of all fines and payments.
+ * <p>
+ * Every fine added to a user and every payment applied to it is appended to a
+ * {@link FineLog}. The running balance of a user stays in
+ * {@link User#getOutstandingFine()}, which is updated atomically, so reading a
+ * balance is O(1) and does not touch the log. The log is used to:
+ * <ul>
+ *     <li>rebuild all balances with {@link #replay()}, in one pass over primitive entries</li>
+ *     <li>check the stored balances against the history with {@link #verify(Collection)}</li>
+ * </ul>
+ * Registered as a {@link LibraryEventListener}, the ledger records the fines
+ * and payments made through {@link library.service.LibraryService}.
+ * {@link #charge} and {@link #pay} change a balance and record it in one call;
+ * both are lock-free and may be called from several threads.
+ */
+public class FineLedger implements LibraryEventListener {
+
+    private final TimeProvider timeProvider;
+    private final FineLog log = new FineLog();
+    private final LongAdder fined = new LongAdder();
+    private final LongAdder paid = new LongAdder();
+
+    /**
+     * @param timeProvider provider used to date the entries
+     */
+    public FineLedger(TimeProvider timeProvider) {
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * Adds a fine to the user and records it.
+     *
+     * @param user   the user
+     * @param amount the fine (ignored if not positive)
+     */
+    public void charge(User user, int amount) {
+        if (amount <= 0) return;
+        user.addFine(amount);
+        recordFine(user, amount);
+    }
+
+    /**
+     * Applies a payment to the user and records the applied amount.
+     *
+     * @param user   the user
+     * @param amount the amount offered
+     * @return the amount actually applied (at most the outstanding fine)
+     */
+    public int pay(User user, int amount) {
+        int applied = user.payFine(amount);
+        if (applied > 0) recordPayment(user, applied);
+        return applied;
+    }
+
+    /**
+     * Records a fine that was already added to the user.
+     *
+     * @param user   the user
+     * @param amount the fine
+     */
+    public void recordFine(User user, int amount) {
+        log.append(user.getOrdinal(), FineLog.FINE, amount, timeProvider.today().toEpochDay());
+        fined.add(amount);
+    }
+
+    /**
+     * Records a payment that was already applied to the user.
+     *
+     * @param user   the user
+     * @param amount the applied amount
+     */
+    public void recordPayment(User user, int amount) {
+        log.append(user.getOrdinal(), FineLog.PAYMENT, amount, timeProvider.today().toEpochDay());
+        paid.add(amount);
+    }
+
+    /** @return sum of all recorded fines */
+    public long totalFined() { return fined.sum(); }
+
+    /** @return sum of all recorded payments */
+    public long totalPaid() { return paid.sum(); }
+
+    /** @return recorded fines minus recorded payments */
+    public long totalOutstanding() { return fined.sum() - paid.sum(); }
+
+    /** @return number of recorded entries */
+    public long size() { return log.size(); }
+
+    /**
+     * Calls the action for every recorded entry, oldest first.
+     *
+     * @param action the action
+     */
+    public void forEach(FineLog.Entries action) {
+        log.forEach(action);
+    }
+
+    /**
+     * Rebuilds the balance of every user from the log.
+     *
+     * @return map of user ordinal to balance (users without entries are absent)
+     */
+    public LongIntHashMap replay() {
+        LongIntHashMap balances = new LongIntHashMap();
+        log.forEach((userOrdinal, kind, amount, epochDay) ->
+                balances.addTo(userOrdinal, kind == FineLog.FINE ? amount : -amount));
+        return balances;
+    }
+
+    /**
+     * Compares the balances of the users with the balances replayed from the log.
+     *
+     * @param users users to check
+     * @return list of differences, empty if all balances match
+     */
+    public List<String> verify(Collection<User> users) {
+        LongIntHashMap balances = replay();
+        List<String> diffs = new ArrayList<>();
+        for (User u : users) {
+            int expected = balances.get(u.getOrdinal());
+            if (expected != u.getOutstandingFine()) {
+                diffs.add("balance mismatch for " + u.getId() + ": ledger has " + expected
+                        + " but user has " + u.getOutstandingFine());
+            }
+        }
+        return diffs;
+    }
+
+    @Override
+    public void onFineAdded(User user, Loan loan, int amount) {
+        recordFine(user, amount);
+    }
+
+    /**
+     * Records the fines of a batch return as one entry.
+     */
+    @Override
+    public void onFinesAdded(User user, List<Loan> loans, int[] fines) {
+        int total = 0;
+        for (int i = 0; i < loans.size(); i++) {
+            total += fines[i];
+        }
+        recordFine(user, total);
+    }
+
+    @Override
+    public void onFinePaid(User user, int amount) {
+        recordPayment(user, amount);
+    }
+}
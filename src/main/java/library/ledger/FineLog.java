@@ -0,0 +1,108 @@
+package library.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only log of fine and payment entries, stored as primitive longs.
+ * <p>
+ * Every entry takes two longs in a chunk of {@link #CHUNK_SIZE} entries:
+ * <ul>
+ *     <li>word 0: user ordinal + 1 (0 means the slot is not written yet)</li>
+ *     <li>word 1: epoch day (high 31 bits), kind (1 bit), amount (low 32 bits)</li>
+ * </ul>
+ * {@link #append} is lock-free: a writer reserves its slot with one atomic
+ * increment, allocates the chunk with a compare-and-set if it is the first one
+ * there, and publishes word 0 last. Readers see entries in append order and
+ * wait for slots that were reserved but not written yet.
+ */
+public class FineLog {
+
+    /** Kind of an entry that added a fine. */
+    public static final int FINE = 0;
+    /** Kind of an entry that paid (part of) a fine. */
+    public static final int PAYMENT = 1;
+
+    /** Number of entries per chunk. */
+    public static final int CHUNK_SIZE = 1 << 12;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    /**
+     * Receives the entries of the log in {@link #forEach(Entries)}.
+     */
+    public interface Entries {
+        void accept(long userOrdinal, int kind, int amount, long epochDay);
+    }
+
+    private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Appends an entry.
+     *
+     * @param userOrdinal ordinal of the user (see {@link library.domain.User#getOrdinal()})
+     * @param kind        {@link #FINE} or {@link #PAYMENT}
+     * @param amount      amount of the fine or payment (not negative)
+     * @param epochDay    day of the entry
+     * @return position of the entry in the log
+     * @throws IllegalArgumentException if the kind or amount is invalid
+     * @throws IllegalStateException    if the log is full
+     */
+    public long append(long userOrdinal, int kind, int amount, long epochDay) {
+        if (kind != FINE && kind != PAYMENT) throw new IllegalArgumentException("unknown kind: " + kind);
+        if (amount < 0) throw new IllegalArgumentException("amount must not be negative");
+
+        long seq = next.getAndIncrement();
+        int c = (int) (seq >>> CHUNK_BITS);
+        if (c >= MAX_CHUNKS) throw new IllegalStateException("fine log is full");
+
+        AtomicLongArray chunk = chunk(c);
+        int i = (int) (seq & (CHUNK_SIZE - 1)) << 1;
+        chunk.lazySet(i + 1, (epochDay << 33) | ((long) kind << 32) | (amount & 0xFFFFFFFFL));
+        chunk.set(i, userOrdinal + 1);
+        return seq;
+    }
+
+    /** @return number of entries appended (some may still be in the middle of being written) */
+    public long size() {
+        return Math.min(next.get(), (long) MAX_CHUNKS << CHUNK_BITS);
+    }
+
+    /**
+     * Calls the action for every entry appended before this call, in order.
+     *
+     * @param action the action
+     * @return number of entries visited
+     */
+    public long forEach(Entries action) {
+        long end = size();
+        for (long seq = 0; seq < end; seq++) {
+            AtomicLongArray chunk = chunks.get((int) (seq >>> CHUNK_BITS));
+            while (chunk == null) {
+                Thread.yield();
+                chunk = chunks.get((int) (seq >>> CHUNK_BITS));
+            }
+
+            int i = (int) (seq & (CHUNK_SIZE - 1)) << 1;
+            long w0;
+            while ((w0 = chunk.get(i)) == 0) {
+                Thread.yield();
+            }
+            long w1 = chunk.get(i + 1);
+            action.accept(w0 - 1, (int) (w1 >>> 32) & 1, (int) w1, w1 >> 33);
+        }
+        return end;
+    }
+
+    private AtomicLongArray chunk(int c) {
+        AtomicLongArray chunk = chunks.get(c);
+        if (chunk == null) {
+            chunks.compareAndSet(c, null, new AtomicLongArray(CHUNK_SIZE * 2));
+            chunk = chunks.get(c);
+        }
+        return chunk;
+    }
+}
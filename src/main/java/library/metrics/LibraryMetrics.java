@@ -0,0 +1,105 @@
+package library.metrics;
+
+/**
+ * Timers of the operations of {@link library.service.LibraryService} and
+ * {@link library.service.ReminderService}, registered under
+ * {@code library.<operation>} and {@code reminders.<operation>}.
+ * <p>
+ * Borrow, return and fine payment take well under a microsecond, so they are
+ * sampled once in {@link #HOT_SAMPLE_EVERY} calls on average. The other
+ * operations scan the catalog, loop over many items or send messages; two
+ * clock reads are small next to them, so they are timed on every call.
+ */
+public class LibraryMetrics {
+
+    /**
+     * Mean sampling interval of borrow, return and fine payment, sparser than
+     * the registry's default to keep their overhead down.
+     */
+    public static final int HOT_SAMPLE_EVERY = 1024;
+
+    /** Metrics that record nothing; used when no metrics are configured. */
+    public static final LibraryMetrics DISABLED = new LibraryMetrics();
+
+    private final Timer borrow;
+    private final Timer borrowAll;
+    private final Timer returnMedia;
+    private final Timer returnAll;
+    private final Timer payFine;
+    private final Timer unregisterUser;
+    private final Timer search;
+    private final Timer searchByTitle;
+    private final Timer searchByAuthor;
+    private final Timer searchByIsbn;
+    private final Timer sendReminders;
+    private final Timer sendLoanReminder;
+
+    /**
+     * @param registry registry the timers are created in
+     */
+    public LibraryMetrics(MetricsRegistry registry) {
+        this.borrow = registry.timer("library.borrow", HOT_SAMPLE_EVERY);
+        this.borrowAll = registry.timer("library.borrowAll", 1);
+        this.returnMedia = registry.timer("library.returnMedia", HOT_SAMPLE_EVERY);
+        this.returnAll = registry.timer("library.returnAll", 1);
+        this.payFine = registry.timer("library.payFine", HOT_SAMPLE_EVERY);
+        this.unregisterUser = registry.timer("library.unregisterUser", 1);
+        this.search = registry.timer("library.search", 1);
+        this.searchByTitle = registry.timer("library.searchByTitle", 1);
+        this.searchByAuthor = registry.timer("library.searchByAuthor", 1);
+        this.searchByIsbn = registry.timer("library.searchByIsbn", 1);
+        this.sendReminders = registry.timer("reminders.sendReminders", 1);
+        this.sendLoanReminder = registry.timer("reminders.sendLoanReminder", 1);
+    }
+
+    private LibraryMetrics() {
+        this.borrow = Timer.DISABLED;
+        this.borrowAll = Timer.DISABLED;
+        this.returnMedia = Timer.DISABLED;
+        this.returnAll = Timer.DISABLED;
+        this.payFine = Timer.DISABLED;
+        this.unregisterUser = Timer.DISABLED;
+        this.search = Timer.DISABLED;
+        this.searchByTitle = Timer.DISABLED;
+        this.searchByAuthor = Timer.DISABLED;
+        this.searchByIsbn = Timer.DISABLED;
+        this.sendReminders = Timer.DISABLED;
+        this.sendLoanReminder = Timer.DISABLED;
+    }
+
+    /** @return timer of borrow */
+    public Timer borrow() { return borrow; }
+
+    /** @return timer of borrowAll */
+    public Timer borrowAll() { return borrowAll; }
+
+    /** @return timer of returnMedia */
+    public Timer returnMedia() { return returnMedia; }
+
+    /** @return timer of returnAll */
+    public Timer returnAll() { return returnAll; }
+
+    /** @return timer of payFine */
+    public Timer payFine() { return payFine; }
+
+    /** @return timer of unregisterUser */
+    public Timer unregisterUser() { return unregisterUser; }
+
+    /** @return timer of search */
+    public Timer search() { return search; }
+
+    /** @return timer of searchByTitle */
+    public Timer searchByTitle() { return searchByTitle; }
+
+    /** @return timer of searchByAuthor */
+    public Timer searchByAuthor() { return searchByAuthor; }
+
+    /** @return timer of searchByIsbn */
+    public Timer searchByIsbn() { return searchByIsbn; }
+
+    /** @return timer of a full reminder run */
+    public Timer sendReminders() { return sendReminders; }
+
+    /** @return timer of a single loan reminder */
+    public Timer sendLoanReminder() { return sendLoanReminder; }
+}
@@ -0,0 +1,143 @@
+package library.metrics;
+
+import library.domain.Loan;
+import library.repository.LoanRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Loan repository decorator that records the latency of every call.
+ * Every method except {@link #spliterator()} and {@link #count()} is timed
+ * under {@code <prefix>.<method>} in the registry; {@link #forEach} is timed
+ * as a whole. Lookups and full scans may run concurrently, e.g. from HTTP
+ * requests under a read lock, so they are timed on every call. Only the
+ * writes, which callers serialize, are sampled.
+ */
+public class MeteredLoanRepository implements LoanRepository {
+
+    private final LoanRepository delegate;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer findById;
+    private final Timer findByUserId;
+    private final Timer findAll;
+    private final Timer forEach;
+    private final Timer delete;
+
+    /**
+     * @param delegate repository that stores the data
+     * @param registry registry the timers are created in
+     * @param prefix   prefix of the timer names, e.g. {@code loanRepo}
+     */
+    public MeteredLoanRepository(LoanRepository delegate, MetricsRegistry registry, String prefix) {
+        this.delegate = delegate;
+        this.save = registry.timer(prefix + ".save");
+        this.saveAll = registry.timer(prefix + ".saveAll", 1);
+        this.findById = registry.timer(prefix + ".findById", 1);
+        this.findByUserId = registry.timer(prefix + ".findByUserId", 1);
+        this.findAll = registry.timer(prefix + ".findAll", 1);
+        this.forEach = registry.timer(prefix + ".forEach", 1);
+        this.delete = registry.timer(prefix + ".delete");
+    }
+
+    @Override
+    public void save(Loan loan) {
+        long start = save.start();
+        try {
+            delegate.save(loan);
+            save.stop(start);
+        } catch (RuntimeException e) {
+            save.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Loan> loans) {
+        long start = saveAll.start();
+        try {
+            delegate.saveAll(loans);
+            saveAll.stop(start);
+        } catch (RuntimeException e) {
+            saveAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Loan> findById(String id) {
+        long start = findById.start();
+        try {
+            Optional<Loan> result = delegate.findById(id);
+            findById.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findById.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Loan> findByUserId(String userId) {
+        long start = findByUserId.start();
+        try {
+            List<Loan> result = delegate.findByUserId(userId);
+            findByUserId.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findByUserId.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        long start = findAll.start();
+        try {
+            List<Loan> result = delegate.findAll();
+            findAll.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Loan> action) {
+        long start = forEach.start();
+        try {
+            delegate.forEach(action);
+            forEach.stop(start);
+        } catch (RuntimeException e) {
+            forEach.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(Loan loan) {
+        long start = delete.start();
+        try {
+            delegate.delete(loan);
+            delete.stop(start);
+        } catch (RuntimeException e) {
+            delete.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Spliterator<Loan> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
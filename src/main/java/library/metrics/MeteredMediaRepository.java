@@ -0,0 +1,107 @@
+package library.metrics;
+
+import library.domain.media.Media;
+import library.repository.MediaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Media repository decorator that records the latency of every call.
+ * Every method except {@link #count()} is timed under {@code <prefix>.<method>}
+ * in the registry. Lookups, searches and full scans may run concurrently,
+ * e.g. from HTTP requests under a read lock, so they are timed on every
+ * call. Only the writes, which callers serialize, are sampled.
+ */
+public class MeteredMediaRepository implements MediaRepository {
+
+    private final MediaRepository delegate;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer findById;
+    private final Timer search;
+    private final Timer findAll;
+
+    /**
+     * @param delegate repository that stores the data
+     * @param registry registry the timers are created in
+     * @param prefix   prefix of the timer names, e.g. {@code mediaRepo}
+     */
+    public MeteredMediaRepository(MediaRepository delegate, MetricsRegistry registry, String prefix) {
+        this.delegate = delegate;
+        this.save = registry.timer(prefix + ".save");
+        this.saveAll = registry.timer(prefix + ".saveAll", 1);
+        this.findById = registry.timer(prefix + ".findById", 1);
+        this.search = registry.timer(prefix + ".search", 1);
+        this.findAll = registry.timer(prefix + ".findAll", 1);
+    }
+
+    @Override
+    public void save(Media media) {
+        long start = save.start();
+        try {
+            delegate.save(media);
+            save.stop(start);
+        } catch (RuntimeException e) {
+            save.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<? extends Media> media) {
+        long start = saveAll.start();
+        try {
+            delegate.saveAll(media);
+            saveAll.stop(start);
+        } catch (RuntimeException e) {
+            saveAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Media> findById(String id) {
+        long start = findById.start();
+        try {
+            Optional<Media> result = delegate.findById(id);
+            findById.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findById.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Media> search(String q) {
+        long start = search.start();
+        try {
+            List<Media> result = delegate.search(q);
+            search.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            search.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Media> findAll() {
+        long start = findAll.start();
+        try {
+            List<Media> result = delegate.findAll();
+            findAll.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
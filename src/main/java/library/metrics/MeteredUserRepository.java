@@ -0,0 +1,106 @@
+package library.metrics;
+
+import library.domain.User;
+import library.repository.UserRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * User repository decorator that records the latency of every call.
+ * Every method except {@link #count()} is timed under {@code <prefix>.<method>}
+ * in the registry. Lookups and {@link #findAll()} may run concurrently, e.g.
+ * from HTTP requests under a read lock, so they are timed on every call.
+ * Only the writes, which callers serialize, are sampled.
+ */
+public class MeteredUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final Timer save;
+    private final Timer findById;
+    private final Timer findByEmail;
+    private final Timer findAll;
+    private final Timer delete;
+
+    /**
+     * @param delegate repository that stores the data
+     * @param registry registry the timers are created in
+     * @param prefix   prefix of the timer names, e.g. {@code userRepo}
+     */
+    public MeteredUserRepository(UserRepository delegate, MetricsRegistry registry, String prefix) {
+        this.delegate = delegate;
+        this.save = registry.timer(prefix + ".save");
+        this.findById = registry.timer(prefix + ".findById", 1);
+        this.findByEmail = registry.timer(prefix + ".findByEmail", 1);
+        this.findAll = registry.timer(prefix + ".findAll", 1);
+        this.delete = registry.timer(prefix + ".delete");
+    }
+
+    @Override
+    public void save(User user) {
+        long start = save.start();
+        try {
+            delegate.save(user);
+            save.stop(start);
+        } catch (RuntimeException e) {
+            save.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        long start = findById.start();
+        try {
+            Optional<User> result = delegate.findById(id);
+            findById.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findById.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        long start = findByEmail.start();
+        try {
+            Optional<User> result = delegate.findByEmail(email);
+            findByEmail.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findByEmail.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        long start = findAll.start();
+        try {
+            List<User> result = delegate.findAll();
+            findAll.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            findAll.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(User user) {
+        long start = delete.start();
+        try {
+            delegate.delete(user);
+            delete.stop(start);
+        } catch (RuntimeException e) {
+            delete.fail(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
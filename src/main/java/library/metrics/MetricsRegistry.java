@@ -0,0 +1,86 @@
+package library.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named {@link Timer}s of the application.
+ * <p>
+ * Timers are looked up once, when a service or decorator is wired, and then
+ * kept in fields, so the hot path never touches the registry.
+ * {@link #snapshot()} copies all timers for export.
+ */
+public class MetricsRegistry {
+
+    /** Default share of timed calls: one in this many, on average. */
+    public static final int DEFAULT_SAMPLE_EVERY = 64;
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final int sampleEvery;
+
+    /**
+     * Creates a registry whose timers time one in {@link #DEFAULT_SAMPLE_EVERY} calls.
+     */
+    public MetricsRegistry() {
+        this(DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * Creates a registry whose timers time one in {@code sampleEvery} calls.
+     *
+     * @param sampleEvery mean sampling interval (1 times every call)
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public MetricsRegistry(int sampleEvery) {
+        this.sampleEvery = checkSampleEvery(sampleEvery);
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use with
+     * the registry's sampling interval.
+     *
+     * @param name name of the operation, e.g. {@code library.borrow}
+     * @return the timer
+     */
+    public Timer timer(String name) {
+        return timer(name, sampleEvery);
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use with
+     * its own sampling interval. Operations that take long compared with two
+     * clock reads can afford to be timed on every call, which keeps all of
+     * their tail in the histogram.
+     *
+     * @param name        name of the operation
+     * @param sampleEvery mean sampling interval of a new timer (1 times every call);
+     *                    an existing timer keeps its interval
+     * @return the timer
+     * @throws IllegalArgumentException if the name is null or the interval is not positive
+     */
+    public Timer timer(String name, int sampleEvery) {
+        if (name == null) throw new IllegalArgumentException("name must not be null");
+        checkSampleEvery(sampleEvery);
+        return timers.computeIfAbsent(name, n -> new Timer(n, sampleEvery));
+    }
+
+    /**
+     * Copies the statistics of all timers.
+     *
+     * @return snapshot with the timers sorted by name
+     */
+    public MetricsSnapshot snapshot() {
+        List<TimerSnapshot> copies = new ArrayList<>(timers.size());
+        for (Timer t : timers.values()) {
+            copies.add(t.snapshot());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), copies);
+    }
+
+    private static int checkSampleEvery(int sampleEvery) {
+        if (sampleEvery <= 0) throw new IllegalArgumentException("sampleEvery must be positive");
+        return sampleEvery;
+    }
+}
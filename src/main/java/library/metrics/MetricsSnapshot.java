@@ -0,0 +1,86 @@
+package library.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistics of all timers of a {@link MetricsRegistry} at one moment, with
+ * text and JSON export. Latencies are exported in nanoseconds.
+ */
+public class MetricsSnapshot {
+
+    private final long takenAtMillis;
+    private final List<TimerSnapshot> timers;
+
+    MetricsSnapshot(long takenAtMillis, List<TimerSnapshot> timers) {
+        this.takenAtMillis = takenAtMillis;
+        this.timers = Collections.unmodifiableList(timers);
+    }
+
+    /** @return time the snapshot was taken, in milliseconds since the epoch */
+    public long getTakenAtMillis() { return takenAtMillis; }
+
+    /** @return timers sorted by name */
+    public List<TimerSnapshot> getTimers() { return timers; }
+
+    /**
+     * @param name name of a timer
+     * @return its statistics, or null if there is no such timer
+     */
+    public TimerSnapshot get(String name) {
+        for (TimerSnapshot t : timers) {
+            if (t.getName().equals(name)) return t;
+        }
+        return null;
+    }
+
+    /**
+     * Formats the snapshot as a table, one line per timer.
+     *
+     * @return the table
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-32s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "failed", "mean ns", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "max ns"));
+        for (TimerSnapshot t : timers) {
+            sb.append(String.format(Locale.ROOT, "%-32s %10d %8d %10.0f %10d %10d %10d %10d %10d%n",
+                    t.getName(), t.getCount(), t.getFailures(), t.getMean(),
+                    t.getP50(), t.getP90(), t.getP99(), t.getP999(), t.getMax()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats the snapshot as a JSON object:
+     * {@code {"takenAt":..., "timers":{"name":{"count":..., ...}, ...}}}.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(64 + timers.size() * 160);
+        sb.append("{\"takenAt\":").append(takenAtMillis).append(",\"timers\":{");
+        for (int i = 0; i < timers.size(); i++) {
+            TimerSnapshot t = timers.get(i);
+            if (i > 0) sb.append(',');
+            sb.append('"').append(t.getName()).append("\":{")
+                    .append("\"count\":").append(t.getCount())
+                    .append(",\"failures\":").append(t.getFailures())
+                    .append(",\"samples\":").append(t.getSamples())
+                    .append(",\"meanNanos\":").append(Math.round(t.getMean()))
+                    .append(",\"p50Nanos\":").append(t.getP50())
+                    .append(",\"p90Nanos\":").append(t.getP90())
+                    .append(",\"p99Nanos\":").append(t.getP99())
+                    .append(",\"p999Nanos\":").append(t.getP999())
+                    .append(",\"maxNanos\":").append(t.getMax())
+                    .append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
@@ -0,0 +1,64 @@
+package library.metrics;
+
+import library.util.LatencyHistogram;
+
+/**
+ * Statistics of one {@link Timer} at the time of the snapshot.
+ * Latencies are in nanoseconds and computed from the sampled calls.
+ */
+public class TimerSnapshot {
+
+    private final String name;
+    private final long count;
+    private final long failures;
+    private final long samples;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    TimerSnapshot(String name, long count, long failures, LatencyHistogram.Snapshot latencies) {
+        this.name = name;
+        this.count = count;
+        this.failures = failures;
+        this.samples = latencies.count();
+        this.mean = latencies.mean();
+        this.p50 = latencies.valueAtPercentile(50);
+        this.p90 = latencies.valueAtPercentile(90);
+        this.p99 = latencies.valueAtPercentile(99);
+        this.p999 = latencies.valueAtPercentile(99.9);
+        this.max = latencies.max();
+    }
+
+    /** @return name of the operation */
+    public String getName() { return name; }
+
+    /** @return number of calls, including failed ones */
+    public long getCount() { return count; }
+
+    /** @return number of calls that threw */
+    public long getFailures() { return failures; }
+
+    /** @return number of calls that were timed */
+    public long getSamples() { return samples; }
+
+    /** @return mean latency */
+    public double getMean() { return mean; }
+
+    /** @return median latency */
+    public long getP50() { return p50; }
+
+    /** @return 90th percentile latency */
+    public long getP90() { return p90; }
+
+    /** @return 99th percentile latency */
+    public long getP99() { return p99; }
+
+    /** @return 99.9th percentile latency */
+    public long getP999() { return p999; }
+
+    /** @return highest latency */
+    public long getMax() { return max; }
+}
@@ -0,0 +1,86 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import library.strategy.MediaPolicyTable;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Formats the lines of the borrowed media report.
+ * <p>
+ * Each active loan becomes one line:
+ * {@code loanId | mediaId - title | userId (email) | due=DATE | status [| fine=N]}.
+ * Used by both the sequential report in {@link library.service.LibraryService}
+ * and the parallel one in {@link ParallelReports}, so both produce the same text.
+ * Holds no mutable state and can be shared between threads.
+ */
+public class BorrowedMediaFormatter {
+
+    private final LocalDate today;
+    private final LoanJoin join;
+    private final MediaPolicyTable policies;
+
+    /**
+     * @param today    date the report is built for
+     * @param join     join used to resolve users and media
+     * @param policies fine strategy per media type
+     */
+    public BorrowedMediaFormatter(LocalDate today, LoanJoin join, MediaPolicyTable policies) {
+        this.today = today;
+        this.join = join;
+        this.policies = policies;
+    }
+
+    /**
+     * Appends the report line of an active loan to the buffer.
+     *
+     * @param loan the loan (must not be returned)
+     * @param sb   buffer to append to
+     * @return fine of the loan, 0 if it is not overdue
+     */
+    public int format(Loan loan, StringBuilder sb) {
+        String uid = loan.getUserId();
+        String mid = loan.getMediaId();
+
+        User user = join.user(uid);
+        Media media = join.media(mid);
+
+        sb.append(loan.getId()).append(" | ");
+
+        if (media != null) sb.append(media.getId()).append(" - ").append(media.getTitle());
+        else sb.append(mid);
+        sb.append(" | ");
+
+        if (user != null) sb.append(user.getId()).append(" (").append(user.getEmail()).append(')');
+        else sb.append(uid);
+
+        sb.append(" | due=").append(loan.getDueDate()).append(" | ");
+
+        int fine = 0;
+        if (loan.isOverdue(today)) {
+            int days = loan.overdueDays(today);
+            sb.append("OVERDUE by ").append(days).append(" day(s)");
+
+            fine = policies.policyFor(media).fine(days);
+        } else {
+            long daysLeft = ChronoUnit.DAYS.between(today, loan.getDueDate());
+            sb.append("DUE in ").append(daysLeft).append(" day(s)");
+        }
+
+        if (fine > 0) sb.append(" | fine=").append(fine);
+        return fine;
+    }
+
+    /**
+     * Appends the closing total line.
+     *
+     * @param totalFine total fine across all active overdue loans
+     * @param sb        buffer to append to
+     */
+    public static void formatTotal(int totalFine, StringBuilder sb) {
+        sb.append("TOTAL OUTSTANDING FINE (for active loans): ").append(totalFine);
+    }
+}
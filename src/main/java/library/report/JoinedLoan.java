@@ -0,0 +1,38 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+
+/**
+ * A loan together with its user and media item, as produced by {@link LoanJoin}.
+ * User or media is null when it no longer exists in its repository.
+ */
+public final class JoinedLoan {
+
+    private final Loan loan;
+    private final User user;
+    private final Media media;
+
+    /**
+     * Creates a joined record.
+     *
+     * @param loan  the loan
+     * @param user  the user of the loan, or null
+     * @param media the media of the loan, or null
+     */
+    public JoinedLoan(Loan loan, User user, Media media) {
+        this.loan = loan;
+        this.user = user;
+        this.media = media;
+    }
+
+    /** @return the loan */
+    public Loan getLoan() { return loan; }
+
+    /** @return the user, or null if not found */
+    public User getUser() { return user; }
+
+    /** @return the media item, or null if not found */
+    public Media getMedia() { return media; }
+}
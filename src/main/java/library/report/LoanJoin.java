@@ -0,0 +1,80 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves the users and media items of many loans.
+ * <p>
+ * Reports used to call {@code userRepo.findById} and {@code mediaRepo.findById}
+ * for every loan while each call scanned the repository, which made a report
+ * quadratic. The repositories now index their items by id, so a LoanJoin
+ * resolves every loan with two constant-time {@code findById} lookups and
+ * copies nothing: a report over N loans costs O(N) however many users and
+ * media items there are, instead of first reading all of them into tables.
+ * <p>
+ * Lookups go to the repositories as they are when a loan is joined. Safe to
+ * share between threads as long as the repositories are not written to, e.g.
+ * while a report runs under a read lock.
+ */
+public class LoanJoin {
+
+    private final UserRepository userRepo;
+    private final MediaRepository mediaRepo;
+
+    /**
+     * @param userRepo  repository of users
+     * @param mediaRepo repository of media items
+     */
+    public LoanJoin(UserRepository userRepo, MediaRepository mediaRepo) {
+        this.userRepo = userRepo;
+        this.mediaRepo = mediaRepo;
+    }
+
+    /**
+     * @param userId id of the user
+     * @return the user, or null if not found
+     */
+    public User user(String userId) {
+        return userRepo.findById(userId).orElse(null);
+    }
+
+    /**
+     * @param mediaId id of the media item
+     * @return the media item, or null if not found
+     */
+    public Media media(String mediaId) {
+        return mediaRepo.findById(mediaId).orElse(null);
+    }
+
+    /**
+     * Joins a single loan.
+     *
+     * @param loan the loan
+     * @return the loan with its user and media
+     */
+    public JoinedLoan join(Loan loan) {
+        return new JoinedLoan(loan, user(loan.getUserId()), media(loan.getMediaId()));
+    }
+
+    /**
+     * Joins a batch of loans, keeping their order.
+     *
+     * @param loans the loans
+     * @return joined records, one per loan
+     */
+    public List<JoinedLoan> joinAll(Collection<Loan> loans) {
+        List<JoinedLoan> result = new ArrayList<>(loans.size());
+        for (Loan l : loans) {
+            result.add(join(l));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,243 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.dto.OverdueReport;
+import library.repository.MediaRepository;
+import library.scheduling.DayRollover;
+import library.service.TimeProvider;
+import library.strategy.MediaPolicy;
+import library.strategy.MediaPolicyTable;
+import library.util.ObjectIntHashMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incrementally maintained version of the {@link OverdueReport} built by
+ * {@link library.service.ReminderService#buildReport}.
+ * <p>
+ * Instead of scanning all loans, the view follows the overdue state kept by
+ * {@link DayRollover}:
+ * <ul>
+ *     <li>a loan that becomes overdue adds 1 to the user's count and its fine to the user's sum</li>
+ *     <li>returning an overdue loan removes it from both values</li>
+ *     <li>on a new day the fines of all overdue loans grow, and are recalculated
+ *     in one batch call per media policy</li>
+ * </ul>
+ * The recalculation touches every overdue loan, since a fine strategy need not
+ * be linear in the overdue days. So that a {@link DayRollover} still only does
+ * work proportional to the loans due that day, {@link #onRollover} just notes
+ * the new day and the fines are recalculated by the next {@link #snapshot()}:
+ * at most once per day, and not at all on days nobody reads the report.
+ * Borrowing and paying fines do not change the report: new loans are never
+ * overdue, and the report lists fines accrued on unreturned loans, which
+ * payments do not reduce.
+ * <p>
+ * {@link #snapshot()} returns the cached report and only copies the maps again
+ * after something changed. {@link #verify(OverdueReport)} compares the view
+ * with a report built from scratch. Not thread-safe.
+ */
+public class OverdueView implements DayRollover.Listener {
+
+    private final TimeProvider timeProvider;
+    private final DayRollover rollover;
+    private final MediaRepository mediaRepo;
+    private final MediaPolicyTable policies;
+
+    // loanId -> the loan and its current fine
+    private final Map<String, Row> rows = new LinkedHashMap<>();
+    // policy -> overdue rows of media with that policy
+    private final Map<MediaPolicy, Group> groups = new IdentityHashMap<>();
+    // userId -> number of overdue items
+    private final ObjectIntHashMap<String> counts = new ObjectIntHashMap<>();
+    // userId -> total fine amount
+    private final ObjectIntHashMap<String> sums = new ObjectIntHashMap<>();
+
+    private OverdueReport snapshot;
+    // day the fines must be recalculated for, or null if they are current
+    private LocalDate refreshDue;
+
+    /**
+     * Creates a new view. It must be registered as a listener of the given rollover.
+     *
+     * @param timeProvider provider used to get the current date
+     * @param rollover     rollover engine that reports overdue loans
+     * @param mediaRepo    repository used to find the media type of an overdue loan
+     * @param policies     fine strategy per media type
+     */
+    public OverdueView(TimeProvider timeProvider, DayRollover rollover, MediaRepository mediaRepo,
+                       MediaPolicyTable policies) {
+        this.timeProvider = timeProvider;
+        this.rollover = rollover;
+        this.mediaRepo = mediaRepo;
+        this.policies = policies;
+    }
+
+    /**
+     * Returns the current report. Runs a pending day rollover first and
+     * recalculates the fines if the day changed, so the values are correct for
+     * today. That costs O(overdue loans) on the first call of a day.
+     *
+     * @return the overdue report (must not be modified)
+     */
+    public OverdueReport snapshot() {
+        rollover.rollover();
+        if (refreshDue != null) {
+            for (Group group : groups.values()) {
+                if (group.refresh(refreshDue, sums)) {
+                    snapshot = null;
+                }
+            }
+            refreshDue = null;
+        }
+        if (snapshot == null) {
+            snapshot = new OverdueReport(new ObjectIntHashMap<>(counts), new ObjectIntHashMap<>(sums));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Compares the view with a report built from all loans.
+     *
+     * @param expected report built from scratch
+     * @return list of differences, empty if the view is consistent
+     */
+    public List<String> verify(OverdueReport expected) {
+        OverdueReport actual = snapshot();
+        List<String> diffs = new ArrayList<>();
+        compare("count", expected.getOverdueCounts(), actual.getOverdueCounts(), diffs);
+        compare("fine", expected.getFineTotals(), actual.getFineTotals(), diffs);
+        return diffs;
+    }
+
+    @Override
+    public void onOverdue(Loan loan) {
+        Row row = new Row(loan, policies.policyFor(mediaRepo.findById(loan.getMediaId()).orElse(null)));
+        row.fine = row.fineOn(timeProvider.today());
+        rows.put(loan.getId(), row);
+        groups.computeIfAbsent(row.policy, Group::new).add(row);
+
+        counts.addTo(loan.getUserId(), 1);
+        sums.addTo(loan.getUserId(), row.fine);
+        snapshot = null;
+    }
+
+    @Override
+    public void onOverdueReturned(Loan loan, Media media) {
+        Row row = rows.remove(loan.getId());
+        if (row == null) return;
+        groups.get(row.policy).remove(row);
+
+        String uid = loan.getUserId();
+        if (counts.get(uid) <= 1) {
+            counts.remove(uid);
+            sums.remove(uid);
+        } else {
+            counts.addTo(uid, -1);
+            sums.addTo(uid, -row.fine);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Notes the new day; the fines are recalculated by the next {@link #snapshot()}.
+     */
+    @Override
+    public void onRollover(LocalDate day, int newlyOverdue) {
+        refreshDue = day;
+    }
+
+    private static void compare(String what, Map<String, Integer> expected, Map<String, Integer> actual,
+                                List<String> diffs) {
+        Set<String> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (String uid : keys) {
+            Integer e = expected.get(uid);
+            Integer a = actual.get(uid);
+            if (e == null ? a != null : !e.equals(a)) {
+                diffs.add(what + " mismatch for " + uid + ": expected " + e + " but view has " + a);
+            }
+        }
+    }
+
+    /**
+     * One overdue loan and the fine currently included in its user's sum.
+     */
+    private static final class Row {
+        final Loan loan;
+        final MediaPolicy policy;
+        int fine;
+        // position in the group's row list
+        int index;
+
+        Row(Loan loan, MediaPolicy policy) {
+            this.loan = loan;
+            this.policy = policy;
+        }
+
+        int fineOn(LocalDate day) {
+            return policy.fine(loan.overdueDays(day));
+        }
+    }
+
+    /**
+     * Overdue rows that share a policy. Their fines are recalculated with one
+     * {@link library.strategy.FineStrategy#calculateFines} call per refresh.
+     */
+    private static final class Group {
+        final MediaPolicy policy;
+        final List<Row> rows = new ArrayList<>();
+        int[] days = new int[16];
+        int[] fines = new int[16];
+
+        Group(MediaPolicy policy) {
+            this.policy = policy;
+        }
+
+        void add(Row row) {
+            row.index = rows.size();
+            rows.add(row);
+        }
+
+        void remove(Row row) {
+            Row last = rows.remove(rows.size() - 1);
+            if (last != row) {
+                rows.set(row.index, last);
+                last.index = row.index;
+            }
+        }
+
+        /**
+         * @return true if any fine changed
+         */
+        boolean refresh(LocalDate day, ObjectIntHashMap<String> sums) {
+            int n = rows.size();
+            if (days.length < n) {
+                days = new int[Math.max(n, days.length * 2)];
+                fines = new int[days.length];
+            }
+            for (int i = 0; i < n; i++) {
+                days[i] = rows.get(i).loan.overdueDays(day);
+            }
+            policy.getFineStrategy().calculateFines(days, fines, n);
+
+            boolean changed = false;
+            for (int i = 0; i < n; i++) {
+                Row row = rows.get(i);
+                if (fines[i] != row.fine) {
+                    sums.addTo(row.loan.getUserId(), fines[i] - row.fine);
+                    row.fine = fines[i];
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+}
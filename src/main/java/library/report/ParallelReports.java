@@ -0,0 +1,303 @@
+package library.report;
+
+import library.domain.Loan;
+import library.dto.OverdueReport;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+import library.service.TimeProvider;
+import library.strategy.MediaPolicyTable;
+import library.util.ObjectIntHashMap;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Builds the reports over all loans on a fork-join pool.
+ * <p>
+ * The loan store is split with {@link LoanRepository#spliterator()} until the
+ * partitions are small enough, every partition is processed on its own, and the
+ * partial results are merged again. The merges are associative and keep the
+ * left partition before the right one, so the result does not depend on how
+ * the work was scheduled:
+ * <ul>
+ *     <li>{@link #buildOverdueReport()} returns the same counts and fines as
+ *     {@link library.service.ReminderService#buildReport}, which uses it when
+ *     set with {@code ReminderService.useParallelReports}</li>
+ *     <li>{@link #streamBorrowedMediaReport(ReportSink)} emits exactly the lines of
+ *     {@link library.service.LibraryService#streamBorrowedMediaReport(ReportSink)}</li>
+ * </ul>
+ * Loans must not be added or deleted while a report runs. The borrowed media
+ * report is passed to the sink partition by partition, in loan order, while
+ * the following partitions are formatted; only the partitions in flight (a
+ * few per pool thread) are buffered, so its memory use does not grow with the
+ * number of loans either.
+ */
+public class ParallelReports {
+
+    // below this many loans a partition is not split further
+    private static final int MIN_PARTITION = 4096;
+    // borrowed media partitions formatted ahead of the sink, per pool thread
+    private static final int PARTITIONS_IN_FLIGHT = 2;
+
+    private final LoanRepository loanRepo;
+    private final UserRepository userRepo;
+    private final MediaRepository mediaRepo;
+    private final TimeProvider timeProvider;
+    private final MediaPolicyTable policies;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates parallel reports that run on the common fork-join pool.
+     *
+     * @param loanRepo     repository of loans
+     * @param userRepo     repository of users
+     * @param mediaRepo    repository of media items
+     * @param timeProvider provider used to get the current date
+     * @param policies     fine strategy per media type
+     */
+    public ParallelReports(LoanRepository loanRepo, UserRepository userRepo, MediaRepository mediaRepo,
+                           TimeProvider timeProvider, MediaPolicyTable policies) {
+        this(loanRepo, userRepo, mediaRepo, timeProvider, policies, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates parallel reports that run on the given pool.
+     *
+     * @param loanRepo     repository of loans
+     * @param userRepo     repository of users
+     * @param mediaRepo    repository of media items
+     * @param timeProvider provider used to get the current date
+     * @param policies     fine strategy per media type
+     * @param pool         pool the partitions are processed on
+     */
+    public ParallelReports(LoanRepository loanRepo, UserRepository userRepo, MediaRepository mediaRepo,
+                           TimeProvider timeProvider, MediaPolicyTable policies, ForkJoinPool pool) {
+        this.loanRepo = loanRepo;
+        this.userRepo = userRepo;
+        this.mediaRepo = mediaRepo;
+        this.timeProvider = timeProvider;
+        this.policies = policies;
+        this.pool = pool;
+    }
+
+    /**
+     * Builds the overdue report (count and total fine per user) in parallel.
+     *
+     * @return the overdue report
+     */
+    public OverdueReport buildOverdueReport() {
+        LocalDate today = timeProvider.today();
+        LoanJoin join = new LoanJoin(userRepo, mediaRepo);
+
+        OverdueTotals totals = run(split -> {
+            OverdueTotals t = new OverdueTotals();
+            split.forEachRemaining(l -> {
+                if (!l.isOverdue(today)) return;
+                int days = l.overdueDays(today);
+                t.add(l.getUserId(), policies.policyFor(join.media(l.getMediaId())).fine(days));
+            });
+            return t;
+        }, OverdueTotals::merge);
+
+        return totals.toReport();
+    }
+
+    /**
+     * Builds the borrowed media report in parallel and passes its lines to the
+     * sink in loan order, followed by the total line. The sink is only called
+     * from the calling thread.
+     *
+     * @param sink receives the report lines
+     * @return total fine across all active overdue loans
+     */
+    public int streamBorrowedMediaReport(ReportSink sink) {
+        BorrowedMediaFormatter formatter = new BorrowedMediaFormatter(
+                timeProvider.today(), new LoanJoin(userRepo, mediaRepo), policies);
+
+        List<Spliterator<Loan>> partitions = new ArrayList<>();
+        Spliterator<Loan> all = loanRepo.spliterator();
+        partition(all, threshold(all), partitions);
+
+        // partitions being formatted, oldest first
+        Deque<ForkJoinTask<Lines>> inFlight = new ArrayDeque<>();
+        int maxInFlight = pool.getParallelism() * PARTITIONS_IN_FLIGHT;
+        StringBuilder line = new StringBuilder(128);
+        int totalFine = 0;
+        for (Spliterator<Loan> partition : partitions) {
+            inFlight.add(pool.submit(() -> format(partition, formatter)));
+            if (inFlight.size() >= maxInFlight) {
+                totalFine += emit(inFlight.remove().join(), sink, line);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            totalFine += emit(inFlight.remove().join(), sink, line);
+        }
+
+        line.setLength(0);
+        BorrowedMediaFormatter.formatTotal(totalFine, line);
+        sink.line(line);
+        return totalFine;
+    }
+
+    /**
+     * Builds the borrowed media report in parallel and collects its lines.
+     *
+     * @return list of report lines
+     */
+    public List<String> getBorrowedMediaReport() {
+        List<String> report = new ArrayList<>();
+        streamBorrowedMediaReport(line -> report.add(line.toString()));
+        return report;
+    }
+
+    // ---------------------------------------------------------------------
+
+    private <R> R run(Function<Spliterator<Loan>, R> leaf, BinaryOperator<R> merge) {
+        Spliterator<Loan> all = loanRepo.spliterator();
+        return pool.invoke(new PartitionTask<>(all, threshold(all), leaf, merge));
+    }
+
+    private long threshold(Spliterator<Loan> all) {
+        long perWorker = all.estimateSize() / ((long) pool.getParallelism() * 4);
+        return Math.max(MIN_PARTITION, perWorker);
+    }
+
+    /**
+     * Splits the loans into partitions below the threshold, in loan order.
+     */
+    private static void partition(Spliterator<Loan> split, long threshold, List<Spliterator<Loan>> out) {
+        Spliterator<Loan> prefix;
+        if (split.estimateSize() <= threshold || (prefix = split.trySplit()) == null) {
+            out.add(split);
+            return;
+        }
+        partition(prefix, threshold, out);
+        partition(split, threshold, out);
+    }
+
+    private static Lines format(Spliterator<Loan> partition, BorrowedMediaFormatter formatter) {
+        Lines lines = new Lines();
+        partition.forEachRemaining(l -> {
+            if (l.isReturned()) return;
+            lines.totalFine += formatter.format(l, lines.text);
+            lines.end();
+        });
+        return lines;
+    }
+
+    /**
+     * Passes the lines of a partition to the sink, one reused buffer per line.
+     *
+     * @return the partition's total fine
+     */
+    private static int emit(Lines lines, ReportSink sink, StringBuilder line) {
+        int start = 0;
+        for (int i = 0; i < lines.count; i++) {
+            int end = lines.ends[i];
+            line.setLength(0);
+            line.append(lines.text, start, end);
+            sink.line(line);
+            start = end;
+        }
+        return lines.totalFine;
+    }
+
+    /**
+     * Splits a partition in two until it is below the threshold, then runs the
+     * leaf function on it. The left half is forked and the right half computed
+     * in the current thread; results are merged left to right.
+     */
+    private static final class PartitionTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<Loan> split;
+        private final long threshold;
+        private final Function<Spliterator<Loan>, R> leaf;
+        private final BinaryOperator<R> merge;
+
+        PartitionTask(Spliterator<Loan> split, long threshold,
+                      Function<Spliterator<Loan>, R> leaf, BinaryOperator<R> merge) {
+            this.split = split;
+            this.threshold = threshold;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            Spliterator<Loan> prefix;
+            if (split.estimateSize() <= threshold || (prefix = split.trySplit()) == null) {
+                return leaf.apply(split);
+            }
+
+            PartitionTask<R> left = new PartitionTask<>(prefix, threshold, leaf, merge);
+            left.fork();
+            R right = new PartitionTask<>(split, threshold, leaf, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    /**
+     * Partial overdue counts and fines of one partition.
+     */
+    private static final class OverdueTotals {
+        final ObjectIntHashMap<String> counts = new ObjectIntHashMap<>();
+        final ObjectIntHashMap<String> sums = new ObjectIntHashMap<>();
+        // users in the order they were first seen
+        final List<String> order = new ArrayList<>();
+
+        void add(String userId, int fine) {
+            if (counts.addTo(userId, 1) == 1) order.add(userId);
+            sums.addTo(userId, fine);
+        }
+
+        OverdueTotals merge(OverdueTotals right) {
+            for (String uid : right.order) {
+                if (!counts.containsKey(uid)) order.add(uid);
+                counts.addTo(uid, right.counts.get(uid));
+                sums.addTo(uid, right.sums.get(uid));
+            }
+            return this;
+        }
+
+        OverdueReport toReport() {
+            ObjectIntHashMap<String> c = new ObjectIntHashMap<>(order.size());
+            ObjectIntHashMap<String> s = new ObjectIntHashMap<>(order.size());
+            for (String uid : order) {
+                c.put(uid, counts.get(uid));
+                s.put(uid, sums.get(uid));
+            }
+            return new OverdueReport(c, s);
+        }
+    }
+
+    /**
+     * Formatted lines of one partition, stored back to back. The end offset of
+     * every line is recorded, so a title or name containing {@code '\n'} stays
+     * within its line.
+     */
+    private static final class Lines {
+        final StringBuilder text = new StringBuilder();
+        int[] ends = new int[64];
+        int count;
+        int totalFine;
+
+        /** Ends the current line at the end of the text. */
+        void end() {
+            if (count == ends.length) ends = Arrays.copyOf(ends, count * 2);
+            ends[count++] = text.length();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import library.service.LibraryEventListener;
+import library.service.TimeProvider;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caches built reports by report type and day.
+ * <p>
+ * {@link #get(String, Supplier)} returns the stored report while it was built
+ * on {@link TimeProvider#today()}; on a new day or after an invalidation the
+ * report is built again. Callers that produce a report while streaming it can
+ * use {@link #peek(String)} and {@link #put(String, Object)} instead, and only
+ * store it when it turned out to be small. As a {@link LibraryEventListener} the cache drops all
+ * reports when a loan is borrowed or returned or a fine is paid through
+ * {@link library.service.LibraryService}. Changes made directly to the
+ * repositories are not seen; call {@link #invalidateAll()} after them.
+ * <p>
+ * Cached values are shared, so callers must not modify them. Not thread-safe.
+ */
+public class ReportCache implements LibraryEventListener {
+
+    /** Report type of the borrowed media report. */
+    public static final String BORROWED_MEDIA = "borrowed-media";
+
+    private final TimeProvider timeProvider;
+    // report type -> report and the day it was built for
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param timeProvider provider used to get the current date
+     */
+    public ReportCache(TimeProvider timeProvider) {
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * Returns the cached report of the given type for today, building and
+     * storing it first if needed.
+     *
+     * @param type    report type
+     * @param builder builds the report when it is not cached
+     * @param <T>     type of the report
+     * @return the cached or newly built report
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String type, Supplier<T> builder) {
+        LocalDate today = timeProvider.today();
+        Entry e = entries.get(type);
+        if (e != null && e.day.equals(today)) {
+            hits++;
+            return (T) e.value;
+        }
+
+        misses++;
+        T value = builder.get();
+        entries.put(type, new Entry(today, value));
+        return value;
+    }
+
+    /**
+     * Returns the cached report of the given type for today without building
+     * it. Counts as a hit or a miss like {@link #get(String, Supplier)}.
+     *
+     * @param type report type
+     * @param <T>  type of the report
+     * @return the cached report, or null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T peek(String type) {
+        Entry e = entries.get(type);
+        if (e != null && e.day.equals(timeProvider.today())) {
+            hits++;
+            return (T) e.value;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores a report built today, e.g. after a {@link #peek(String)} miss.
+     *
+     * @param type  report type
+     * @param value the report
+     */
+    public void put(String type, Object value) {
+        entries.put(type, new Entry(timeProvider.today(), value));
+    }
+
+    /**
+     * Drops the cached report of one type.
+     *
+     * @param type report type
+     */
+    public void invalidate(String type) {
+        entries.remove(type);
+    }
+
+    /**
+     * Drops all cached reports.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /** @return number of calls answered from the cache */
+    public long hits() { return hits; }
+
+    /** @return number of calls that had to build the report */
+    public long misses() { return misses; }
+
+    @Override
+    public void onBorrow(Loan loan, Media media) {
+        invalidateAll();
+    }
+
+    @Override
+    public void onReturn(Loan loan, Media media, int fine) {
+        invalidateAll();
+    }
+
+    @Override
+    public void onFinePaid(User user, int amount) {
+        invalidateAll();
+    }
+
+    private static final class Entry {
+        final LocalDate day;
+        final Object value;
+
+        Entry(LocalDate day, Object value) {
+            this.day = day;
+            this.value = value;
+        }
+    }
+}
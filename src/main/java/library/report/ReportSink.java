@@ -0,0 +1,19 @@
+package library.report;
+
+/**
+ * Receives the lines of a streamed report one at a time.
+ * <p>
+ * The {@link CharSequence} passed to {@link #line(CharSequence)} may be a
+ * buffer that is reused for the next line, so a sink that wants to keep a
+ * line must copy it (for example with {@code toString()}).
+ */
+@FunctionalInterface
+public interface ReportSink {
+
+    /**
+     * Receives one report line (without a line separator).
+     *
+     * @param line the line; only valid during this call
+     */
+    void line(CharSequence line);
+}
@@ -3,17 +3,29 @@ package library.repository;
 import library.domain.Loan;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Simple in-memory implementation of the LoanRepository.
- * Stores all loans in a list (not persistent).
+ * Stores all loans in a list (not persistent). Hash indexes by loan id and by
+ * user id keep {@link #findById(String)} and {@link #findByUserId(String)}
+ * independent of the total number of loans.
  */
 public class InMemoryLoanRepository implements LoanRepository {
 
-    private final List<Loan> loans = new ArrayList<>();
+    private final ArrayList<Loan> loans = new ArrayList<>();
+    // loan id -> first saved loan with that id
+    private final Map<String, Loan> byId = new HashMap<>();
+    // number of saves whose id was already stored; only then can delete find another copy
+    private int duplicates;
+    // user id -> the user's loans, in the order they were saved
+    private final Map<String, List<Loan>> byUser = new HashMap<>();
 
     /**
      * Saves a new loan to the repository.
@@ -22,7 +34,22 @@ public class InMemoryLoanRepository implements LoanRepository {
      */
     @Override
     public void save(Loan loan) { 
-        loans.add(loan); 
+        loans.add(loan);
+        if (byId.putIfAbsent(loan.getId(), loan) != null) duplicates++;
+        byUser.computeIfAbsent(loan.getUserId(), k -> new ArrayList<>(2)).add(loan);
+    }
+
+    /**
+     * Saves several loans, growing the list once.
+     *
+     * @param newLoans the loans to store, in order
+     */
+    @Override
+    public void saveAll(Collection<Loan> newLoans) {
+        loans.ensureCapacity(loans.size() + newLoans.size());
+        for (Loan loan : newLoans) {
+            save(loan);
+        }
     }
 
     /**
@@ -33,9 +60,7 @@ public class InMemoryLoanRepository implements LoanRepository {
      */
     @Override
     public Optional<Loan> findById(String id) { 
-        return loans.stream()
-                    .filter(l -> l.getId().equals(id))
-                    .findFirst(); 
+        return Optional.ofNullable(byId.get(id));
     }
 
     /**
@@ -46,9 +71,8 @@ public class InMemoryLoanRepository implements LoanRepository {
      */
     @Override
     public List<Loan> findByUserId(String userId) { 
-        return loans.stream()
-                    .filter(l -> l.getUserId().equals(userId))
-                    .collect(Collectors.toList()); 
+        List<Loan> userLoans = byUser.get(userId);
+        return userLoans == null ? new ArrayList<>() : new ArrayList<>(userLoans);
     }
 
     /**
@@ -61,6 +85,46 @@ public class InMemoryLoanRepository implements LoanRepository {
         return new ArrayList<>(loans); 
     }
 
+    /**
+     * Returns the number of stored loans.
+     *
+     * @return size of the backing list
+     */
+    @Override
+    public long count() {
+        return loans.size();
+    }
+
+    /** @return number of distinct loan ids (size of the id index) */
+    public int indexedIds() {
+        return byId.size();
+    }
+
+    /** @return number of users with at least one stored loan (size of the user index) */
+    public int indexedUsers() {
+        return byUser.size();
+    }
+
+    /**
+     * Iterates over the stored loans directly, without copying them.
+     *
+     * @param action the action to run for each loan
+     */
+    @Override
+    public void forEach(Consumer<? super Loan> action) {
+        loans.forEach(action);
+    }
+
+    /**
+     * Splits the backing list directly, without copying it.
+     *
+     * @return spliterator over all loans, in storage order
+     */
+    @Override
+    public Spliterator<Loan> spliterator() {
+        return loans.spliterator();
+    }
+
     /**
      * Removes a loan from the repository.
      *
@@ -68,6 +132,21 @@ public class InMemoryLoanRepository implements LoanRepository {
      */
     @Override
     public void delete(Loan loan) { 
-        loans.remove(loan); 
+        if (!loans.remove(loan)) return;
+
+        List<Loan> userLoans = byUser.get(loan.getUserId());
+        userLoans.remove(loan);
+        if (userLoans.isEmpty()) byUser.remove(loan.getUserId());
+
+        if (byId.get(loan.getId()) != loan) return;
+        // the loan may have been saved more than once; index the next copy if any
+        byId.remove(loan.getId());
+        if (duplicates == 0) return;
+        for (Loan l : loans) {
+            if (l.getId().equals(loan.getId())) {
+                byId.put(l.getId(), l);
+                break;
+            }
+        }
     }
 }
@@ -5,17 +5,23 @@ import library.domain.media.CD;
 import library.domain.media.Media;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * Simple in-memory implementation of the MediaRepository.
- * Stores all media items (books and CDs) in a list.
+ * Stores all media items (books and CDs) in a list, with a hash index by id
+ * so {@link #findById(String)} does not scan the list.
  */
 public class InMemoryMediaRepository implements MediaRepository {
 
-    private final List<Media> items = new ArrayList<>();
+    private final ArrayList<Media> items = new ArrayList<>();
+    // id -> first saved item with that id
+    private Map<String, Media> byId = new HashMap<>();
 
     /**
      * Saves a media item to the repository.
@@ -24,7 +30,26 @@ public class InMemoryMediaRepository implements MediaRepository {
      */
     @Override
     public void save(Media media) { 
-        items.add(media); 
+        items.add(media);
+        byId.putIfAbsent(media.getId(), media);
+    }
+
+    /**
+     * Saves many media items. The list grows once and the id index is rebuilt
+     * at its final size in one pass, instead of rehashing as it fills up.
+     *
+     * @param media the items to store, in order
+     */
+    @Override
+    public void saveAll(Collection<? extends Media> media) {
+        items.ensureCapacity(items.size() + media.size());
+        Map<String, Media> index = new HashMap<>((int) ((byId.size() + media.size()) / 0.75f) + 1);
+        index.putAll(byId);
+        for (Media m : media) {
+            items.add(m);
+            index.putIfAbsent(m.getId(), m);
+        }
+        byId = index;
     }
 
     /**
@@ -35,9 +60,7 @@ public class InMemoryMediaRepository implements MediaRepository {
      */
     @Override
     public Optional<Media> findById(String id) { 
-        return items.stream()
-                .filter(m -> m.getId().equals(id))
-                .findFirst(); 
+        return Optional.ofNullable(byId.get(id));
     }
 
     /**
@@ -78,4 +101,14 @@ public class InMemoryMediaRepository implements MediaRepository {
     public List<Media> findAll() { 
         return new ArrayList<>(items); 
     }
+
+    /**
+     * Returns the number of stored media items.
+     *
+     * @return size of the backing list
+     */
+    @Override
+    public long count() {
+        return items.size();
+    }
 }
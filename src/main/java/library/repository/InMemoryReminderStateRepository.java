@@ -0,0 +1,68 @@
+package library.repository;
+
+import library.util.ObjectIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Simple in-memory implementation of the ReminderStateRepository.
+ * Stores the state in two primitive arrays; each user id is given the next
+ * index the first time a reminder is recorded for it (not persistent).
+ */
+public class InMemoryReminderStateRepository implements ReminderStateRepository {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // user id -> index + 1, so that the default value 0 means "unknown user"
+    private final ObjectIntHashMap<String> rows = new ObjectIntHashMap<>();
+    private long[] days = new long[INITIAL_CAPACITY];
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+
+    /**
+     * Returns the day of the last reminder for the user.
+     *
+     * @param userId id of the user
+     * @return epoch day, or {@link #NONE}
+     */
+    @Override
+    public long lastReminderDay(String userId) {
+        int row = rows.get(userId);
+        return row == 0 ? NONE : days[row - 1];
+    }
+
+    /**
+     * Returns the fingerprint of the last reminder for the user.
+     *
+     * @param userId id of the user
+     * @return stored fingerprint, or 0
+     */
+    @Override
+    public long lastFingerprint(String userId) {
+        int row = rows.get(userId);
+        return row == 0 ? 0L : fingerprints[row - 1];
+    }
+
+    /**
+     * Stores the reminder state, growing the arrays when needed.
+     *
+     * @param userId      id of the user
+     * @param epochDay    day the reminder was sent
+     * @param fingerprint fingerprint of the overdue counts
+     */
+    @Override
+    public void record(String userId, long epochDay, long fingerprint) {
+        if (userId == null) throw new IllegalArgumentException("user id must not be null");
+
+        int row = rows.get(userId);
+        if (row == 0) {
+            row = rows.size() + 1;
+            rows.put(userId, row);
+            if (row > days.length) {
+                days = Arrays.copyOf(days, days.length * 2);
+                fingerprints = Arrays.copyOf(fingerprints, fingerprints.length * 2);
+            }
+        }
+        days[row - 1] = epochDay;
+        fingerprints[row - 1] = fingerprint;
+    }
+}
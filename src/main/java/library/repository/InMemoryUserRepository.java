@@ -3,16 +3,23 @@ package library.repository;
 import library.domain.User;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Simple in-memory implementation of the UserRepository.
- * Stores users inside a list (not persistent).
+ * Stores users inside a list (not persistent), with a hash index by id so
+ * {@link #findById(String)} does not scan the list.
  */
 public class InMemoryUserRepository implements UserRepository {
 
     private final List<User> users = new ArrayList<>();
+    // id -> first saved user with that id
+    private final Map<String, User> byId = new HashMap<>();
+    // number of saves whose id was already stored; only then can delete find another copy
+    private int duplicates;
 
     /**
      * Saves a new user to the repository.
@@ -22,6 +29,7 @@ public class InMemoryUserRepository implements UserRepository {
     @Override
     public void save(User user) {
         users.add(user);
+        if (byId.putIfAbsent(user.getId(), user) != null) duplicates++;
     }
 
     /**
@@ -32,9 +40,7 @@ public class InMemoryUserRepository implements UserRepository {
      */
     @Override
     public Optional<User> findById(String id) {
-        return users.stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(byId.get(id));
     }
 
     /**
@@ -60,6 +66,16 @@ public class InMemoryUserRepository implements UserRepository {
         return new ArrayList<>(users);
     }
 
+    /**
+     * Returns the number of stored users.
+     *
+     * @return size of the backing list
+     */
+    @Override
+    public long count() {
+        return users.size();
+    }
+
     /**
      * Removes a user from the repository.
      *
@@ -67,6 +83,17 @@ public class InMemoryUserRepository implements UserRepository {
      */
     @Override
     public void delete(User user) {
-        users.remove(user);
+        if (!users.remove(user)) return;
+        if (byId.get(user.getId()) != user) return;
+
+        // the user may have been saved more than once; index the next copy if any
+        byId.remove(user.getId());
+        if (duplicates == 0) return;
+        for (User u : users) {
+            if (u.getId().equals(user.getId())) {
+                byId.put(u.getId(), u);
+                break;
+            }
+        }
     }
 }
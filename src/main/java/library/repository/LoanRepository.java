@@ -2,8 +2,11 @@ package library.repository;
 
 import library.domain.Loan;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for storing and retrieving loan records.
@@ -17,6 +20,17 @@ public interface LoanRepository {
      */
     void save(Loan loan);
 
+    /**
+     * Saves several loans in one call.
+     *
+     * @param loans the loans to store, in order
+     */
+    default void saveAll(Collection<Loan> loans) {
+        for (Loan loan : loans) {
+            save(loan);
+        }
+    }
+
     /**
      * Finds a loan by its id.
      *
@@ -40,6 +54,36 @@ public interface LoanRepository {
      */
     List<Loan> findAll();
 
+    /**
+     * Returns the number of stored loans without copying them.
+     *
+     * @return number of stored loans
+     */
+    default long count() {
+        return findAll().size();
+    }
+
+    /**
+     * Calls the action for every stored loan without copying the whole list first.
+     * The action must not add or delete loans.
+     *
+     * @param action the action to run for each loan
+     */
+    default void forEach(Consumer<? super Loan> action) {
+        findAll().forEach(action);
+    }
+
+    /**
+     * Returns a spliterator over the stored loans, used to split the loans
+     * into partitions for parallel reports. The loans must not be added or
+     * deleted while it is in use.
+     *
+     * @return spliterator over all loans, in storage order
+     */
+    default Spliterator<Loan> spliterator() {
+        return findAll().spliterator();
+    }
+
     /**
      * Deletes the given loan from the repository.
      *
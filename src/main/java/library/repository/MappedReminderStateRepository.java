@@ -0,0 +1,191 @@
+package library.repository;
+
+import library.util.ObjectIntHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File-backed implementation of the ReminderStateRepository.
+ * <p>
+ * The file is a fixed-width table memory-mapped into the process. Row 0 is a
+ * header holding the magic number {@code RMDS} and the format version; every
+ * other row belongs to one user and holds:
+ * <pre>
+ * offset  0: last reminder day
+ * offset  8: fingerprint of the overdue counts
+ * offset 16: length of the user id in bytes (short)
+ * offset 18: the user id in UTF-8, at most {@value #MAX_ID_BYTES} bytes
+ * </pre>
+ * Rows are keyed by user id, not by the ordinal of a user, because ordinals
+ * are handed out afresh by every process. Users are appended in the order
+ * their first reminder is recorded; opening the file reads the ids once to
+ * rebuild the id-to-row index. After that, reads and writes go straight to
+ * the mapping, so the state survives restarts without any serialization step.
+ * The mapping grows in blocks when the table is full.
+ */
+public class MappedReminderStateRepository implements ReminderStateRepository, Closeable {
+
+    /** Size of one row in bytes. */
+    public static final int ROW_BYTES = 64;
+
+    /** Longest user id that fits in a row, in UTF-8 bytes. */
+    public static final int MAX_ID_BYTES = ROW_BYTES - 18;
+
+    private static final int MAGIC = 0x524D4453; // "RMDS"
+    private static final int VERSION = 2;
+    private static final int ROWS_PER_BLOCK = 4096;
+
+    private final FileChannel channel;
+    private final ObjectIntHashMap<String> index = new ObjectIntHashMap<>();
+    private MappedByteBuffer table;
+    private long rows;
+    private int used;
+
+    /**
+     * Opens (or creates) the state table stored in the given file.
+     *
+     * @param file path of the table file
+     * @throws UncheckedIOException     if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the file is not a reminder state table of this version
+     */
+    public MappedReminderStateRepository(Path file) {
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean empty = channel.size() == 0;
+            if (!empty) {
+                // check before mapping, which would grow a foreign file
+                ByteBuffer header = ByteBuffer.allocate(8);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    channel.close();
+                    throw new IllegalArgumentException(file + " is not a reminder state table (version " + VERSION + ")");
+                }
+            }
+            map(Math.max(ROWS_PER_BLOCK, roundUp(channel.size() / ROW_BYTES)));
+            if (empty) {
+                table.putInt(0, MAGIC);
+                table.putInt(4, VERSION);
+            }
+            readIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open reminder state file " + file, e);
+        }
+    }
+
+    /**
+     * Returns the day of the last reminder for the user.
+     *
+     * @param userId id of the user
+     * @return epoch day, or {@link #NONE}
+     */
+    @Override
+    public long lastReminderDay(String userId) {
+        int row = index.get(userId);
+        return row == 0 ? NONE : table.getLong(offset(row));
+    }
+
+    /**
+     * Returns the fingerprint of the last reminder for the user.
+     *
+     * @param userId id of the user
+     * @return stored fingerprint, or 0
+     */
+    @Override
+    public long lastFingerprint(String userId) {
+        int row = index.get(userId);
+        return row == 0 ? 0L : table.getLong(offset(row) + 8);
+    }
+
+    /**
+     * Writes the reminder state into the user's row, appending a row for a
+     * user seen for the first time.
+     *
+     * @param userId      id of the user
+     * @param epochDay    day the reminder was sent
+     * @param fingerprint fingerprint of the overdue counts
+     * @throws IllegalArgumentException if the id is null or longer than {@link #MAX_ID_BYTES}
+     */
+    @Override
+    public void record(String userId, long epochDay, long fingerprint) {
+        if (userId == null) throw new IllegalArgumentException("user id must not be null");
+
+        int row = index.get(userId);
+        if (row == 0) row = append(userId);
+        int off = offset(row);
+        table.putLong(off, epochDay);
+        table.putLong(off + 8, fingerprint);
+    }
+
+    /**
+     * Flushes the mapping to disk and closes the file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        table.force();
+        channel.close();
+    }
+
+    private int append(String userId) {
+        byte[] id = userId.getBytes(StandardCharsets.UTF_8);
+        if (id.length == 0 || id.length > MAX_ID_BYTES)
+            throw new IllegalArgumentException("user id must have 1 to " + MAX_ID_BYTES + " bytes: " + userId);
+
+        int row = used + 1;
+        if (row >= rows) {
+            try {
+                map(roundUp(row + 1));
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot grow reminder state file", e);
+            }
+        }
+        int off = offset(row);
+        for (int i = 0; i < id.length; i++) {
+            table.put(off + 18 + i, id[i]);
+        }
+        // the length goes last: a row without it is not part of the table
+        table.putShort(off + 16, (short) id.length);
+        index.put(userId, row);
+        used = row;
+        return row;
+    }
+
+    private void readIndex() {
+        byte[] id = new byte[MAX_ID_BYTES];
+        for (int row = 1; row < rows; row++) {
+            int off = offset(row);
+            int length = table.getShort(off + 16);
+            if (length <= 0 || length > MAX_ID_BYTES) break;
+            for (int i = 0; i < length; i++) {
+                id[i] = table.get(off + 18 + i);
+            }
+            index.put(new String(id, 0, length, StandardCharsets.UTF_8), row);
+            used = row;
+        }
+    }
+
+    private void map(long newRows) throws IOException {
+        if (newRows * ROW_BYTES > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("reminder state table too large: " + newRows + " rows");
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, newRows * ROW_BYTES);
+        rows = newRows;
+    }
+
+    private static int offset(long row) {
+        return (int) (row * ROW_BYTES);
+    }
+
+    private static long roundUp(long neededRows) {
+        return ((neededRows + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK) * ROWS_PER_BLOCK;
+    }
+}
@@ -2,6 +2,7 @@ package library.repository;
 
 import library.domain.media.Media;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,17 @@ public interface MediaRepository {
      */
     void save(Media media);
 
+    /**
+     * Saves many media items in one call, e.g. a catalog import.
+     *
+     * @param media the items to store, in order
+     */
+    default void saveAll(Collection<? extends Media> media) {
+        for (Media m : media) {
+            save(m);
+        }
+    }
+
     /**
      * Finds a media item by its id.
      *
@@ -39,4 +51,13 @@ public interface MediaRepository {
      * @return list of all media
      */
     List<Media> findAll();
+
+    /**
+     * Returns the number of stored media items without copying them.
+     *
+     * @return number of stored media items
+     */
+    default long count() {
+        return findAll().size();
+    }
 }
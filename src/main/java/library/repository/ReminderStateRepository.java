@@ -0,0 +1,44 @@
+package library.repository;
+
+/**
+ * Repository interface for the per-user reminder state.
+ * <p>
+ * For every user it keeps the day the last reminder was sent and a fingerprint
+ * of the overdue counts that reminder reported. ReminderService uses this to
+ * skip sending the same reminder again inside its suppression window.
+ * <p>
+ * Rows are keyed by {@link library.domain.User#getId()}, which a persistent
+ * implementation can rely on across restarts (unlike the ordinal, which is
+ * handed out per process). All values are primitives, so lookups do not
+ * allocate.
+ */
+public interface ReminderStateRepository {
+
+    /** Value returned by {@link #lastReminderDay(String)} when no reminder was recorded. */
+    long NONE = -1L;
+
+    /**
+     * Returns the day the last reminder was sent to the user.
+     *
+     * @param userId id of the user
+     * @return epoch day of the last reminder, or {@link #NONE} if there is none
+     */
+    long lastReminderDay(String userId);
+
+    /**
+     * Returns the fingerprint stored with the last reminder.
+     *
+     * @param userId id of the user
+     * @return fingerprint of the last reminder (0 if there is none)
+     */
+    long lastFingerprint(String userId);
+
+    /**
+     * Records that a reminder was sent.
+     *
+     * @param userId      id of the user
+     * @param epochDay    day the reminder was sent
+     * @param fingerprint fingerprint of the overdue counts in the reminder
+     */
+    void record(String userId, long epochDay, long fingerprint);
+}
@@ -40,6 +40,15 @@ public interface UserRepository {
      */
     List<User> findAll();
 
+    /**
+     * Returns the number of stored users without copying them.
+     *
+     * @return number of stored users
+     */
+    default long count() {
+        return findAll().size();
+    }
+
     /**
      * Deletes a user from the repository.
      *
@@ -0,0 +1,176 @@
+package library.scheduling;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.service.LibraryEventListener;
+import library.service.TimeProvider;
+import library.util.ObjectIntHashMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the overdue state of all loans up to date, one day at a time.
+ * <p>
+ * {@link #rollover()} compares {@link TimeProvider#today()} with the last
+ * processed day. When the date changed it advances the {@link LoanScheduler},
+ * whose wheel buckets loans by due date, so only the loans whose due date just
+ * passed are touched. For each of them the incremental state is updated:
+ * <ul>
+ *     <li>the set of overdue loans</li>
+ *     <li>the number of overdue loans per user and in total</li>
+ *     <li>registered {@link Listener}s are notified</li>
+ * </ul>
+ * Returns made through {@link library.service.LibraryService} remove loans from
+ * the overdue state again. Daily work is proportional to the loans due that day,
+ * not to all loans. Not thread-safe.
+ */
+public class DayRollover implements LibraryEventListener, LoanScheduler.Handler {
+
+    /**
+     * Observer for overdue state changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a loan becomes overdue.
+         *
+         * @param loan the loan whose due date just passed
+         */
+        default void onOverdue(Loan loan) { }
+
+        /**
+         * Called when an overdue loan is returned.
+         *
+         * @param loan  the returned loan
+         * @param media the returned media, or null if it no longer exists
+         */
+        default void onOverdueReturned(Loan loan, Media media) { }
+
+        /**
+         * Called after a new day was processed.
+         *
+         * @param day          the new current day
+         * @param newlyOverdue number of loans that became overdue during the rollover
+         */
+        default void onRollover(LocalDate day, int newlyOverdue) { }
+    }
+
+    private final TimeProvider timeProvider;
+    private final LoanScheduler scheduler;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // loanId -> loan, in the order the loans became overdue
+    private final Map<String, Loan> overdueLoans = new LinkedHashMap<>();
+    // userId -> number of overdue loans
+    private final ObjectIntHashMap<String> overdueByUser = new ObjectIntHashMap<>();
+
+    private LocalDate lastDay;
+    private int newlyOverdue;
+
+    /**
+     * Creates a new rollover engine. It must also be registered as a handler
+     * of the scheduler and as a listener of the library service.
+     *
+     * @param timeProvider provider used to get the current date
+     * @param scheduler    scheduler that holds the OVERDUE events of all active loans
+     */
+    public DayRollover(TimeProvider timeProvider, LoanScheduler scheduler) {
+        this.timeProvider = timeProvider;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Registers a listener for overdue state changes.
+     *
+     * @param listener the listener to add
+     */
+    public void registerListener(Listener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Processes the date change, if there was one since the last call.
+     *
+     * @return true if a new day was processed
+     */
+    public boolean rollover() {
+        LocalDate today = timeProvider.today();
+        if (today.equals(lastDay)) return false;
+
+        newlyOverdue = 0;
+        scheduler.advance();
+        lastDay = today;
+
+        for (Listener l : listeners) {
+            l.onRollover(today, newlyOverdue);
+        }
+        return true;
+    }
+
+    /** @return last day processed by {@link #rollover()}, or null if it never ran */
+    public LocalDate getLastDay() { return lastDay; }
+
+    /** @return number of users with overdue loans */
+    public int overdueUserCount() { return overdueByUser.size(); }
+
+    /** @return total number of overdue loans */
+    public int overdueCount() { return overdueLoans.size(); }
+
+    /**
+     * @param userId id of the user
+     * @return number of overdue loans of the user
+     */
+    public int overdueCount(String userId) {
+        return overdueByUser.get(userId);
+    }
+
+    /**
+     * @param loanId id of the loan
+     * @return true if the loan is currently tracked as overdue
+     */
+    public boolean isOverdue(String loanId) {
+        return overdueLoans.containsKey(loanId);
+    }
+
+    /** @return read-only view of the overdue loans */
+    public Collection<Loan> overdueLoans() {
+        return Collections.unmodifiableCollection(overdueLoans.values());
+    }
+
+    @Override
+    public void onLoanEvent(LoanEvent event) {
+        if (event.getType() != LoanEvent.Type.OVERDUE) return;
+
+        Loan loan = event.getLoan();
+        if (loan.isReturned() || overdueLoans.containsKey(loan.getId())) return;
+
+        overdueLoans.put(loan.getId(), loan);
+        overdueByUser.addTo(loan.getUserId(), 1);
+        newlyOverdue++;
+
+        for (Listener l : listeners) {
+            l.onOverdue(loan);
+        }
+    }
+
+    @Override
+    public void onReturn(Loan loan, Media media, int fine) {
+        if (overdueLoans.remove(loan.getId()) == null) return;
+
+        if (overdueByUser.addTo(loan.getUserId(), -1) <= 0) {
+            overdueByUser.remove(loan.getUserId());
+        }
+
+        for (Listener l : listeners) {
+            l.onOverdueReturned(loan, media);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package library.scheduling;
+
+import library.domain.Loan;
+
+/**
+ * A reminder-related event for a single loan, produced by {@link LoanScheduler}.
+ */
+public class LoanEvent {
+
+    /**
+     * Kinds of loan events.
+     */
+    public enum Type {
+        /** The due date is close. */
+        DUE_SOON,
+        /** The due date has passed and the item was not returned. */
+        OVERDUE
+    }
+
+    private final Type type;
+    private final Loan loan;
+
+    /**
+     * Creates a new loan event.
+     *
+     * @param type kind of event
+     * @param loan loan the event belongs to
+     */
+    public LoanEvent(Type type, Loan loan) {
+        this.type = type;
+        this.loan = loan;
+    }
+
+    /** @return kind of event */
+    public Type getType() { return type; }
+
+    /** @return the loan */
+    public Loan getLoan() { return loan; }
+
+    @Override
+    public String toString() {
+        return "LoanEvent[" + type + ", loan=" + loan.getId() + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package library.scheduling;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.service.LibraryEventListener;
+import library.service.TimeProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedules reminder events for loans on a {@link TimingWheel} keyed by epoch day.
+ * <p>
+ * For every active loan two events are registered:
+ * <ul>
+ *     <li>{@link LoanEvent.Type#DUE_SOON} a configurable number of days before the due date</li>
+ *     <li>{@link LoanEvent.Type#OVERDUE} on the first day after the due date</li>
+ * </ul>
+ * Both are cancelled when the loan is returned. {@link #advance()} moves the
+ * wheel to {@link TimeProvider#today()} and hands every expired event to the
+ * registered handlers, so reminder work happens when it is due instead of in
+ * periodic scans over all loans.
+ * <p>
+ * Registered with {@link library.service.LibraryService} as a listener so that
+ * borrow and return keep the schedule up to date. Not thread-safe.
+ */
+public class LoanScheduler implements LibraryEventListener {
+
+    /**
+     * Handler invoked for each fired loan event.
+     */
+    public interface Handler {
+        void onLoanEvent(LoanEvent event);
+    }
+
+    private final TimeProvider timeProvider;
+    private final int dueSoonDays;
+    private final TimingWheel<LoanEvent> wheel;
+    private final Map<String, List<TimingWheel.Timeout<LoanEvent>>> timersByLoan = new HashMap<>();
+    private final List<Handler> handlers = new ArrayList<>();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param timeProvider provider used to get the current date
+     * @param dueSoonDays  how many days before the due date the DUE_SOON event fires
+     *                     (0 disables DUE_SOON events)
+     */
+    public LoanScheduler(TimeProvider timeProvider, int dueSoonDays) {
+        if (dueSoonDays < 0)
+            throw new IllegalArgumentException("dueSoonDays must not be negative");
+        this.timeProvider = timeProvider;
+        this.dueSoonDays = dueSoonDays;
+        this.wheel = new TimingWheel<>(timeProvider.today().toEpochDay());
+    }
+
+    /**
+     * Registers a handler for fired events.
+     *
+     * @param handler the handler to add
+     */
+    public void registerHandler(Handler handler) {
+        if (handler != null) {
+            handlers.add(handler);
+        }
+    }
+
+    /**
+     * Schedules the events of a loan. Returned loans and loans that are
+     * already scheduled are ignored.
+     *
+     * @param loan the loan to schedule
+     */
+    public void schedule(Loan loan) {
+        if (loan.isReturned() || timersByLoan.containsKey(loan.getId())) return;
+
+        long today = timeProvider.today().toEpochDay();
+        long due = loan.getDueDate().toEpochDay();
+        List<TimingWheel.Timeout<LoanEvent>> timers = new ArrayList<>(2);
+
+        if (dueSoonDays > 0 && due - dueSoonDays > today) {
+            timers.add(wheel.schedule(due - dueSoonDays, new LoanEvent(LoanEvent.Type.DUE_SOON, loan)));
+        }
+        timers.add(wheel.schedule(due + 1, new LoanEvent(LoanEvent.Type.OVERDUE, loan)));
+
+        timersByLoan.put(loan.getId(), timers);
+    }
+
+    /**
+     * Schedules a batch of existing loans, e.g. after loading them at start-up.
+     *
+     * @param loans loans to schedule
+     */
+    public void scheduleAll(Collection<Loan> loans) {
+        for (Loan l : loans) {
+            schedule(l);
+        }
+    }
+
+    /**
+     * Cancels all pending events of a loan.
+     *
+     * @param loan the loan
+     * @return number of events cancelled
+     */
+    public int cancel(Loan loan) {
+        List<TimingWheel.Timeout<LoanEvent>> timers = timersByLoan.remove(loan.getId());
+        if (timers == null) return 0;
+
+        int cancelled = 0;
+        for (TimingWheel.Timeout<LoanEvent> t : timers) {
+            if (t.cancel()) cancelled++;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Fires every event that is due up to and including today.
+     *
+     * @return number of events fired
+     */
+    public int advance() {
+        return wheel.advanceTo(timeProvider.today().toEpochDay(), this::dispatch);
+    }
+
+    /** @return number of pending events */
+    public int pendingEvents() {
+        return wheel.size();
+    }
+
+    @Override
+    public void onBorrow(Loan loan, Media media) {
+        schedule(loan);
+    }
+
+    @Override
+    public void onReturn(Loan loan, Media media, int fine) {
+        cancel(loan);
+    }
+
+    private void dispatch(LoanEvent event) {
+        if (event.getType() == LoanEvent.Type.OVERDUE) {
+            // the last event of the loan
+            timersByLoan.remove(event.getLoan().getId());
+        }
+        for (Handler h : handlers) {
+            try {
+                h.onLoanEvent(event);
+            } catch (Exception ex) {
+                // Log to stderr to avoid interrupting other handlers
+                System.err.println("LoanScheduler: handler failed for " + event + " : " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package library.scheduling;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel with a resolution of one tick (one day in this system).
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots each. A timer
+ * is placed in the lowest level whose range covers its distance from the
+ * current tick; when a lower level wraps around, the matching slot of the next
+ * level is cascaded down. This gives:
+ * <ul>
+ *     <li>O(1) {@link #schedule(long, Object)}</li>
+ *     <li>O(1) {@link Timeout#cancel()}</li>
+ *     <li>{@link #advanceTo(long, Consumer)} work proportional to the ticks passed
+ *         plus the timers that expire or cascade, never to all timers</li>
+ * </ul>
+ * This class is not thread-safe.
+ *
+ * @param <T> payload type carried by the timers
+ */
+public class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = 1L << (BITS * LEVELS);
+
+    // heads[level][slot] is the sentinel of a circular doubly linked list
+    private final Timeout<T>[][] heads;
+    // timers that were already due when scheduled
+    private final Timeout<T> ready = new Timeout<>(null, 0, null);
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a wheel whose clock starts at the given tick.
+     *
+     * @param startTick initial value of the clock (e.g. today's epoch day)
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long startTick) {
+        this.currentTick = startTick;
+        this.heads = (Timeout<T>[][]) new Timeout<?>[LEVELS][SLOTS];
+        for (int l = 0; l < LEVELS; l++) {
+            for (int s = 0; s < SLOTS; s++) {
+                heads[l][s] = new Timeout<>(null, 0, null);
+            }
+        }
+    }
+
+    /**
+     * Schedules a timer. Timers at or before the current tick fire on the next
+     * call to {@link #advanceTo(long, Consumer)}.
+     *
+     * @param tick    tick at which the timer expires
+     * @param payload value passed to the sink when the timer fires
+     * @return handle that can be used to cancel the timer
+     */
+    public Timeout<T> schedule(long tick, T payload) {
+        Timeout<T> t = new Timeout<>(this, tick, payload);
+        place(t);
+        size++;
+        return t;
+    }
+
+    /**
+     * Moves the clock forward and passes the payload of every expired timer to the sink.
+     * Timers fire in tick order. Moving backwards is ignored.
+     *
+     * @param tick target tick
+     * @param sink receives the payloads of expired timers
+     * @return number of timers fired
+     */
+    public int advanceTo(long tick, Consumer<? super T> sink) {
+        int fired = drain(ready, sink);
+
+        while (currentTick < tick) {
+            currentTick++;
+            cascade();
+            // cascading can move timers that expire exactly now into the ready list
+            fired += drain(ready, sink);
+            fired += drain(heads[0][(int) (currentTick & MASK)], sink);
+        }
+        return fired;
+    }
+
+    /** @return current value of the clock */
+    public long currentTick() { return currentTick; }
+
+    /** @return number of pending timers */
+    public int size() { return size; }
+
+    private void place(Timeout<T> t) {
+        long delta = t.expiry - currentTick;
+        Timeout<T> head;
+
+        if (delta <= 0) {
+            head = ready;
+        } else {
+            long expiry = delta < MAX_DELTA ? t.expiry : currentTick + MAX_DELTA - 1;
+            int level = 0;
+            while (level < LEVELS - 1 && (expiry - currentTick) >= (1L << (BITS * (level + 1)))) {
+                level++;
+            }
+            head = heads[level][(int) ((expiry >>> (BITS * level)) & MASK)];
+        }
+        t.linkBefore(head);
+    }
+
+    /**
+     * Moves timers from higher levels down when the lower level wrapped around.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (BITS * (level - 1))) & MASK) != 0) return;
+
+            Timeout<T> head = heads[level][(int) ((currentTick >>> (BITS * level)) & MASK)];
+            Timeout<T> t = head.next;
+            while (t != head) {
+                Timeout<T> next = t.next;
+                t.unlink();
+                place(t);
+                t = next;
+            }
+        }
+    }
+
+    private int drain(Timeout<T> head, Consumer<? super T> sink) {
+        int fired = 0;
+        // always take the first node again: the sink may cancel or schedule timers
+        while (head.next != head) {
+            Timeout<T> t = head.next;
+            t.unlink();
+            t.wheel = null;
+            size--;
+            fired++;
+            sink.accept(t.payload);
+        }
+        return fired;
+    }
+
+    /**
+     * Handle for a scheduled timer.
+     *
+     * @param <T> payload type
+     */
+    public static final class Timeout<T> {
+
+        private TimingWheel<T> wheel;
+        private final long expiry;
+        private final T payload;
+        private Timeout<T> prev = this;
+        private Timeout<T> next = this;
+
+        private Timeout(TimingWheel<T> wheel, long expiry, T payload) {
+            this.wheel = wheel;
+            this.expiry = expiry;
+            this.payload = payload;
+        }
+
+        /** @return tick at which the timer expires */
+        public long getExpiry() { return expiry; }
+
+        /** @return payload of the timer */
+        public T getPayload() { return payload; }
+
+        /** @return true while the timer is neither fired nor cancelled */
+        public boolean isPending() { return wheel != null; }
+
+        /**
+         * Cancels the timer.
+         *
+         * @return true if the timer was pending, false if it already fired or was cancelled
+         */
+        public boolean cancel() {
+            if (wheel == null) return false;
+            unlink();
+            wheel.size--;
+            wheel = null;
+            return true;
+        }
+
+        private void linkBefore(Timeout<T> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package library.service;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+
+import java.util.List;
+
+/**
+ * Observer for changes made through {@link LibraryService}.
+ * <p>
+ * Components that keep derived state (schedulers, views, caches) register
+ * themselves with {@link LibraryService#registerListener(LibraryEventListener)}
+ * instead of rescanning the repositories. All methods have empty defaults so
+ * a listener only overrides the events it cares about.
+ */
+public interface LibraryEventListener {
+
+    /**
+     * Called after a loan was created and saved.
+     *
+     * @param loan  the new loan
+     * @param media the borrowed media item
+     */
+    default void onBorrow(Loan loan, Media media) { }
+
+    /**
+     * Called after a loan was marked as returned.
+     *
+     * @param loan  the returned loan
+     * @param media the returned media item, or null if it no longer exists
+     * @param fine  fine added to the user for this return (0 if none)
+     */
+    default void onReturn(Loan loan, Media media, int fine) { }
+
+    /**
+     * Called after a fine was added to a user for an overdue return, before
+     * {@link #onReturn(Loan, Media, int)}.
+     *
+     * @param user   the user that was fined
+     * @param loan   the returned loan
+     * @param amount the fine added
+     */
+    default void onFineAdded(User user, Loan loan, int amount) { }
+
+    /**
+     * Called after the fines of several loans returned in one batch were added
+     * to a user as one amount, before the {@link #onReturn(Loan, Media, int)}
+     * calls of those loans. By default each fine is passed to
+     * {@link #onFineAdded(User, Loan, int)}.
+     *
+     * @param user  the user that was fined
+     * @param loans the returned loans that were fined
+     * @param fines fine of each loan, in the same order
+     */
+    default void onFinesAdded(User user, List<Loan> loans, int[] fines) {
+        for (int i = 0; i < loans.size(); i++) {
+            onFineAdded(user, loans.get(i), fines[i]);
+        }
+    }
+
+    /**
+     * Called after a user paid (part of) their fine.
+     *
+     * @param user   the paying user
+     * @param amount amount that was applied to the fine (greater than 0)
+     */
+    default void onFinePaid(User user, int amount) { }
+}
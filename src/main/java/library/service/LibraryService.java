@@ -5,27 +5,63 @@ import library.domain.Loan;
 import library.domain.media.Book;
 import library.domain.media.CD;
 import library.domain.media.Media;
+import library.dto.BatchResult;
 import library.exception.BusinessRuleException;
 import library.exception.ResourceNotFoundException;
+import library.metrics.LibraryMetrics;
+import library.report.BorrowedMediaFormatter;
+import library.report.LoanJoin;
+import library.report.ParallelReports;
+import library.report.ReportCache;
+import library.report.ReportSink;
 import library.repository.*;
+import library.strategy.MediaPolicyTable;
+import library.util.IdempotencyCache;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Main service class for the library.
  * Handles users, media, loans, fines, and basic reporting.
+ * Borrows, returns and searches are emitted as {@link ServiceEvents}, which
+ * are flight recorder events when {@code jdk.jfr} is available.
  */
 public class LibraryService {
 
+    private static final ServiceEvents EVENTS = ServiceEvents.detect();
+
+    // request ids remembered at once: a few hundred kiosks retrying within the time to live fit easily
+    private static final int REQUEST_CACHE_CAPACITY = 100_000;
+    private static final Duration REQUEST_TTL = Duration.ofMinutes(15);
+    // longest borrowed media report kept in the report cache
+    private static final int MAX_CACHED_REPORT_LINES = 10_000;
+
     private final UserRepository userRepo;
     private final MediaRepository mediaRepo;
     private final LoanRepository loanRepo;
     private final ReminderService reminderService;
     private final TimeProvider timeProvider;
-    private final library.strategy.FineStrategy bookFine;
-    private final library.strategy.FineStrategy cdFine;
+    private final MediaPolicyTable policies;
     private final AuthService authService;
+    private final List<LibraryEventListener> listeners = new ArrayList<>();
+    // results of borrow and payFine calls by request id, so client retries are not applied twice
+    private final IdempotencyCache<RequestOutcome> requests =
+            new IdempotencyCache<>(REQUEST_CACHE_CAPACITY, REQUEST_TTL);
+    private ReportCache reportCache;
+    private ParallelReports parallelReports;
+    private LibraryMetrics metrics = LibraryMetrics.DISABLED;
 
     /**
      * Creates a new LibraryService with all required dependencies.
@@ -43,16 +79,78 @@ public class LibraryService {
                           ReminderService reminderService, TimeProvider timeProvider,
                           library.strategy.FineStrategy bookFine, library.strategy.FineStrategy cdFine,
                           AuthService authService) {
+        this(userRepo, mediaRepo, loanRepo, reminderService, timeProvider,
+                MediaPolicyTable.standard(bookFine, cdFine), authService);
+    }
+
+    /**
+     * Creates a new LibraryService whose loan periods and fines come from a
+     * policy table.
+     *
+     * @param userRepo        repository for users
+     * @param mediaRepo       repository for media (books, CDs)
+     * @param loanRepo        repository for loans
+     * @param reminderService reminder service used for overdue notifications
+     * @param timeProvider    provider for current date
+     * @param policies        loan period and fine strategy per media type
+     * @param authService     auth service for admin checks
+     */
+    public LibraryService(UserRepository userRepo, MediaRepository mediaRepo, LoanRepository loanRepo,
+                          ReminderService reminderService, TimeProvider timeProvider,
+                          MediaPolicyTable policies, AuthService authService) {
         this.userRepo = userRepo;
         this.mediaRepo = mediaRepo;
         this.loanRepo = loanRepo;
         this.reminderService = reminderService;
         this.timeProvider = timeProvider;
-        this.bookFine = bookFine;
-        this.cdFine = cdFine;
+        this.policies = policies;
         this.authService = authService;
     }
 
+    /**
+     * Registers a listener that is informed about borrows, returns and fine payments.
+     *
+     * @param listener the listener to add
+     */
+    public void registerListener(LibraryEventListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Serves the borrowed media report from a cache, so repeated views on the
+     * same day only replay the stored lines. The cache is registered as a
+     * listener and is invalidated by borrows, returns and fine payments.
+     *
+     * @param reportCache the cache to use, or null to build the report every time
+     */
+    public void useReportCache(ReportCache reportCache) {
+        this.reportCache = reportCache;
+        registerListener(reportCache);
+    }
+
+    /**
+     * Formats the borrowed media report on a fork-join pool instead of the
+     * calling thread. The lines still reach the sink in loan order, on the
+     * calling thread, and are the same as those of the sequential report.
+     *
+     * @param parallelReports the parallel reports to use, or null to format on the calling thread
+     */
+    public void useParallelReports(ParallelReports parallelReports) {
+        this.parallelReports = parallelReports;
+    }
+
+    /**
+     * Records the latency of borrow, return, payment, unregister and search
+     * calls in the given metrics.
+     *
+     * @param metrics the metrics to record in, or null to stop recording
+     */
+    public void useMetrics(LibraryMetrics metrics) {
+        this.metrics = metrics == null ? LibraryMetrics.DISABLED : metrics;
+    }
+
     /**
      * Registers a new user in the system.
      *
@@ -72,10 +170,12 @@ public class LibraryService {
      * @param title  book title
      * @param author author name
      * @param isbn   book ISBN
+     * @return the created book
      */
-    public void addBook(String title, String author, String isbn) {
+    public Book addBook(String title, String author, String isbn) {
         Book b = new Book(title, author, isbn);
         mediaRepo.save(b);
+        return b;
     }
 
     /**
@@ -83,10 +183,22 @@ public class LibraryService {
      *
      * @param title  CD title
      * @param artist CD artist or band
+     * @return the created CD
      */
-    public void addCD(String title, String artist) {
+    public CD addCD(String title, String artist) {
         CD cd = new CD(title, artist);
         mediaRepo.save(cd);
+        return cd;
+    }
+
+    /**
+     * Adds many media items at once, e.g. from a catalog import. The
+     * repository stores them in one bulk write.
+     *
+     * @param media the items to add, in order
+     */
+    public void addMedia(Collection<? extends Media> media) {
+        mediaRepo.saveAll(media);
     }
 
     /**
@@ -96,7 +208,18 @@ public class LibraryService {
      * @return list of matching media
      */
     public List<Media> search(String q) {
-        return mediaRepo.search(q == null ? "" : q);
+        ServiceEvents.Search event = EVENTS.beginSearch();
+        long start = metrics.search().start();
+        try {
+            List<Media> result = mediaRepo.search(q == null ? "" : q);
+            metrics.search().stop(start);
+            event.complete(ServiceEvents.Search.ANY, q, result.size());
+            return result;
+        } catch (RuntimeException e) {
+            metrics.search().fail(start);
+            event.complete(ServiceEvents.Search.ANY, q, -1);
+            throw e;
+        }
     }
 
     /**
@@ -106,6 +229,21 @@ public class LibraryService {
      * @return list of media with matching titles
      */
     public List<Media> searchByTitle(String title) {
+        ServiceEvents.Search event = EVENTS.beginSearch();
+        long start = metrics.searchByTitle().start();
+        try {
+            List<Media> result = matchByTitle(title);
+            metrics.searchByTitle().stop(start);
+            event.complete(ServiceEvents.Search.TITLE, title, result.size());
+            return result;
+        } catch (RuntimeException e) {
+            metrics.searchByTitle().fail(start);
+            event.complete(ServiceEvents.Search.TITLE, title, -1);
+            throw e;
+        }
+    }
+
+    private List<Media> matchByTitle(String title) {
         String q = title == null ? "" : title.toLowerCase();
         return mediaRepo.findAll().stream()
                 .filter(m -> m.getTitle() != null
@@ -120,6 +258,21 @@ public class LibraryService {
      * @return list of matching media
      */
     public List<Media> searchByAuthor(String author) {
+        ServiceEvents.Search event = EVENTS.beginSearch();
+        long start = metrics.searchByAuthor().start();
+        try {
+            List<Media> result = matchByAuthor(author);
+            metrics.searchByAuthor().stop(start);
+            event.complete(ServiceEvents.Search.AUTHOR, author, result.size());
+            return result;
+        } catch (RuntimeException e) {
+            metrics.searchByAuthor().fail(start);
+            event.complete(ServiceEvents.Search.AUTHOR, author, -1);
+            throw e;
+        }
+    }
+
+    private List<Media> matchByAuthor(String author) {
         String q = author == null ? "" : author.toLowerCase();
         return mediaRepo.findAll().stream()
                 .filter(m -> {
@@ -142,6 +295,21 @@ public class LibraryService {
      * @return list of books with that ISBN, or empty list
      */
     public List<Media> searchByIsbn(String isbn) {
+        ServiceEvents.Search event = EVENTS.beginSearch();
+        long start = metrics.searchByIsbn().start();
+        try {
+            List<Media> result = matchByIsbn(isbn);
+            metrics.searchByIsbn().stop(start);
+            event.complete(ServiceEvents.Search.ISBN, isbn, result.size());
+            return result;
+        } catch (RuntimeException e) {
+            metrics.searchByIsbn().fail(start);
+            event.complete(ServiceEvents.Search.ISBN, isbn, -1);
+            throw e;
+        }
+    }
+
+    private List<Media> matchByIsbn(String isbn) {
         if (isbn == null) return java.util.Collections.emptyList();
         String target = isbn.trim().toLowerCase();
         return mediaRepo.findAll().stream()
@@ -162,41 +330,148 @@ public class LibraryService {
      *
      * @param userId  id of the user
      * @param mediaId id of the media item
+     * @return the created loan
      * @throws ResourceNotFoundException if user or media is not found
      * @throws BusinessRuleException     if rules are violated (fine, overdue, not available)
      */
-    public void borrow(String userId, String mediaId) {
+    public Loan borrow(String userId, String mediaId) {
+        ServiceEvents.Borrow event = EVENTS.beginBorrow();
+        long start = metrics.borrow().start();
+        try {
+            Loan result = borrowMedia(userId, mediaId);
+            metrics.borrow().stop(start);
+            event.complete(userId, mediaId, result.getId(), null);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.borrow().fail(start);
+            event.complete(userId, mediaId, null, e.getMessage());
+            throw e;
+        }
+    }
+
+    private Loan borrowMedia(String userId, String mediaId) {
         User user = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("user not found"));
         Media media = mediaRepo.findById(mediaId)
                 .orElseThrow(() -> new ResourceNotFoundException("media not found"));
 
+        LocalDate now = timeProvider.today();
+        checkBorrower(user, now);
+
+        if (!media.isAvailable())
+            throw new BusinessRuleException("Media not available");
+
+        LocalDate due = now.plusDays(policies.policyFor(media).getLoanDays());
+
+        Loan loan = new Loan(userId, media.getId(), now, due);
+        loanRepo.save(loan);
+        media.setAvailable(false);
+
+        for (LibraryEventListener l : listeners) {
+            l.onBorrow(loan, media);
+        }
+        return loan;
+    }
+
+    /**
+     * Checks that a user may borrow: no outstanding fines and no overdue loans.
+     */
+    private void checkBorrower(User user, LocalDate today) {
         if (user.getOutstandingFine() > 0)
             throw new BusinessRuleException("User has outstanding fines");
 
-        List<Loan> userLoans = loanRepo.findByUserId(userId);
-        for (Loan l : userLoans) {
-            if (l.isOverdue(timeProvider.today()))
+        for (Loan l : loanRepo.findByUserId(user.getId())) {
+            if (l.isOverdue(today))
                 throw new BusinessRuleException("User has overdue loans");
         }
+    }
 
-        if (!media.isAvailable())
-            throw new BusinessRuleException("Media not available");
+    /**
+     * Borrows a media item once per request id. A retry with the same request
+     * id returns the loan created by the first call instead of failing with
+     * "Media not available". A request that failed is not remembered and can
+     * be retried.
+     *
+     * @param requestId id chosen by the client, unique per borrow request
+     * @param userId    id of the user
+     * @param mediaId   id of the media item
+     * @return the loan created for this request
+     * @throws ResourceNotFoundException if user or media is not found
+     * @throws BusinessRuleException     if rules are violated, the request id was
+     *                                   already used for a different request, or too
+     *                                   many requests are in progress to remember this one
+     */
+    public Loan borrow(String requestId, String userId, String mediaId) {
+        return (Loan) idempotent("borrow:" + requestId, userId + '|' + mediaId,
+                () -> borrow(userId, mediaId));
+    }
+
+    /**
+     * Borrows several media items for one user. The user and the fine and
+     * overdue rules are checked once for the whole batch; availability is
+     * checked per item. The new loans are saved in one repository write.
+     * <p>
+     * Items fail independently: a missing or unavailable item fails only
+     * itself, while a missing user or a violated user rule fails every item
+     * with the same exception.
+     *
+     * @param userId   id of the user
+     * @param mediaIds ids of the media items, in request order
+     * @return one result per media id, in request order
+     */
+    public BatchResult borrowAll(String userId, List<String> mediaIds) {
+        long start = metrics.borrowAll().start();
+        try {
+            BatchResult result = borrowBatch(userId, mediaIds);
+            metrics.borrowAll().stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.borrowAll().fail(start);
+            throw e;
+        }
+    }
 
+    private BatchResult borrowBatch(String userId, List<String> mediaIds) {
+        List<BatchResult.Item> items = new ArrayList<>(mediaIds.size());
         LocalDate now = timeProvider.today();
-        LocalDate due;
+        try {
+            User user = userRepo.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("user not found"));
+            checkBorrower(user, now);
+        } catch (RuntimeException e) {
+            for (String mediaId : mediaIds) {
+                items.add(new BatchResult.Item(mediaId, null, 0, e));
+            }
+            return new BatchResult(items);
+        }
 
-        if ("BOOK".equals(media.getMediaType())) {
-            due = now.plusDays(28);
-        } else if ("CD".equals(media.getMediaType())) {
-            due = now.plusDays(7);
-        } else {
-            due = now.plusDays(28);
+        List<Loan> loans = new ArrayList<>(mediaIds.size());
+        List<Media> borrowed = new ArrayList<>(mediaIds.size());
+        for (String mediaId : mediaIds) {
+            Media media = mediaRepo.findById(mediaId).orElse(null);
+            if (media == null) {
+                items.add(new BatchResult.Item(mediaId, null, 0, new ResourceNotFoundException("media not found")));
+                continue;
+            }
+            // also catches the same item listed twice, since it was marked borrowed above
+            if (!media.isAvailable()) {
+                items.add(new BatchResult.Item(mediaId, null, 0, new BusinessRuleException("Media not available")));
+                continue;
+            }
+            Loan loan = new Loan(userId, media.getId(), now, now.plusDays(policies.policyFor(media).getLoanDays()));
+            media.setAvailable(false);
+            loans.add(loan);
+            borrowed.add(media);
+            items.add(new BatchResult.Item(mediaId, loan, 0, null));
         }
 
-        Loan loan = new Loan(userId, media.getId(), now, due);
-        loanRepo.save(loan);
-        media.setAvailable(false);
+        loanRepo.saveAll(loans);
+        for (int i = 0; i < loans.size(); i++) {
+            for (LibraryEventListener l : listeners) {
+                l.onBorrow(loans.get(i), borrowed.get(i));
+            }
+        }
+        return new BatchResult(items);
     }
 
     /**
@@ -212,6 +487,20 @@ public class LibraryService {
      * @throws BusinessRuleException     if the loan was already returned
      */
     public void returnMedia(String loanId) {
+        ServiceEvents.Return event = EVENTS.beginReturn();
+        long start = metrics.returnMedia().start();
+        try {
+            returnLoan(loanId);
+            metrics.returnMedia().stop(start);
+            event.complete(loanId, null);
+        } catch (RuntimeException e) {
+            metrics.returnMedia().fail(start);
+            event.complete(loanId, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void returnLoan(String loanId) {
         Loan loan = loanRepo.findById(loanId)
                 .orElseThrow(() -> new ResourceNotFoundException("loan not found"));
 
@@ -232,35 +521,170 @@ public class LibraryService {
             media.setAvailable(true);
 
         // If overdue → apply fine
+        int fine = 0;
         if (overdueDays > 0) {
-            int fine = 0;
-
-            if (media != null) {
-                if ("BOOK".equals(media.getMediaType()))
-                    fine = bookFine.calculateFine(overdueDays);
-                else if ("CD".equals(media.getMediaType()))
-                    fine = cdFine.calculateFine(overdueDays);
-            }
+            fine = policies.policyFor(media).fine(overdueDays);
 
             if (fine > 0) {
                 User user = userRepo.findById(loan.getUserId()).orElse(null);
-                if (user != null)
+                if (user != null) {
                     user.addFine(fine);
+                    for (LibraryEventListener l : listeners) {
+                        l.onFineAdded(user, loan, fine);
+                    }
+                }
+            }
+        }
+
+        for (LibraryEventListener l : listeners) {
+            l.onReturn(loan, media, fine);
+        }
+    }
+
+    /**
+     * Returns several loans. Each loan is handled like {@link #returnMedia},
+     * but the fines are added up per user: each user's fine is updated once and
+     * listeners get one {@link LibraryEventListener#onFinesAdded} call per user.
+     * Items fail independently.
+     *
+     * @param loanIds ids of the loans, in request order
+     * @return one result per loan id, in request order, with the fine charged for each
+     */
+    public BatchResult returnAll(List<String> loanIds) {
+        long start = metrics.returnAll().start();
+        try {
+            BatchResult result = returnBatch(loanIds);
+            metrics.returnAll().stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.returnAll().fail(start);
+            throw e;
+        }
+    }
+
+    private BatchResult returnBatch(List<String> loanIds) {
+        List<BatchResult.Item> items = new ArrayList<>(loanIds.size());
+        List<Loan> returned = new ArrayList<>(loanIds.size());
+        List<Media> released = new ArrayList<>(loanIds.size());
+        int[] fines = new int[loanIds.size()];
+        // fined loans per user, in the order the users first appear
+        Map<String, FinedLoans> fined = new LinkedHashMap<>();
+        LocalDate today = timeProvider.today();
+
+        for (String loanId : loanIds) {
+            Loan loan = loanRepo.findById(loanId).orElse(null);
+            if (loan == null) {
+                items.add(new BatchResult.Item(loanId, null, 0, new ResourceNotFoundException("loan not found")));
+                continue;
+            }
+            if (loan.isReturned()) {
+                items.add(new BatchResult.Item(loanId, null, 0, new BusinessRuleException("Already returned")));
+                continue;
+            }
+
+            int overdueDays = loan.overdueDays(today);
+            loan.setReturnedDate(today);
+            Media media = mediaRepo.findById(loan.getMediaId()).orElse(null);
+            if (media != null)
+                media.setAvailable(true);
+
+            int fine = overdueDays > 0 ? policies.policyFor(media).fine(overdueDays) : 0;
+            if (fine > 0)
+                fined.computeIfAbsent(loan.getUserId(), k -> new FinedLoans()).add(loan, fine);
+
+            fines[returned.size()] = fine;
+            returned.add(loan);
+            released.add(media);
+            items.add(new BatchResult.Item(loanId, loan, fine, null));
+        }
+
+        for (Map.Entry<String, FinedLoans> e : fined.entrySet()) {
+            User user = userRepo.findById(e.getKey()).orElse(null);
+            if (user == null) continue;
+            FinedLoans f = e.getValue();
+            user.addFine(f.total);
+            for (LibraryEventListener l : listeners) {
+                l.onFinesAdded(user, f.loans, f.fines());
+            }
+        }
+        for (int i = 0; i < returned.size(); i++) {
+            for (LibraryEventListener l : listeners) {
+                l.onReturn(returned.get(i), released.get(i), fines[i]);
             }
         }
+        return new BatchResult(items);
     }
 
     /**
-     * Applies a payment to a user's outstanding fine.
+     * Applies a payment to a user's outstanding fine. Listeners are told the
+     * amount that was actually applied, which is less than {@code amount}
+     * when the user owes less.
      *
      * @param userId id of the user
      * @param amount amount to pay
+     * @return the amount applied to the fine
      * @throws ResourceNotFoundException if user is not found
      */
-    public void payFine(String userId, int amount) {
+    public int payFine(String userId, int amount) {
+        long start = metrics.payFine().start();
+        try {
+            int result = applyPayment(userId, amount);
+            metrics.payFine().stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.payFine().fail(start);
+            throw e;
+        }
+    }
+
+    private int applyPayment(String userId, int amount) {
         User u = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("user not found"));
-        u.payFine(amount);
+        int paid = u.payFine(amount);
+        if (paid <= 0) return 0;
+
+        for (LibraryEventListener l : listeners) {
+            l.onFinePaid(u, paid);
+        }
+        return paid;
+    }
+
+    /**
+     * Applies a payment once per request id. A retry with the same request id
+     * returns the amount applied by the first call and does not credit the
+     * user again.
+     *
+     * @param requestId id chosen by the client, unique per payment
+     * @param userId    id of the user
+     * @param amount    amount to pay
+     * @return the amount applied to the fine by this request
+     * @throws ResourceNotFoundException if user is not found
+     * @throws BusinessRuleException     if the request id was already used for a different request,
+     *                                   or too many requests are in progress to remember this one
+     */
+    public int payFine(String requestId, String userId, int amount) {
+        return (Integer) idempotent("payFine:" + requestId, userId + '|' + amount,
+                () -> payFine(userId, amount));
+    }
+
+    /**
+     * Runs an operation at most once per key within the request cache's time
+     * to live, checking that a retry carries the same arguments. When the
+     * cache is full the request is refused without running, rather than
+     * forgetting a live request id whose retry would then run twice.
+     */
+    private Object idempotent(String key, String arguments, Supplier<Object> operation) {
+        if (key == null) throw new IllegalArgumentException("request id must not be null");
+
+        RequestOutcome outcome;
+        try {
+            outcome = requests.computeIfAbsent(key, () -> new RequestOutcome(arguments, operation.get()));
+        } catch (IdempotencyCache.FullException e) {
+            throw new BusinessRuleException("Too many requests in progress, try again later");
+        }
+        if (!outcome.arguments.equals(arguments))
+            throw new BusinessRuleException("Request id already used for a different request");
+        return outcome.result;
     }
 
     /**
@@ -277,6 +701,17 @@ public class LibraryService {
      * @throws BusinessRuleException     if user has active loans or unpaid fines
      */
     public void unregisterUser(String adminUser, String userId) {
+        long start = metrics.unregisterUser().start();
+        try {
+            removeUser(userId);
+            metrics.unregisterUser().stop(start);
+        } catch (RuntimeException e) {
+            metrics.unregisterUser().fail(start);
+            throw e;
+        }
+    }
+
+    private void removeUser(String userId) {
         authService.requireAdmin();
 
         User u = userRepo.findById(userId)
@@ -315,57 +750,180 @@ public class LibraryService {
      * Builds a simple text-based report of all active (not returned) loans.
      * Each line contains loan id, media, user, due date, status, and fine estimate.
      * The last line shows the total fine across all active overdue loans.
+     * <p>
+     * Holds the whole report in memory; use {@link #streamBorrowedMediaReport(ReportSink)}
+     * or {@link #writeBorrowedMediaReport(Writer)} for large numbers of loans.
      *
      * @return list of report lines
      */
     public List<String> getBorrowedMediaReport() {
-        LocalDate today = timeProvider.today();
-        List<String> report = new java.util.ArrayList<>();
-        int totalFine = 0;
-
-        for (Loan loan : loanRepo.findAll()) {
-            if (loan.isReturned()) continue;
+        List<String> report = new ArrayList<>();
+        streamBorrowedMediaReport(line -> report.add(line.toString()));
+        return report;
+    }
 
-            String loanId = loan.getId();
-            String uid = loan.getUserId();
-            String mid = loan.getMediaId();
+    /**
+     * Streams the borrowed media report line by line to a sink.
+     * <p>
+     * Lines have the same content as {@link #getBorrowedMediaReport()}. Each line
+     * is passed on as soon as it is formatted, in a single reused buffer, so memory
+     * use does not grow with the number of active loans. Users and media are
+     * resolved by id through a {@link LoanJoin}. With {@link ParallelReports}
+     * set, the lines are formatted on its pool a few partitions ahead of the
+     * sink, which keeps the memory use bounded as well. When a
+     * {@link ReportCache} is set and holds today's report, its lines are
+     * replayed instead. On a miss the lines are still streamed as they are
+     * formatted; a copy is kept for the cache only while the report has at most
+     * 10,000 lines, so larger reports are never held in memory.
+     *
+     * @param sink receives the report lines
+     * @return total fine across all active overdue loans
+     */
+    public int streamBorrowedMediaReport(ReportSink sink) {
+        if (reportCache == null) return formatBorrowedMediaReport(sink);
 
-            User user = userRepo.findById(uid).orElse(null);
-            Media media = mediaRepo.findById(mid).orElse(null);
+        CachedReport cached = reportCache.peek(ReportCache.BORROWED_MEDIA);
+        if (cached != null) {
+            for (String line : cached.lines) {
+                sink.line(line);
+            }
+            return cached.totalFine;
+        }
+        CachingSink tee = new CachingSink(sink);
+        int totalFine = formatBorrowedMediaReport(tee);
+        if (tee.lines != null) reportCache.put(ReportCache.BORROWED_MEDIA, new CachedReport(tee.lines, totalFine));
+        return totalFine;
+    }
 
-            String userPart = user != null ? user.getId() + " (" + user.getEmail() + ")" : uid;
-            String mediaPart = media != null ? media.getId() + " - " + media.getTitle() : mid;
+    private int formatBorrowedMediaReport(ReportSink sink) {
+        if (parallelReports != null) return parallelReports.streamBorrowedMediaReport(sink);
 
-            String status;
-            int fine = 0;
+        BorrowedMediaFormatter formatter = new BorrowedMediaFormatter(
+                timeProvider.today(), new LoanJoin(userRepo, mediaRepo), policies);
+        BorrowedMediaLines lines = new BorrowedMediaLines(formatter, sink);
+        loanRepo.forEach(lines);
 
-            if (loan.isOverdue(today)) {
-                int days = loan.overdueDays(today);
-                status = "OVERDUE by " + days + " day(s)";
+        StringBuilder sb = lines.sb;
+        sb.setLength(0);
+        BorrowedMediaFormatter.formatTotal(lines.totalFine, sb);
+        sink.line(sb);
+        return lines.totalFine;
+    }
 
-                if (media != null) {
-                    if ("BOOK".equals(media.getMediaType()))
-                        fine = bookFine.calculateFine(days);
-                    else if ("CD".equals(media.getMediaType()))
-                        fine = cdFine.calculateFine(days);
+    /**
+     * Writes the borrowed media report to a writer, one line per loan plus the
+     * total line, each terminated by {@code '\n'}. The writer is flushed at the end
+     * but not closed.
+     *
+     * @param out destination of the report
+     * @throws IOException if writing fails
+     */
+    public void writeBorrowedMediaReport(Writer out) throws IOException {
+        try {
+            streamBorrowedMediaReport(line -> {
+                try {
+                    out.append(line).append('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            } else {
-                long daysLeft = java.time.temporal.ChronoUnit.DAYS.between(today, loan.getDueDate());
-                status = "DUE in " + daysLeft + " day(s)";
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Loans of one user that were fined in a batch return.
+     */
+    private static final class FinedLoans {
+        private final List<Loan> loans = new ArrayList<>();
+        private int[] fines = new int[4];
+        private int total;
+
+        void add(Loan loan, int fine) {
+            if (loans.size() == fines.length) fines = Arrays.copyOf(fines, fines.length * 2);
+            fines[loans.size()] = fine;
+            loans.add(loan);
+            total += fine;
+        }
+
+        int[] fines() {
+            return Arrays.copyOf(fines, loans.size());
+        }
+    }
+
+    /**
+     * Result of an idempotent request together with the arguments it was made with.
+     */
+    private static final class RequestOutcome {
+        final String arguments;
+        final Object result;
+
+        RequestOutcome(String arguments, Object result) {
+            this.arguments = arguments;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Passes report lines on and keeps a copy until there are too many to cache.
+     */
+    private static final class CachingSink implements ReportSink {
+
+        private final ReportSink sink;
+        // null once the report is too large to cache
+        private List<String> lines = new ArrayList<>();
+
+        CachingSink(ReportSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void line(CharSequence line) {
+            if (lines != null) {
+                if (lines.size() < MAX_CACHED_REPORT_LINES) lines.add(line.toString());
+                else lines = null;
             }
+            sink.line(line);
+        }
+    }
 
-            totalFine += fine;
-            String finePart = fine > 0 ? " | fine=" + fine : "";
+    /**
+     * Borrowed media report lines kept in the {@link ReportCache}.
+     */
+    private static final class CachedReport {
+        final List<String> lines;
+        final int totalFine;
 
-            String line = String.format(
-                    "%s | %s | %s | due=%s | %s%s",
-                    loanId, mediaPart, userPart, loan.getDueDate(), status, finePart
-            );
+        CachedReport(List<String> lines, int totalFine) {
+            this.lines = lines;
+            this.totalFine = totalFine;
+        }
+    }
 
-            report.add(line);
+    /**
+     * Formats one report line per active loan into a reused buffer.
+     */
+    private static final class BorrowedMediaLines implements Consumer<Loan> {
+
+        private final BorrowedMediaFormatter formatter;
+        private final ReportSink sink;
+        private final StringBuilder sb = new StringBuilder(128);
+        private int totalFine;
+
+        BorrowedMediaLines(BorrowedMediaFormatter formatter, ReportSink sink) {
+            this.formatter = formatter;
+            this.sink = sink;
         }
 
-        report.add("TOTAL OUTSTANDING FINE (for active loans): " + totalFine);
-        return report;
+        @Override
+        public void accept(Loan loan) {
+            if (loan.isReturned()) return;
+
+            sb.setLength(0);
+            totalFine += formatter.format(loan, sb);
+            sink.line(sb);
+        }
     }
 }
@@ -0,0 +1,23 @@
+package library.service;
+
+/**
+ * {@link ServiceEvents} that record nothing; every begin returns the same
+ * object, so no event is allocated.
+ */
+final class NoServiceEvents implements ServiceEvents, ServiceEvents.Borrow, ServiceEvents.Return,
+        ServiceEvents.Search, ServiceEvents.ReminderRun, ServiceEvents.Notification {
+
+    @Override public Borrow beginBorrow() { return this; }
+    @Override public Return beginReturn() { return this; }
+    @Override public Search beginSearch() { return this; }
+    @Override public ReminderRun beginReminderRun() { return this; }
+    @Override public Notification beginNotification() { return this; }
+
+    @Override public void complete(String userId, String mediaId, String loanId, String failure) { }
+    @Override public void complete(String loanId, String failure) { }
+    @Override public void complete(String kind, String query, int results) { }
+    @Override public void setOverdueLoans(int overdueLoans) { }
+    @Override public void setUsersReminded(int usersReminded) { }
+    @Override public void complete() { }
+    @Override public void complete(String userId, Class<?> notifier, int messageLength, boolean failed) { }
+}
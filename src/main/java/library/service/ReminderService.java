@@ -4,9 +4,21 @@ import library.domain.Loan;
 import library.domain.User;
 import library.domain.media.Media;
 import library.dto.OverdueReport;
+import library.metrics.LibraryMetrics;
 import library.repository.LoanRepository;
 import library.repository.MediaRepository;
+import library.repository.ReminderStateRepository;
 import library.repository.UserRepository;
+import library.report.JoinedLoan;
+import library.report.LoanJoin;
+import library.report.OverdueView;
+import library.report.ParallelReports;
+import library.scheduling.LoanEvent;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.MediaPolicyTable;
+import library.strategy.ReminderCategory;
+import library.util.ObjectIntHashMap;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -26,10 +38,16 @@ import java.util.stream.Collectors;
  * <ul>
  *     <li>Each user gets a single message.</li>
  *     <li>Message format: {@code "You have X overdue book(s) and Y overdue CD(s)."}</li>
+ *     <li>If a {@link ReminderStateRepository} is configured, a user who already got
+ *         a reminder with the same counts inside the suppression window is skipped.
+ *         A reminder that no notifier delivered is not recorded, so the next run
+ *         tries again.</li>
  * </ul>
  */
 public class ReminderService {
 
+    private static final ServiceEvents EVENTS = ServiceEvents.detect();
+
     /**
      * Notifier: functional interface used to perform notification for a user.
      * Implementations decide how to deliver (email, log, etc).
@@ -40,14 +58,44 @@ public class ReminderService {
 
     private final List<Notifier> notifiers = new ArrayList<>();
     private final TimeProvider timeProvider;
+    private final ReminderStateRepository reminderState;
+    private final int suppressWindowDays;
+    private OverdueView overdueView;
+    // full-scan overdue report on a fork-join pool, used when buildReport is called with these sources
+    private ParallelReports parallelReports;
+    private LoanRepository parallelLoans;
+    private UserRepository parallelUsers;
+    private MediaRepository parallelMedia;
+    private LibraryMetrics metrics = LibraryMetrics.DISABLED;
+    private MediaPolicyTable policies =
+            MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy());
 
     /**
-     * Creates a new ReminderService.
+     * Creates a new ReminderService without reminder deduplication.
      *
      * @param timeProvider provider used to get the current date
      */
     public ReminderService(TimeProvider timeProvider) {
+        this(timeProvider, null, 0);
+    }
+
+    /**
+     * Creates a new ReminderService that suppresses duplicate reminders.
+     * <p>
+     * A reminder is skipped when the user already received one with the same
+     * overdue counts less than {@code suppressWindowDays} days ago.
+     *
+     * @param timeProvider       provider used to get the current date
+     * @param reminderState      store for the last reminder per user (null disables deduplication)
+     * @param suppressWindowDays length of the suppression window in days
+     */
+    public ReminderService(TimeProvider timeProvider, ReminderStateRepository reminderState,
+                           int suppressWindowDays) {
+        if (suppressWindowDays < 0)
+            throw new IllegalArgumentException("suppressWindowDays must not be negative");
         this.timeProvider = timeProvider;
+        this.reminderState = reminderState;
+        this.suppressWindowDays = suppressWindowDays;
     }
 
     /**
@@ -66,6 +114,57 @@ public class ReminderService {
         }
     }
 
+    /**
+     * Sets the incrementally maintained view that {@link #overdueReport()}
+     * reads instead of scanning all loans.
+     *
+     * @param overdueView the view to use, or null for none
+     */
+    public void useOverdueView(OverdueView overdueView) {
+        this.overdueView = overdueView;
+    }
+
+    /**
+     * Builds the overdue report on a fork-join pool when {@link #buildReport}
+     * is called with the given repositories and the policies set with
+     * {@link #usePolicies}. The parallel reports must read the same loans,
+     * users and media (the repositories passed here may be decorators of the
+     * ones they scan) and use the same policies; the report has the same
+     * counts and fines as the sequential one.
+     *
+     * @param parallelReports the parallel reports to use, or null to always scan on the calling thread
+     * @param loanRepo        loan repository callers pass to {@code buildReport}
+     * @param userRepo        user repository callers pass to {@code buildReport}
+     * @param mediaRepo       media repository callers pass to {@code buildReport}
+     */
+    public void useParallelReports(ParallelReports parallelReports, LoanRepository loanRepo,
+                                   UserRepository userRepo, MediaRepository mediaRepo) {
+        this.parallelReports = parallelReports;
+        this.parallelLoans = loanRepo;
+        this.parallelUsers = userRepo;
+        this.parallelMedia = mediaRepo;
+    }
+
+    /**
+     * Records the latency of reminder runs and single loan reminders in the
+     * given metrics.
+     *
+     * @param metrics the metrics to record in, or null to stop recording
+     */
+    public void useMetrics(LibraryMetrics metrics) {
+        this.metrics = metrics == null ? LibraryMetrics.DISABLED : metrics;
+    }
+
+    /**
+     * Sets the policy table that decides which reminder category
+     * (book, CD or none) an overdue item is counted in.
+     *
+     * @param policies the policy table
+     */
+    public void usePolicies(MediaPolicyTable policies) {
+        this.policies = policies;
+    }
+
     /**
      * Sends reminders to users that have overdue BOOK or CD loans.
      * <p>
@@ -81,70 +180,195 @@ public class ReminderService {
      *
      * @param loanRepo  repository used to query loans
      * @param userRepo  repository used to query users
-     * @param mediaRepo repository used to query media (and check media type)
+     * @param mediaRepo repository used to query media (the reminder category comes from its type's policy)
      */
     public void sendReminders(LoanRepository loanRepo, UserRepository userRepo, MediaRepository mediaRepo) {
+        ServiceEvents.ReminderRun event = EVENTS.beginReminderRun();
+        long start = metrics.sendReminders().start();
+        try {
+            remindOverdueUsers(loanRepo, userRepo, mediaRepo, event);
+            metrics.sendReminders().stop(start);
+        } catch (RuntimeException e) {
+            metrics.sendReminders().fail(start);
+            throw e;
+        } finally {
+            event.complete();
+        }
+    }
+
+    private void remindOverdueUsers(LoanRepository loanRepo, UserRepository userRepo, MediaRepository mediaRepo,
+                                    ServiceEvents.ReminderRun event) {
         LocalDate today = timeProvider.today();
 
         // 1) Find all overdue loans (active + overdue)
         List<Loan> overdueAll = loanRepo.findAll().stream()
                 .filter(l -> !l.isReturned() && l.isOverdue(today))
                 .collect(Collectors.toList());
+        event.setOverdueLoans(overdueAll.size());
 
         if (overdueAll.isEmpty()) {
             return; // nothing to do
         }
 
+        // Resolve users and media of all overdue loans by id
+        LoanJoin join = new LoanJoin(userRepo, mediaRepo);
+
         // 2) For each loan determine its media type (BOOK or CD) and group by user
-        // We'll build maps: userId -> bookCount, userId -> cdCount
-        Map<String, Integer> bookCounts = new HashMap<>();
-        Map<String, Integer> cdCounts = new HashMap<>();
-
-        for (Loan l : overdueAll) {
-            Optional<Media> maybeMedia = mediaRepo.findById(l.getMediaId());
-            String userId = l.getUserId();
-            if (!maybeMedia.isPresent()) continue;
-
-            Media media = maybeMedia.get();
-            String type = media.getMediaType();
-
-            if ("BOOK".equals(type)) {
-                bookCounts.put(userId, bookCounts.getOrDefault(userId, 0) + 1);
-            } else if ("CD".equals(type)) {
-                cdCounts.put(userId, cdCounts.getOrDefault(userId, 0) + 1);
+        // We'll build maps: userId -> bookCount, userId -> cdCount (primitive, no boxing)
+        ObjectIntHashMap<String> bookCounts = new ObjectIntHashMap<>();
+        ObjectIntHashMap<String> cdCounts = new ObjectIntHashMap<>();
+
+        // 3) Users that have either books or CDs overdue, in the order they were found
+        List<String> userIds = new ArrayList<>();
+
+        for (JoinedLoan j : join.joinAll(overdueAll)) {
+            Media media = j.getMedia();
+            String userId = j.getLoan().getUserId();
+            if (media == null) continue;
+
+            ReminderCategory category = policies.policyFor(media).getReminderCategory();
+
+            if (category == ReminderCategory.BOOK) {
+                if (!bookCounts.containsKey(userId) && !cdCounts.containsKey(userId)) userIds.add(userId);
+                bookCounts.addTo(userId, 1);
+            } else if (category == ReminderCategory.CD) {
+                if (!bookCounts.containsKey(userId) && !cdCounts.containsKey(userId)) userIds.add(userId);
+                cdCounts.addTo(userId, 1);
             } else {
-                // ignore unknown types for reminders
+                // ignore types that are not mentioned in reminders
             }
         }
 
-        // 3) Collect union of userIds that have either books or CDs overdue
-        Set<String> userIds = new HashSet<>();
-        userIds.addAll(bookCounts.keySet());
-        userIds.addAll(cdCounts.keySet());
-
         // 4) For each user send combined message
+        int usersReminded = 0;
         for (String userId : userIds) {
-            Optional<User> maybeUser = userRepo.findById(userId);
-            if (!maybeUser.isPresent()) continue;
+            User user = join.user(userId);
+            if (user == null) continue;
 
-            User user = maybeUser.get();
             if (user.getEmail() == null || user.getEmail().trim().isEmpty()) continue;
 
-            int books = bookCounts.getOrDefault(userId, 0);
-            int cds = cdCounts.getOrDefault(userId, 0);
+            int books = bookCounts.get(userId);
+            int cds = cdCounts.get(userId);
+
+            long fingerprint = fingerprint(books, cds);
+            if (isDuplicate(user, today, fingerprint)) continue;
 
             String message = "You have " + books + " overdue book(s) and " + cds + " overdue CD(s).";
 
-            for (Notifier notifier : notifiers) {
-                try {
-                    notifier.notify(user, message);
-                } catch (Exception ex) {
-                    // Log to stderr to avoid interrupting other notifications
-                    System.err.println("ReminderService: notifier failed for user "
-                            + userId + " : " + ex.getMessage());
-                }
+            // a reminder no notifier could deliver is not suppressed, so the next run tries again
+            if (deliver(user, message) == 0) continue;
+            event.setUsersReminded(++usersReminded);
+
+            if (reminderState != null) {
+                reminderState.record(user.getId(), today.toEpochDay(), fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Packs the overdue counts of a reminder into one value.
+     */
+    private static long fingerprint(int books, int cds) {
+        return ((long) books << 32) | (cds & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether the same reminder was already sent inside the suppression window.
+     */
+    private boolean isDuplicate(User user, LocalDate today, long fingerprint) {
+        if (reminderState == null) return false;
+
+        long lastDay = reminderState.lastReminderDay(user.getId());
+        if (lastDay == ReminderStateRepository.NONE) return false;
+
+        return reminderState.lastFingerprint(user.getId()) == fingerprint
+                && today.toEpochDay() - lastDay < suppressWindowDays;
+    }
+
+    /**
+     * Sends a reminder for a single loan event fired by the
+     * {@link library.scheduling.LoanScheduler}.
+     * <ul>
+     *     <li>DUE_SOON: {@code "Your loan of \"TITLE\" is due on DATE."}</li>
+     *     <li>OVERDUE: {@code "Your loan of \"TITLE\" was due on DATE and is now overdue."}</li>
+     * </ul>
+     * Loans that were returned in the meantime, unknown users and users
+     * without an email address are skipped.
+     *
+     * @param event     the fired loan event
+     * @param userRepo  repository used to find the user
+     * @param mediaRepo repository used to find the media title
+     */
+    public void sendLoanReminder(LoanEvent event, UserRepository userRepo, MediaRepository mediaRepo) {
+        long start = metrics.sendLoanReminder().start();
+        try {
+            remindLoan(event, userRepo, mediaRepo);
+            metrics.sendLoanReminder().stop(start);
+        } catch (RuntimeException e) {
+            metrics.sendLoanReminder().fail(start);
+            throw e;
+        }
+    }
+
+    private void remindLoan(LoanEvent event, UserRepository userRepo, MediaRepository mediaRepo) {
+        Loan loan = event.getLoan();
+        if (loan.isReturned()) return;
+
+        User user = userRepo.findById(loan.getUserId()).orElse(null);
+        if (user == null || user.getEmail() == null || user.getEmail().trim().isEmpty()) return;
+
+        String title = mediaRepo.findById(loan.getMediaId())
+                .map(Media::getTitle)
+                .orElse(loan.getMediaId());
+
+        String message;
+        if (event.getType() == LoanEvent.Type.DUE_SOON) {
+            message = "Your loan of \"" + title + "\" is due on " + loan.getDueDate() + ".";
+        } else {
+            message = "Your loan of \"" + title + "\" was due on " + loan.getDueDate() + " and is now overdue.";
+        }
+
+        deliver(user, message);
+    }
+
+    /**
+     * Passes a message to every notifier. A failing notifier is logged and
+     * does not stop the others; each call is emitted as a notification event
+     * (see {@link ServiceEvents}).
+     *
+     * @return number of notifiers that delivered the message
+     */
+    private int deliver(User user, String message) {
+        int delivered = 0;
+        for (Notifier notifier : notifiers) {
+            ServiceEvents.Notification event = EVENTS.beginNotification();
+            boolean failed = false;
+            try {
+                notifier.notify(user, message);
+            } catch (Exception ex) {
+                // Log to stderr to avoid interrupting other notifications
+                failed = true;
+                System.err.println("ReminderService: notifier failed for user "
+                        + user.getId() + " : " + ex.getMessage());
             }
+            event.complete(user.getId(), notifier.getClass(), message.length(), failed);
+            if (!failed) delivered++;
         }
+        return delivered;
+    }
+
+    /**
+     * Returns the overdue report of the {@link OverdueView} set with
+     * {@link #useOverdueView}, which is kept up to date as loans become
+     * overdue and are returned, without scanning all loans. It has the same
+     * content as {@link #buildReport} over the view's repositories.
+     *
+     * @return the overdue report (must not be modified)
+     * @throws IllegalStateException if no view is set
+     */
+    public OverdueReport overdueReport() {
+        if (overdueView == null) throw new IllegalStateException("no overdue view set");
+        return overdueView.snapshot();
     }
 
     /**
@@ -153,9 +377,11 @@ public class ReminderService {
      *     <li>number of overdue items (books + CDs)</li>
      *     <li>total fine based on media type and fine strategies</li>
      * </ul>
+     * Always scans the given repositories; see {@link #overdueReport()} for
+     * the incrementally maintained report.
      *
      * @param loanRepo  repository to read loans from
-     * @param userRepo  repository to read users from (kept for future use/extensions)
+     * @param userRepo  repository to read users from (used to build the loan join)
      * @param mediaRepo repository to read media and detect types
      * @param bookFine  fine strategy used for books
      * @param cdFine    fine strategy used for CDs
@@ -166,34 +392,48 @@ public class ReminderService {
                                      MediaRepository mediaRepo,
                                      library.strategy.FineStrategy bookFine,
                                      library.strategy.FineStrategy cdFine) {
+        return buildReport(loanRepo, userRepo, mediaRepo, MediaPolicyTable.standard(bookFine, cdFine));
+    }
+
+    /**
+     * Builds an {@link OverdueReport} using the fine strategies of a policy table.
+     * Always scans the given repositories, on a fork-join pool if they are
+     * the ones set with {@link #useParallelReports}; see
+     * {@link #overdueReport()} for the incrementally maintained report.
+     *
+     * @param loanRepo  repository to read loans from
+     * @param userRepo  repository to read users from (used to build the loan join)
+     * @param mediaRepo repository to read media and detect types
+     * @param policies  fine strategy per media type
+     * @return an OverdueReport containing counts and fine totals per user
+     */
+    public OverdueReport buildReport(LoanRepository loanRepo,
+                                     UserRepository userRepo,
+                                     MediaRepository mediaRepo,
+                                     MediaPolicyTable policies) {
+        if (parallelReports != null && loanRepo == parallelLoans && userRepo == parallelUsers
+                && mediaRepo == parallelMedia && policies == this.policies) {
+            return parallelReports.buildOverdueReport();
+        }
 
         LocalDate today = timeProvider.today();
         List<Loan> overdue = loanRepo.findAll().stream()
                 .filter(l -> l.isOverdue(today))
                 .collect(Collectors.toList());
 
-        Map<String, Integer> counts = new HashMap<>();
-        Map<String, Integer> sums = new HashMap<>();
+        ObjectIntHashMap<String> counts = new ObjectIntHashMap<>();
+        ObjectIntHashMap<String> sums = new ObjectIntHashMap<>();
 
-        for (Loan l : overdue) {
+        for (JoinedLoan j : new LoanJoin(userRepo, mediaRepo).joinAll(overdue)) {
+            Loan l = j.getLoan();
             String uid = l.getUserId();
 
             // Count of overdue items
-            counts.put(uid, counts.getOrDefault(uid, 0) + 1);
-
-            Media m = mediaRepo.findById(l.getMediaId()).orElse(null);
-            int overdueDays = l.overdueDays(today);
-            int fine = 0;
-
-            if (m != null) {
-                if ("BOOK".equals(m.getMediaType())) {
-                    fine = bookFine.calculateFine(overdueDays);
-                } else if ("CD".equals(m.getMediaType())) {
-                    fine = cdFine.calculateFine(overdueDays);
-                }
-            }
+            counts.addTo(uid, 1);
 
-            sums.put(uid, sums.getOrDefault(uid, 0) + fine);
+            // Fine from the policy of the media type (0 for unknown media)
+            int fine = policies.policyFor(j.getMedia()).fine(l.overdueDays(today));
+            sums.addTo(uid, fine);
         }
 
         return new OverdueReport(counts, sums);
@@ -0,0 +1,110 @@
+package library.service;
+
+/**
+ * Events emitted by {@link LibraryService} and {@link ReminderService} around
+ * their operations.
+ * <p>
+ * Each {@code begin} method starts timing an operation and returns the event
+ * to complete when it ends. The flight recorder implementation lives in
+ * {@code library.jfr} and needs the {@code jdk.jfr} module, which Java 8 does
+ * not have; {@link #detect()} only loads it when that module is present, so the
+ * services also run without it.
+ */
+public interface ServiceEvents {
+
+    /** Events that record nothing. */
+    ServiceEvents NONE = new NoServiceEvents();
+
+    /** @return a started borrow event */
+    Borrow beginBorrow();
+
+    /** @return a started return event */
+    Return beginReturn();
+
+    /** @return a started search event */
+    Search beginSearch();
+
+    /** @return a started reminder run event */
+    ReminderRun beginReminderRun();
+
+    /** @return a started notification event */
+    Notification beginNotification();
+
+    /**
+     * Returns the flight recorder events if {@code jdk.jfr} is available,
+     * otherwise {@link #NONE}.
+     *
+     * @return the events to emit
+     */
+    static ServiceEvents detect() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (ServiceEvents) Class.forName("library.jfr.JfrServiceEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return NONE;
+        }
+    }
+
+    /** A started {@link LibraryService#borrow(String, String)}. */
+    interface Borrow {
+        /**
+         * @param userId  id of the user
+         * @param mediaId id of the media item
+         * @param loanId  id of the created loan, or null
+         * @param failure failure message, or null
+         */
+        void complete(String userId, String mediaId, String loanId, String failure);
+    }
+
+    /** A started {@link LibraryService#returnMedia(String)}. */
+    interface Return {
+        /**
+         * @param loanId  id of the loan
+         * @param failure failure message, or null
+         */
+        void complete(String loanId, String failure);
+    }
+
+    /** A started catalog search. */
+    interface Search {
+        /** Kind of a general search. */
+        String ANY = "any";
+        /** Kind of a search by title. */
+        String TITLE = "title";
+        /** Kind of a search by author or artist. */
+        String AUTHOR = "author";
+        /** Kind of a search by ISBN. */
+        String ISBN = "isbn";
+
+        /**
+         * @param kind    searched field, one of the constants of this interface
+         * @param query   the query
+         * @param results number of matches, or -1 if the search failed
+         */
+        void complete(String kind, String query, int results);
+    }
+
+    /** A started {@link ReminderService#sendReminders}. */
+    interface ReminderRun {
+        /** @param overdueLoans number of overdue loans found */
+        void setOverdueLoans(int overdueLoans);
+
+        /** @param usersReminded number of users a reminder was sent to */
+        void setUsersReminded(int usersReminded);
+
+        /** Ends the event. */
+        void complete();
+    }
+
+    /** A started call of one {@link ReminderService.Notifier}. */
+    interface Notification {
+        /**
+         * @param userId        id of the user
+         * @param notifier      class of the notifier
+         * @param messageLength length of the message
+         * @param failed        true if the notifier threw
+         */
+        void complete(String userId, Class<?> notifier, int messageLength, boolean failed);
+    }
+}
@@ -0,0 +1,36 @@
+package library.sim;
+
+import library.service.TimeProvider;
+
+import java.time.LocalDate;
+
+/**
+ * Time provider for simulations: the date only changes when the simulation
+ * advances it, so a month of library traffic can run in seconds.
+ */
+public class SimulatedClock implements TimeProvider {
+
+    private LocalDate today;
+
+    /**
+     * @param start the first simulated day
+     */
+    public SimulatedClock(LocalDate start) {
+        this.today = start;
+    }
+
+    @Override
+    public LocalDate today() {
+        return today;
+    }
+
+    /**
+     * Moves the clock to the next day.
+     *
+     * @return the new current day
+     */
+    public LocalDate advance() {
+        today = today.plusDays(1);
+        return today;
+    }
+}
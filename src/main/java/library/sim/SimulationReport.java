@@ -0,0 +1,152 @@
+package library.sim;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of a {@link WorkloadSimulator} run: latency percentiles per operation
+ * and totals of the simulated library.
+ */
+public class SimulationReport {
+
+    private final Workload workload;
+    private final long wallNanos;
+    private final List<OperationStats> operations;
+    private final long loans;
+    private final long finesCharged;
+    private final long finesPaid;
+    private final long reminders;
+
+    SimulationReport(Workload workload, long wallNanos, List<OperationStats> operations,
+                     long loans, long finesCharged, long finesPaid, long reminders) {
+        this.workload = workload;
+        this.wallNanos = wallNanos;
+        this.operations = Collections.unmodifiableList(operations);
+        this.loans = loans;
+        this.finesCharged = finesCharged;
+        this.finesPaid = finesPaid;
+        this.reminders = reminders;
+    }
+
+    /** @return the simulated workload */
+    public Workload getWorkload() { return workload; }
+
+    /** @return wall-clock duration of the run in nanoseconds */
+    public long getWallNanos() { return wallNanos; }
+
+    /** @return statistics per operation, in the order of {@link WorkloadSimulator.Operation} */
+    public List<OperationStats> getOperations() { return operations; }
+
+    /**
+     * @param operation the operation
+     * @return its statistics
+     */
+    public OperationStats get(WorkloadSimulator.Operation operation) {
+        return operations.get(operation.ordinal());
+    }
+
+    /** @return number of loans created */
+    public long getLoans() { return loans; }
+
+    /** @return sum of all fines charged */
+    public long getFinesCharged() { return finesCharged; }
+
+    /** @return sum of all fine payments applied */
+    public long getFinesPaid() { return finesPaid; }
+
+    /** @return number of reminder messages sent */
+    public long getReminders() { return reminders; }
+
+    /** @return operations of all kinds per second of wall-clock time */
+    public double throughput() {
+        long total = 0;
+        for (OperationStats s : operations) {
+            total += s.count;
+        }
+        return wallNanos == 0 ? 0 : total * 1e9 / wallNanos;
+    }
+
+    /**
+     * Formats the report as a table, latencies in microseconds.
+     *
+     * @return the report text
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("workload: ").append(workload).append('\n');
+        sb.append(String.format(Locale.ROOT, "wall time: %.2f s, throughput: %.0f ops/s%n",
+                wallNanos / 1e9, throughput()));
+        sb.append(String.format(Locale.ROOT, "loans: %d, fines charged: %d, fines paid: %d, reminders: %d%n",
+                loans, finesCharged, finesPaid, reminders));
+        sb.append(String.format(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "rejected", "mean us", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+        for (OperationStats s : operations) {
+            sb.append(String.format(Locale.ROOT, "%-10s %10d %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    s.operation, s.count, s.rejected, s.mean / 1e3, s.p50 / 1e3, s.p90 / 1e3,
+                    s.p99 / 1e3, s.p999 / 1e3, s.max / 1e3));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    /**
+     * Latency statistics of one operation, in nanoseconds.
+     */
+    public static class OperationStats {
+
+        private final WorkloadSimulator.Operation operation;
+        private final long count;
+        private final long rejected;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        OperationStats(WorkloadSimulator.Operation operation, long count, long rejected, double mean,
+                       long p50, long p90, long p99, long p999, long max) {
+            this.operation = operation;
+            this.count = count;
+            this.rejected = rejected;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        /** @return the operation */
+        public WorkloadSimulator.Operation getOperation() { return operation; }
+
+        /** @return number of calls, including rejected ones */
+        public long getCount() { return count; }
+
+        /** @return number of calls rejected by a business rule */
+        public long getRejected() { return rejected; }
+
+        /** @return mean latency */
+        public double getMean() { return mean; }
+
+        /** @return median latency */
+        public long getP50() { return p50; }
+
+        /** @return 90th percentile latency */
+        public long getP90() { return p90; }
+
+        /** @return 99th percentile latency */
+        public long getP99() { return p99; }
+
+        /** @return 99.9th percentile latency */
+        public long getP999() { return p999; }
+
+        /** @return highest latency */
+        public long getMax() { return max; }
+    }
+}
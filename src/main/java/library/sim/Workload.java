@@ -0,0 +1,246 @@
+package library.sim;
+
+/**
+ * Parameters of a simulated library workload. Instances are immutable and
+ * created with {@link #builder()}; unset parameters keep their defaults.
+ * <p>
+ * Every simulated day:
+ * <ul>
+ *     <li>loans scheduled for that day are returned; a share of them late,
+ *     which charges a fine</li>
+ *     <li>scheduled fine payments are made</li>
+ *     <li>{@link #getBorrowsPerDay()} random users try to borrow a title picked
+ *     by a Zipf distribution over the catalog</li>
+ *     <li>{@link #getSearchesPerDay()} title searches are run</li>
+ *     <li>every {@link #getReminderIntervalDays()} days the reminders are sent</li>
+ * </ul>
+ */
+public class Workload {
+
+    private final long seed;
+    private final int users;
+    private final int titles;
+    private final double cdShare;
+    private final int days;
+    private final int borrowsPerDay;
+    private final int searchesPerDay;
+    private final double zipfExponent;
+    private final double lateReturnRate;
+    private final int maxLateDays;
+    private final double payRate;
+    private final int reminderIntervalDays;
+
+    private Workload(Builder b) {
+        this.seed = b.seed;
+        this.users = b.users;
+        this.titles = b.titles;
+        this.cdShare = b.cdShare;
+        this.days = b.days;
+        this.borrowsPerDay = b.borrowsPerDay;
+        this.searchesPerDay = b.searchesPerDay;
+        this.zipfExponent = b.zipfExponent;
+        this.lateReturnRate = b.lateReturnRate;
+        this.maxLateDays = b.maxLateDays;
+        this.payRate = b.payRate;
+        this.reminderIntervalDays = b.reminderIntervalDays;
+    }
+
+    /** @return a builder with the default workload */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return seed of all random decisions */
+    public long getSeed() { return seed; }
+
+    /** @return number of registered users */
+    public int getUsers() { return users; }
+
+    /** @return number of media items in the catalog */
+    public int getTitles() { return titles; }
+
+    /** @return share of the catalog that are CDs (the rest are books) */
+    public double getCdShare() { return cdShare; }
+
+    /** @return number of simulated days */
+    public int getDays() { return days; }
+
+    /** @return borrow attempts per day */
+    public int getBorrowsPerDay() { return borrowsPerDay; }
+
+    /** @return title searches per day */
+    public int getSearchesPerDay() { return searchesPerDay; }
+
+    /** @return skew of title popularity (0 = uniform) */
+    public double getZipfExponent() { return zipfExponent; }
+
+    /** @return share of loans returned after their due date */
+    public double getLateReturnRate() { return lateReturnRate; }
+
+    /** @return most days a late loan is returned after its due date */
+    public int getMaxLateDays() { return maxLateDays; }
+
+    /** @return share of fined users who pay their fine within a week */
+    public double getPayRate() { return payRate; }
+
+    /** @return days between reminder runs (0 = no reminders) */
+    public int getReminderIntervalDays() { return reminderIntervalDays; }
+
+    @Override
+    public String toString() {
+        return "seed=" + seed + " users=" + users + " titles=" + titles + " cdShare=" + cdShare
+                + " days=" + days + " borrowsPerDay=" + borrowsPerDay + " searchesPerDay=" + searchesPerDay
+                + " zipf=" + zipfExponent + " lateReturnRate=" + lateReturnRate + " maxLateDays=" + maxLateDays
+                + " payRate=" + payRate + " reminderIntervalDays=" + reminderIntervalDays;
+    }
+
+    /**
+     * Collects the parameters of a {@link Workload}.
+     */
+    public static class Builder {
+
+        private long seed = 1;
+        private int users = 10_000;
+        private int titles = 2_000;
+        private double cdShare = 0.25;
+        private int days = 30;
+        private int borrowsPerDay = 1_000;
+        private int searchesPerDay = 50;
+        private double zipfExponent = 1.0;
+        private double lateReturnRate = 0.1;
+        private int maxLateDays = 14;
+        private double payRate = 0.9;
+        private int reminderIntervalDays = 7;
+
+        private Builder() { }
+
+        /**
+         * @param seed seed of all random decisions (default 1)
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param users number of users (default 10000)
+         * @return this builder
+         */
+        public Builder users(int users) {
+            this.users = positive(users, "users");
+            return this;
+        }
+
+        /**
+         * @param titles number of media items (default 2000)
+         * @return this builder
+         */
+        public Builder titles(int titles) {
+            this.titles = positive(titles, "titles");
+            return this;
+        }
+
+        /**
+         * @param cdShare share of CDs in the catalog (default 0.25)
+         * @return this builder
+         */
+        public Builder cdShare(double cdShare) {
+            this.cdShare = rate(cdShare, "cdShare");
+            return this;
+        }
+
+        /**
+         * @param days number of simulated days (default 30)
+         * @return this builder
+         */
+        public Builder days(int days) {
+            this.days = positive(days, "days");
+            return this;
+        }
+
+        /**
+         * @param borrowsPerDay borrow attempts per day (default 1000)
+         * @return this builder
+         */
+        public Builder borrowsPerDay(int borrowsPerDay) {
+            this.borrowsPerDay = notNegative(borrowsPerDay, "borrowsPerDay");
+            return this;
+        }
+
+        /**
+         * @param searchesPerDay title searches per day (default 50)
+         * @return this builder
+         */
+        public Builder searchesPerDay(int searchesPerDay) {
+            this.searchesPerDay = notNegative(searchesPerDay, "searchesPerDay");
+            return this;
+        }
+
+        /**
+         * @param zipfExponent skew of title popularity (default 1.0)
+         * @return this builder
+         */
+        public Builder zipfExponent(double zipfExponent) {
+            if (zipfExponent < 0) throw new IllegalArgumentException("zipfExponent must not be negative");
+            this.zipfExponent = zipfExponent;
+            return this;
+        }
+
+        /**
+         * @param lateReturnRate share of late returns (default 0.1)
+         * @return this builder
+         */
+        public Builder lateReturnRate(double lateReturnRate) {
+            this.lateReturnRate = rate(lateReturnRate, "lateReturnRate");
+            return this;
+        }
+
+        /**
+         * @param maxLateDays most days a late return is overdue (default 14)
+         * @return this builder
+         */
+        public Builder maxLateDays(int maxLateDays) {
+            this.maxLateDays = positive(maxLateDays, "maxLateDays");
+            return this;
+        }
+
+        /**
+         * @param payRate share of fined users who pay (default 0.9)
+         * @return this builder
+         */
+        public Builder payRate(double payRate) {
+            this.payRate = rate(payRate, "payRate");
+            return this;
+        }
+
+        /**
+         * @param days days between reminder runs, 0 for none (default 7)
+         * @return this builder
+         */
+        public Builder reminderIntervalDays(int days) {
+            this.reminderIntervalDays = notNegative(days, "reminderIntervalDays");
+            return this;
+        }
+
+        /** @return the workload */
+        public Workload build() {
+            return new Workload(this);
+        }
+
+        private static int positive(int value, String name) {
+            if (value <= 0) throw new IllegalArgumentException(name + " must be positive");
+            return value;
+        }
+
+        private static int notNegative(int value, String name) {
+            if (value < 0) throw new IllegalArgumentException(name + " must not be negative");
+            return value;
+        }
+
+        private static double rate(double value, String name) {
+            if (value < 0 || value > 1) throw new IllegalArgumentException(name + " must be between 0 and 1");
+            return value;
+        }
+    }
+}
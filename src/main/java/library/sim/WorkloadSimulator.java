@@ -0,0 +1,285 @@
+package library.sim;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.exception.BusinessRuleException;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryEventListener;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.MediaPolicyTable;
+import library.util.LatencyHistogram;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drives a {@link LibraryService} with a synthetic workload and measures the
+ * latency of every call.
+ * <p>
+ * The library runs on in-memory repositories and a {@link SimulatedClock} that
+ * is advanced one day at a time, so weeks of traffic take seconds. Titles are
+ * picked with a {@link ZipfDistribution}; when a borrow succeeds, the return is
+ * scheduled either within the loan period or, for a share of loans, up to
+ * {@link Workload#getMaxLateDays()} days late. Late returns charge fines, and
+ * most fined users pay within a week. Users with fines or overdue loans are
+ * rejected by the library's own rules, like in production.
+ * <p>
+ * All decisions come from one {@link Random} seeded with
+ * {@link Workload#getSeed()}, so two runs with the same workload perform the same
+ * calls with the same outcomes; only the measured latencies differ.
+ * <p>
+ * Usage: {@code java -cp target/classes library.sim.WorkloadSimulator
+ * [--seed N] [--users N] [--titles N] [--days N] [--borrows-per-day N]
+ * [--searches-per-day N] [--zipf X] [--late-rate X] [--pay-rate X]
+ * [--reminder-interval N]}
+ */
+public class WorkloadSimulator {
+
+    /**
+     * Measured operations.
+     */
+    public enum Operation { BORROW, RETURN, PAY_FINE, SEARCH, REMINDERS }
+
+    /** First simulated day. */
+    public static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    // payments are made within this many days after the fine
+    private static final int PAY_WITHIN_DAYS = 7;
+
+    private final Workload workload;
+
+    /**
+     * @param workload the workload to simulate
+     */
+    public WorkloadSimulator(Workload workload) {
+        this.workload = workload;
+    }
+
+    /**
+     * Runs the simulation on a new library.
+     *
+     * @return latencies and totals of the run
+     */
+    public SimulationReport run() {
+        Run run = new Run(workload);
+        long start = System.nanoTime();
+        for (int day = 1; day <= workload.getDays(); day++) {
+            run.simulateDay(day);
+        }
+        return run.report(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a simulation with the workload given on the command line and prints the report.
+     *
+     * @param args workload options, see the class description
+     */
+    public static void main(String[] args) {
+        System.out.print(new WorkloadSimulator(parse(args)).run().format());
+    }
+
+    static Workload parse(String[] args) {
+        Workload.Builder b = Workload.builder();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + option);
+            String value = args[++i];
+            switch (option) {
+                case "--seed": b.seed(Long.parseLong(value)); break;
+                case "--users": b.users(Integer.parseInt(value)); break;
+                case "--titles": b.titles(Integer.parseInt(value)); break;
+                case "--days": b.days(Integer.parseInt(value)); break;
+                case "--borrows-per-day": b.borrowsPerDay(Integer.parseInt(value)); break;
+                case "--searches-per-day": b.searchesPerDay(Integer.parseInt(value)); break;
+                case "--zipf": b.zipfExponent(Double.parseDouble(value)); break;
+                case "--late-rate": b.lateReturnRate(Double.parseDouble(value)); break;
+                case "--pay-rate": b.payRate(Double.parseDouble(value)); break;
+                case "--reminder-interval": b.reminderIntervalDays(Integer.parseInt(value)); break;
+                default: throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * State of one simulation run.
+     */
+    private static final class Run implements LibraryEventListener {
+
+        private final Workload workload;
+        private final Random random;
+        private final SimulatedClock clock = new SimulatedClock(START);
+        private final InMemoryUserRepository userRepo = new InMemoryUserRepository();
+        private final InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
+        private final InMemoryLoanRepository loanRepo = new InMemoryLoanRepository();
+        private final ReminderService reminderService = new ReminderService(clock);
+        private final LibraryService library;
+        private final ZipfDistribution popularity;
+
+        private final User[] users;
+        private final String[] mediaIds;
+        private final String[] titles;
+
+        // loans to return and users who pay, by simulated day
+        private final List<List<Loan>> returns;
+        private final List<List<User>> payments;
+
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        private final long[] rejected = new long[Operation.values().length];
+        private long loans;
+        private long finesCharged;
+        private long finesPaid;
+        private long reminders;
+
+        Run(Workload workload) {
+            this.workload = workload;
+            this.random = new Random(workload.getSeed());
+            this.library = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService, clock,
+                    MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy()),
+                    new AuthService(new InMemoryAdminRepository()));
+            library.registerListener(this);
+            reminderService.registerNotifier((user, message) -> reminders++);
+
+            users = new User[workload.getUsers()];
+            for (int i = 0; i < users.length; i++) {
+                users[i] = library.registerUser("user" + i, "user" + i + "@example.com");
+            }
+
+            mediaIds = new String[workload.getTitles()];
+            titles = new String[workload.getTitles()];
+            for (int i = 0; i < mediaIds.length; i++) {
+                titles[i] = "Title " + i;
+                Media m = random.nextDouble() < workload.getCdShare()
+                        ? new CD(titles[i], "Artist " + (i % 1000))
+                        : new Book(titles[i], "Author " + (i % 1000), "ISBN-" + i);
+                mediaRepo.save(m);
+                mediaIds[i] = m.getId();
+            }
+            popularity = new ZipfDistribution(mediaIds.length, workload.getZipfExponent());
+
+            returns = new ArrayList<>(workload.getDays() + 1);
+            payments = new ArrayList<>(workload.getDays() + 1);
+            for (int d = 0; d <= workload.getDays(); d++) {
+                returns.add(new ArrayList<>());
+                payments.add(new ArrayList<>());
+            }
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void simulateDay(int day) {
+            clock.advance();
+
+            for (Loan loan : returns.get(day)) {
+                returnLoan(day, loan);
+            }
+            returns.set(day, null);
+
+            for (User user : payments.get(day)) {
+                pay(user);
+            }
+            payments.set(day, null);
+
+            for (int i = 0; i < workload.getBorrowsPerDay(); i++) {
+                borrow(day, users[random.nextInt(users.length)], mediaIds[popularity.sample(random)]);
+            }
+
+            for (int i = 0; i < workload.getSearchesPerDay(); i++) {
+                String title = titles[popularity.sample(random)];
+                long t0 = System.nanoTime();
+                library.searchByTitle(title);
+                record(Operation.SEARCH, t0);
+            }
+
+            int interval = workload.getReminderIntervalDays();
+            if (interval > 0 && day % interval == 0) {
+                long t0 = System.nanoTime();
+                reminderService.sendReminders(loanRepo, userRepo, mediaRepo);
+                record(Operation.REMINDERS, t0);
+            }
+        }
+
+        private void borrow(int day, User user, String mediaId) {
+            long t0 = System.nanoTime();
+            Loan loan;
+            try {
+                loan = library.borrow(user.getId(), mediaId);
+            } catch (BusinessRuleException e) {
+                record(Operation.BORROW, t0);
+                rejected[Operation.BORROW.ordinal()]++;
+                return;
+            }
+            record(Operation.BORROW, t0);
+            loans++;
+
+            int loanDays = (int) ChronoUnit.DAYS.between(loan.getBorrowDate(), loan.getDueDate());
+            int returnDay = random.nextDouble() < workload.getLateReturnRate()
+                    ? day + loanDays + 1 + random.nextInt(workload.getMaxLateDays())
+                    : day + 1 + random.nextInt(loanDays);
+            schedule(returns, returnDay, loan);
+        }
+
+        private void returnLoan(int day, Loan loan) {
+            long t0 = System.nanoTime();
+            library.returnMedia(loan.getId());
+            record(Operation.RETURN, t0);
+
+            User user = userRepo.findById(loan.getUserId()).orElse(null);
+            if (user != null && user.getOutstandingFine() > 0 && random.nextDouble() < workload.getPayRate()) {
+                schedule(payments, day + 1 + random.nextInt(PAY_WITHIN_DAYS), user);
+            }
+        }
+
+        private void pay(User user) {
+            int amount = user.getOutstandingFine();
+            if (amount <= 0) return;
+
+            long t0 = System.nanoTime();
+            library.payFine(user.getId(), amount);
+            record(Operation.PAY_FINE, t0);
+        }
+
+        private <T> void schedule(List<List<T>> byDay, int day, T item) {
+            if (day < byDay.size()) byDay.get(day).add(item);
+        }
+
+        private void record(Operation op, long startNanos) {
+            latencies[op.ordinal()].record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public void onFineAdded(User user, Loan loan, int amount) {
+            finesCharged += amount;
+        }
+
+        @Override
+        public void onFinePaid(User user, int amount) {
+            finesPaid += amount;
+        }
+
+        SimulationReport report(long wallNanos) {
+            List<SimulationReport.OperationStats> stats = new ArrayList<>();
+            for (Operation op : Operation.values()) {
+                LatencyHistogram.Snapshot h = latencies[op.ordinal()].snapshot();
+                stats.add(new SimulationReport.OperationStats(op, h.count(), rejected[op.ordinal()], h.mean(),
+                        h.valueAtPercentile(50), h.valueAtPercentile(90), h.valueAtPercentile(99),
+                        h.valueAtPercentile(99.9), h.max()));
+            }
+            return new SimulationReport(workload, wallNanos, stats, loans, finesCharged, finesPaid, reminders);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package library.sim;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf distribution over ranks {@code 0 .. n-1}: rank {@code k} is drawn with
+ * a probability proportional to {@code 1 / (k + 1)^exponent}, so a few titles
+ * get most of the traffic and the long tail is rarely touched.
+ * <p>
+ * The cumulative probabilities are computed once; a sample is one binary
+ * search. Randomness comes from the caller, so sequences are reproducible
+ * from the caller's seed.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    /**
+     * @param n        number of ranks
+     * @param exponent skew of the distribution (0 = uniform, around 1 for title popularity)
+     * @throws IllegalArgumentException if n is not positive or the exponent is negative
+     */
+    public ZipfDistribution(int n, double exponent) {
+        if (n <= 0) throw new IllegalArgumentException("n must be positive");
+        if (exponent < 0) throw new IllegalArgumentException("exponent must not be negative");
+
+        cumulative = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    /**
+     * @param random source of randomness
+     * @return a rank between 0 (most popular) and n-1
+     */
+    public int sample(Random random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = i >= 0 ? i : -i - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    /** @return number of ranks */
+    public int size() {
+        return cumulative.length;
+    }
+}
@@ -20,4 +20,33 @@ public class CDFineStrategy implements FineStrategy {
         if (overdueDays <= 0) return 0;
         return RATE * overdueDays;
     }
+
+    /**
+     * Batch version of {@link #calculateFine(int)}. The loop has no calls or
+     * branches, so the JIT can vectorize it.
+     *
+     * @param overdueDays overdue days per loan
+     * @param fines       receives the fine per loan
+     * @param count       number of entries to process
+     */
+    @Override
+    public void calculateFines(int[] overdueDays, int[] fines, int count) {
+        for (int i = 0; i < count; i++) {
+            fines[i] = RATE * Math.max(0, overdueDays[i]);
+        }
+    }
+
+    /**
+     * @param overdueDays overdue days per loan
+     * @param count       number of entries to process
+     * @return total fine
+     */
+    @Override
+    public long totalFine(int[] overdueDays, int count) {
+        long days = 0;
+        for (int i = 0; i < count; i++) {
+            days += Math.max(0, overdueDays[i]);
+        }
+        return RATE * days;
+    }
 }
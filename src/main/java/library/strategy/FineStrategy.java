@@ -5,6 +5,8 @@ package library.strategy;
  * 
  * Implementations (such as book or CD strategies) define
  * how the fine should be computed based on overdue days.
+ * The batch methods compute many fines in one call; implementations can
+ * override them with a plain loop over the arrays.
  */
 public interface FineStrategy {
 
@@ -15,4 +17,32 @@ public interface FineStrategy {
      * @return calculated fine in NIS (0 if not overdue)
      */
     int calculateFine(int overdueDays);
+
+    /**
+     * Calculates the fines of many loans in one call.
+     *
+     * @param overdueDays overdue days per loan
+     * @param fines       receives the fine per loan, at the same index
+     * @param count       number of entries to process
+     */
+    default void calculateFines(int[] overdueDays, int[] fines, int count) {
+        for (int i = 0; i < count; i++) {
+            fines[i] = calculateFine(overdueDays[i]);
+        }
+    }
+
+    /**
+     * Calculates the sum of the fines of many loans.
+     *
+     * @param overdueDays overdue days per loan
+     * @param count       number of entries to process
+     * @return total fine
+     */
+    default long totalFine(int[] overdueDays, int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += calculateFine(overdueDays[i]);
+        }
+        return total;
+    }
 }
@@ -0,0 +1,47 @@
+package library.strategy;
+
+/**
+ * Rules that apply to one media type: how long it can be borrowed, how
+ * overdue fines are calculated, and how it is counted in reminders.
+ * Instances are immutable.
+ */
+public class MediaPolicy {
+
+    private static final FineStrategy NO_FINE = overdueDays -> 0;
+
+    private final int loanDays;
+    private final FineStrategy fineStrategy;
+    private final ReminderCategory reminderCategory;
+
+    /**
+     * Creates a new policy.
+     *
+     * @param loanDays         loan period in days
+     * @param fineStrategy     strategy for overdue fines (null means no fine)
+     * @param reminderCategory category used in reminders
+     * @throws IllegalArgumentException if the loan period is not positive
+     */
+    public MediaPolicy(int loanDays, FineStrategy fineStrategy, ReminderCategory reminderCategory) {
+        if (loanDays <= 0) throw new IllegalArgumentException("loanDays must be positive");
+        this.loanDays = loanDays;
+        this.fineStrategy = fineStrategy == null ? NO_FINE : fineStrategy;
+        this.reminderCategory = reminderCategory == null ? ReminderCategory.NONE : reminderCategory;
+    }
+
+    /** @return loan period in days */
+    public int getLoanDays() { return loanDays; }
+
+    /** @return strategy for overdue fines */
+    public FineStrategy getFineStrategy() { return fineStrategy; }
+
+    /** @return category used in reminders */
+    public ReminderCategory getReminderCategory() { return reminderCategory; }
+
+    /**
+     * @param overdueDays number of overdue days
+     * @return fine for the given delay
+     */
+    public int fine(int overdueDays) {
+        return fineStrategy.calculateFine(overdueDays);
+    }
+}
@@ -0,0 +1,101 @@
+package library.strategy;
+
+import library.domain.media.Media;
+import library.domain.media.MediaType;
+
+import java.util.Arrays;
+
+/**
+ * Policies of all media types, stored in an array indexed by
+ * {@link MediaType#ordinal()}.
+ * <p>
+ * Services look up the loan period, fine strategy and reminder category of a
+ * media item here instead of comparing type names, so a lookup is one array
+ * access. Types without a registered policy get the fallback policy: the
+ * default loan period, no fine and no reminder. A new type such as DVD only
+ * needs a {@link #register} call.
+ * <p>
+ * Registering copies the array, so lookups need no locking and may run while
+ * another thread registers a type.
+ */
+public class MediaPolicyTable {
+
+    /** Loan period of types without a registered policy. */
+    public static final int DEFAULT_LOAN_DAYS = 28;
+
+    private final MediaPolicy fallback;
+    private volatile MediaPolicy[] policies = new MediaPolicy[0];
+
+    /**
+     * Creates an empty table with the default fallback policy.
+     */
+    public MediaPolicyTable() {
+        this(new MediaPolicy(DEFAULT_LOAN_DAYS, null, ReminderCategory.NONE));
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param fallback policy used for types without a registered policy
+     */
+    public MediaPolicyTable(MediaPolicy fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Creates the table used by the library: books are lent for 28 days and
+     * CDs for 7 days, each with its own fine strategy.
+     *
+     * @param bookFine fine strategy used for books
+     * @param cdFine   fine strategy used for CDs
+     * @return the new table
+     */
+    public static MediaPolicyTable standard(FineStrategy bookFine, FineStrategy cdFine) {
+        MediaPolicyTable table = new MediaPolicyTable();
+        table.register(MediaType.BOOK, new MediaPolicy(28, bookFine, ReminderCategory.BOOK));
+        table.register(MediaType.CD, new MediaPolicy(7, cdFine, ReminderCategory.CD));
+        return table;
+    }
+
+    /**
+     * Sets the policy of a type, replacing an earlier one.
+     *
+     * @param type   the media type
+     * @param policy its policy
+     * @return this table
+     */
+    public synchronized MediaPolicyTable register(MediaType type, MediaPolicy policy) {
+        if (policy == null) throw new NullPointerException("policy must not be null");
+        MediaPolicy[] copy = policies;
+        if (type.ordinal() >= copy.length) {
+            copy = Arrays.copyOf(copy, Math.max(type.ordinal() + 1, MediaType.count()));
+        } else {
+            copy = copy.clone();
+        }
+        copy[type.ordinal()] = policy;
+        policies = copy;
+        return this;
+    }
+
+    /**
+     * @param type the media type
+     * @return its policy, or the fallback policy if none is registered
+     */
+    public MediaPolicy policyFor(MediaType type) {
+        MediaPolicy[] p = policies;
+        int i = type.ordinal();
+        MediaPolicy policy = i < p.length ? p[i] : null;
+        return policy == null ? fallback : policy;
+    }
+
+    /**
+     * @param media the media item (may be null)
+     * @return policy of the item's type, or the fallback policy if the item is null
+     */
+    public MediaPolicy policyFor(Media media) {
+        return media == null ? fallback : policyFor(media.getType());
+    }
+
+    /** @return policy used for types without a registered policy */
+    public MediaPolicy fallback() { return fallback; }
+}
@@ -0,0 +1,14 @@
+package library.strategy;
+
+/**
+ * Group an overdue item is counted in by the combined reminder
+ * "You have X overdue book(s) and Y overdue CD(s).".
+ */
+public enum ReminderCategory {
+    /** Counted as an overdue book. */
+    BOOK,
+    /** Counted as an overdue CD. */
+    CD,
+    /** Not mentioned in reminders. */
+    NONE
+}
@@ -0,0 +1,164 @@
+package library.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fine strategy with grace days, stepped daily rates and an optional maximum.
+ * <p>
+ * Example: 2 grace days, 5 NIS per day from day 3, 15 NIS per day from day 10,
+ * at most 200 NIS:
+ * <pre>
+ * TieredFineStrategy.builder()
+ *         .graceDays(2)
+ *         .step(3, 5)
+ *         .step(10, 15)
+ *         .maxFine(200)
+ *         .build();
+ * </pre>
+ * Overdue day {@code d} (counting from 1) is charged the rate of the last step
+ * that starts on or before {@code d}; grace days and days before the first step
+ * are free. The rules are compiled in {@link Builder#build()} into a table of
+ * cumulative fines per overdue day, up to the day the maximum is reached or the
+ * last step starts. Calculating a fine is then one array lookup, or one
+ * multiplication for delays beyond the table. Instances are immutable.
+ */
+public class TieredFineStrategy implements FineStrategy {
+
+    // tables never grow beyond this many days; later days are extrapolated
+    private static final int MAX_TABLE_DAYS = 1 << 16;
+
+    // fineByDay[d] = fine for d overdue days, for d < fineByDay.length
+    private final int[] fineByDay;
+    private final int tailRate;
+    private final int maxFine;
+
+    private TieredFineStrategy(int[] fineByDay, int tailRate, int maxFine) {
+        this.fineByDay = fineByDay;
+        this.tailRate = tailRate;
+        this.maxFine = maxFine;
+    }
+
+    /** @return a builder for a tiered strategy */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Looks up the fine for a delay.
+     *
+     * @param overdueDays number of days an item is overdue
+     * @return fine in NIS (0 if not overdue)
+     */
+    @Override
+    public int calculateFine(int overdueDays) {
+        if (overdueDays <= 0) return 0;
+        if (overdueDays < fineByDay.length) return fineByDay[overdueDays];
+        return beyondTable(overdueDays);
+    }
+
+    /**
+     * Batch version of {@link #calculateFine(int)}.
+     *
+     * @param overdueDays overdue days per loan
+     * @param fines       receives the fine per loan
+     * @param count       number of entries to process
+     */
+    @Override
+    public void calculateFines(int[] overdueDays, int[] fines, int count) {
+        int[] table = fineByDay;
+        int last = table.length - 1;
+        for (int i = 0; i < count; i++) {
+            int d = Math.max(0, overdueDays[i]);
+            fines[i] = d <= last ? table[d] : beyondTable(d);
+        }
+    }
+
+    private int beyondTable(int overdueDays) {
+        int last = fineByDay.length - 1;
+        long fine = fineByDay[last] + (long) (overdueDays - last) * tailRate;
+        return (int) Math.min(fine, maxFine);
+    }
+
+    /**
+     * Collects the rules of a {@link TieredFineStrategy}.
+     */
+    public static class Builder {
+
+        private int graceDays;
+        private int maxFine = Integer.MAX_VALUE;
+        private final List<int[]> steps = new ArrayList<>();
+
+        private Builder() { }
+
+        /**
+         * @param days number of free overdue days at the start (default 0)
+         * @return this builder
+         */
+        public Builder graceDays(int days) {
+            if (days < 0) throw new IllegalArgumentException("graceDays must not be negative");
+            this.graceDays = days;
+            return this;
+        }
+
+        /**
+         * Charges {@code ratePerDay} for every overdue day from {@code fromDay} on,
+         * until a later step starts.
+         *
+         * @param fromDay    first overdue day of the step (1-based)
+         * @param ratePerDay fine per day
+         * @return this builder
+         */
+        public Builder step(int fromDay, int ratePerDay) {
+            if (fromDay < 1) throw new IllegalArgumentException("fromDay must be at least 1");
+            if (ratePerDay < 0) throw new IllegalArgumentException("ratePerDay must not be negative");
+            steps.add(new int[] {fromDay, ratePerDay});
+            return this;
+        }
+
+        /**
+         * @param maxFine highest fine for a single loan (default: no limit)
+         * @return this builder
+         */
+        public Builder maxFine(int maxFine) {
+            if (maxFine < 0) throw new IllegalArgumentException("maxFine must not be negative");
+            this.maxFine = maxFine;
+            return this;
+        }
+
+        /**
+         * Compiles the rules into a lookup table.
+         *
+         * @return the strategy
+         */
+        public TieredFineStrategy build() {
+            int[][] sorted = steps.toArray(new int[0][]);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a[0], b[0]));
+
+            int lastStepDay = sorted.length == 0 ? 0 : sorted[sorted.length - 1][0];
+            // after this day the rate no longer changes
+            int rulesEnd = Math.min(MAX_TABLE_DAYS - 1, Math.max(graceDays, lastStepDay));
+
+            int[] table = new int[Math.max(16, rulesEnd + 1)];
+            long fine = 0;
+            int rate = 0;
+            int next = 0;
+            int d = 0;
+            while (d < MAX_TABLE_DAYS - 1) {
+                // past the rules the table only continues until the maximum is reached
+                if (d >= rulesEnd && (maxFine == Integer.MAX_VALUE || rate == 0 || fine >= maxFine)) break;
+
+                d++;
+                while (next < sorted.length && sorted[next][0] <= d) {
+                    rate = sorted[next++][1];
+                }
+                if (d > graceDays) fine = Math.min(maxFine, fine + rate);
+
+                if (d >= table.length) table = Arrays.copyOf(table, Math.min(MAX_TABLE_DAYS, table.length * 2));
+                table[d] = (int) Math.min(fine, Integer.MAX_VALUE);
+            }
+            return new TieredFineStrategy(Arrays.copyOf(table, d + 1), rate, maxFine);
+        }
+    }
+}
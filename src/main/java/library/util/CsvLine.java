@@ -0,0 +1,84 @@
+package library.util;
+
+import java.util.List;
+
+/**
+ * Splits one line of comma-separated values.
+ * <p>
+ * A field may be enclosed in double quotes to contain commas; a doubled quote
+ * inside a quoted field stands for one quote. Fields are not trimmed. Quoted
+ * fields spanning several lines are not supported, since callers read line by
+ * line.
+ */
+public final class CsvLine {
+
+    private CsvLine() { }
+
+    /**
+     * Splits a line into its fields.
+     *
+     * @param line the line, without the line terminator
+     * @param out  receives the fields (cleared first)
+     * @return {@code out}
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public static List<String> split(String line, List<String> out) {
+        out.clear();
+        int pos = 0;
+        while (true) {
+            int end = fieldEnd(line, pos);
+            out.add(unquote(line, pos, end));
+            if (end == line.length()) return out;
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * Reads one field without splitting the whole line.
+     *
+     * @param line  the line
+     * @param index position of the field, 0 for the first
+     * @return the field, or null if the line has fewer fields
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public static String field(String line, int index) {
+        int pos = 0;
+        for (int i = 0; i < index; i++) {
+            int end = fieldEnd(line, pos);
+            if (end == line.length()) return null;
+            pos = end + 1;
+        }
+        return unquote(line, pos, fieldEnd(line, pos));
+    }
+
+    /**
+     * @return index of the comma after the field starting at {@code pos}, or the line length
+     */
+    private static int fieldEnd(String line, int pos) {
+        if (pos < line.length() && line.charAt(pos) == '"') {
+            int i = pos + 1;
+            while (true) {
+                int quote = line.indexOf('"', i);
+                if (quote < 0) throw new IllegalArgumentException("unclosed quote at column " + (pos + 1));
+                if (quote + 1 < line.length() && line.charAt(quote + 1) == '"') {
+                    i = quote + 2;
+                    continue;
+                }
+                int end = quote + 1;
+                if (end < line.length() && line.charAt(end) != ',')
+                    throw new IllegalArgumentException("text after closing quote at column " + (end + 1));
+                return end;
+            }
+        }
+        int comma = line.indexOf(',', pos);
+        return comma < 0 ? line.length() : comma;
+    }
+
+    private static String unquote(String line, int start, int end) {
+        if (start < end && line.charAt(start) == '"') {
+            String inner = line.substring(start + 1, end - 1);
+            return inner.indexOf('"') < 0 ? inner : inner.replace("\"\"", "\"");
+        }
+        return line.substring(start, end);
+    }
+}
@@ -0,0 +1,201 @@
+package library.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache that remembers the results of operations by request id for a
+ * limited time, so a retried request gets the original result instead of
+ * running the operation again.
+ * <p>
+ * Any key can be stored anywhere, and a result is only dropped once its time
+ * to live has passed: a live result is never evicted to make room, since a
+ * retry would then run the operation a second time. The number of entries is
+ * bounded by the capacity instead; when that many results are live, a new key
+ * is rejected with a {@link FullException} and the operation does not run, so
+ * the client can retry it later. Entries are kept in the order they expire,
+ * so dropping the expired ones only looks at those.
+ * <p>
+ * {@link #computeIfAbsent} runs the operation without holding the cache's
+ * lock; concurrent retries of the same request wait for the first one and
+ * then get its result. Results of operations that throw are not stored.
+ *
+ * @param <V> type of the stored results
+ */
+public class IdempotencyCache<V> {
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    // in order of expiry; a running operation keeps the place where it started until it completes
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * Creates a cache that uses {@link System#nanoTime()} as its clock.
+     *
+     * @param capacity maximum number of live results
+     * @param ttl      how long a result is remembered
+     */
+    public IdempotencyCache(int capacity, Duration ttl) {
+        this(capacity, ttl, System::nanoTime);
+    }
+
+    /**
+     * Creates a cache with its own clock.
+     *
+     * @param capacity maximum number of live results
+     * @param ttl      how long a result is remembered
+     * @param clock    source of the current time in nanoseconds
+     * @throws IllegalArgumentException if the capacity or the time to live is not positive
+     */
+    public IdempotencyCache(int capacity, Duration ttl, LongSupplier clock) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * @param key the request id
+     * @return the stored result, or null if there is none, it expired or its operation is still running
+     */
+    public synchronized V get(String key) {
+        Entry<V> e = entries.get(key);
+        return e != null && e.done && e.isLive(clock.getAsLong()) ? e.value : null;
+    }
+
+    /**
+     * Stores a result, replacing a previous one for the same key.
+     *
+     * @param key   the request id
+     * @param value the result (not null)
+     * @throws FullException if the key is new and the cache holds {@code capacity} live results
+     */
+    public synchronized void put(String key, V value) {
+        if (value == null) throw new NullPointerException("null values are not supported");
+        long now = clock.getAsLong();
+        purge(now);
+        Entry<V> old = entries.remove(key);
+        if (old == null && entries.size() >= capacity) throw new FullException(capacity);
+        Entry<V> e = new Entry<>();
+        e.complete(value, now + ttlNanos);
+        entries.put(key, e);
+        notifyAll();
+    }
+
+    /**
+     * Returns the stored result for the key, or runs the operation and stores
+     * its result. An operation that throws leaves nothing behind, so the
+     * request can be retried.
+     *
+     * @param key       the request id
+     * @param operation the operation to run at most once per key within the time to live
+     * @return the stored or new result
+     * @throws FullException if the key is new and the cache holds {@code capacity}
+     *                       live results; the operation did not run
+     */
+    public V computeIfAbsent(String key, Supplier<? extends V> operation) {
+        Entry<V> mine = new Entry<>();
+        synchronized (this) {
+            while (true) {
+                Entry<V> e = entries.get(key);
+                if (e == null || e.done && !e.isLive(clock.getAsLong())) break;
+                if (e.done) return e.value;
+                // a concurrent call with the same key runs the operation
+                awaitCompletion();
+            }
+            purge(clock.getAsLong());
+            entries.remove(key);
+            if (entries.size() >= capacity) throw new FullException(capacity);
+            entries.put(key, mine);
+        }
+
+        V value;
+        try {
+            value = operation.get();
+            if (value == null) throw new NullPointerException("operation returned null");
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries.remove(key, mine);
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            mine.complete(value, clock.getAsLong() + ttlNanos);
+            // move it to its place in expiry order
+            if (entries.remove(key, mine)) entries.put(key, mine);
+            notifyAll();
+        }
+        return value;
+    }
+
+    /** @return maximum number of live results */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return number of results that have not expired, including running operations */
+    public synchronized int size() {
+        purge(clock.getAsLong());
+        return entries.size();
+    }
+
+    // ---------------------------------------------------------------------
+
+    /**
+     * Drops the expired results at the head of the expiry order.
+     */
+    private void purge(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> e = it.next();
+            if (!e.done) continue;
+            if (e.isLive(now)) return;
+            it.remove();
+        }
+    }
+
+    private void awaitCompletion() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a running request");
+        }
+    }
+
+    /**
+     * Thrown when a new key does not fit because the cache holds as many live
+     * results as its capacity. Nothing was run or stored.
+     */
+    public static class FullException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        FullException(int capacity) {
+            super("more than " + capacity + " requests within the time to live");
+        }
+    }
+
+    // guarded by the cache's lock
+    private static final class Entry<V> {
+        V value;
+        long expiresAt;
+        boolean done;
+
+        void complete(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.done = true;
+        }
+
+        boolean isLive(long now) {
+            return now - expiresAt < 0;
+        }
+    }
+}
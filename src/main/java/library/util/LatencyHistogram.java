@@ -0,0 +1,173 @@
+package library.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values (usually latencies in nanoseconds) with
+ * log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values below 128 have a bucket each. Above that, every power of two is split
+ * into 64 buckets, so a value is known to within 1/64 (about 1.6%) of itself.
+ * All buckets are allocated up front (3712 counters), so {@link #record(long)}
+ * does not allocate; it is one bucket computation and two atomic additions
+ * (plus a compare-and-set when the maximum grows), and may be called from
+ * several threads. Reading is done on a {@link Snapshot}, a copy of the
+ * counters taken in one pass.
+ * <p>
+ * Percentiles report the highest value of the bucket the percentile falls in,
+ * but never more than the recorded maximum.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_COUNT * 2;
+    private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value (negative values are recorded as 0)
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(v));
+        sum.addAndGet(v);
+
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+    }
+
+    /** @return number of recorded values (sums all buckets) */
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        return n;
+    }
+
+    /** @return largest recorded value, or 0 if nothing was recorded */
+    public long max() {
+        return max.get();
+    }
+
+    /** @return sum of all recorded values */
+    public long sum() {
+        return sum.get();
+    }
+
+    /** @return mean of the recorded values, or 0 if nothing was recorded */
+    public double mean() {
+        return snapshot().mean();
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return value at or below which the given share of recorded values lies,
+     *         or 0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        return snapshot().valueAtPercentile(percentile);
+    }
+
+    /**
+     * Copies the counters, so several percentiles can be read from the same
+     * state. Values recorded while the copy is taken may or may not be included.
+     *
+     * @return a snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            n += copy[i];
+        }
+        return new Snapshot(copy, n, sum.get(), max.get());
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may be lost or
+     * only partly cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /** @return number of recorded values */
+        public long count() { return count; }
+
+        /** @return largest recorded value, or 0 if nothing was recorded */
+        public long max() { return max; }
+
+        /** @return sum of all recorded values */
+        public long sum() { return sum; }
+
+        /** @return mean of the recorded values, or 0 if nothing was recorded */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile percentile between 0 and 100
+         * @return value at or below which the given share of recorded values lies,
+         *         or 0 if nothing was recorded
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValueOf(i), max);
+            }
+            return max;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+
+    static int bucketOf(long v) {
+        if (v < LINEAR) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) (v >>> shift) - SUB_COUNT;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int shift = (bucket - LINEAR) / SUB_COUNT + 1;
+        long sub = (bucket - LINEAR) % SUB_COUNT + SUB_COUNT;
+        long high = ((sub + 1) << shift) - 1;
+        return high < 0 ? Long.MAX_VALUE : high;
+    }
+}
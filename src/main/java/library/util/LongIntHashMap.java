@@ -0,0 +1,206 @@
+package library.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive {@code long} keys to primitive {@code int} values.
+ * <p>
+ * Meant for tables keyed by numeric ids such as {@link library.domain.User#getOrdinal()}
+ * or epoch days, where neither the key nor the value should be boxed. Uses
+ * open addressing with linear probing; missing keys read as 0 unless another
+ * default is given. This class is not thread-safe.
+ */
+public class LongIntHashMap {
+
+    /**
+     * Receives the entries of the map in {@link #forEach(Entries)}.
+     */
+    public interface Entries {
+        void accept(long key, int value);
+    }
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized for the expected number of keys.
+     *
+     * @param expectedSize expected number of keys
+     */
+    public LongIntHashMap(int expectedSize) {
+        int needed = Math.max(MIN_CAPACITY, (int) Math.min(1 << 30, (long) expectedSize * 2));
+        allocate(Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * @param key the key
+     * @return value for the key, or 0 if absent
+     */
+    public int get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * @param key          the key
+     * @param defaultValue value returned when the key is absent
+     * @return value for the key, or {@code defaultValue}
+     */
+    public int getOrDefault(long key, int defaultValue) {
+        int i = slotFor(key);
+        return used[i] ? values[i] : defaultValue;
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(long key) {
+        return used[slotFor(key)];
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return previous value, or 0 if the key was absent
+     */
+    public int put(long key, int value) {
+        int i = slotFor(key);
+        if (used[i]) {
+            int old = values[i];
+            values[i] = value;
+            return old;
+        }
+        insertAt(i, key, value);
+        return 0;
+    }
+
+    /**
+     * Adds a delta to the value of a key, treating a missing key as 0.
+     *
+     * @param key   the key
+     * @param delta amount to add
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        int i = slotFor(key);
+        if (used[i]) {
+            return values[i] += delta;
+        }
+        insertAt(i, key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return removed value, or 0 if the key was absent
+     */
+    public int remove(long key) {
+        int i = slotFor(key);
+        if (!used[i]) return 0;
+
+        int old = values[i];
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) break;
+            int ideal = hash(keys[j]) & mask;
+            if (((j - ideal) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        used[i] = false;
+        keys[i] = 0L;
+        values[i] = 0;
+        size--;
+        return old;
+    }
+
+    /** @return number of keys */
+    public int size() { return size; }
+
+    /** @return true if the map has no keys */
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Calls the action for every key/value pair without boxing.
+     *
+     * @param action the action
+     */
+    public void forEach(Entries action) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) action.accept(keys[i], values[i]);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 2;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slotFor(long key) {
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void insertAt(int i, long key, int value) {
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            allocate(keys.length * 2);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (!oldUsed[j]) continue;
+                int s = hash(oldKeys[j]) & mask;
+                while (used[s]) s = (s + 1) & mask;
+                used[s] = true;
+                keys[s] = oldKeys[j];
+                values[s] = oldValues[j];
+            }
+        }
+    }
+}
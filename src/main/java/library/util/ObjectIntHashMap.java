@@ -0,0 +1,327 @@
+package library.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Hash map from object keys to primitive {@code int} values.
+ * <p>
+ * Uses open addressing with linear probing over two parallel arrays, so
+ * counting with {@link #addTo(Object, int)} does not allocate an
+ * {@link Integer} per update the way {@code map.put(k, map.getOrDefault(k, 0) + 1)}
+ * does. Missing keys read as 0 unless another default is given.
+ * <p>
+ * Null keys are not supported. This class is not thread-safe.
+ *
+ * @param <K> key type
+ */
+public class ObjectIntHashMap<K> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Creates an empty map.
+     */
+    public ObjectIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized for the expected number of keys.
+     *
+     * @param expectedSize expected number of keys
+     */
+    public ObjectIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Creates a copy of another map.
+     *
+     * @param other map to copy
+     */
+    public ObjectIntHashMap(ObjectIntHashMap<? extends K> other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeAt = other.resizeAt;
+    }
+
+    /**
+     * @param key the key
+     * @return value for the key, or 0 if absent
+     */
+    public int get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * @param key          the key
+     * @param defaultValue value returned when the key is absent
+     * @return value for the key, or {@code defaultValue}
+     */
+    public int getOrDefault(Object key, int defaultValue) {
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   the key (not null)
+     * @param value the value
+     * @return previous value, or 0 if the key was absent
+     */
+    public int put(K key, int value) {
+        int i = slotFor(key);
+        if (keys[i] != null) {
+            int old = values[i];
+            values[i] = value;
+            return old;
+        }
+        insertAt(i, key, value);
+        return 0;
+    }
+
+    /**
+     * Adds a delta to the value of a key, treating a missing key as 0.
+     *
+     * @param key   the key (not null)
+     * @param delta amount to add
+     * @return the new value
+     */
+    public int addTo(K key, int delta) {
+        int i = slotFor(key);
+        if (keys[i] != null) {
+            return values[i] += delta;
+        }
+        insertAt(i, key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return removed value, or 0 if the key was absent
+     */
+    public int remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) return 0;
+
+        int old = values[i];
+        deleteAt(i);
+        return old;
+    }
+
+    /** @return number of keys */
+    public int size() { return size; }
+
+    /** @return true if the map has no keys */
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Calls the action for every key/value pair without boxing the values.
+     *
+     * @param action the action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        Object[] k = keys;
+        int[] v = values;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null) action.accept((K) k[i], v[i]);
+        }
+    }
+
+    /**
+     * Returns a read-only {@link Map} view with boxed values, for callers that
+     * need the standard collections API. Reads go straight to this map.
+     *
+     * @return unmodifiable boxed view
+     */
+    public Map<K, Integer> asMap() {
+        return new BoxedView();
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private static int capacityFor(int expectedSize) {
+        int needed = Math.max(MIN_CAPACITY, (int) Math.min(1 << 30, (long) expectedSize * 2));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 2;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) return -1;
+        int i = hash(key) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it would go.
+     */
+    private int slotFor(Object key) {
+        if (key == null) throw new NullPointerException("null keys are not supported");
+        int i = hash(key) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void insertAt(int i, Object key, int value) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object k = oldKeys[j];
+            if (k == null) continue;
+            int i = hash(k) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Backward-shift deletion: keeps probe chains intact without tombstones.
+     */
+    private void deleteAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            Object k = keys[j];
+            if (k == null) break;
+            int ideal = hash(k) & mask;
+            if (((j - ideal) & mask) >= ((j - i) & mask)) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = null;
+        values[i] = 0;
+        size--;
+    }
+
+    /**
+     * Read-only boxed view returned by {@link #asMap()}.
+     */
+    private final class BoxedView extends AbstractMap<K, Integer> {
+
+        @Override
+        public Integer get(Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : values[i];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<K, Integer>> entrySet() {
+            return new AbstractSet<Entry<K, Integer>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<K, Integer>> iterator() {
+                    return new Iterator<Entry<K, Integer>>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < keys.length && keys[from] == null) from++;
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Entry<K, Integer> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            Entry<K, Integer> e =
+                                    new SimpleImmutableEntry<>((K) keys[next], values[next]);
+                            next = advance(next + 1);
+                            return e;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
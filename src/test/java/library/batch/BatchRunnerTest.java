@@ -0,0 +1,135 @@
+package library.batch;
+
+import library.AppConfig;
+import library.domain.Loan;
+import library.domain.User;
+import library.service.LibraryService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BatchRunner}.
+ */
+class BatchRunnerTest {
+
+    /**
+     * Commands are applied in order, keys resolve to the created ids and
+     * failed lines are reported with their line number.
+     */
+    @Test
+    void run_appliesCommandsAndReportsFailures() throws IOException {
+        AppConfig config = new AppConfig();
+        LibraryService library = config.libraryService();
+        String file = String.join("\n",
+                "# users and catalog",
+                "user,rana,Rana,rana@example.com",
+                "book,b1,\"Clean Code, 2nd ed\",Robert Martin,ISBN-1",
+                "cd,c1,Thriller,Michael Jackson",
+                "",
+                "borrow,rana,b1",
+                "borrow,rana,c1",
+                "borrow,rana,b1",
+                "return,rana,c1",
+                "return,rana,c1",
+                "return,nobody,c1",
+                "pay,rana,0",
+                "lend,rana,b1",
+                "borrow,rana");
+
+        BatchRunner.Summary summary = new BatchRunner(library, 1).run(new StringReader(file));
+
+        assertEquals(1, summary.count(BatchRunner.Op.USER));
+        assertEquals(1, summary.count(BatchRunner.Op.BOOK));
+        assertEquals(2, summary.count(BatchRunner.Op.BORROW));
+        assertEquals(1, summary.count(BatchRunner.Op.RETURN));
+        assertEquals(7, summary.applied());
+        assertEquals(5, summary.getErrors());
+        assertEquals(List.of(
+                "line 8: Media not available",
+                "line 10: Already returned",
+                "line 11: no open loan",
+                "line 13: unknown command: lend",
+                "line 14: borrow takes 2 fields"), summary.getErrorLines());
+
+        User rana = config.userRepository().findByEmail("rana@example.com").orElseThrow();
+        List<Loan> loans = library.findLoansByUser(rana.getId());
+        assertEquals(2, loans.size());
+        assertEquals(1, loans.stream().filter(l -> !l.isReturned()).count());
+        assertEquals(1, library.searchByTitle("Clean Code, 2nd ed").size());
+        assertTrue(summary.format().contains("line 8: Media not available"));
+    }
+
+    /**
+     * With several parsing threads every user's commands still run in order.
+     */
+    @Test
+    void run_partitioned_keepsOrderPerUser() throws IOException {
+        AppConfig config = new AppConfig();
+        LibraryService library = config.libraryService();
+        StringBuilder file = new StringBuilder();
+        int users = 200;
+        for (int i = 0; i < users; i++) {
+            file.append("book,b").append(i).append(",Title ").append(i).append(",Author,ISBN-").append(i).append('\n');
+        }
+        for (int i = 0; i < users; i++) {
+            file.append("user,u").append(i).append(",User ").append(i).append(",u").append(i).append("@example.com\n");
+            file.append("borrow,u").append(i).append(",b").append(i).append('\n');
+        }
+        for (int i = 0; i < users; i += 2) {
+            file.append("return,u").append(i).append(",b").append(i).append('\n');
+        }
+
+        BatchRunner.Summary summary = new BatchRunner(library, 4).run(new StringReader(file.toString()));
+
+        assertEquals(0, summary.getErrors(), summary.format());
+        assertEquals(users * 2 + users + users / 2, summary.applied());
+        User u1 = config.userRepository().findByEmail("u1@example.com").orElseThrow();
+        assertFalse(library.findLoansByUser(u1.getId()).get(0).isReturned());
+        User u2 = config.userRepository().findByEmail("u2@example.com").orElseThrow();
+        assertTrue(library.findLoansByUser(u2.getId()).get(0).isReturned());
+    }
+
+    /**
+     * Different users passing one item on run in file order across many
+     * chunks, with the same result as a run on one thread.
+     */
+    @Test
+    void run_parallel_keepsFileOrderAcrossUsers() throws IOException {
+        StringBuilder file = new StringBuilder("book,b,Shared,Author,ISBN-S\n");
+        int users = 50;
+        for (int i = 0; i < users; i++) {
+            file.append("user,u").append(i).append(",User ").append(i).append(",u").append(i).append("@example.com\n");
+        }
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < users; i++) {
+                file.append("borrow,u").append(i).append(",b\n");
+                file.append("return,u").append(i).append(",b\n");
+            }
+        }
+        file.append("borrow,u0,b\nborrow,u1,b\n");
+
+        BatchRunner.Summary parallel = new BatchRunner(new AppConfig().libraryService(), 4)
+                .run(new StringReader(file.toString()));
+        BatchRunner.Summary serial = new BatchRunner(new AppConfig().libraryService(), 1)
+                .run(new StringReader(file.toString()));
+
+        assertEquals(1, parallel.getErrors(), parallel.format());
+        assertEquals(List.of("line " + (2 + users + 100 * users * 2 + 1) + ": Media not available"),
+                parallel.getErrorLines());
+        assertEquals(serial.getErrorLines(), parallel.getErrorLines());
+        assertEquals(serial.applied(), parallel.applied());
+    }
+
+    /**
+     * A parallelism below 1 is rejected.
+     */
+    @Test
+    void constructor_rejectsZeroParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchRunner(new AppConfig().libraryService(), 0));
+    }
+}
@@ -0,0 +1,124 @@
+package library.batch;
+
+import library.AppConfig;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.service.LibraryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CatalogImporter}.
+ */
+class CatalogImporterTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * CSV rows become books and CDs in file order; malformed rows are skipped
+     * and reported with their line numbers, also when they are in a later chunk.
+     */
+    @Test
+    void importCsv_addsItemsAndReportsMalformedRows() throws IOException {
+        StringBuilder csv = new StringBuilder("type,title,creator,isbn\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append("book,\"Title ").append(i).append(", part 1\",Author ").append(i).append(",ISBN-").append(i).append('\n');
+        }
+        csv.append("cd,Thriller,Michael Jackson\r\n");   // line 202
+        csv.append("# comment\n");
+        csv.append("dvd,Alien,Ridley Scott\n");           // line 204
+        csv.append("book,No Isbn,Someone,\n");            // line 205
+        csv.append("\n");
+        csv.append("cd,\"Unclosed,Artist");               // line 207, no line end
+        Path file = dir.resolve("catalog.csv");
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        AppConfig config = new AppConfig();
+        LibraryService library = config.libraryService();
+        long before = config.mediaRepository().count();
+
+        CatalogImporter.Result result = new CatalogImporter(library, 3, 512).importFile(file);
+
+        assertEquals(200, result.getBooks());
+        assertEquals(1, result.getCds());
+        assertEquals(3, result.getErrors());
+        assertEquals(List.of(
+                "line 204: unknown type: dvd",
+                "line 205: missing isbn",
+                "line 207: unclosed quote at column 4"), result.getErrorLines());
+
+        List<Media> all = config.mediaRepository().findAll();
+        assertEquals(before + 201, all.size());
+        Book first = (Book) all.get((int) before);
+        assertEquals("Title 0, part 1", first.getTitle());
+        assertEquals("ISBN-0", first.getIsbn());
+        assertTrue(all.get(all.size() - 1) instanceof CD);
+        assertSame(first, config.mediaRepository().findById(first.getId()).orElseThrow());
+        assertEquals(1, library.searchByIsbn("ISBN-199").size());
+    }
+
+    /**
+     * JSON lines are decoded, including escapes and unknown fields.
+     */
+    @Test
+    void importJsonLines_decodesObjects() throws IOException {
+        Path file = dir.resolve("catalog.jsonl");
+        Files.write(file, String.join("\n",
+                "{\"type\":\"book\",\"title\":\"Caf\\u00e9 \\\"Noir\\\"\",\"author\":\"A. Writer\",\"isbn\":\"ISBN-9\",\"year\":1999}",
+                "{ \"type\" : \"cd\", \"title\" : \"Blue\", \"artist\" : \"Joni\" }",
+                "{\"type\":\"cd\",\"title\":\"No Artist\"}",
+                "{\"type\":\"book\",\"title\":\"Broken\"",
+                "").getBytes(StandardCharsets.UTF_8));
+
+        AppConfig config = new AppConfig();
+        CatalogImporter.Result result = new CatalogImporter(config.libraryService(), 1).importFile(file);
+
+        assertEquals(2, result.imported());
+        assertEquals(List.of("line 3: missing artist", "line 4: unexpected end of line at column 32"),
+                result.getErrorLines());
+        assertEquals(1, config.libraryService().searchByTitle("Café \"Noir\"").size());
+        assertEquals(1, config.libraryService().searchByAuthor("joni").size());
+    }
+
+    /**
+     * MARC21 dumps go through the same bulk path; bad records are reported by number and offset.
+     */
+    @Test
+    void importMarc_addsBooks() throws IOException {
+        byte[] good = MarcReaderTest.book("Refactoring", "Fowler, Martin", "0201485672");
+        byte[] bad = MarcReaderTest.record('a', "100 1" + (char) 0x1F + "aNobody");
+        Path file = dir.resolve("dump.mrc");
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        out.writeBytes(good);
+        out.writeBytes(bad);
+        out.writeBytes(good);
+        Files.write(file, out.toByteArray());
+
+        AppConfig config = new AppConfig();
+        CatalogImporter.Result result = new CatalogImporter(config.libraryService(), 2).importFile(file);
+
+        assertEquals(2, result.getBooks());
+        assertEquals(List.of("record 2 at byte " + good.length + ": no title (245 $a)"), result.getErrorLines());
+        assertEquals(2, config.libraryService().searchByIsbn("0201485672").size());
+    }
+
+    /**
+     * The format follows the file extension.
+     */
+    @Test
+    void format_followsExtension() {
+        assertEquals(CatalogImporter.Format.JSON_LINES, CatalogImporter.Format.of(dir.resolve("a.ndjson")));
+        assertEquals(CatalogImporter.Format.MARC21, CatalogImporter.Format.of(dir.resolve("a.MRC")));
+        assertEquals(CatalogImporter.Format.CSV, CatalogImporter.Format.of(dir.resolve("a.txt")));
+    }
+}
@@ -0,0 +1,142 @@
+package library.batch;
+
+import library.domain.media.Book;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MarcReader}.
+ */
+class MarcReaderTest {
+
+    private static final char SUB = 0x1F;
+
+    /**
+     * Builds an ISO 2709 record from fields written as tag followed by the field data.
+     */
+    static byte[] record(char coding, String... fields) {
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (String f : fields) {
+            byte[] bytes = (f.substring(3) + (char) 0x1E).getBytes(coding == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            directory.writeBytes(String.format("%s%04d%05d", f.substring(0, 3), bytes.length, data.size()).getBytes(StandardCharsets.US_ASCII));
+            data.writeBytes(bytes);
+        }
+        directory.write(0x1E);
+        int base = 24 + directory.size();
+        int length = base + data.size() + 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(String.format("%05dnam %c22%05d   4500", length, coding, base).getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(directory.toByteArray());
+        out.writeBytes(data.toByteArray());
+        out.write(0x1D);
+        return out.toByteArray();
+    }
+
+    static byte[] book(String title, String author, String isbn) {
+        return record('a', "001" + "ctl", "020  " + SUB + "a" + isbn, "100 1" + SUB + "a" + author + ",",
+                "24510" + SUB + "a" + title + " /" + SUB + "c" + author + ".");
+    }
+
+    private static MarcReader reader(byte[]... records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] r : records) {
+            out.writeBytes(r);
+        }
+        return new MarcReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Title, author and ISBN are taken from 245, 100 and 020 without the ISBD punctuation.
+     */
+    @Test
+    void read_extractsTitleAuthorAndIsbn() throws IOException {
+        byte[] r = record('a',
+                "020  " + SUB + "a9780132350884 (pbk.)",
+                "020  " + SUB + "a0132350882",
+                "100 1" + SUB + "aMartin, Robert C.,",
+                "24510" + SUB + "aClean code :" + SUB + "ba handbook of agile software craftsmanship /" + SUB + "cRobert C. Martin.");
+        try (MarcReader reader = reader(r)) {
+            Book book = reader.read();
+            assertEquals("Clean code : a handbook of agile software craftsmanship", book.getTitle());
+            assertEquals("Martin, Robert C.", book.getAuthor());
+            assertEquals("9780132350884", book.getIsbn());
+            assertEquals(1, reader.getRecordNumber());
+            assertNull(reader.read());
+        }
+    }
+
+    /**
+     * UTF-8 records are decoded; MARC-8 diacritics are dropped; missing fields are empty.
+     */
+    @Test
+    void read_decodesCharacterCodings() throws IOException {
+        byte[] utf8 = record('a', "24500" + SUB + "aCafé Noir.");
+        byte[] marc8 = record(' ', "24500" + SUB + "aLes mis" + (char) 0xE2 + "erables.");
+        try (MarcReader reader = reader(utf8, marc8)) {
+            Book first = reader.read();
+            assertEquals("Café Noir", first.getTitle());
+            assertEquals("", first.getAuthor());
+            assertEquals("", first.getIsbn());
+            assertEquals("Les miserables", reader.read().getTitle());
+        }
+    }
+
+    /**
+     * A malformed record is reported and the reader goes on with the next one.
+     */
+    @Test
+    void read_skipsMalformedRecords() throws IOException {
+        byte[] noTitle = record('a', "100 1" + SUB + "aNobody");
+        byte[] badLength = book("Lost", "Someone", "1");
+        badLength[0] = 'x';
+        byte[] shortLength = book("Cut", "Someone", "2");
+        shortLength[3]--;
+        byte[] good = book("Found", "Someone", "3");
+        byte[] lineBreak = {'\n'};
+
+        try (MarcReader reader = reader(noTitle, lineBreak, badLength, shortLength, good, good)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::read);
+            assertEquals("no title (245 $a)", e.getMessage());
+            assertEquals(0, reader.getRecordOffset());
+            assertThrows(IllegalArgumentException.class, reader::read);
+            assertEquals(noTitle.length + 1, reader.getRecordOffset());
+            assertThrows(IllegalArgumentException.class, reader::read);
+            assertEquals("Found", reader.read().getTitle());
+            assertEquals(4, reader.getRecordNumber());
+            assertEquals("Found", reader.read().getTitle());
+            assertNull(reader.read());
+        }
+    }
+
+    /**
+     * Records spanning many buffer refills are all read.
+     */
+    @Test
+    void read_manyRecords() throws IOException {
+        int n = 10_000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < n; i++) {
+            out.writeBytes(book("Title " + i, "Author " + i, "ISBN-" + i));
+        }
+        try (MarcReader reader = new MarcReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))) {
+            int count = 0;
+            Book book;
+            Book last = null;
+            while ((book = reader.read()) != null) {
+                count++;
+                last = book;
+            }
+            assertEquals(n, count);
+            assertEquals("Title " + (n - 1), last.getTitle());
+            assertEquals("ISBN-" + (n - 1), last.getIsbn());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package library.export;
+
+import library.domain.Loan;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SnapshotExporter} and {@link LibrarySnapshot}.
+ */
+class SnapshotExporterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @TempDir
+    Path dir;
+
+    private MediaRepository mediaRepo;
+    private LoanRepository loanRepo;
+    private Book book;
+    private CD cd;
+    private Loan loan;
+
+    @BeforeEach
+    void setUp() {
+        mediaRepo = new InMemoryMediaRepository();
+        loanRepo = new InMemoryLoanRepository();
+        book = new Book("Clean Code, 2nd \"ed\"", "Robert C. Martin", "ISBN-1");
+        cd = new CD("Café del Mar 𝄞", "Various");
+        mediaRepo.save(book);
+        mediaRepo.save(cd);
+        book.setAvailable(false);
+        loan = new Loan("U1", book.getId(), DAY.minusDays(3), DAY.plusDays(25));
+        loanRepo.save(loan);
+    }
+
+    /**
+     * CSV files show the library as it was when the snapshot was taken, with
+     * quoted fields and UTF-8 text.
+     */
+    @Test
+    void exportCsv_writesSnapshotState() throws IOException {
+        LibrarySnapshot snapshot = LibrarySnapshot.take(mediaRepo, loanRepo, DAY);
+        loan.setReturnedDate(DAY);
+        book.setAvailable(true);
+        mediaRepo.save(new Book("Later", "Someone", "ISBN-2"));
+
+        SnapshotExporter exporter = new SnapshotExporter(dir.resolve("out"));
+        exporter.export(snapshot, SnapshotExporter.Format.CSV);
+
+        List<String> media = Files.readAllLines(
+                exporter.file(SnapshotExporter.Dataset.MEDIA, SnapshotExporter.Format.CSV, DAY), StandardCharsets.UTF_8);
+        assertEquals(3, media.size());
+        assertEquals("id,type,title,creator,isbn,available", media.get(0));
+        assertEquals(book.getId() + ",BOOK,\"Clean Code, 2nd \"\"ed\"\"\",Robert C. Martin,ISBN-1,false", media.get(1));
+        assertEquals(cd.getId() + ",CD,Café del Mar 𝄞,Various,,true", media.get(2));
+
+        List<String> loans = Files.readAllLines(dir.resolve("out").resolve("loans-2024-05-01.csv"));
+        assertEquals(2, loans.size());
+        assertEquals(loan.getId() + ",U1," + book.getId() + ",2024-04-28,2024-05-26,", loans.get(1));
+    }
+
+    /**
+     * The binary format has the documented header and records.
+     */
+    @Test
+    void exportBinary_writesDocumentedLayout() throws IOException {
+        loan.setReturnedDate(DAY);
+        SnapshotExporter exporter = new SnapshotExporter(dir);
+        exporter.export(LibrarySnapshot.take(mediaRepo, loanRepo, DAY), SnapshotExporter.Format.BINARY);
+
+        ByteBuffer media = ByteBuffer.wrap(Files.readAllBytes(dir.resolve("media-2024-05-01.bin")));
+        assertEquals("LIBX", string(media, 4));
+        assertEquals(SnapshotExporter.BINARY_VERSION, media.get());
+        assertEquals(0, media.get());
+        assertEquals(DAY.toEpochDay(), media.getInt());
+        assertEquals(2, media.getInt());
+        assertEquals(book.getId(), string(media));
+        assertEquals("BOOK", string(media));
+        assertEquals(book.getTitle(), string(media));
+        assertEquals("Robert C. Martin", string(media));
+        assertEquals("ISBN-1", string(media));
+        assertEquals(0, media.get());
+        assertEquals(cd.getId(), string(media));
+        assertEquals("CD", string(media));
+        assertEquals("Café del Mar 𝄞", string(media));
+        assertEquals("Various", string(media));
+        assertEquals("", string(media));
+        assertEquals(1, media.get());
+        assertFalse(media.hasRemaining());
+
+        ByteBuffer loans = ByteBuffer.wrap(Files.readAllBytes(dir.resolve("loans-2024-05-01.bin")));
+        loans.position(5);
+        assertEquals(1, loans.get());
+        loans.getInt();
+        assertEquals(1, loans.getInt());
+        assertEquals(loan.getId(), string(loans));
+        assertEquals("U1", string(loans));
+        assertEquals(book.getId(), string(loans));
+        assertEquals(DAY.minusDays(3).toEpochDay(), loans.getInt());
+        assertEquals(DAY.plusDays(25).toEpochDay(), loans.getInt());
+        assertEquals(DAY.toEpochDay(), loans.getInt());
+        assertFalse(loans.hasRemaining());
+    }
+
+    /**
+     * Records larger than the buffer are written across several flushes.
+     */
+    @Test
+    void export_spansManyBuffers() throws IOException {
+        StringBuilder title = new StringBuilder();
+        while (title.length() < SnapshotExporter.BUFFER_SIZE) title.append("Ωmega, ");
+        mediaRepo.save(new Book(title.toString(), "Long", "ISBN-3"));
+        for (int i = 0; i < 20_000; i++) {
+            mediaRepo.save(new Book("Title " + i, "Author " + i, "ISBN-X" + i));
+        }
+        SnapshotExporter exporter = new SnapshotExporter(dir);
+        exporter.export(LibrarySnapshot.take(mediaRepo, loanRepo, DAY), SnapshotExporter.Format.CSV);
+        exporter.export(LibrarySnapshot.take(mediaRepo, loanRepo, DAY), SnapshotExporter.Format.BINARY);
+
+        List<String> media = Files.readAllLines(dir.resolve("media-2024-05-01.csv"));
+        assertEquals(20_004, media.size());
+        assertTrue(media.get(3).endsWith(",BOOK,\"" + title + "\",Long,ISBN-3,true"));
+        assertTrue(media.get(20_003).endsWith(",Title 19999,Author 19999,ISBN-X19999,true"));
+
+        ByteBuffer binary = ByteBuffer.wrap(Files.readAllBytes(dir.resolve("media-2024-05-01.bin")));
+        binary.position(10);
+        assertEquals(20_003, binary.getInt());
+        for (int i = 0; i < 2; i++) {
+            for (int f = 0; f < 5; f++) string(binary);
+            binary.get();
+        }
+        string(binary);
+        string(binary);
+        assertEquals(title.toString(), string(binary));
+    }
+
+    /**
+     * A day is exported once; transfer copies the file to another channel.
+     */
+    @Test
+    void exportIfAbsent_exportsOncePerDayAndTransfers() throws IOException {
+        SnapshotExporter exporter = new SnapshotExporter(dir);
+        AtomicInteger taken = new AtomicInteger();
+        assertTrue(exporter.exportIfAbsent(DAY, SnapshotExporter.Format.CSV, () -> {
+            taken.incrementAndGet();
+            return LibrarySnapshot.take(mediaRepo, loanRepo, DAY);
+        }));
+        assertFalse(exporter.exportIfAbsent(DAY, SnapshotExporter.Format.CSV, () -> {
+            throw new AssertionError("exported twice");
+        }));
+        assertEquals(1, taken.get());
+
+        Path file = exporter.file(SnapshotExporter.Dataset.MEDIA, SnapshotExporter.Format.CSV, DAY);
+        Path copy = dir.resolve("copy.csv");
+        try (FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            assertEquals(Files.size(file), SnapshotExporter.transfer(file, out));
+        }
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(copy));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(3, files.count());   // no temporary files left
+        }
+    }
+
+    /**
+     * Files left by another exporter, e.g. before a restart, are replaced by
+     * the first export of their day instead of being served as they are.
+     */
+    @Test
+    void exportIfAbsent_replacesFilesOfEarlierExporter() throws IOException {
+        SnapshotExporter before = new SnapshotExporter(dir);
+        before.exportIfAbsent(DAY, SnapshotExporter.Format.CSV, () -> LibrarySnapshot.take(mediaRepo, loanRepo, DAY));
+        mediaRepo.save(new Book("After restart", "Someone", "ISBN-2"));
+
+        SnapshotExporter after = new SnapshotExporter(dir);
+        assertTrue(after.exportIfAbsent(DAY, SnapshotExporter.Format.CSV,
+                () -> LibrarySnapshot.take(mediaRepo, loanRepo, DAY)));
+        List<String> media = Files.readAllLines(
+                after.file(SnapshotExporter.Dataset.MEDIA, SnapshotExporter.Format.CSV, DAY));
+        assertEquals(4, media.size());
+        assertFalse(after.exportIfAbsent(DAY, SnapshotExporter.Format.CSV, () -> {
+            throw new AssertionError("exported twice");
+        }));
+    }
+
+    private static String string(ByteBuffer buf) {
+        return string(buf, buf.getInt());
+    }
+
+    private static String string(ByteBuffer buf, int length) {
+        String s = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return s;
+    }
+}
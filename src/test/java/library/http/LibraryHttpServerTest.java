@@ -0,0 +1,202 @@
+package library.http;
+
+import library.AppConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link LibraryHttpServer} and {@link LoadClient}.
+ */
+class LibraryHttpServerTest {
+
+    private AppConfig config;
+    private LibraryHttpServer server;
+
+    @TempDir
+    Path exportDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new AppConfig();
+        server = new LibraryHttpServer(config, new InetSocketAddress("localhost", 0),
+                LibraryHttpServer.newPool(8));
+        server.useExportDirectory(exportDir);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * A kiosk session: register, search, borrow, read loans, return.
+     */
+    @Test
+    void endpoints_shouldServeBorrowAndReturn() throws IOException {
+        String[] user = call("POST", "/api/users", "name=rana&email=rana%40example.com");
+        assertEquals("201", user[0]);
+        String userId = Json.field(user[1], "id");
+
+        String[] found = call("GET", "/api/search?by=isbn&q=ISBN-200", null);
+        assertEquals("200", found[0]);
+        assertEquals("Effective Java", Json.field(found[1], "title"));
+        String mediaId = Json.field(found[1], "id");
+
+        String[] loan = call("POST", "/api/borrow", "userId=" + userId + "&mediaId=" + mediaId);
+        assertEquals("201", loan[0]);
+        String loanId = Json.field(loan[1], "id");
+        assertEquals(mediaId, Json.field(loan[1], "mediaId"));
+
+        String[] again = call("POST", "/api/borrow", "userId=" + userId + "&mediaId=" + mediaId);
+        assertEquals("409", again[0]);
+        assertNotNull(Json.field(again[1], "error"));
+
+        assertTrue(call("GET", "/api/users/" + userId + "/loans", null)[1].contains(loanId));
+        assertTrue(call("GET", "/api/reports/borrowed", null)[1].contains(loanId));
+
+        String[] returned = call("POST", "/api/return?loanId=" + loanId, null);
+        assertEquals("200", returned[0]);
+        assertNotNull(Json.field(returned[1], "returnedDate"));
+        assertEquals("0", Json.field(call("GET", "/api/users/" + userId, null)[1], "outstandingFine"));
+    }
+
+    /**
+     * Errors map to status codes with a JSON message.
+     */
+    @Test
+    void errors_shouldMapToStatusCodes() throws IOException {
+        assertEquals("404", call("POST", "/api/return", "loanId=nope")[0]);
+        assertEquals("404", call("GET", "/api/nothing", null)[0]);
+        assertEquals("405", call("GET", "/api/borrow", null)[0]);
+        assertEquals("400", call("POST", "/api/pay", "userId=U1&amount=ten")[0]);
+        assertEquals("400", call("POST", "/api/borrow", "userId=U1")[0]);
+        assertEquals("400", call("GET", "/api/search?by=year&q=1999", null)[0]);
+        assertEquals("200", call("GET", "/api/reports/overdue", null)[0]);
+        assertTrue(call("GET", "/api/metrics", null)[1].contains("library.borrow"));
+    }
+
+    /**
+     * Concurrent borrows of one item: exactly one succeeds.
+     */
+    @Test
+    void concurrentBorrows_shouldLendItemOnce() throws Exception {
+        String mediaId = Json.field(call("GET", "/api/search?by=isbn&q=ISBN-100", null)[1], "id");
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            userIds.add(Json.field(call("POST", "/api/users", "name=k" + i + "&email=k" + i + "%40x.org")[1], "id"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String[]>> results = new ArrayList<>();
+            for (String userId : userIds) {
+                Callable<String[]> borrow = () -> call("POST", "/api/borrow",
+                        "userId=" + userId + "&mediaId=" + mediaId);
+                results.add(pool.submit(borrow));
+            }
+            int created = 0;
+            for (Future<String[]> f : results) {
+                String status = f.get()[0];
+                if (status.equals("201")) created++;
+                else assertEquals("409", status);
+            }
+            assertEquals(1, created);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The first export of a day writes the files; later requests that day are
+     * served from them, even after the library changed.
+     */
+    @Test
+    void export_shouldServeSnapshotOfTheDay() throws IOException {
+        String[] media = call("GET", "/api/export/media", null);
+        assertEquals("200", media[0]);
+        assertTrue(media[1].startsWith("id,type,title,creator,isbn,available\n"));
+        assertTrue(media[1].contains(",BOOK,Effective Java,"));
+
+        String userId = Json.field(call("POST", "/api/users", "name=rana&email=rana%40example.com")[1], "id");
+        String mediaId = Json.field(call("GET", "/api/search?by=isbn&q=ISBN-200", null)[1], "id");
+        assertEquals("201", call("POST", "/api/borrow", "userId=" + userId + "&mediaId=" + mediaId)[0]);
+
+        String[] loans = call("GET", "/api/export/loans", null);
+        assertEquals("200", loans[0]);
+        assertEquals("id,userId,mediaId,borrowDate,dueDate,returnedDate\n", loans[1]);
+        assertTrue(Files.exists(exportDir.resolve("media-" + config.timeProvider().today() + ".csv")));
+
+        String[] binary = call("GET", "/api/export/loans?format=binary", null);
+        assertEquals("200", binary[0]);
+        assertTrue(binary[1].startsWith("LIBX"));
+
+        assertEquals("400", call("GET", "/api/export/users", null)[0]);
+        assertEquals("400", call("GET", "/api/export/media?format=xml", null)[0]);
+        assertEquals("405", call("POST", "/api/export/media", "format=csv")[0]);
+    }
+
+    /**
+     * The load client completes a small run without errors.
+     */
+    @Test
+    void loadClient_shouldReportLatencies() throws Exception {
+        LoadClient.Result result = new LoadClient("http://localhost:" + server.getPort(),
+                4, 50, 0.5, 7).run();
+
+        assertEquals(0, result.getErrors());
+        long sent = result.latencies(LoadClient.Request.SEARCH).count()
+                + result.latencies(LoadClient.Request.BORROW).count();
+        assertEquals(200, sent);
+        assertEquals(result.latencies(LoadClient.Request.BORROW).count()
+                        - result.rejected(LoadClient.Request.BORROW),
+                result.latencies(LoadClient.Request.RETURN).count());
+        assertTrue(result.throughput() > 0);
+        assertTrue(result.format().contains("BORROW"));
+    }
+
+    // ---------------------------------------------------------------------
+
+    private String[] call(String method, String path, String form) throws IOException {
+        HttpURLConnection con = (HttpURLConnection)
+                new URL("http://localhost:" + server.getPort() + path).openConnection();
+        con.setRequestMethod(method);
+        if (form != null) {
+            con.setDoOutput(true);
+            con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = con.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = con.getResponseCode();
+        InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream is = in) {
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = is.read(buf)) > 0) body.write(buf, 0, n);
+        }
+        return new String[] {String.valueOf(status), new String(body.toByteArray(), StandardCharsets.UTF_8)};
+    }
+}
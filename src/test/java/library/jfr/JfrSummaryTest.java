@@ -0,0 +1,167 @@
+package library.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.exception.BusinessRuleException;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.ServiceEvents;
+import library.sim.SimulatedClock;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.MediaPolicyTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the library flight recorder events and {@link JfrSummary}.
+ */
+class JfrSummaryTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Service calls made during a recording show up in the summary, with
+     * failures counted and ids in the details of the slowest events.
+     */
+    @Test
+    void summary_shouldGroupLibraryEvents() throws Exception {
+        SimulatedClock clock = new SimulatedClock(LocalDate.of(2025, 1, 1));
+        InMemoryUserRepository users = new InMemoryUserRepository();
+        InMemoryMediaRepository media = new InMemoryMediaRepository();
+        InMemoryLoanRepository loans = new InMemoryLoanRepository();
+        ReminderService reminders = new ReminderService(clock);
+        LibraryService library = new LibraryService(users, media, loans, reminders, clock,
+                MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy()),
+                new AuthService(new InMemoryAdminRepository()));
+        reminders.registerNotifier((user, message) -> { });
+        reminders.registerNotifier((user, message) -> {
+            throw new IllegalStateException("mail server down");
+        });
+
+        User user = library.registerUser("ahmad", "ahmad@gmail.com");
+        Book book = new Book("Clean Code", "Robert C. Martin", "ISBN-100");
+        CD cd = new CD("Greatest Hits", "Michael Jackson");
+        media.save(book);
+        media.save(cd);
+
+        Path file = dir.resolve("library.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("library.Borrow");
+            recording.enable("library.Return");
+            recording.enable("library.Search");
+            recording.enable("library.ReminderRun");
+            recording.enable("library.Notification");
+            recording.start();
+
+            Loan loan = library.borrow(user.getId(), book.getId());
+            assertThrows(BusinessRuleException.class, () -> library.borrow(user.getId(), book.getId()));
+            library.searchByTitle("clean");
+            library.searchByIsbn("ISBN-100");
+            library.search("hits");
+            for (int i = 0; i < 30; i++) clock.advance();
+            reminders.sendReminders(loans, users, media);
+            library.returnMedia(loan.getId());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent run = events.stream()
+                .filter(e -> e.getEventType().getName().equals("library.ReminderRun"))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(1, run.getInt("overdueLoans"));
+        assertEquals(1, run.getInt("usersReminded"));
+
+        JfrSummary summary = JfrSummary.summarize(file, 3);
+        assertEquals(2, summary.count("library.Borrow"));
+        assertEquals(1, summary.failures("library.Borrow"));
+        assertEquals(1, summary.count("library.Return"));
+        assertEquals(1, summary.count("library.Search[title]"));
+        assertEquals(1, summary.count("library.Search[isbn]"));
+        assertEquals(1, summary.count("library.Search[any]"));
+        assertEquals(2, summary.count("library.Notification"));
+        assertEquals(1, summary.failures("library.Notification"));
+        assertEquals(0, summary.count("library.Search[author]"));
+
+        assertEquals(3, summary.getSlowest().size());
+        assertTrue(summary.getSlowest().get(0).getDuration()
+                .compareTo(summary.getSlowest().get(2).getDuration()) >= 0);
+        assertTrue(summary.format().contains("library.Borrow"));
+        assertTrue(summary.format().contains("slowest events"));
+    }
+
+    /**
+     * Time an event's thread spent parked or in Object.wait is reported next
+     * to the event.
+     */
+    @Test
+    void summary_shouldReportParkAndWaitTimeOfSlowEvents() throws Exception {
+        Path file = dir.resolve("waits.jfr");
+        Object monitor = new Object();
+        try (Recording recording = new Recording()) {
+            recording.enable("library.Borrow");
+            recording.enable("jdk.ThreadPark").withThreshold(Duration.ZERO);
+            recording.enable("jdk.JavaMonitorWait").withThreshold(Duration.ZERO);
+            recording.start();
+
+            BorrowEvent event = new BorrowEvent();
+            event.begin();
+            LockSupport.parkNanos(30_000_000L);
+            synchronized (monitor) {
+                monitor.wait(30);
+            }
+            event.complete("U1", "M1", "L1", null);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<JfrSummary.Slow> slowest = JfrSummary.summarize(file, 1).getSlowest();
+        assertEquals(1, slowest.size());
+        JfrSummary.Slow slow = slowest.get(0);
+        assertTrue(slow.getThreadPark().toMillis() >= 20, "park: " + slow.getThreadPark());
+        assertTrue(slow.getMonitorWait().toMillis() >= 20, "wait: " + slow.getMonitorWait());
+        assertTrue(JfrSummary.summarize(file, 1).format().contains("park us"));
+    }
+
+    /**
+     * With jdk.jfr present the services emit flight recorder events.
+     */
+    @Test
+    void detect_shouldLoadFlightRecorderEvents() {
+        assertTrue(ServiceEvents.detect() instanceof JfrServiceEvents);
+        assertTrue(ServiceEvents.detect().beginBorrow() instanceof BorrowEvent);
+    }
+
+    /**
+     * Without a recording the events are created but never committed.
+     */
+    @Test
+    void events_shouldNotCommitWhenRecordingIsOff() {
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        assertFalse(event.shouldCommit());
+        event.complete("U1", "M1", "L1", null);
+    }
+}
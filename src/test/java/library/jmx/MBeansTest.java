@@ -0,0 +1,86 @@
+package library.jmx;
+
+import library.AppConfig;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Media;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MBeans} and the statistics beans registered by {@link AppConfig}.
+ */
+class MBeansTest {
+
+    /**
+     * Registering under a taken name replaces the earlier bean.
+     */
+    @Test
+    void register_shouldReplaceExistingBean() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName(MBeans.ENGINE_STATS);
+
+        MBeans.register(server, MBeans.ENGINE_STATS, fixed(1));
+        MBeans.register(server, MBeans.ENGINE_STATS, fixed(2));
+
+        assertEquals(2, server.getAttribute(name, "PendingReminderEvents"));
+        StandardMBean other = fixed(0);
+        assertThrows(IllegalArgumentException.class, () -> MBeans.register(server, "no name", other));
+    }
+
+    /**
+     * The beans of the latest configuration follow borrows and returns.
+     */
+    @Test
+    void appConfig_shouldPublishLiveCounts() throws Exception {
+        AppConfig config = new AppConfig();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName stats = new ObjectName(MBeans.LIBRARY_STATS);
+
+        assertEquals(3L, server.getAttribute(stats, "Users"));
+        assertEquals(7L, server.getAttribute(stats, "MediaItems"));
+        assertEquals(0L, server.getAttribute(stats, "ActiveLoans"));
+
+        User user = config.userRepository().findAll().get(0);
+        Media media = config.mediaRepository().findAll().get(0);
+        Loan loan = config.libraryService().borrow(user.getId(), media.getId());
+
+        assertEquals(1L, server.getAttribute(stats, "ActiveLoans"));
+        assertEquals(1L, server.getAttribute(stats, "Loans"));
+        assertEquals(2, server.getAttribute(new ObjectName(MBeans.ENGINE_STATS), "PendingReminderEvents"));
+
+        config.libraryService().returnMedia(loan.getId());
+        assertEquals(0L, server.getAttribute(stats, "ActiveLoans"));
+        assertEquals(1L, server.getAttribute(stats, "Returns"));
+    }
+
+    private static StandardMBean fixed(int pending) throws Exception {
+        return new StandardMBean(new FixedEngineStats(pending), EngineStatsMBean.class);
+    }
+
+    /**
+     * Engine bean with fixed values.
+     */
+    static class FixedEngineStats implements EngineStatsMBean {
+        private final int pending;
+
+        FixedEngineStats(int pending) {
+            this.pending = pending;
+        }
+
+        @Override public int getPendingReminderEvents() { return pending; }
+        @Override public long getReportCacheHits() { return 0; }
+        @Override public long getReportCacheMisses() { return 0; }
+        @Override public double getReportCacheHitRate() { return 0; }
+        @Override public int getLoanIdIndexSize() { return 0; }
+        @Override public int getLoanUserIndexSize() { return 0; }
+        @Override public long getLedgerEntries() { return 0; }
+    }
+}
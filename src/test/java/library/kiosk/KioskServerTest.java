@@ -0,0 +1,223 @@
+package library.kiosk;
+
+import library.AppConfig;
+import library.domain.User;
+import library.domain.media.Media;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link KioskServer}, {@link KioskClient} and {@link KioskProtocol}.
+ */
+class KioskServerTest {
+
+    private AppConfig config;
+    private KioskServer server;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new AppConfig();
+        server = new KioskServer(config, new InetSocketAddress("localhost", 0));
+        server.start();
+        address = new InetSocketAddress("localhost", server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+    }
+
+    /**
+     * Borrow and return round trips, with the library rules answered as statuses.
+     */
+    @Test
+    void borrowAndReturn_shouldRoundTrip() throws IOException {
+        User user = config.libraryService().registerUser("rana", "rana@example.com");
+        Media media = config.mediaRepository().findAll().get(0);
+
+        try (KioskClient client = new KioskClient(address)) {
+            int id = client.borrow(user.getId(), media.getId());
+            client.flush();
+            KioskClient.Response res = client.read();
+            assertTrue(res.isOk());
+            assertEquals(id, res.getCorrelationId());
+            String loanId = res.getText().toString();
+            assertFalse(media.isAvailable());
+
+            client.borrow(user.getId(), media.getId());
+            client.flush();
+            assertEquals(KioskProtocol.REJECTED, client.read().getStatus());
+
+            client.returnLoan("L-missing");
+            client.flush();
+            assertEquals(KioskProtocol.NOT_FOUND, client.read().getStatus());
+
+            client.returnLoan(loanId);
+            client.flush();
+            assertTrue(client.read().isOk());
+            assertTrue(media.isAvailable());
+        }
+    }
+
+    /**
+     * A borrow re-sent with the same request id gets the loan of the first one.
+     */
+    @Test
+    void borrowWithRequestId_resent_shouldReturnSameLoan() throws IOException {
+        User user = config.libraryService().registerUser("rana", "rana@example.com");
+        Media media = config.mediaRepository().findAll().get(0);
+
+        try (KioskClient client = new KioskClient(address)) {
+            client.borrow("kiosk-1-42", user.getId(), media.getId());
+            client.flush();
+            KioskClient.Response res = client.read();
+            assertTrue(res.isOk());
+            String loanId = res.getText().toString();
+
+            client.borrow("kiosk-1-42", user.getId(), media.getId());
+            client.flush();
+            res = client.read();
+            assertTrue(res.isOk());
+            assertEquals(loanId, res.getText().toString());
+            assertEquals(1, config.libraryService().findLoansByUser(user.getId()).size());
+
+            client.borrow("kiosk-1-43", user.getId(), media.getId());
+            client.flush();
+            assertEquals(KioskProtocol.REJECTED, client.read().getStatus());
+        }
+    }
+
+    /**
+     * A borrow or return first rolls the day over; a ping does not.
+     */
+    @Test
+    void borrow_shouldRollTheDayOverFirst() throws IOException {
+        User user = config.libraryService().registerUser("rana", "rana@example.com");
+        Media media = config.mediaRepository().findAll().get(0);
+
+        try (KioskClient client = new KioskClient(address)) {
+            client.ping();
+            client.flush();
+            assertTrue(client.read().isOk());
+            assertNull(config.dayRollover().getLastDay());
+
+            client.borrow(user.getId(), media.getId());
+            client.flush();
+            assertTrue(client.read().isOk());
+            assertEquals(LocalDate.now(), config.dayRollover().getLastDay());
+        }
+    }
+
+    /**
+     * Pipelined requests are answered in order.
+     */
+    @Test
+    void pipelinedRequests_shouldBeAnsweredInOrder() throws IOException {
+        User user = config.libraryService().registerUser("rana", "rana@example.com");
+        List<Media> all = config.mediaRepository().findAll();
+
+        try (KioskClient client = new KioskClient(address)) {
+            List<Integer> ids = new ArrayList<>();
+            for (Media m : all) {
+                ids.add(client.borrow(user.getId(), m.getId()));
+            }
+            ids.add(client.ping());
+            client.flush();
+
+            List<String> loans = new ArrayList<>();
+            for (int id : ids) {
+                KioskClient.Response res = client.read();
+                assertEquals(id, res.getCorrelationId());
+                assertTrue(res.isOk());
+                if (res.getText().length() > 0) loans.add(res.getText().toString());
+            }
+            assertEquals(all.size(), loans.size());
+            assertEquals(all.size(), config.libraryService().findLoansByUser(user.getId()).size());
+
+            for (String loanId : loans) {
+                client.returnLoan(loanId);
+            }
+            client.flush();
+            for (int i = 0; i < loans.size(); i++) {
+                assertTrue(client.read().isOk());
+            }
+        }
+    }
+
+    /**
+     * Unknown ops are answered with BAD_REQUEST; a broken frame length closes the connection.
+     */
+    @Test
+    void badInput_shouldBeRejected() throws IOException {
+        try (SocketChannel raw = SocketChannel.open(address)) {
+            ByteBuffer buf = ByteBuffer.allocate(64);
+            KioskProtocol.endFrame(buf, KioskProtocol.beginFrame(buf, (byte) 42, 7));
+            buf.putInt(1 << 20);
+            buf.flip();
+            raw.write(buf);
+
+            ByteBuffer reply = ByteBuffer.allocate(KioskProtocol.MAX_FRAME);
+            while (KioskProtocol.frameLength((ByteBuffer) reply.duplicate().flip()) < 0) {
+                if (raw.read(reply) < 0) fail("connection closed before the reply");
+            }
+            reply.flip();
+            reply.getInt();
+            assertEquals(KioskProtocol.BAD_REQUEST, reply.get());
+            assertEquals(7, reply.getInt());
+            assertEquals("unknown op", KioskProtocol.getString(reply, new StringBuilder()).toString());
+
+            reply.clear();
+            assertEquals(-1, raw.read(reply));
+        }
+
+        try (KioskClient client = new KioskClient(address)) {
+            client.ping();
+            client.flush();
+            assertTrue(client.read().isOk());
+        }
+    }
+
+    /**
+     * Strings are cut to the maximum length and non-ASCII characters replaced.
+     */
+    @Test
+    void strings_shouldBeAsciiAndBounded() {
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 300; i++) longText.append('x');
+        KioskProtocol.putString(buf, longText);
+        KioskProtocol.putString(buf, "café");
+        buf.flip();
+
+        StringBuilder sb = new StringBuilder();
+        assertEquals(KioskProtocol.MAX_STRING, KioskProtocol.getString(buf, sb).length());
+        assertEquals("caf?", KioskProtocol.getString(buf, sb).toString());
+    }
+
+    /**
+     * Reading after the server stopped fails with end of stream.
+     */
+    @Test
+    void stop_shouldCloseConnections() throws Exception {
+        try (KioskClient client = new KioskClient(address)) {
+            client.ping();
+            client.flush();
+            assertTrue(client.read().isOk());
+            server.stop();
+            assertThrows(EOFException.class, client::read);
+        }
+    }
+}
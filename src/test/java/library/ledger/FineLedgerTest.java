@@ -0,0 +1,200 @@
+package library.ledger;
+
+import library.domain.Admin;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.TimeProvider;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.util.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link FineLedger}.
+ */
+class FineLedgerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+    private final TimeProvider time = () -> TODAY;
+
+    /**
+     * Verifies that charges and payments change the balance, are recorded,
+     * and replay to the same balances.
+     */
+    @Test
+    void chargeAndPay_recordEntriesAndReplay() {
+        FineLedger ledger = new FineLedger(time);
+        User a = new User("a", "a@test.com");
+        User b = new User("b", "b@test.com");
+
+        ledger.charge(a, 30);
+        ledger.charge(b, 10);
+        assertEquals(20, ledger.pay(a, 20));
+        assertEquals(10, ledger.pay(b, 50), "only the outstanding fine is applied");
+        assertEquals(0, ledger.pay(b, 5));
+
+        assertEquals(10, a.getOutstandingFine());
+        assertEquals(0, b.getOutstandingFine());
+        assertEquals(40, ledger.totalFined());
+        assertEquals(30, ledger.totalPaid());
+        assertEquals(10, ledger.totalOutstanding());
+        assertEquals(4, ledger.size());
+
+        LongIntHashMap balances = ledger.replay();
+        assertEquals(10, balances.get(a.getOrdinal()));
+        assertEquals(0, balances.get(b.getOrdinal()));
+        assertTrue(ledger.verify(Arrays.asList(a, b)).isEmpty());
+    }
+
+    /**
+     * Ensures that fines added outside the ledger show up in verify().
+     */
+    @Test
+    void verify_unrecordedFine_reportsMismatch() {
+        FineLedger ledger = new FineLedger(time);
+        User u = new User("u", "u@test.com");
+        ledger.charge(u, 5);
+        u.addFine(7);
+
+        List<String> diffs = ledger.verify(Collections.singletonList(u));
+
+        assertEquals(1, diffs.size());
+        assertTrue(diffs.get(0).contains(u.getId()));
+    }
+
+    /**
+     * Verifies that the ledger records fines and payments made through the
+     * library service.
+     */
+    @Test
+    void asListener_recordsReturnFinesAndPayments() {
+        InMemoryUserRepository userRepo = new InMemoryUserRepository();
+        InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
+        InMemoryLoanRepository loanRepo = new InMemoryLoanRepository();
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        adminRepo.save(new Admin("admin", "admin"));
+
+        LibraryService library = new LibraryService(userRepo, mediaRepo, loanRepo,
+                new ReminderService(time), time, new BookFineStrategy(), new CDFineStrategy(),
+                new AuthService(adminRepo));
+        FineLedger ledger = new FineLedger(time);
+        library.registerListener(ledger);
+
+        User u = new User("u", "u@test.com");
+        userRepo.save(u);
+        Book book = new Book("B", "A", "I");
+        book.setAvailable(false);
+        mediaRepo.save(book);
+        Loan loan = new Loan(u.getId(), book.getId(), TODAY.minusDays(40), TODAY.minusDays(12));
+        loanRepo.save(loan);
+
+        library.returnMedia(loan.getId());
+        int fine = u.getOutstandingFine();
+        assertTrue(fine > 0);
+        library.payFine(u.getId(), fine + 100);
+
+        List<int[]> entries = new ArrayList<>();
+        ledger.forEach((user, kind, amount, day) -> {
+            assertEquals(u.getOrdinal(), user);
+            assertEquals(TODAY.toEpochDay(), day);
+            entries.add(new int[] {kind, amount});
+        });
+
+        assertEquals(2, entries.size());
+        assertArrayEquals(new int[] {FineLog.FINE, fine}, entries.get(0));
+        assertArrayEquals(new int[] {FineLog.PAYMENT, fine}, entries.get(1));
+        assertTrue(ledger.verify(userRepo.findAll()).isEmpty());
+    }
+
+    /**
+     * Verifies that a batch return records one fine entry per user holding
+     * the sum of that user's fines.
+     */
+    @Test
+    void asListener_batchReturn_recordsOneEntryPerUser() {
+        InMemoryUserRepository userRepo = new InMemoryUserRepository();
+        InMemoryMediaRepository mediaRepo = new InMemoryMediaRepository();
+        InMemoryLoanRepository loanRepo = new InMemoryLoanRepository();
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        adminRepo.save(new Admin("admin", "admin"));
+
+        LibraryService library = new LibraryService(userRepo, mediaRepo, loanRepo,
+                new ReminderService(time), time, new BookFineStrategy(), new CDFineStrategy(),
+                new AuthService(adminRepo));
+        FineLedger ledger = new FineLedger(time);
+        library.registerListener(ledger);
+
+        User u = new User("u", "u@test.com");
+        userRepo.save(u);
+        List<String> loanIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book("B" + i, "A", "I" + i);
+            book.setAvailable(false);
+            mediaRepo.save(book);
+            Loan loan = new Loan(u.getId(), book.getId(), TODAY.minusDays(40), TODAY.minusDays(12));
+            loanRepo.save(loan);
+            loanIds.add(loan.getId());
+        }
+
+        library.returnAll(loanIds);
+
+        assertEquals(1, ledger.size());
+        assertEquals(u.getOutstandingFine(), ledger.totalFined());
+        assertTrue(ledger.verify(userRepo.findAll()).isEmpty());
+    }
+
+    /**
+     * Verifies that concurrent payments never take the balance below 0 and
+     * that the applied amounts add up to the original fine.
+     */
+    @Test
+    void pay_fromManyThreads_neverOverpays() throws Exception {
+        FineLedger ledger = new FineLedger(time);
+        User u = new User("u", "u@test.com");
+        ledger.charge(u, 10_000);
+
+        int threads = 8;
+        AtomicInteger applied = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    applied.addAndGet(ledger.pay(u, 1));
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        assertEquals(10_000, applied.get());
+        assertEquals(0, u.getOutstandingFine());
+        assertEquals(10_000, ledger.totalPaid());
+        assertTrue(ledger.verify(Collections.singletonList(u)).isEmpty());
+    }
+}
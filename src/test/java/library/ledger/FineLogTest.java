@@ -0,0 +1,102 @@
+package library.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FineLog}.
+ */
+class FineLogTest {
+
+    /**
+     * Verifies that entries are read back in order with all fields intact,
+     * across a chunk boundary.
+     */
+    @Test
+    void forEach_returnsEntriesInAppendOrder() {
+        FineLog log = new FineLog();
+        int n = FineLog.CHUNK_SIZE + 10;
+        for (int i = 0; i < n; i++) {
+            log.append(i, i % 2 == 0 ? FineLog.FINE : FineLog.PAYMENT, i * 3, 20_000 + i);
+        }
+
+        List<long[]> seen = new ArrayList<>();
+        long visited = log.forEach((user, kind, amount, day) ->
+                seen.add(new long[] {user, kind, amount, day}));
+
+        assertEquals(n, visited);
+        for (int i = 0; i < n; i++) {
+            assertArrayEquals(new long[] {i, i % 2, i * 3, 20_000 + i}, seen.get(i));
+        }
+    }
+
+    /**
+     * Verifies that days before 1970 and large amounts survive the packing.
+     */
+    @Test
+    void append_keepsNegativeDaysAndLargeAmounts() {
+        FineLog log = new FineLog();
+        log.append(7, FineLog.PAYMENT, Integer.MAX_VALUE, -365);
+
+        log.forEach((user, kind, amount, day) -> {
+            assertEquals(7, user);
+            assertEquals(FineLog.PAYMENT, kind);
+            assertEquals(Integer.MAX_VALUE, amount);
+            assertEquals(-365, day);
+        });
+    }
+
+    /**
+     * Ensures that invalid kinds and negative amounts are rejected.
+     */
+    @Test
+    void append_invalidEntry_throws() {
+        FineLog log = new FineLog();
+        assertThrows(IllegalArgumentException.class, () -> log.append(1, 5, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> log.append(1, FineLog.FINE, -1, 0));
+        assertEquals(0, log.size());
+    }
+
+    /**
+     * Verifies that concurrent appends lose no entries.
+     */
+    @Test
+    void append_fromManyThreads_keepsAllEntries() throws Exception {
+        FineLog log = new FineLog();
+        int threads = 8;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long user = t;
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    log.append(user, FineLog.FINE, 1, 0);
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        long[] perUser = new long[threads];
+        log.forEach((user, kind, amount, day) -> perUser[(int) user] += amount);
+
+        assertEquals((long) threads * perThread, log.size());
+        for (long count : perUser) {
+            assertEquals(perThread, count);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package library.metrics;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.Media;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.repository.LoanRepository;
+import library.repository.MediaRepository;
+import library.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the metered repository decorators.
+ */
+class MeteredRepositoryTest {
+
+    /**
+     * Calls are passed to the delegate and timed under the prefix.
+     */
+    @Test
+    void decorators_shouldDelegateAndTime() {
+        MetricsRegistry registry = new MetricsRegistry();
+        UserRepository users = new MeteredUserRepository(new InMemoryUserRepository(), registry, "users");
+        MediaRepository media = new MeteredMediaRepository(new InMemoryMediaRepository(), registry, "media");
+        LoanRepository loans = new MeteredLoanRepository(new InMemoryLoanRepository(), registry, "loans");
+
+        User u = new User("a", "a@example.com");
+        users.save(u);
+        Book b = new Book("T", "A", "I");
+        media.save(b);
+        Loan l = new Loan(u.getId(), b.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 29));
+        loans.save(l);
+
+        assertSame(u, users.findById(u.getId()).orElse(null));
+        assertSame(b, media.search("t").get(0));
+        assertEquals(1, loans.findByUserId(u.getId()).size());
+        loans.delete(l);
+        assertTrue(loans.findAll().isEmpty());
+
+        MetricsSnapshot s = registry.snapshot();
+        assertEquals(1, s.get("users.save").getCount());
+        assertEquals(1, s.get("users.findById").getCount());
+        assertEquals(1, s.get("media.search").getCount());
+        assertEquals(1, s.get("loans.findByUserId").getCount());
+        assertEquals(1, s.get("loans.delete").getCount());
+        assertEquals(0, s.get("loans.findById").getCount());
+    }
+
+    /**
+     * Exceptions from the delegate are passed on and counted as failures.
+     */
+    @Test
+    void decorators_shouldCountFailures() {
+        MetricsRegistry registry = new MetricsRegistry();
+        MediaRepository media = new MeteredMediaRepository(new InMemoryMediaRepository() {
+            @Override
+            public List<Media> search(String q) {
+                throw new IllegalStateException("down");
+            }
+        }, registry, "media");
+
+        assertThrows(IllegalStateException.class, () -> media.search("x"));
+        assertEquals(1, registry.snapshot().get("media.search").getFailures());
+    }
+}
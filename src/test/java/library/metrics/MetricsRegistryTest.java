@@ -0,0 +1,131 @@
+package library.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MetricsRegistry}, {@link Timer} and {@link MetricsSnapshot}.
+ */
+class MetricsRegistryTest {
+
+    /**
+     * The same name always gives the same timer.
+     */
+    @Test
+    void timer_shouldBeCreatedOnce() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.timer("a"), registry.timer("a"));
+        assertNotSame(registry.timer("a"), registry.timer("b"));
+    }
+
+    /**
+     * Stopped and failed calls are counted, failures separately.
+     */
+    @Test
+    void snapshot_shouldCountCallsAndFailures() {
+        MetricsRegistry registry = new MetricsRegistry(1);
+        Timer t = registry.timer("op");
+        t.stop(t.start());
+        t.stop(t.start());
+        t.fail(t.start());
+
+        TimerSnapshot s = registry.snapshot().get("op");
+        assertEquals(3, s.getCount());
+        assertEquals(1, s.getFailures());
+        assertEquals(3, s.getSamples());
+        assertTrue(s.getP50() <= s.getP99() && s.getP99() <= s.getMax());
+        assertNull(registry.snapshot().get("other"));
+    }
+
+    /**
+     * Every call is counted, but only about one in sampleEvery is timed, at
+     * random gaps of 1 to 2*sampleEvery-1 calls; the first call is timed.
+     */
+    @Test
+    void timer_shouldSampleLatencies() {
+        MetricsRegistry registry = new MetricsRegistry(4);
+        Timer t = registry.timer("op");
+        for (int i = 0; i < 7000; i++) {
+            t.stop(t.start());
+        }
+
+        TimerSnapshot s = registry.snapshot().get("op");
+        assertEquals(7000, s.getCount());
+        assertTrue(Math.abs(s.getSamples() - 1750) < 250, "samples: " + s.getSamples());
+
+        Timer first = registry.timer("first");
+        first.stop(first.start());
+        assertEquals(1, registry.snapshot().get("first").getSamples());
+        assertThrows(IllegalArgumentException.class, () -> new MetricsRegistry(0));
+    }
+
+    /**
+     * A timer can be created with its own interval; a later lookup keeps it.
+     */
+    @Test
+    void timer_withOwnInterval_timesEveryCall() {
+        MetricsRegistry registry = new MetricsRegistry(64);
+        Timer t = registry.timer("slow", 1);
+        assertSame(t, registry.timer("slow"));
+        for (int i = 0; i < 10; i++) {
+            t.stop(t.start());
+        }
+        assertEquals(10, registry.snapshot().get("slow").getSamples());
+        assertThrows(IllegalArgumentException.class, () -> registry.timer("bad", 0));
+    }
+
+    /**
+     * A timer that times every call counts overlapping calls exactly.
+     */
+    @Test
+    void timer_timingEveryCall_countsConcurrentCalls() throws InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry(64);
+        Timer t = registry.timer("search", 1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    t.stop(t.start());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, registry.snapshot().get("search").getCount());
+    }
+
+    /**
+     * The disabled timer records nothing.
+     */
+    @Test
+    void disabledTimer_shouldRecordNothing() {
+        Timer.DISABLED.stop(Timer.DISABLED.start());
+        Timer.DISABLED.fail(Timer.DISABLED.start());
+        assertEquals(0, Timer.DISABLED.snapshot().getCount());
+        assertEquals(0, Timer.DISABLED.snapshot().getFailures());
+    }
+
+    /**
+     * Exports list the timers sorted by name.
+     */
+    @Test
+    void export_shouldListTimersByName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer b = registry.timer("b.op");
+        registry.timer("a.op");
+        b.stop(b.start());
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        String json = snapshot.toJson();
+        assertTrue(json.startsWith("{\"takenAt\":"));
+        assertTrue(json.indexOf("\"a.op\":{\"count\":0,") < json.indexOf("\"b.op\":{\"count\":1,"));
+        assertTrue(json.endsWith("}}"));
+
+        String text = snapshot.toText();
+        assertTrue(text.indexOf("a.op") < text.indexOf("b.op"));
+        assertEquals(3, text.split("\n").length);
+    }
+}
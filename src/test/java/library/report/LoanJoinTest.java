@@ -0,0 +1,109 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LoanJoin}.
+ *
+ * These tests verify that loans are resolved to their users and
+ * media items, and that missing entities come back as null.
+ */
+class LoanJoinTest {
+
+    private InMemoryUserRepository userRepo;
+    private InMemoryMediaRepository mediaRepo;
+    private User user;
+    private Book book;
+    private CD cd;
+
+    /**
+     * Creates repositories with one user, one book and one CD.
+     */
+    @BeforeEach
+    void setup() {
+        userRepo = new InMemoryUserRepository();
+        mediaRepo = new InMemoryMediaRepository();
+
+        user = new User("u", "u@test.com");
+        userRepo.save(user);
+        book = new Book("B", "A", "I");
+        mediaRepo.save(book);
+        cd = new CD("C", "X");
+        mediaRepo.save(cd);
+    }
+
+    /**
+     * Verifies that joinAll() keeps the loan order and resolves users and media.
+     */
+    @Test
+    void joinAll_resolvesUsersAndMediaInOrder() {
+        LocalDate d = LocalDate.of(2025, 1, 1);
+        Loan l1 = new Loan(user.getId(), cd.getId(), d, d.plusDays(7));
+        Loan l2 = new Loan(user.getId(), book.getId(), d, d.plusDays(28));
+
+        List<JoinedLoan> joined = new LoanJoin(userRepo, mediaRepo).joinAll(Arrays.asList(l1, l2));
+
+        assertEquals(2, joined.size());
+        assertSame(l1, joined.get(0).getLoan());
+        assertSame(cd, joined.get(0).getMedia());
+        assertSame(user, joined.get(0).getUser());
+        assertSame(book, joined.get(1).getMedia());
+    }
+
+    /**
+     * Ensures that unknown ids are joined as null instead of failing.
+     */
+    @Test
+    void join_missingUserOrMedia_returnsNulls() {
+        LocalDate d = LocalDate.of(2025, 1, 1);
+        JoinedLoan j = new LoanJoin(userRepo, mediaRepo)
+                .join(new Loan("ghost", "nothing", d, d.plusDays(1)));
+
+        assertNull(j.getUser());
+        assertNull(j.getMedia());
+    }
+
+    /**
+     * Ensures that loans are resolved by id without reading whole repositories.
+     */
+    @Test
+    void join_looksUpByIdWithoutReadingAll() {
+        InMemoryUserRepository users = new InMemoryUserRepository() {
+            @Override
+            public List<User> findAll() {
+                throw new AssertionError("findAll called");
+            }
+        };
+        InMemoryMediaRepository media = new InMemoryMediaRepository() {
+            @Override
+            public List<Media> findAll() {
+                throw new AssertionError("findAll called");
+            }
+        };
+        users.save(user);
+        media.save(book);
+        LoanJoin join = new LoanJoin(users, media);
+        User later = new User("later", "later@test.com");
+        users.save(later);
+
+        LocalDate d = LocalDate.of(2025, 1, 1);
+        JoinedLoan j = join.join(new Loan(user.getId(), book.getId(), d, d.plusDays(28)));
+        assertSame(user, j.getUser());
+        assertSame(book, j.getMedia());
+        assertSame(later, join.user(later.getId()));
+    }
+}
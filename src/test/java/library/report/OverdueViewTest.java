@@ -0,0 +1,204 @@
+package library.report;
+
+import library.domain.Admin;
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.dto.OverdueReport;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.scheduling.DayRollover;
+import library.scheduling.LoanScheduler;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.TimeProvider;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.FineStrategy;
+import library.strategy.MediaPolicyTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link OverdueView}.
+ * <p>
+ * A full library setup is driven through {@link LibraryService} while the
+ * clock moves forward. After each step the view is checked against a report
+ * built from scratch by {@link ReminderService#buildReport}.
+ */
+class OverdueViewTest {
+
+    /**
+     * Time provider whose date can be moved forward by the test.
+     */
+    static class MutableTimeProvider implements TimeProvider {
+        private LocalDate today = LocalDate.of(2025, 1, 1);
+
+        void plusDays(int days) {
+            today = today.plusDays(days);
+        }
+
+        @Override
+        public LocalDate today() {
+            return today;
+        }
+    }
+
+    private final FineStrategy bookFine = new BookFineStrategy();
+    private final FineStrategy cdFine = new CDFineStrategy();
+
+    private MutableTimeProvider time;
+    private InMemoryUserRepository userRepo;
+    private InMemoryMediaRepository mediaRepo;
+    private InMemoryLoanRepository loanRepo;
+    private LibraryService library;
+    private DayRollover rollover;
+    private OverdueView view;
+
+    private User alice;
+    private User bob;
+    private Book book1;
+    private Book book2;
+    private CD cd;
+
+    /**
+     * Wires the library service with scheduler, rollover and view.
+     */
+    @BeforeEach
+    void setUp() {
+        time = new MutableTimeProvider();
+        userRepo = new InMemoryUserRepository();
+        mediaRepo = new InMemoryMediaRepository();
+        loanRepo = new InMemoryLoanRepository();
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        adminRepo.save(new Admin("admin", "admin"));
+
+        library = new LibraryService(userRepo, mediaRepo, loanRepo, new ReminderService(time), time,
+                bookFine, cdFine, new AuthService(adminRepo));
+
+        LoanScheduler scheduler = new LoanScheduler(time, 0);
+        rollover = new DayRollover(time, scheduler);
+        view = new OverdueView(time, rollover, mediaRepo, MediaPolicyTable.standard(bookFine, cdFine));
+        library.registerListener(scheduler);
+        library.registerListener(rollover);
+        scheduler.registerHandler(rollover);
+        rollover.registerListener(view);
+
+        alice = library.registerUser("alice", "alice@example.com");
+        bob = library.registerUser("bob", "bob@example.com");
+        book1 = new Book("B1", "A", "I1");
+        book2 = new Book("B2", "A", "I2");
+        cd = new CD("C1", "X");
+        mediaRepo.save(book1);
+        mediaRepo.save(book2);
+        mediaRepo.save(cd);
+    }
+
+    private OverdueReport fullRebuild() {
+        return new ReminderService(time).buildReport(loanRepo, userRepo, mediaRepo, bookFine, cdFine);
+    }
+
+    /**
+     * Walks through borrows, day changes and returns, and checks the view
+     * against a full rebuild after every step.
+     */
+    @Test
+    void view_staysConsistentWithFullRebuild() {
+        library.borrow(alice.getId(), book1.getId());
+        library.borrow(alice.getId(), cd.getId());
+        library.borrow(bob.getId(), book2.getId());
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+
+        time.plusDays(10); // CD (7 days) is overdue by 3
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+        assertEquals(1, view.snapshot().getOverdueCounts().get(alice.getId()));
+        assertEquals(60, view.snapshot().getFineTotals().get(alice.getId()));
+
+        time.plusDays(20); // books (28 days) are overdue by 2, CD by 23
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+        assertEquals(2, view.snapshot().getOverdueCounts().get(alice.getId()));
+        assertEquals(23 * 20 + 2 * 10, view.snapshot().getFineTotals().get(alice.getId()));
+
+        Loan cdLoan = loanRepo.findByUserId(alice.getId()).stream()
+                .filter(l -> l.getMediaId().equals(cd.getId())).findFirst().orElseThrow();
+        library.returnMedia(cdLoan.getId());
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+        assertEquals(1, view.snapshot().getOverdueCounts().get(alice.getId()));
+
+        Loan bobLoan = loanRepo.findByUserId(bob.getId()).get(0);
+        library.returnMedia(bobLoan.getId());
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+        assertFalse(view.snapshot().getOverdueCounts().containsKey(bob.getId()));
+    }
+
+    /**
+     * A rollover only notes the new day; the fines are recalculated by the
+     * next snapshot, and a return in between keeps the view consistent.
+     */
+    @Test
+    void rollover_defersFineRefreshToSnapshot() {
+        library.borrow(alice.getId(), cd.getId());
+        library.borrow(alice.getId(), book1.getId());
+        time.plusDays(10);
+        OverdueReport before = view.snapshot();
+        assertEquals(60, before.getFineTotals().get(alice.getId()));
+
+        time.plusDays(5);
+        assertTrue(rollover.rollover());
+        Loan cdLoan = loanRepo.findByUserId(alice.getId()).stream()
+                .filter(l -> l.getMediaId().equals(cd.getId())).findFirst().orElseThrow();
+        library.returnMedia(cdLoan.getId());
+        assertFalse(view.snapshot().getOverdueCounts().containsKey(alice.getId()));
+
+        time.plusDays(20); // the book (28 days) is overdue by 7
+        assertTrue(view.verify(fullRebuild()).isEmpty());
+        assertEquals(70, view.snapshot().getFineTotals().get(alice.getId()));
+    }
+
+    /**
+     * Ensures that the snapshot is reused while nothing changes.
+     */
+    @Test
+    void snapshot_withoutChanges_returnsSameInstance() {
+        OverdueReport first = view.snapshot();
+        assertSame(first, view.snapshot());
+    }
+
+    /**
+     * Verifies that the checker reports a loan the view did not see.
+     */
+    @Test
+    void verify_detectsMissingLoan() {
+        loanRepo.save(new Loan(alice.getId(), book1.getId(),
+                time.today().minusDays(40), time.today().minusDays(5)));
+
+        assertFalse(view.verify(fullRebuild()).isEmpty());
+    }
+
+    /**
+     * Ensures that ReminderService.overdueReport returns the view snapshot,
+     * while buildReport scans the repositories it is given.
+     */
+    @Test
+    void overdueReport_withView_returnsSnapshot() {
+        library.borrow(alice.getId(), cd.getId());
+        time.plusDays(10);
+        ReminderService reminders = new ReminderService(time);
+        assertThrows(IllegalStateException.class, reminders::overdueReport);
+        reminders.useOverdueView(view);
+
+        assertSame(view.snapshot(), reminders.overdueReport());
+        assertEquals(1, reminders.overdueReport().getOverdueCounts().get(alice.getId()));
+        OverdueReport empty = reminders.buildReport(new InMemoryLoanRepository(), userRepo, mediaRepo,
+                bookFine, cdFine);
+        assertTrue(empty.getOverdueCounts().isEmpty());
+    }
+}
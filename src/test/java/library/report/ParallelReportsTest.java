@@ -0,0 +1,208 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.dto.OverdueReport;
+import library.repository.InMemoryAdminRepository;
+import library.repository.InMemoryLoanRepository;
+import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryUserRepository;
+import library.service.AuthService;
+import library.service.LibraryService;
+import library.service.ReminderService;
+import library.service.TimeProvider;
+import library.strategy.BookFineStrategy;
+import library.strategy.CDFineStrategy;
+import library.strategy.FineStrategy;
+import library.strategy.MediaPolicyTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ParallelReports}.
+ * <p>
+ * Enough loans are stored to force several partitions, and the parallel
+ * results are compared with the sequential reports of {@link LibraryService}
+ * and {@link ReminderService}.
+ */
+class ParallelReportsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+    private static final int LOANS = 20_000;
+
+    private final FineStrategy bookFine = new BookFineStrategy();
+    private final FineStrategy cdFine = new CDFineStrategy();
+    private final MediaPolicyTable policies = MediaPolicyTable.standard(bookFine, cdFine);
+    private final TimeProvider time = () -> TODAY;
+
+    private InMemoryUserRepository userRepo;
+    private InMemoryMediaRepository mediaRepo;
+    private InMemoryLoanRepository loanRepo;
+    private ForkJoinPool pool;
+    private ParallelReports reports;
+
+    /**
+     * Stores users, media and a mix of active, overdue and returned loans.
+     * Some loans point to a user or media item that does not exist.
+     */
+    @BeforeEach
+    void setUp() {
+        userRepo = new InMemoryUserRepository();
+        mediaRepo = new InMemoryMediaRepository();
+        loanRepo = new InMemoryLoanRepository();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            User u = new User("user" + i, "user" + i + "@test.com");
+            userRepo.save(u);
+            users.add(u);
+        }
+        Book book = new Book("B", "A", "I");
+        CD cd = new CD("C", "X");
+        mediaRepo.save(book);
+        mediaRepo.save(cd);
+
+        for (int i = 0; i < LOANS; i++) {
+            String userId = i % 97 == 0 ? "ghost" : users.get((i * 7) % users.size()).getId();
+            String mediaId = i % 89 == 0 ? "nothing" : (i % 3 == 0 ? cd.getId() : book.getId());
+            LocalDate due = TODAY.plusDays(10 - (i % 40));
+            Loan loan = new Loan(userId, mediaId, due.minusDays(28), due);
+            if (i % 5 == 0) loan.setReturnedDate(TODAY);
+            loanRepo.save(loan);
+        }
+
+        pool = new ForkJoinPool(4);
+        reports = new ParallelReports(loanRepo, userRepo, mediaRepo, time, policies, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Verifies that the parallel borrowed media report has exactly the lines
+     * of the sequential one, in the same order.
+     */
+    @Test
+    void borrowedMediaReport_matchesSequentialReport() {
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        LibraryService library = new LibraryService(userRepo, mediaRepo, loanRepo,
+                new ReminderService(time), time, bookFine, cdFine, new AuthService(adminRepo));
+
+        List<String> expected = library.getBorrowedMediaReport();
+        List<String> actual = reports.getBorrowedMediaReport();
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Verifies that a title and a name containing a line break still give one
+     * report line per loan, as in the sequential report.
+     */
+    @Test
+    void borrowedMediaReport_withLineBreakInTitle_keepsOneLinePerLoan() {
+        Book book = new Book("Two\nLines", "A", "I2");
+        mediaRepo.save(book);
+        User user = new User("first\nsecond", "nl@test.com");
+        userRepo.save(user);
+        for (int i = 0; i < 100; i++) {
+            loanRepo.save(new Loan(user.getId(), book.getId(), TODAY.minusDays(30), TODAY.minusDays(2)));
+        }
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        LibraryService library = new LibraryService(userRepo, mediaRepo, loanRepo,
+                new ReminderService(time), time, bookFine, cdFine, new AuthService(adminRepo));
+
+        List<String> expected = library.getBorrowedMediaReport();
+        List<String> actual = reports.getBorrowedMediaReport();
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertTrue(actual.stream().anyMatch(l -> l.contains("Two\nLines")));
+    }
+
+    /**
+     * Verifies that a library service using the parallel reports streams the
+     * same lines, all on the calling thread.
+     */
+    @Test
+    void libraryService_withParallelReports_streamsSameLinesOnCallingThread() {
+        InMemoryAdminRepository adminRepo = new InMemoryAdminRepository();
+        LibraryService library = new LibraryService(userRepo, mediaRepo, loanRepo,
+                new ReminderService(time), time, bookFine, cdFine, new AuthService(adminRepo));
+        List<String> expected = library.getBorrowedMediaReport();
+
+        library.useParallelReports(reports);
+        List<String> actual = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+        library.streamBorrowedMediaReport(line -> {
+            assertSame(caller, Thread.currentThread());
+            actual.add(line.toString());
+        });
+
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Verifies that the parallel overdue report has the same counts and fines
+     * as the sequential one.
+     */
+    @Test
+    void overdueReport_matchesSequentialReport() {
+        OverdueReport expected = new ReminderService(time)
+                .buildReport(loanRepo, userRepo, mediaRepo, bookFine, cdFine);
+        OverdueReport actual = reports.buildOverdueReport();
+
+        assertEquals(expected.getOverdueCounts(), actual.getOverdueCounts());
+        assertEquals(expected.getFineTotals(), actual.getFineTotals());
+    }
+
+    /**
+     * Verifies that a reminder service with parallel reports builds the
+     * overdue report on the pool for the configured repositories only, with
+     * the same result.
+     */
+    @Test
+    void reminderService_withParallelReports_buildsReportOnPool() {
+        OverdueReport expected = new ReminderService(time)
+                .buildReport(loanRepo, userRepo, mediaRepo, policies);
+
+        ReminderService reminders = new ReminderService(time);
+        reminders.usePolicies(policies);
+        reminders.useParallelReports(reports, loanRepo, userRepo, mediaRepo);
+
+        OverdueReport other = reminders.buildReport(new InMemoryLoanRepository(), userRepo, mediaRepo, policies);
+        assertTrue(other.getOverdueCounts().isEmpty());
+        assertEquals(0, pool.getPoolSize());
+
+        OverdueReport actual = reminders.buildReport(loanRepo, userRepo, mediaRepo, policies);
+        assertTrue(pool.getPoolSize() > 0);
+        assertEquals(expected.getOverdueCounts(), actual.getOverdueCounts());
+        assertEquals(expected.getFineTotals(), actual.getFineTotals());
+    }
+
+    /**
+     * Ensures that an empty loan store gives an empty report with a zero total.
+     */
+    @Test
+    void emptyStore_givesEmptyReports() {
+        InMemoryLoanRepository empty = new InMemoryLoanRepository();
+        ParallelReports r = new ParallelReports(empty, userRepo, mediaRepo, time, policies, pool);
+
+        assertTrue(r.buildOverdueReport().getOverdueCounts().isEmpty());
+        List<String> lines = r.getBorrowedMediaReport();
+        assertEquals(1, lines.size());
+        assertEquals("TOTAL OUTSTANDING FINE (for active loans): 0", lines.get(0));
+    }
+}
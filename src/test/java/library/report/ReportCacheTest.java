@@ -0,0 +1,105 @@
+package library.report;
+
+import library.domain.Loan;
+import library.domain.User;
+import library.service.TimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReportCache}.
+ */
+class ReportCacheTest {
+
+    private LocalDate today;
+    private ReportCache cache;
+    private AtomicInteger builds;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.of(2025, 1, 1);
+        TimeProvider time = () -> today;
+        cache = new ReportCache(time);
+        builds = new AtomicInteger();
+    }
+
+    private String build() {
+        return "report#" + builds.incrementAndGet();
+    }
+
+    /**
+     * Verifies that a report is built once and then served from the cache.
+     */
+    @Test
+    void get_sameDay_buildsOnce() {
+        assertEquals("report#1", cache.get("r", this::build));
+        assertEquals("report#1", cache.get("r", this::build));
+
+        assertEquals(1, builds.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    /**
+     * Verifies that peek only answers what was put for today and counts
+     * hits and misses.
+     */
+    @Test
+    void peekAndPut_sameDayOnly() {
+        assertNull(cache.peek("r"));
+        cache.put("r", "streamed");
+        assertEquals("streamed", cache.<String>peek("r"));
+
+        today = today.plusDays(1);
+        assertNull(cache.peek("r"));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    /**
+     * Verifies that a new day makes the cached report stale.
+     */
+    @Test
+    void get_newDay_rebuilds() {
+        cache.get("r", this::build);
+        today = today.plusDays(1);
+
+        assertEquals("report#2", cache.get("r", this::build));
+    }
+
+    /**
+     * Verifies that report types are cached separately.
+     */
+    @Test
+    void get_differentTypes_areCachedSeparately() {
+        cache.get("a", this::build);
+        cache.get("b", this::build);
+        cache.invalidate("a");
+
+        assertEquals("report#3", cache.get("a", this::build));
+        assertEquals("report#2", cache.get("b", this::build));
+    }
+
+    /**
+     * Ensures that borrows, returns and fine payments drop cached reports.
+     */
+    @Test
+    void libraryEvents_invalidateCache() {
+        Loan loan = new Loan("u", "m", today, today.plusDays(7));
+
+        cache.get("r", this::build);
+        cache.onBorrow(loan, null);
+        assertEquals("report#2", cache.get("r", this::build));
+
+        cache.onReturn(loan, null, 0);
+        assertEquals("report#3", cache.get("r", this::build));
+
+        cache.onFinePaid(new User("u", "u@test.com"), 5);
+        assertEquals("report#4", cache.get("r", this::build));
+    }
+}
@@ -99,4 +99,60 @@ class InMemoryLoanRepositoryTest {
         assertEquals(2, repo.findAll().size());
         assertTrue(repo.findById(loan1.getId()).isEmpty());
     }
+
+    /**
+     * Verifies that forEach() visits every stored loan.
+     */
+    @Test
+    void forEach_shouldVisitAllLoans() {
+        List<Loan> visited = new java.util.ArrayList<>();
+        repo.forEach(visited::add);
+
+        assertEquals(repo.findAll(), visited);
+    }
+
+    /**
+     * Verifies that the user index keeps loans in save order and forgets
+     * deleted loans.
+     */
+    @Test
+    void findByUserId_shouldFollowSavesAndDeletes() {
+        assertEquals(List.of(loan1, loan2), repo.findByUserId("user1"));
+
+        repo.delete(loan1);
+        assertEquals(List.of(loan2), repo.findByUserId("user1"));
+
+        repo.delete(loan2);
+        assertTrue(repo.findByUserId("user1").isEmpty());
+    }
+
+    /**
+     * Ensures that a loan saved twice is still found after one copy is deleted.
+     */
+    @Test
+    void delete_shouldKeepSecondCopyOfDuplicateLoan() {
+        repo.save(loan1);
+
+        repo.delete(loan1);
+        assertSame(loan1, repo.findById(loan1.getId()).orElse(null));
+        assertEquals(List.of(loan2, loan1), repo.findByUserId("user1"));
+
+        repo.delete(loan1);
+        assertTrue(repo.findById(loan1.getId()).isEmpty());
+    }
+
+    /**
+     * Ensures that saveAll() stores every loan and indexes it like save().
+     */
+    @Test
+    void saveAll_shouldStoreAndIndexEveryLoan() {
+        Loan a = new Loan("user3", "m4", LocalDate.now(), LocalDate.now().plusDays(7));
+        Loan b = new Loan("user3", "m5", LocalDate.now(), LocalDate.now().plusDays(7));
+
+        repo.saveAll(List.of(a, b));
+
+        assertEquals(5, repo.findAll().size());
+        assertEquals(List.of(a, b), repo.findByUserId("user3"));
+        assertSame(b, repo.findById(b.getId()).get());
+    }
 }
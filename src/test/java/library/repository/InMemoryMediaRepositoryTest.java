@@ -105,4 +105,21 @@ class InMemoryMediaRepositoryTest {
         assertEquals(2, repo.search(null).size());
         assertEquals(2, repo.search("").size());
     }
+
+    /**
+     * Ensures that saveAll() keeps the earlier items findable and indexes the new ones.
+     */
+    @Test
+    void saveAll_shouldIndexOldAndNewItems() {
+        Media old = repo.findAll().get(0);
+        Book a = new Book("Refactoring", "Martin Fowler", "ISBN-400");
+        CD b = new CD("Blue", "Joni Mitchell");
+
+        repo.saveAll(List.of(a, b));
+
+        assertEquals(4, repo.count());
+        assertSame(old, repo.findById(old.getId()).get());
+        assertSame(b, repo.findById(b.getId()).get());
+        assertEquals(List.of(a, b), repo.findAll().subList(2, 4));
+    }
 }
@@ -0,0 +1,69 @@
+package library.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link InMemoryReminderStateRepository}.
+ *
+ * These tests verify that reminder state is stored per user id
+ * and that unknown users report no reminder.
+ */
+class InMemoryReminderStateRepositoryTest {
+
+    private InMemoryReminderStateRepository repo;
+
+    /**
+     * Creates an empty repository before each test.
+     */
+    @BeforeEach
+    void setup() {
+        repo = new InMemoryReminderStateRepository();
+    }
+
+    /**
+     * Ensures that a user without a recorded reminder returns NONE.
+     */
+    @Test
+    void lastReminderDay_unknownUser_returnsNone() {
+        assertEquals(ReminderStateRepository.NONE, repo.lastReminderDay("U5"));
+        assertEquals(0L, repo.lastFingerprint("U5"));
+    }
+
+    /**
+     * Verifies that record() stores day and fingerprint for the user.
+     */
+    @Test
+    void record_storesDayAndFingerprint() {
+        repo.record("U3", 20000, 42L);
+
+        assertEquals(20000, repo.lastReminderDay("U3"));
+        assertEquals(42L, repo.lastFingerprint("U3"));
+        assertEquals(ReminderStateRepository.NONE, repo.lastReminderDay("U4"));
+    }
+
+    /**
+     * Ensures that day 0 is stored correctly and not mixed up with "no reminder".
+     */
+    @Test
+    void record_epochDayZero_isNotNone() {
+        repo.record("U1", 0, 7L);
+        assertEquals(0, repo.lastReminderDay("U1"));
+    }
+
+    /**
+     * Verifies that more users than the initial capacity are supported.
+     */
+    @Test
+    void record_manyUsers_growsTable() {
+        for (int i = 0; i < 10_000; i++) {
+            repo.record("U" + i, i, 9L);
+        }
+
+        assertEquals(123, repo.lastReminderDay("U123"));
+        assertEquals(9999, repo.lastReminderDay("U9999"));
+        assertEquals(9L, repo.lastFingerprint("U9999"));
+    }
+}
@@ -0,0 +1,82 @@
+package library.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MappedReminderStateRepository}.
+ *
+ * These tests verify that the memory-mapped table stores reminder
+ * state by user id and keeps it after the file is closed and opened again.
+ */
+class MappedReminderStateRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Ensures that stored rows can be read back before closing.
+     */
+    @Test
+    void record_and_read_shouldReturnStoredValues() throws Exception {
+        try (MappedReminderStateRepository repo =
+                     new MappedReminderStateRepository(dir.resolve("state.bin"))) {
+            repo.record("U2", 19000, 77L);
+            repo.record("U2", 19001, 78L);
+
+            assertEquals(19001, repo.lastReminderDay("U2"));
+            assertEquals(78L, repo.lastFingerprint("U2"));
+            assertEquals(ReminderStateRepository.NONE, repo.lastReminderDay("U1"));
+        }
+    }
+
+    /**
+     * Verifies that the state survives closing and re-opening the file and
+     * still belongs to the same user ids.
+     */
+    @Test
+    void state_survivesReopen() throws Exception {
+        Path file = dir.resolve("state.bin");
+
+        try (MappedReminderStateRepository repo = new MappedReminderStateRepository(file)) {
+            repo.record("U1", 100, 5L);
+            for (int i = 0; i < 9000; i++) {
+                repo.record("user-" + i, 200 + i, i); // forces the table to grow
+            }
+        }
+
+        try (MappedReminderStateRepository repo = new MappedReminderStateRepository(file)) {
+            assertEquals(100, repo.lastReminderDay("U1"));
+            assertEquals(5L, repo.lastFingerprint("U1"));
+            assertEquals(9199, repo.lastReminderDay("user-8999"));
+            assertEquals(8999L, repo.lastFingerprint("user-8999"));
+            assertEquals(ReminderStateRepository.NONE, repo.lastReminderDay("U2"));
+
+            repo.record("U2", 300, 7L);
+            assertEquals(300, repo.lastReminderDay("U2"));
+            assertEquals(100, repo.lastReminderDay("U1"));
+        }
+    }
+
+    /**
+     * Ensures that ids that do not fit a row and foreign files are rejected.
+     */
+    @Test
+    void invalidInput_isRejected() throws Exception {
+        try (MappedReminderStateRepository repo =
+                     new MappedReminderStateRepository(dir.resolve("state.bin"))) {
+            StringBuilder id = new StringBuilder();
+            while (id.length() <= MappedReminderStateRepository.MAX_ID_BYTES) id.append('x');
+            assertThrows(IllegalArgumentException.class, () -> repo.record(id.toString(), 1, 1L));
+        }
+
+        Path other = dir.resolve("other.bin");
+        Files.write(other, new byte[64]);
+        assertThrows(IllegalArgumentException.class, () -> new MappedReminderStateRepository(other));
+    }
+}
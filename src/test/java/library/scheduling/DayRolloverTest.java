@@ -0,0 +1,127 @@
+package library.scheduling;
+
+import library.domain.Loan;
+import library.domain.media.Media;
+import library.scheduling.LoanSchedulerTest.MutableTimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DayRollover}.
+ * <p>
+ * Loans are scheduled on a {@link LoanScheduler} and the clock is moved
+ * forward to check the incremental overdue state.
+ */
+class DayRolloverTest {
+
+    private MutableTimeProvider time;
+    private LoanScheduler scheduler;
+    private DayRollover rollover;
+    private List<String> log;
+
+    /**
+     * Wires a scheduler and a rollover engine before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        time = new MutableTimeProvider(LocalDate.of(2025, 1, 1));
+        scheduler = new LoanScheduler(time, 0);
+        rollover = new DayRollover(time, scheduler);
+        scheduler.registerHandler(rollover);
+
+        log = new ArrayList<>();
+        rollover.registerListener(new DayRollover.Listener() {
+            @Override
+            public void onOverdue(Loan loan) {
+                log.add("overdue " + loan.getId());
+            }
+
+            @Override
+            public void onOverdueReturned(Loan loan, Media media) {
+                log.add("returned " + loan.getId());
+            }
+
+            @Override
+            public void onRollover(LocalDate day, int newlyOverdue) {
+                log.add(day + " +" + newlyOverdue);
+            }
+        });
+    }
+
+    private Loan borrow(String userId, int days) {
+        Loan loan = new Loan(userId, "M1", time.today(), time.today().plusDays(days));
+        scheduler.onBorrow(loan, null);
+        return loan;
+    }
+
+    /**
+     * Verifies that rollover only runs once per day.
+     */
+    @Test
+    void rollover_sameDay_runsOnce() {
+        assertTrue(rollover.rollover());
+        assertFalse(rollover.rollover());
+        assertEquals(time.today(), rollover.getLastDay());
+    }
+
+    /**
+     * Verifies that only loans whose due date passed become overdue,
+     * and that the per-user counters follow.
+     */
+    @Test
+    void rollover_marksOnlyLoansDueYesterday() {
+        Loan a = borrow("U1", 1);
+        Loan b = borrow("U1", 1);
+        Loan c = borrow("U2", 5);
+        rollover.rollover();
+
+        time.plusDays(2);
+        assertTrue(rollover.rollover());
+
+        assertEquals(2, rollover.overdueCount());
+        assertEquals(2, rollover.overdueCount("U1"));
+        assertEquals(0, rollover.overdueCount("U2"));
+        assertTrue(rollover.isOverdue(a.getId()));
+        assertTrue(rollover.isOverdue(b.getId()));
+        assertFalse(rollover.isOverdue(c.getId()));
+        assertEquals("2025-01-03 +2", log.get(log.size() - 1));
+    }
+
+    /**
+     * Ensures that returning an overdue loan removes it from the state.
+     */
+    @Test
+    void onReturn_removesOverdueLoan() {
+        Loan a = borrow("U1", 1);
+        time.plusDays(3);
+        rollover.rollover();
+
+        a.setReturnedDate(time.today());
+        rollover.onReturn(a, null, 30);
+        scheduler.onReturn(a, null, 30);
+
+        assertEquals(0, rollover.overdueCount());
+        assertEquals(0, rollover.overdueCount("U1"));
+        assertTrue(log.contains("returned " + a.getId()));
+    }
+
+    /**
+     * Ensures that returning a loan that was not overdue changes nothing.
+     */
+    @Test
+    void onReturn_notOverdue_isIgnored() {
+        Loan a = borrow("U1", 10);
+        a.setReturnedDate(time.today());
+
+        rollover.onReturn(a, null, 0);
+
+        assertEquals(0, rollover.overdueCount());
+        assertTrue(log.isEmpty());
+    }
+}
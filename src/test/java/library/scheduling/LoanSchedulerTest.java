@@ -0,0 +1,133 @@
+package library.scheduling;
+
+import library.domain.Loan;
+import library.service.TimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LoanScheduler}.
+ * <p>
+ * A mutable time provider is used to move the clock forward and
+ * check which loan events fire on which day.
+ */
+class LoanSchedulerTest {
+
+    /**
+     * Time provider whose date can be changed by the test.
+     */
+    static class MutableTimeProvider implements TimeProvider {
+        private LocalDate today;
+
+        MutableTimeProvider(LocalDate today) {
+            this.today = today;
+        }
+
+        void plusDays(int days) {
+            today = today.plusDays(days);
+        }
+
+        @Override
+        public LocalDate today() {
+            return today;
+        }
+    }
+
+    private MutableTimeProvider time;
+    private LoanScheduler scheduler;
+    private List<LoanEvent> events;
+
+    /**
+     * Creates a scheduler with a 2-day due-soon offset before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        time = new MutableTimeProvider(LocalDate.of(2025, 1, 1));
+        scheduler = new LoanScheduler(time, 2);
+        events = new ArrayList<>();
+        scheduler.registerHandler(events::add);
+    }
+
+    /**
+     * Verifies that DUE_SOON fires two days before the due date
+     * and OVERDUE fires the day after the due date.
+     */
+    @Test
+    void schedule_firesDueSoonThenOverdue() {
+        Loan loan = new Loan("U1", "M1", time.today(), time.today().plusDays(7));
+        scheduler.onBorrow(loan, null);
+        assertEquals(2, scheduler.pendingEvents());
+
+        time.plusDays(4);
+        assertEquals(0, scheduler.advance());
+
+        time.plusDays(1); // due - 2
+        assertEquals(1, scheduler.advance());
+        assertEquals(LoanEvent.Type.DUE_SOON, events.get(0).getType());
+
+        time.plusDays(2); // due date itself: not overdue yet
+        assertEquals(0, scheduler.advance());
+
+        time.plusDays(1);
+        assertEquals(1, scheduler.advance());
+        assertEquals(LoanEvent.Type.OVERDUE, events.get(1).getType());
+        assertSame(loan, events.get(1).getLoan());
+        assertEquals(0, scheduler.pendingEvents());
+    }
+
+    /**
+     * Ensures that returning a loan cancels its pending events.
+     */
+    @Test
+    void onReturn_cancelsEvents() {
+        Loan loan = new Loan("U1", "M1", time.today(), time.today().plusDays(28));
+        scheduler.onBorrow(loan, null);
+
+        loan.setReturnedDate(time.today());
+        scheduler.onReturn(loan, null, 0);
+
+        time.plusDays(60);
+        assertEquals(0, scheduler.advance());
+        assertTrue(events.isEmpty());
+        assertEquals(0, scheduler.pendingEvents());
+    }
+
+    /**
+     * Ensures that loans already past their due date fire OVERDUE on the next advance
+     * and that returned loans are not scheduled.
+     */
+    @Test
+    void scheduleAll_overdueLoanFiresImmediately_returnedLoanIgnored() {
+        Loan overdue = new Loan("U1", "M1", time.today().minusDays(20), time.today().minusDays(3));
+        Loan returned = new Loan("U1", "M2", time.today().minusDays(20), time.today().minusDays(3));
+        returned.setReturnedDate(time.today().minusDays(5));
+
+        scheduler.scheduleAll(List.of(overdue, returned));
+
+        assertEquals(1, scheduler.advance());
+        assertEquals(LoanEvent.Type.OVERDUE, events.get(0).getType());
+    }
+
+    /**
+     * Verifies that a failing handler does not stop the others.
+     */
+    @Test
+    void advance_failingHandler_othersStillRun() {
+        List<LoanEvent> second = new ArrayList<>();
+        scheduler.registerHandler(e -> { throw new RuntimeException("boom"); });
+        scheduler.registerHandler(second::add);
+
+        scheduler.schedule(new Loan("U1", "M1", time.today(), time.today().plusDays(1)));
+        time.plusDays(2);
+        scheduler.advance();
+
+        assertEquals(1, events.size());
+        assertEquals(1, second.size());
+    }
+}
@@ -0,0 +1,112 @@
+package library.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TimingWheel}.
+ * <p>
+ * These tests check that timers fire on their tick, in order,
+ * across level boundaries, and that cancelled timers never fire.
+ */
+class TimingWheelTest {
+
+    private TimingWheel<String> wheel;
+    private List<String> fired;
+
+    /**
+     * Creates a wheel starting at tick 1000 before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(1000);
+        fired = new ArrayList<>();
+    }
+
+    /**
+     * Verifies that a timer fires exactly when its tick is reached.
+     */
+    @Test
+    void advanceTo_firesTimerOnItsTick() {
+        wheel.schedule(1005, "a");
+
+        assertEquals(0, wheel.advanceTo(1004, fired::add));
+        assertTrue(fired.isEmpty());
+
+        assertEquals(1, wheel.advanceTo(1005, fired::add));
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Verifies that timers far in the future fire on time after cascading
+     * down through the higher levels, and in tick order.
+     */
+    @Test
+    void advanceTo_farTimers_fireInOrderAcrossLevels() {
+        wheel.schedule(1000 + 5000, "c");
+        wheel.schedule(1000 + 70, "b");
+        wheel.schedule(1000 + 3, "a");
+        wheel.schedule(1000 + 300_000, "d");
+
+        wheel.advanceTo(1000 + 5000 - 1, fired::add);
+        assertEquals(List.of("a", "b"), fired);
+
+        wheel.advanceTo(1000 + 5000, fired::add);
+        assertEquals(List.of("a", "b", "c"), fired);
+
+        wheel.advanceTo(1000 + 299_999, fired::add);
+        assertEquals(3, fired.size());
+        wheel.advanceTo(1000 + 300_000, fired::add);
+        assertEquals(List.of("a", "b", "c", "d"), fired);
+    }
+
+    /**
+     * Ensures that a cancelled timer does not fire and is removed from the size.
+     */
+    @Test
+    void cancel_preventsFiring() {
+        TimingWheel.Timeout<String> t = wheel.schedule(1010, "x");
+        wheel.schedule(1010, "y");
+
+        assertTrue(t.cancel());
+        assertFalse(t.cancel(), "Second cancel should report false");
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(1020, fired::add);
+        assertEquals(List.of("y"), fired);
+    }
+
+    /**
+     * Ensures that timers scheduled in the past fire on the next advance.
+     */
+    @Test
+    void schedule_pastTick_firesOnNextAdvance() {
+        wheel.schedule(900, "late");
+
+        wheel.advanceTo(1000, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+
+    /**
+     * Verifies that a sink may cancel other pending timers while firing.
+     */
+    @Test
+    void advanceTo_sinkCancelsOtherTimer_isSafe() {
+        wheel.schedule(1001, "first");
+        TimingWheel.Timeout<String> second = wheel.schedule(1001, "second");
+
+        wheel.advanceTo(1001, s -> {
+            fired.add(s);
+            second.cancel();
+        });
+
+        assertEquals(List.of("first"), fired);
+        assertEquals(0, wheel.size());
+    }
+}
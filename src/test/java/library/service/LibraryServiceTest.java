@@ -6,14 +6,22 @@ import library.domain.User;
 import library.domain.media.Book;
 import library.domain.media.CD;
 import library.domain.media.Media;
+import library.domain.media.MediaType;
+import library.dto.BatchResult;
 import library.exception.BusinessRuleException;
 import library.exception.NotAuthorizedException;
 import library.exception.ResourceNotFoundException;
+import library.metrics.LibraryMetrics;
+import library.metrics.MetricsRegistry;
+import library.metrics.TimerSnapshot;
 import library.repository.InMemoryAdminRepository;
 import library.repository.InMemoryLoanRepository;
 import library.repository.InMemoryMediaRepository;
 import library.repository.InMemoryUserRepository;
 import library.strategy.FineStrategy;
+import library.strategy.MediaPolicy;
+import library.strategy.MediaPolicyTable;
+import library.strategy.ReminderCategory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -658,4 +666,325 @@ public class LibraryServiceTest {
         long overdueLines = report.stream().filter(line -> line.contains("OVERDUE by")).count();
         assertEquals(2, overdueLines);
     }
+
+    // =========================================================
+    // listeners
+    // =========================================================
+
+    /**
+     * Listeners should be informed about a borrow and about the fine of an overdue return.
+     */
+    @Test
+    void registerListener_receivesBorrowAndReturnEvents() {
+        List<String> events = new java.util.ArrayList<>();
+        libraryService.registerListener(new LibraryEventListener() {
+            @Override
+            public void onBorrow(Loan loan, Media media) {
+                events.add("borrow " + media.getId());
+            }
+
+            @Override
+            public void onReturn(Loan loan, Media media, int fine) {
+                events.add("return " + media.getId() + " fine=" + fine);
+            }
+        });
+        libraryService.registerListener(null); // ignored
+
+        libraryService.borrow(user.getId(), book.getId());
+
+        Loan late = new Loan(user.getId(), cd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(late);
+        libraryService.returnMedia(late.getId());
+
+        assertEquals(List.of("borrow " + book.getId(), "return " + cd.getId() + " fine=20"), events);
+    }
+
+    // =========================================================
+    // streaming report
+    // =========================================================
+
+    /**
+     * The streamed report should contain the same lines as getBorrowedMediaReport()
+     * and return the total fine.
+     */
+    @Test
+    void streamBorrowedMediaReport_matchesListReport() {
+        loanRepo.save(new Loan(user.getId(), book.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(2)));
+        loanRepo.save(new Loan(user.getId(), cd.getId(),
+                timeProvider.today(), timeProvider.today().plusDays(7)));
+
+        List<String> streamed = new java.util.ArrayList<>();
+        int total = libraryService.streamBorrowedMediaReport(line -> streamed.add(line.toString()));
+
+        assertEquals(libraryService.getBorrowedMediaReport(), streamed);
+        assertEquals(10, total);
+        assertEquals(3, streamed.size());
+        assertTrue(streamed.get(1).endsWith("| DUE in 7 day(s)"));
+    }
+
+    /**
+     * With a report cache, repeated reports are replayed until a borrow
+     * invalidates them.
+     */
+    @Test
+    void streamBorrowedMediaReport_withCache_rebuildsOnlyAfterBorrow() {
+        library.report.ReportCache cache = new library.report.ReportCache(timeProvider);
+        libraryService.useReportCache(cache);
+
+        List<String> first = libraryService.getBorrowedMediaReport();
+        List<String> second = libraryService.getBorrowedMediaReport();
+        assertEquals(first, second);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+
+        libraryService.borrow(user.getId(), book.getId());
+        List<String> third = libraryService.getBorrowedMediaReport();
+
+        assertEquals(2, cache.misses());
+        assertEquals(2, third.size());
+    }
+
+    /**
+     * With a report cache, a report too large to cache is streamed on every
+     * call instead of being held in memory.
+     */
+    @Test
+    void streamBorrowedMediaReport_withCache_largeReportIsNotCached() {
+        library.report.ReportCache cache = new library.report.ReportCache(timeProvider);
+        libraryService.useReportCache(cache);
+        for (int i = 0; i < 10_000; i++) {
+            loanRepo.save(new Loan(user.getId(), book.getId(),
+                    timeProvider.today(), timeProvider.today().plusDays(7)));
+        }
+
+        int[] lines = new int[1];
+        libraryService.streamBorrowedMediaReport(line -> lines[0]++);
+        libraryService.streamBorrowedMediaReport(line -> lines[0]++);
+
+        assertEquals(2 * 10_001, lines[0]);
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.hits());
+    }
+
+    /**
+     * A retried borrow with the same request id returns the first loan
+     * instead of failing because the media is no longer available.
+     */
+    @Test
+    void borrow_withSameRequestId_returnsOriginalLoan() {
+        Loan first = libraryService.borrow("req-1", user.getId(), book.getId());
+        Loan retry = libraryService.borrow("req-1", user.getId(), book.getId());
+
+        assertSame(first, retry);
+        assertEquals(1, loanRepo.findByUserId(user.getId()).size());
+        assertThrows(BusinessRuleException.class,
+                () -> libraryService.borrow("req-2", user.getId(), book.getId()));
+    }
+
+    /**
+     * A request id reused for a different borrow is rejected.
+     */
+    @Test
+    void borrow_requestIdReusedWithOtherArguments_throws() {
+        libraryService.borrow("req-1", user.getId(), book.getId());
+
+        assertThrows(BusinessRuleException.class,
+                () -> libraryService.borrow("req-1", user.getId(), cd.getId()));
+        assertTrue(cd.isAvailable());
+    }
+
+    /**
+     * A retried payment with the same request id is applied only once.
+     */
+    @Test
+    void payFine_withSameRequestId_isAppliedOnce() {
+        user.addFine(50);
+
+        assertEquals(20, libraryService.payFine("pay-1", user.getId(), 20));
+        assertEquals(20, libraryService.payFine("pay-1", user.getId(), 20));
+        assertEquals(30, user.getOutstandingFine());
+
+        assertEquals(20, libraryService.payFine("pay-2", user.getId(), 20));
+        assertEquals(10, user.getOutstandingFine());
+    }
+
+    /**
+     * A media type registered in the policy table gets its own loan period
+     * and fine without changes to the service.
+     */
+    @Test
+    void borrowAndReturn_registeredNewType_usesItsPolicy() {
+        MediaPolicyTable policies = MediaPolicyTable.standard(
+                new ConstantFineStrategy(10), new ConstantFineStrategy(20));
+        policies.register(MediaType.of("DVD"),
+                new MediaPolicy(3, new ConstantFineStrategy(5),
+                        ReminderCategory.CD));
+        LibraryService service = new LibraryService(userRepo, mediaRepo, loanRepo, reminderService,
+                timeProvider, policies, authService);
+
+        Media dvd = new Media("Movie", "DVD") { };
+        mediaRepo.save(dvd);
+
+        Loan loan = service.borrow(user.getId(), dvd.getId());
+        assertEquals(timeProvider.today().plusDays(3), loan.getDueDate());
+
+        Loan overdue = new Loan(user.getId(), dvd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(overdue);
+        service.returnMedia(overdue.getId());
+        assertEquals(5, user.getOutstandingFine());
+    }
+
+    /**
+     * writeBorrowedMediaReport() should write one line per active loan plus the total line.
+     */
+    @Test
+    void writeBorrowedMediaReport_writesLinesToWriter() throws Exception {
+        loanRepo.save(new Loan("ghost-user", "ghost-media",
+                timeProvider.today().minusDays(3), timeProvider.today().plusDays(1)));
+
+        java.io.StringWriter out = new java.io.StringWriter();
+        libraryService.writeBorrowedMediaReport(out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("| ghost-media | ghost-user | due="));
+        assertEquals("TOTAL OUTSTANDING FINE (for active loans): 0", lines[1]);
+    }
+
+    /**
+     * writeBorrowedMediaReport() should pass on IOExceptions from the writer.
+     */
+    @Test
+    void writeBorrowedMediaReport_writerFails_throwsIOException() {
+        java.io.Writer failing = new java.io.Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws java.io.IOException {
+                throw new java.io.IOException("disk full");
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+
+        java.io.IOException ex = assertThrows(java.io.IOException.class,
+                () -> libraryService.writeBorrowedMediaReport(failing));
+        assertEquals("disk full", ex.getMessage());
+    }
+
+
+    // =========================================================
+    // batch borrow / return
+    // =========================================================
+
+    /**
+     * A batch borrow lends every available item in one go and reports the
+     * missing and unavailable ones per item.
+     */
+    @Test
+    void borrowAll_reportsEachItem() {
+        BatchResult result = libraryService.borrowAll(user.getId(),
+                List.of(book.getId(), "M-missing", cd.getId(), book.getId()));
+
+        assertEquals(4, result.size());
+        assertEquals(2, result.succeeded());
+        assertTrue(result.get(0).isOk());
+        assertInstanceOf(ResourceNotFoundException.class, result.get(1).getError());
+        assertEquals(cd.getId(), result.get(2).getLoan().getMediaId());
+        assertEquals("Media not available", result.get(3).getError().getMessage());
+        assertFalse(book.isAvailable());
+        assertFalse(cd.isAvailable());
+        assertEquals(2, loanRepo.findByUserId(user.getId()).size());
+    }
+
+    /**
+     * When the user may not borrow, every item fails with the same reason and
+     * nothing is lent.
+     */
+    @Test
+    void borrowAll_userWithFine_failsEveryItem() {
+        user.addFine(5);
+
+        BatchResult result = libraryService.borrowAll(user.getId(), List.of(book.getId(), cd.getId()));
+
+        assertEquals(0, result.succeeded());
+        assertEquals("User has outstanding fines", result.get(0).getError().getMessage());
+        assertSame(result.get(0).getError(), result.get(1).getError());
+        assertTrue(book.isAvailable());
+        assertTrue(loanRepo.findAll().isEmpty());
+    }
+
+    /**
+     * A batch return charges each overdue loan, adds the fines to the user once
+     * and tells listeners with a single call per user.
+     */
+    @Test
+    void returnAll_aggregatesFinesPerUser() {
+        Loan lateBook = new Loan(user.getId(), book.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        Loan lateCd = new Loan(user.getId(), cd.getId(),
+                timeProvider.today().minusDays(10), timeProvider.today().minusDays(1));
+        loanRepo.save(lateBook);
+        loanRepo.save(lateCd);
+        book.setAvailable(false);
+        cd.setAvailable(false);
+
+        List<String> events = new java.util.ArrayList<>();
+        libraryService.registerListener(new LibraryEventListener() {
+            @Override
+            public void onFinesAdded(User u, List<Loan> loans, int[] fines) {
+                events.add("fines " + loans.size() + " " + java.util.Arrays.toString(fines));
+            }
+
+            @Override
+            public void onReturn(Loan loan, Media media, int fine) {
+                events.add("return " + media.getId());
+            }
+        });
+
+        BatchResult result = libraryService.returnAll(List.of(lateBook.getId(), "L-missing", lateCd.getId(), lateBook.getId()));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(10, result.get(0).getFine());
+        assertEquals("loan not found", result.get(1).getError().getMessage());
+        assertEquals(20, result.get(2).getFine());
+        assertEquals("Already returned", result.get(3).getError().getMessage());
+        assertEquals(30, result.totalFine());
+        assertEquals(30, user.getOutstandingFine());
+        assertTrue(book.isAvailable());
+        assertTrue(cd.isAvailable());
+        assertEquals(List.of("fines 2 [10, 20]", "return " + book.getId(), "return " + cd.getId()), events);
+    }
+
+    /**
+     * With metrics enabled, successful and rejected calls are both timed and
+     * rejected ones are counted as failures.
+     */
+    @Test
+    void useMetrics_recordsCallsAndFailures() {
+        MetricsRegistry registry = new MetricsRegistry();
+        libraryService.useMetrics(new LibraryMetrics(registry));
+
+        Loan loan = libraryService.borrow(user.getId(), book.getId());
+        assertThrows(BusinessRuleException.class, () -> libraryService.borrow(user.getId(), book.getId()));
+        libraryService.returnMedia(loan.getId());
+        libraryService.searchByTitle("clean");
+
+        TimerSnapshot borrow = registry.snapshot().get("library.borrow");
+        assertEquals(2, borrow.getCount());
+        assertEquals(1, borrow.getFailures());
+        assertTrue(borrow.getMax() > 0);
+        assertEquals(1, registry.snapshot().get("library.returnMedia").getCount());
+        assertEquals(1, registry.snapshot().get("library.searchByTitle").getCount());
+        assertEquals(0, registry.snapshot().get("library.payFine").getCount());
+
+        libraryService.useMetrics(null);
+        libraryService.searchByTitle("clean");
+        assertEquals(1, registry.snapshot().get("library.searchByTitle").getCount());
+    }
 }
@@ -8,7 +8,10 @@ import library.domain.media.Media;
 import library.dto.OverdueReport;
 import library.repository.InMemoryLoanRepository;
 import library.repository.InMemoryMediaRepository;
+import library.repository.InMemoryReminderStateRepository;
+import library.repository.ReminderStateRepository;
 import library.repository.InMemoryUserRepository;
+import library.scheduling.LoanEvent;
 import library.strategy.FineStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -450,4 +453,144 @@ public class ReminderServiceTest {
         assertEquals(1, report.getOverdueCounts().get(userWithEmail.getId()));
         assertEquals(0, report.getFineTotals().get(userWithEmail.getId()));
     }
+
+    // =========================================================
+    // 4) sendReminders: reminder deduplication
+    // =========================================================
+
+    /**
+     * Creates a reminder service that uses the given time provider and
+     * suppresses repeated reminders for the given number of days.
+     */
+    private ReminderService dedupService(TimeProvider tp, InMemoryReminderStateRepository state, int days) {
+        ReminderService service = new ReminderService(tp, state, days);
+        service.registerNotifier(recordingNotifier);
+        return service;
+    }
+
+    /**
+     * Verifies that the same reminder is not sent twice inside the window.
+     */
+    @Test
+    void sendReminders_withState_sameCountsInsideWindow_isSuppressed() {
+        ReminderService service = dedupService(timeProvider, new InMemoryReminderStateRepository(), 3);
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2)));
+
+        service.sendReminders(loanRepo, userRepo, mediaRepo);
+        service.sendReminders(loanRepo, userRepo, mediaRepo);
+
+        assertEquals(1, recordingNotifier.getRecords().size(),
+                "Second run inside the window should not notify again");
+    }
+
+    /**
+     * Verifies that a reminder is sent again once the counts change.
+     */
+    @Test
+    void sendReminders_withState_countsChanged_sendsAgain() {
+        ReminderService service = dedupService(timeProvider, new InMemoryReminderStateRepository(), 3);
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2)));
+        service.sendReminders(loanRepo, userRepo, mediaRepo);
+
+        loanRepo.save(new Loan(userWithEmail.getId(), cd.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2)));
+        service.sendReminders(loanRepo, userRepo, mediaRepo);
+
+        List<RecordingNotifier.Recorded> records = recordingNotifier.getRecords();
+        assertEquals(2, records.size());
+        assertEquals("You have 1 overdue book(s) and 1 overdue CD(s).", records.get(1).message);
+    }
+
+    /**
+     * Verifies that the same reminder is sent again after the window passes.
+     */
+    @Test
+    void sendReminders_withState_afterWindow_sendsAgain() {
+        InMemoryReminderStateRepository state = new InMemoryReminderStateRepository();
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2)));
+
+        dedupService(timeProvider, state, 2).sendReminders(loanRepo, userRepo, mediaRepo);
+
+        FixedTimeProvider nextDay = new FixedTimeProvider(timeProvider.today().plusDays(1));
+        dedupService(nextDay, state, 2).sendReminders(loanRepo, userRepo, mediaRepo);
+        assertEquals(1, recordingNotifier.getRecords().size(), "Still inside the 2-day window");
+
+        FixedTimeProvider later = new FixedTimeProvider(timeProvider.today().plusDays(2));
+        dedupService(later, state, 2).sendReminders(loanRepo, userRepo, mediaRepo);
+        assertEquals(2, recordingNotifier.getRecords().size(), "Window passed, reminder is sent again");
+    }
+
+    /**
+     * Verifies that a reminder every notifier failed to deliver is not
+     * recorded as sent, so the next run inside the window tries again.
+     */
+    @Test
+    void sendReminders_withState_allNotifiersFail_isNotSuppressed() {
+        InMemoryReminderStateRepository state = new InMemoryReminderStateRepository();
+        ReminderService failing = new ReminderService(timeProvider, state, 3);
+        failing.registerNotifier((user, msg) -> { throw new RuntimeException("mail server down"); });
+
+        loanRepo.save(new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(30), timeProvider.today().minusDays(2)));
+        failing.sendReminders(loanRepo, userRepo, mediaRepo);
+        assertEquals(ReminderStateRepository.NONE, state.lastReminderDay(userWithEmail.getId()));
+
+        dedupService(timeProvider, state, 3).sendReminders(loanRepo, userRepo, mediaRepo);
+        assertEquals(1, recordingNotifier.getRecords().size());
+        assertEquals(timeProvider.today().toEpochDay(), state.lastReminderDay(userWithEmail.getId()));
+    }
+
+    /**
+     * Ensures that a negative suppression window is rejected.
+     */
+    @Test
+    void constructor_negativeWindow_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReminderService(timeProvider, new InMemoryReminderStateRepository(), -1));
+    }
+
+    // =========================================================
+    // 5) sendLoanReminder
+    // =========================================================
+
+    /**
+     * Verifies the messages sent for DUE_SOON and OVERDUE loan events.
+     */
+    @Test
+    void sendLoanReminder_sendsDueSoonAndOverdueMessages() {
+        Loan loan = new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(20), LocalDate.of(2025, 1, 3));
+
+        reminderService.sendLoanReminder(new LoanEvent(LoanEvent.Type.DUE_SOON, loan), userRepo, mediaRepo);
+        reminderService.sendLoanReminder(new LoanEvent(LoanEvent.Type.OVERDUE, loan), userRepo, mediaRepo);
+
+        List<RecordingNotifier.Recorded> records = recordingNotifier.getRecords();
+        assertEquals(2, records.size());
+        assertEquals("Your loan of \"Clean Code\" is due on 2025-01-03.", records.get(0).message);
+        assertEquals("Your loan of \"Clean Code\" was due on 2025-01-03 and is now overdue.",
+                records.get(1).message);
+    }
+
+    /**
+     * Ensures that returned loans and users without email get no loan reminder.
+     */
+    @Test
+    void sendLoanReminder_returnedLoanOrNoEmail_isSkipped() {
+        Loan returned = new Loan(userWithEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(20), timeProvider.today().minusDays(1));
+        returned.setReturnedDate(timeProvider.today());
+        Loan noEmail = new Loan(userWithoutEmail.getId(), book.getId(),
+                timeProvider.today().minusDays(20), timeProvider.today().minusDays(1));
+
+        reminderService.sendLoanReminder(new LoanEvent(LoanEvent.Type.OVERDUE, returned), userRepo, mediaRepo);
+        reminderService.sendLoanReminder(new LoanEvent(LoanEvent.Type.OVERDUE, noEmail), userRepo, mediaRepo);
+
+        assertTrue(recordingNotifier.getRecords().isEmpty());
+    }
 }
@@ -0,0 +1,78 @@
+package library.sim;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link WorkloadSimulator}.
+ */
+class WorkloadSimulatorTest {
+
+    private static Workload small(long seed) {
+        return Workload.builder()
+                .seed(seed)
+                .users(500)
+                .titles(300)
+                .days(60)
+                .borrowsPerDay(200)
+                .searchesPerDay(5)
+                .lateReturnRate(0.3)
+                .build();
+    }
+
+    /**
+     * Two runs with the same seed make the same calls with the same outcomes.
+     */
+    @Test
+    void run_shouldBeReproducibleFromSeed() {
+        SimulationReport a = new WorkloadSimulator(small(7)).run();
+        SimulationReport b = new WorkloadSimulator(small(7)).run();
+
+        assertEquals(a.getLoans(), b.getLoans());
+        assertEquals(a.getFinesCharged(), b.getFinesCharged());
+        assertEquals(a.getFinesPaid(), b.getFinesPaid());
+        assertEquals(a.getReminders(), b.getReminders());
+        for (WorkloadSimulator.Operation op : WorkloadSimulator.Operation.values()) {
+            assertEquals(a.get(op).getCount(), b.get(op).getCount(), op.name());
+            assertEquals(a.get(op).getRejected(), b.get(op).getRejected(), op.name());
+        }
+    }
+
+    /**
+     * A run exercises every operation, charges and collects fines, and
+     * reports consistent percentiles.
+     */
+    @Test
+    void run_shouldMeasureAllOperations() {
+        SimulationReport report = new WorkloadSimulator(small(11)).run();
+
+        assertEquals(60 * 200, report.get(WorkloadSimulator.Operation.BORROW).getCount());
+        assertEquals(60 * 5, report.get(WorkloadSimulator.Operation.SEARCH).getCount());
+        assertEquals(60 / 7, report.get(WorkloadSimulator.Operation.REMINDERS).getCount());
+        assertTrue(report.get(WorkloadSimulator.Operation.RETURN).getCount() > 0);
+        assertTrue(report.get(WorkloadSimulator.Operation.PAY_FINE).getCount() > 0);
+        assertTrue(report.get(WorkloadSimulator.Operation.BORROW).getRejected() > 0);
+        assertTrue(report.getFinesCharged() >= report.getFinesPaid() && report.getFinesPaid() > 0);
+        assertTrue(report.getReminders() > 0);
+
+        for (SimulationReport.OperationStats s : report.getOperations()) {
+            assertTrue(s.getP50() <= s.getP99() && s.getP99() <= s.getMax(), s.getOperation().name());
+        }
+        assertTrue(report.format().contains("BORROW"));
+    }
+
+    /**
+     * Command line options map to the workload parameters.
+     */
+    @Test
+    void parse_shouldReadOptions() {
+        Workload w = WorkloadSimulator.parse(new String[] {"--seed", "9", "--users", "20", "--zipf", "0.5"});
+
+        assertEquals(9, w.getSeed());
+        assertEquals(20, w.getUsers());
+        assertEquals(0.5, w.getZipfExponent());
+        assertThrows(IllegalArgumentException.class, () -> WorkloadSimulator.parse(new String[] {"--bogus", "1"}));
+        assertThrows(IllegalArgumentException.class, () -> WorkloadSimulator.parse(new String[] {"--days"}));
+    }
+}
@@ -0,0 +1,55 @@
+package library.sim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ZipfDistribution}.
+ */
+class ZipfDistributionTest {
+
+    /**
+     * Lower ranks are drawn more often, roughly in proportion 1/k.
+     */
+    @Test
+    void sample_shouldFavourLowRanks() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+        Random random = new Random(3);
+        int[] hits = new int[1000];
+        for (int i = 0; i < 200_000; i++) {
+            hits[zipf.sample(random)]++;
+        }
+
+        assertTrue(hits[0] > hits[1] && hits[1] > hits[9] && hits[9] > hits[99]);
+        assertEquals(2.0, (double) hits[0] / hits[1], 0.2);
+    }
+
+    /**
+     * An exponent of 0 gives a uniform distribution over all ranks.
+     */
+    @Test
+    void zeroExponent_shouldBeUniform() {
+        ZipfDistribution zipf = new ZipfDistribution(4, 0);
+        Random random = new Random(5);
+        int[] hits = new int[4];
+        for (int i = 0; i < 40_000; i++) {
+            hits[zipf.sample(random)]++;
+        }
+
+        for (int h : hits) {
+            assertEquals(10_000, h, 500);
+        }
+    }
+
+    /**
+     * Invalid parameters are rejected.
+     */
+    @Test
+    void constructor_shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(10, -1));
+    }
+}
@@ -56,4 +56,23 @@ class CDFineStrategyTest {
         int fine = s.calculateFine(-5);
         assertEquals(0, fine);
     }
+
+    /**
+     * Checks that the batch methods agree with single calls.
+     */
+    @Test
+    void calculateFines_batch_matchesSingleCalls() {
+        CDFineStrategy s = new CDFineStrategy();
+        int[] days = {-2, 0, 1, 5, 31};
+        int[] fines = new int[days.length];
+
+        s.calculateFines(days, fines, days.length);
+
+        long total = 0;
+        for (int i = 0; i < days.length; i++) {
+            assertEquals(s.calculateFine(days[i]), fines[i]);
+            total += fines[i];
+        }
+        assertEquals(total, s.totalFine(days, days.length));
+    }
 }
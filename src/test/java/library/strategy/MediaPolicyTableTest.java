@@ -0,0 +1,89 @@
+package library.strategy;
+
+import library.domain.media.Book;
+import library.domain.media.CD;
+import library.domain.media.Media;
+import library.domain.media.MediaType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MediaPolicyTable} and {@link MediaType}.
+ */
+class MediaPolicyTableTest {
+
+    /** Media item of a type that is registered by the test. */
+    static class Magazine extends Media {
+        Magazine(String title) {
+            super(title, "MAGAZINE");
+        }
+    }
+
+    /**
+     * Checks that type names are interned with dense ordinals.
+     */
+    @Test
+    void mediaType_of_returnsSameInstanceForSameName() {
+        assertSame(MediaType.BOOK, MediaType.of("BOOK"));
+        assertSame(MediaType.of("DVD"), MediaType.of("DVD"));
+        assertNotEquals(MediaType.BOOK.ordinal(), MediaType.CD.ordinal());
+        assertTrue(MediaType.of("DVD").ordinal() < MediaType.count());
+        assertSame(MediaType.CD, new CD("C", "X").getType());
+    }
+
+    /**
+     * Checks the loan periods, fines and reminder categories of the standard table.
+     */
+    @Test
+    void standard_hasBookAndCdPolicies() {
+        MediaPolicyTable table = MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy());
+
+        MediaPolicy book = table.policyFor(new Book("B", "A", "I"));
+        assertEquals(28, book.getLoanDays());
+        assertEquals(30, book.fine(3));
+        assertEquals(ReminderCategory.BOOK, book.getReminderCategory());
+
+        MediaPolicy cd = table.policyFor(MediaType.CD);
+        assertEquals(7, cd.getLoanDays());
+        assertEquals(60, cd.fine(3));
+        assertEquals(ReminderCategory.CD, cd.getReminderCategory());
+    }
+
+    /**
+     * Checks that unregistered types and null media get the fallback policy.
+     */
+    @Test
+    void policyFor_unregisteredType_returnsFallback() {
+        MediaPolicyTable table = MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy());
+
+        MediaPolicy p = table.policyFor(new Magazine("M"));
+        assertSame(table.fallback(), p);
+        assertSame(table.fallback(), table.policyFor((Media) null));
+        assertEquals(MediaPolicyTable.DEFAULT_LOAN_DAYS, p.getLoanDays());
+        assertEquals(0, p.fine(10));
+        assertEquals(ReminderCategory.NONE, p.getReminderCategory());
+    }
+
+    /**
+     * Checks that a new type plugs in with a register call.
+     */
+    @Test
+    void register_newType_isUsedForItsMedia() {
+        MediaPolicyTable table = MediaPolicyTable.standard(new BookFineStrategy(), new CDFineStrategy());
+        table.register(MediaType.of("MAGAZINE"), new MediaPolicy(3, days -> days * 2, ReminderCategory.BOOK));
+
+        MediaPolicy p = table.policyFor(new Magazine("M"));
+        assertEquals(3, p.getLoanDays());
+        assertEquals(8, p.fine(4));
+        assertEquals(ReminderCategory.BOOK, p.getReminderCategory());
+    }
+
+    /**
+     * Checks that a non-positive loan period is rejected.
+     */
+    @Test
+    void mediaPolicy_invalidLoanDays_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new MediaPolicy(0, null, ReminderCategory.NONE));
+    }
+}
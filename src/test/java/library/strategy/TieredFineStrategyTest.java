@@ -0,0 +1,95 @@
+package library.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TieredFineStrategy}.
+ */
+class TieredFineStrategyTest {
+
+    /**
+     * Reference implementation: charges every overdue day one by one.
+     */
+    private static int slowFine(int days, int grace, int[][] steps, int max) {
+        long fine = 0;
+        for (int d = grace + 1; d <= days; d++) {
+            int rate = 0;
+            for (int[] s : steps) {
+                if (s[0] <= d) rate = s[1];
+            }
+            fine += rate;
+        }
+        return (int) Math.min(fine, max);
+    }
+
+    /**
+     * Checks grace days, steps and the maximum against the day-by-day reference.
+     */
+    @Test
+    void calculateFine_matchesDayByDayCalculation() {
+        TieredFineStrategy s = TieredFineStrategy.builder()
+                .graceDays(2).step(1, 5).step(10, 15).maxFine(200).build();
+        int[][] steps = {{1, 5}, {10, 15}};
+
+        for (int days = -3; days < 100; days++) {
+            assertEquals(slowFine(days, 2, steps, 200), s.calculateFine(days), "days=" + days);
+        }
+        assertEquals(200, s.calculateFine(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Checks that without a maximum, long delays are extrapolated with the last rate.
+     */
+    @Test
+    void calculateFine_noMaximum_extrapolatesLastRate() {
+        TieredFineStrategy s = TieredFineStrategy.builder().step(1, 3).step(5, 7).build();
+
+        assertEquals(4 * 3, s.calculateFine(4));
+        assertEquals(4 * 3 + 7, s.calculateFine(5));
+        assertEquals(4 * 3 + 996 * 7, s.calculateFine(1000));
+    }
+
+    /**
+     * Checks that days before the first step are free.
+     */
+    @Test
+    void calculateFine_beforeFirstStep_isZero() {
+        TieredFineStrategy s = TieredFineStrategy.builder().step(4, 10).build();
+
+        assertEquals(0, s.calculateFine(3));
+        assertEquals(10, s.calculateFine(4));
+    }
+
+    /**
+     * Checks that the batch call gives the same fines as single calls.
+     */
+    @Test
+    void calculateFines_matchesSingleCalls() {
+        TieredFineStrategy s = TieredFineStrategy.builder()
+                .graceDays(1).step(1, 10).step(8, 20).maxFine(500).build();
+        int[] days = {-1, 0, 1, 2, 7, 8, 30, 100_000};
+        int[] fines = new int[days.length];
+
+        s.calculateFines(days, fines, days.length);
+
+        for (int i = 0; i < days.length; i++) {
+            assertEquals(s.calculateFine(days[i]), fines[i]);
+        }
+        assertEquals(s.totalFine(days, days.length), Arrays.stream(fines).sum());
+    }
+
+    /**
+     * Checks that invalid rules are rejected.
+     */
+    @Test
+    void builder_invalidRules_throw() {
+        assertThrows(IllegalArgumentException.class, () -> TieredFineStrategy.builder().graceDays(-1));
+        assertThrows(IllegalArgumentException.class, () -> TieredFineStrategy.builder().step(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> TieredFineStrategy.builder().step(1, -5));
+        assertThrows(IllegalArgumentException.class, () -> TieredFineStrategy.builder().maxFine(-1));
+    }
+}
@@ -0,0 +1,45 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CsvLine}.
+ */
+class CsvLineTest {
+
+    /**
+     * Plain, empty and quoted fields are split; doubled quotes become one quote.
+     */
+    @Test
+    void split_handlesQuotedAndEmptyFields() {
+        List<String> out = new ArrayList<>();
+        assertEquals(List.of("a", "", "b, c", "say \"hi\"", ""),
+                CsvLine.split("a,,\"b, c\",\"say \"\"hi\"\"\",", out));
+        assertEquals(List.of(""), CsvLine.split("", out));
+    }
+
+    /**
+     * Single fields are read without splitting the line.
+     */
+    @Test
+    void field_returnsFieldOrNull() {
+        assertEquals("user", CsvLine.field("user,\"u,1\",x", 0));
+        assertEquals("u,1", CsvLine.field("user,\"u,1\",x", 1));
+        assertEquals("x", CsvLine.field("user,\"u,1\",x", 2));
+        assertNull(CsvLine.field("user,\"u,1\",x", 3));
+    }
+
+    /**
+     * Broken quoting is rejected.
+     */
+    @Test
+    void split_rejectsBrokenQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> CsvLine.split("a,\"open", new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class, () -> CsvLine.split("\"a\"b,c", new ArrayList<>()));
+    }
+}
@@ -0,0 +1,150 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link IdempotencyCache}.
+ */
+class IdempotencyCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private IdempotencyCache<String> cache(int capacity) {
+        return new IdempotencyCache<>(capacity, Duration.ofSeconds(10), now::get);
+    }
+
+    /**
+     * Verifies that the operation runs once and retries get its result.
+     */
+    @Test
+    void computeIfAbsent_runsOperationOnce() {
+        IdempotencyCache<String> cache = cache(16);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertEquals("r1", cache.computeIfAbsent("k", () -> "r" + runs.incrementAndGet()));
+        assertEquals("r1", cache.computeIfAbsent("k", () -> "r" + runs.incrementAndGet()));
+        assertEquals(1, runs.get());
+        assertEquals("r1", cache.get("k"));
+    }
+
+    /**
+     * Verifies that results are forgotten after the time to live.
+     */
+    @Test
+    void get_afterTtl_returnsNull() {
+        IdempotencyCache<String> cache = cache(16);
+        cache.put("k", "v");
+
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("v", cache.get("k"));
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("k"));
+        assertEquals("again", cache.computeIfAbsent("k", () -> "again"));
+    }
+
+    /**
+     * Ensures that a failing operation is not remembered.
+     */
+    @Test
+    void computeIfAbsent_operationThrows_isNotStored() {
+        IdempotencyCache<String> cache = cache(16);
+
+        assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent("k", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertNull(cache.get("k"));
+        assertEquals("ok", cache.computeIfAbsent("k", () -> "ok"));
+    }
+
+    /**
+     * Verifies that live results are never evicted: every key stored within
+     * the time to live is still there, however the keys hash.
+     */
+    @Test
+    void put_manyLiveKeys_keepsAll() {
+        IdempotencyCache<String> cache = cache(4096);
+        for (int i = 0; i < 4096; i++) {
+            cache.put("key" + i, "v" + i);
+        }
+
+        assertEquals(4096, cache.size());
+        for (int i = 0; i < 4096; i++) {
+            assertEquals("v" + i, cache.get("key" + i));
+        }
+    }
+
+    /**
+     * Verifies that a full cache refuses new keys without running their
+     * operation, keeps answering known keys and takes new keys again once
+     * results expire.
+     */
+    @Test
+    void computeIfAbsent_full_rejectsNewKeys() {
+        IdempotencyCache<String> cache = cache(64);
+        for (int i = 0; i < 64; i++) {
+            cache.put("key" + i, "v" + i);
+        }
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThrows(IdempotencyCache.FullException.class,
+                () -> cache.computeIfAbsent("new", () -> "r" + runs.incrementAndGet()));
+        assertThrows(IdempotencyCache.FullException.class, () -> cache.put("new", "v"));
+        assertEquals(0, runs.get());
+        assertEquals("v0", cache.computeIfAbsent("key0", () -> "again"));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals("r1", cache.computeIfAbsent("new", () -> "r" + runs.incrementAndGet()));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Ensures that invalid settings are rejected.
+     */
+    @Test
+    void constructor_invalidArguments_throw() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache<String>(0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache<String>(8, Duration.ZERO));
+    }
+
+    /**
+     * Verifies that concurrent calls with the same key run the operation once.
+     */
+    @Test
+    void computeIfAbsent_concurrentRetries_runOnce() throws Exception {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(1024, Duration.ofMinutes(1));
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+
+        for (int t = 0; t < 8; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                results.add(cache.computeIfAbsent("same", () -> "r" + runs.incrementAndGet()));
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        assertEquals(1, runs.get());
+        assertEquals(8, results.size());
+        assertTrue(results.stream().allMatch("r1"::equals));
+    }
+}
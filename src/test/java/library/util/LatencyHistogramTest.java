@@ -0,0 +1,73 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Small values have exact buckets.
+     */
+    @Test
+    void smallValues_shouldBeExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 100; v++) {
+            h.record(v);
+        }
+
+        assertEquals(100, h.count());
+        assertEquals(50, h.valueAtPercentile(50));
+        assertEquals(99, h.valueAtPercentile(99));
+        assertEquals(100, h.valueAtPercentile(100));
+        assertEquals(50.5, h.mean(), 1e-9);
+    }
+
+    /**
+     * Large values are reported within the bucket precision and never above the maximum.
+     */
+    @Test
+    void largeValues_shouldBeWithinPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1000; v <= 1_000_000; v += 1000) {
+            h.record(v);
+        }
+
+        long p50 = h.valueAtPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 65 / 64, "p50 was " + p50);
+        assertEquals(1_000_000, h.valueAtPercentile(100));
+        assertEquals(1_000_000, h.max());
+    }
+
+    /**
+     * Every bucket covers the values mapped to it, up to Long.MAX_VALUE.
+     */
+    @Test
+    void buckets_shouldCoverAllValues() {
+        long[] values = {0, 127, 128, 129, 255, 256, 1L << 40, (1L << 40) + 12345, Long.MAX_VALUE};
+        for (long v : values) {
+            int b = LatencyHistogram.bucketOf(v);
+            assertTrue(LatencyHistogram.highestValueOf(b) >= v, "bucket of " + v);
+            if (b > 0) assertTrue(LatencyHistogram.highestValueOf(b - 1) < v, "previous bucket of " + v);
+        }
+    }
+
+    /**
+     * Negative values count as 0, and reset clears everything.
+     */
+    @Test
+    void negativeValuesAndReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(0, h.valueAtPercentile(100));
+        assertEquals(1, h.count());
+
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.max());
+        assertEquals(0, h.valueAtPercentile(50));
+    }
+}
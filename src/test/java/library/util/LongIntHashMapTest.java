@@ -0,0 +1,62 @@
+package library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LongIntHashMap}.
+ */
+class LongIntHashMapTest {
+
+    /**
+     * Verifies basic operations, including the key 0.
+     */
+    @Test
+    void basicOperations() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(0, map.get(0));
+        assertFalse(map.containsKey(0));
+
+        map.put(0, 4);
+        assertEquals(5, map.addTo(0, 1));
+        assertEquals(2, map.addTo(-7, 2));
+        assertTrue(map.containsKey(0));
+        assertEquals(2, map.size());
+
+        assertEquals(5, map.remove(0));
+        assertEquals(-1, map.getOrDefault(0, -1));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * Compares the map with java.util.HashMap under many random operations.
+     */
+    @Test
+    void randomOperations_matchHashMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random rnd = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = rnd.nextInt(3_000) * 1_000_003L;
+            if (rnd.nextInt(4) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? 0 : old, map.remove(key));
+            } else {
+                map.addTo(key, 1);
+                expected.merge(key, 1, Integer::sum);
+            }
+        }
+
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), map.size());
+    }
+}
@@ -0,0 +1,122 @@
+package library.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ObjectIntHashMap}.
+ *
+ * These tests check basic map operations, growth, removal with
+ * collisions, and the boxed read-only view.
+ */
+class ObjectIntHashMapTest {
+
+    private ObjectIntHashMap<String> map;
+
+    /**
+     * Creates an empty map before each test.
+     */
+    @BeforeEach
+    void setup() {
+        map = new ObjectIntHashMap<>();
+    }
+
+    /**
+     * Ensures that missing keys read as 0 or as the given default.
+     */
+    @Test
+    void get_missingKey_returnsDefault() {
+        assertEquals(0, map.get("x"));
+        assertEquals(-1, map.getOrDefault("x", -1));
+        assertFalse(map.containsKey("x"));
+        assertFalse(map.containsKey(null));
+    }
+
+    /**
+     * Verifies put, addTo and remove on a single key.
+     */
+    @Test
+    void putAddToRemove_workOnSingleKey() {
+        assertEquals(0, map.put("a", 5));
+        assertEquals(5, map.put("a", 7));
+        assertEquals(9, map.addTo("a", 2));
+        assertEquals(3, map.addTo("b", 3));
+        assertEquals(2, map.size());
+
+        assertEquals(9, map.remove("a"));
+        assertEquals(0, map.remove("a"));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * Ensures that null keys are rejected on write.
+     */
+    @Test
+    void put_nullKey_throws() {
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+    }
+
+    /**
+     * Compares the map with java.util.HashMap under many random operations,
+     * including growth and removals.
+     */
+    @Test
+    void randomOperations_matchHashMap() {
+        Map<String, Integer> expected = new HashMap<>();
+        Random rnd = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            String key = "U" + rnd.nextInt(2_000);
+            int op = rnd.nextInt(3);
+            if (op == 0) {
+                map.addTo(key, 1);
+                expected.merge(key, 1, Integer::sum);
+            } else if (op == 1) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? 0 : old, map.remove(key));
+            }
+        }
+
+        assertEquals(expected, map.asMap());
+        assertEquals(expected.size(), map.size());
+    }
+
+    /**
+     * Verifies that forEach visits every entry and the boxed view is read-only.
+     */
+    @Test
+    void forEach_and_asMap() {
+        map.put("a", 1);
+        map.put("b", 2);
+
+        int[] sum = {0};
+        map.forEach((k, v) -> sum[0] += v);
+        assertEquals(3, sum[0]);
+
+        Map<String, Integer> view = map.asMap();
+        assertEquals(2, view.get("b"));
+        assertNull(view.get("c"));
+        assertThrows(UnsupportedOperationException.class, () -> view.put("c", 3));
+    }
+
+    /**
+     * Ensures that a copy is independent from the original.
+     */
+    @Test
+    void copyConstructor_isIndependent() {
+        map.put("a", 1);
+        ObjectIntHashMap<String> copy = new ObjectIntHashMap<>(map);
+        map.put("a", 2);
+
+        assertEquals(1, copy.get("a"));
+    }
+}